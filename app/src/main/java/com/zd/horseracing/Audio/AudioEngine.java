@@ -0,0 +1,379 @@
+package com.zd.horseracing.Audio;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.media.AudioAttributes;
+import android.media.MediaMetadataRetriever;
+import android.media.MediaPlayer;
+import android.media.SoundPool;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.zd.horseracing.R;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongConsumer;
+
+/**
+ * App-wide audio.  Short effects are decoded once into a {@link SoundPool} when the engine is
+ * created, so playing one costs no decoder setup.  Background music plays on a single channel
+ * shared by every screen: switching screens to the same track keeps it playing, switching to
+ * another track crossfades, and the music pauses while no screen of the app is visible.
+ * <p>
+ * SoundPool decodes at most 1 MB of PCM per sound (about 5 seconds of 48 kHz stereo), so only
+ * short effects belong in {@link #EFFECTS}; anything longer plays on the music channel.
+ * <p>
+ * The length of each effect is read from its metadata on a background thread, since that parses
+ * the file.  Whatever waits on a length, e.g. {@link #playEffect(int, Runnable)}'s completion or
+ * {@link #whenEffectDurationKnown(int, LongConsumer)}, is held until it is read, so nothing is
+ * ever timed with a length of 0.
+ * <p>
+ * Must only be used from the main thread.
+ */
+public class AudioEngine {
+    private static final String TAG = "AudioEngine";
+    private static final int MAX_STREAMS = 4;
+    private static final long CROSSFADE_MS = 600;
+    private static final long FADE_STEP_MS = 30;
+    private static final int NO_STREAM = 0;
+    // Used for an effect whose length cannot be read, about as long as the countdown
+    private static final int UNKNOWN_DURATION_MS = 3000;
+
+    // Effects decoded into the pool up front
+    private static final int[] EFFECTS = {
+            R.raw.soundwin,
+            R.raw.soundlose,
+            R.raw.fail,
+            R.raw.countdownfinalcut,
+            R.raw.horsefootsteps
+    };
+
+    private static AudioEngine instance;
+
+    private final Context context;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final SoundPool soundPool;
+    private final SparseIntArray soundIds = new SparseIntArray();     // resource ID -> sound ID
+    private final SparseIntArray durationsMs = new SparseIntArray();  // resource ID -> duration, once read
+    private final SparseArray<List<LongConsumer>> durationWaiters = new SparseArray<>(); // Until read
+    private final SparseIntArray loadedSounds = new SparseIntArray(); // sound ID -> 1 once decoded
+    private final SparseIntArray pendingLoops = new SparseIntArray(); // sound ID -> 1 if started before decoded
+    private final SparseIntArray loopStreams = new SparseIntArray();  // sound ID -> playing loop stream
+
+    // Background music channel
+    private MediaPlayer music;
+    private int musicRes;
+    private MediaPlayer fadingOut;
+    private long fadeStartMs;
+    private int startedScreens;
+    private final Runnable fadeStep = this::stepCrossfade;
+
+    private AudioEngine(Context context) {
+        this.context = context;
+        AudioAttributes attributes = new AudioAttributes.Builder()
+                .setUsage(AudioAttributes.USAGE_GAME)
+                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                .build();
+        soundPool = new SoundPool.Builder()
+                .setMaxStreams(MAX_STREAMS)
+                .setAudioAttributes(attributes)
+                .build();
+        soundPool.setOnLoadCompleteListener((pool, soundId, status) -> {
+            if (status != 0) {
+                Log.w(TAG, "Cannot decode sound " + soundId);
+                return;
+            }
+            loadedSounds.put(soundId, 1);
+            if (pendingLoops.get(soundId) != 0) {
+                pendingLoops.delete(soundId);
+                loopStreams.put(soundId, pool.play(soundId, 1f, 1f, 1, -1, 1f));
+            }
+        });
+        for (int resId : EFFECTS) {
+            soundIds.put(resId, soundPool.load(context, resId, 1)); // Decoded by SoundPool's own thread
+        }
+
+        // Metadata parsing is file I/O, kept off the main thread like the decoding
+        ExecutorService durationReader = Executors.newSingleThreadExecutor();
+        durationReader.execute(() -> {
+            for (int resId : EFFECTS) {
+                int durationMs = readDurationMs(resId);
+                handler.post(() -> onDurationRead(resId, durationMs > 0 ? durationMs : UNKNOWN_DURATION_MS));
+            }
+        });
+        durationReader.shutdown(); // The thread ends once every length is read
+    }
+
+    /**
+     * Gets the engine shared by the whole process, creating it (and decoding every effect) on
+     * first use.
+     *
+     * @param context Any context; the engine keeps only the application context.
+     * @return The shared engine.
+     */
+    public static AudioEngine getInstance(Context context) {
+        if (instance == null) {
+            Application application = (Application) context.getApplicationContext();
+            instance = new AudioEngine(application);
+            application.registerActivityLifecycleCallbacks(instance.new ScreenTracker());
+        }
+        return instance;
+    }
+
+    /**
+     * Plays a short effect once.
+     *
+     * @param resId The raw resource ID of the effect; must be one of the preloaded effects.
+     */
+    public void playEffect(int resId) {
+        playEffect(resId, null);
+    }
+
+    /**
+     * Plays a short effect once and runs an action when it has finished.
+     *
+     * @param resId      The raw resource ID of the effect; must be one of the preloaded effects.
+     * @param onComplete Run on the main thread once the effect has played, or null.  If the
+     *                   effect's length is not read yet, it waits for it.
+     */
+    public void playEffect(int resId, @Nullable Runnable onComplete) {
+        int soundId = soundIds.get(resId, NO_STREAM);
+        if (soundId != NO_STREAM && loadedSounds.get(soundId) != 0) {
+            soundPool.play(soundId, 1f, 1f, 1, 0, 1f);
+        } else {
+            Log.w(TAG, "Effect not ready, skipped: " + resId);
+        }
+        if (onComplete != null) {
+            // SoundPool reports no completion, so wait for the effect's length from now
+            long startMs = SystemClock.uptimeMillis();
+            whenEffectDurationKnown(resId, durationMs -> handler.postAtTime(onComplete, startMs + durationMs));
+        }
+    }
+
+    /**
+     * Passes the length of a preloaded effect to a callback, e.g. to time what happens after it.
+     * Called right away if the length is read already, otherwise on the main thread once it is.
+     *
+     * @param resId    The raw resource ID of the effect; must be one of the preloaded effects.
+     * @param callback Receives the length in milliseconds, never 0.
+     */
+    public void whenEffectDurationKnown(int resId, @NonNull LongConsumer callback) {
+        if (durationsMs.indexOfKey(resId) >= 0) {
+            callback.accept(durationsMs.get(resId));
+            return;
+        }
+        List<LongConsumer> waiters = durationWaiters.get(resId);
+        if (waiters == null) {
+            waiters = new ArrayList<>();
+            durationWaiters.put(resId, waiters);
+        }
+        waiters.add(callback);
+    }
+
+    /**
+     * Stores a length read in the background and hands it to whatever was waiting for it.
+     */
+    private void onDurationRead(int resId, int durationMs) {
+        durationsMs.put(resId, durationMs);
+        List<LongConsumer> waiters = durationWaiters.get(resId);
+        if (waiters != null) {
+            durationWaiters.remove(resId);
+            for (LongConsumer waiter : waiters) {
+                waiter.accept(durationMs);
+            }
+        }
+    }
+
+    /**
+     * Starts playing an effect in a loop until {@link #stopLoop(int)} is called.  Starting a
+     * loop that is already playing does nothing.
+     *
+     * @param resId The raw resource ID of the effect; must be one of the preloaded effects.
+     */
+    public void startLoop(int resId) {
+        int soundId = soundIds.get(resId, NO_STREAM);
+        if (soundId == NO_STREAM || loopStreams.get(soundId, NO_STREAM) != NO_STREAM) {
+            return;
+        }
+        if (loadedSounds.get(soundId) != 0) {
+            loopStreams.put(soundId, soundPool.play(soundId, 1f, 1f, 1, -1, 1f));
+        } else {
+            pendingLoops.put(soundId, 1); // Started as soon as it is decoded
+        }
+    }
+
+    /**
+     * Stops a loop started with {@link #startLoop(int)}.
+     *
+     * @param resId The raw resource ID of the effect.
+     */
+    public void stopLoop(int resId) {
+        int soundId = soundIds.get(resId, NO_STREAM);
+        pendingLoops.delete(soundId);
+        int streamId = loopStreams.get(soundId, NO_STREAM);
+        if (streamId != NO_STREAM) {
+            soundPool.stop(streamId);
+            loopStreams.delete(soundId);
+        }
+    }
+
+    /**
+     * Plays a track on the background music channel.  Keeps playing if the track is already
+     * on, otherwise crossfades from the current track.
+     *
+     * @param resId The raw resource ID of the track.
+     */
+    public void playMusic(int resId) {
+        if (music != null && musicRes == resId) {
+            if (!music.isPlaying() && startedScreens > 0) {
+                music.start();
+            }
+            return;
+        }
+
+        MediaPlayer next;
+        try {
+            next = MediaPlayer.create(context, resId);
+        } catch (Exception e) {
+            next = null;
+        }
+        if (next == null) {
+            Log.w(TAG, "Cannot play music " + resId); // e.g. the resource is missing
+            return;
+        }
+        next.setLooping(true);
+
+        // Drop a track still fading out from an earlier switch
+        releaseFadingOut();
+        fadingOut = music;
+        music = next;
+        musicRes = resId;
+        if (fadingOut == null) {
+            music.setVolume(1f, 1f);
+        } else {
+            music.setVolume(0f, 0f);
+            fadeStartMs = SystemClock.uptimeMillis();
+            handler.removeCallbacks(fadeStep);
+            handler.post(fadeStep);
+        }
+        if (startedScreens > 0) {
+            music.start();
+        }
+    }
+
+    /**
+     * Stops the background music channel and releases its player.
+     */
+    public void stopMusic() {
+        handler.removeCallbacks(fadeStep);
+        releaseFadingOut();
+        if (music != null) {
+            music.release();
+            music = null;
+            musicRes = 0;
+        }
+    }
+
+    /**
+     * Moves the crossfade one step along, ending it once the new track is at full volume.
+     */
+    private void stepCrossfade() {
+        float progress = Math.min(1f, (SystemClock.uptimeMillis() - fadeStartMs) / (float) CROSSFADE_MS);
+        if (music != null) {
+            music.setVolume(progress, progress);
+        }
+        if (fadingOut != null) {
+            fadingOut.setVolume(1f - progress, 1f - progress);
+        }
+        if (progress < 1f) {
+            handler.postDelayed(fadeStep, FADE_STEP_MS);
+        } else {
+            releaseFadingOut();
+        }
+    }
+
+    private void releaseFadingOut() {
+        if (fadingOut != null) {
+            fadingOut.release();
+            fadingOut = null;
+        }
+    }
+
+    /**
+     * Reads the length of an effect, used to report its completion.  Runs on the background
+     * reader thread.
+     */
+    private int readDurationMs(int resId) {
+        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+        try (AssetFileDescriptor fd = context.getResources().openRawResourceFd(resId)) {
+            retriever.setDataSource(fd.getFileDescriptor(), fd.getStartOffset(), fd.getLength());
+            String duration = retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION);
+            return duration == null ? 0 : Integer.parseInt(duration);
+        } catch (Exception e) {
+            Log.w(TAG, "Cannot read the length of " + resId, e);
+            return 0;
+        } finally {
+            try {
+                retriever.release();
+            } catch (Exception ignored) {
+                // Nothing left to clean up
+            }
+        }
+    }
+
+    /**
+     * Pauses the music while no screen of the app is visible.  Screens are counted from
+     * {@code onStart} to {@code onStop}, so switching screens (the next one starts before the
+     * previous one stops) never interrupts the music.
+     */
+    private class ScreenTracker implements Application.ActivityLifecycleCallbacks {
+        @Override
+        public void onActivityStarted(@NonNull Activity activity) {
+            startedScreens++;
+            if (startedScreens == 1 && music != null) {
+                music.start();
+            }
+        }
+
+        @Override
+        public void onActivityStopped(@NonNull Activity activity) {
+            startedScreens = Math.max(0, startedScreens - 1);
+            if (startedScreens == 0 && music != null && music.isPlaying()) {
+                music.pause();
+            }
+        }
+
+        @Override
+        public void onActivityCreated(@NonNull Activity activity, @Nullable Bundle savedInstanceState) {
+        }
+
+        @Override
+        public void onActivityResumed(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivityPaused(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) {
+        }
+
+        @Override
+        public void onActivityDestroyed(@NonNull Activity activity) {
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.zd.horseracing.Engine;
+
+import com.zd.horseracing.Models.BetBook;
+import com.zd.horseracing.Models.BetType;
+import com.zd.horseracing.Models.HorseBet;
+
+/**
+ * Pari-mutuel pools for every {@link BetType} of a race.  Each type has its own {@link TotePool}
+ * indexed by combination key, so a bet lands in the pool of exactly its combination in O(1), and
+ * settling a race only looks at the handful of winning combinations (at most eight: one win, two
+ * place, three show, one exacta and one trifecta) however many bets were placed.
+ * <p>
+ * Win, exacta and trifecta winners share their net pool in proportion to their stakes.  Place
+ * and show winners get their stake back plus an equal share of the remaining profit per placed
+ * horse, as on a real tote.  A winning bet never returns less than its stake.  Not thread-safe.
+ */
+public class BetPools {
+    private static final BetType[] TYPES = BetType.values();
+
+    private final int horseCount;
+    private final TotePool[] pools; // By bet type ordinal, indexed by combination key
+
+    /**
+     * Constructor for the BetPools.
+     *
+     * @param horseCount      The number of horses in the race.
+     * @param takeBasisPoints The share of every pool kept by the house, in basis points.
+     */
+    public BetPools(int horseCount, int takeBasisPoints) {
+        this.horseCount = horseCount;
+        this.pools = new TotePool[TYPES.length];
+        for (BetType type : TYPES) {
+            pools[type.ordinal()] = new TotePool(type.getKeySpace() - 1, takeBasisPoints); // Key 0 is never used
+        }
+    }
+
+    /**
+     * Adds a bet to the pool of its type and combination.
+     *
+     * @param bet The bet.
+     */
+    public void placeBet(HorseBet bet) {
+        checkHorses(bet);
+        pools[bet.getType().ordinal()].placeBet(bet.getCombinationKey(), bet.getBetAmount());
+    }
+
+    /**
+     * Adds a stake to the pool of a combination, e.g. straight from a {@link BetBook}.
+     *
+     * @param type   The bet type.
+     * @param key    The combination key; its horses must be running.
+     * @param amount The stake.
+     */
+    public void placeBet(BetType type, int key, long amount) {
+        pools[type.ordinal()].placeBet(key, amount);
+    }
+
+    /**
+     * Takes a bet back out of its pool.
+     *
+     * @param bet A bet placed earlier.
+     */
+    public void cancelBet(HorseBet bet) {
+        cancelBet(bet.getType(), bet.getCombinationKey(), bet.getBetAmount());
+    }
+
+    /**
+     * Takes a stake back out of the pool of a combination.
+     *
+     * @param type   The bet type.
+     * @param key    The combination key.
+     * @param amount The stake placed earlier.
+     */
+    public void cancelBet(BetType type, int key, long amount) {
+        pools[type.ordinal()].cancelBet(key, amount);
+    }
+
+    /**
+     * Empties every pool for the next race.
+     */
+    public void clear() {
+        for (TotePool pool : pools) {
+            pool.clear();
+        }
+    }
+
+    /**
+     * Spreads an amount evenly over every combination of every bet type, standing in for the
+     * rest of the crowd so that a few bets move the odds without deciding them.
+     *
+     * @param amountPerType The amount added to each bet type's pool; every combination gets at
+     *                      least 1.
+     */
+    public void addHouseFloat(long amountPerType) {
+        int[] horses = new int[3];
+        for (BetType type : TYPES) {
+            int combinations = countCombinations(type.getSelections());
+            if (combinations > 0) {
+                long perCombination = Math.max(1, amountPerType / combinations);
+                floatCombinations(pools[type.ordinal()], type, horses, 0, perCombination);
+            }
+        }
+    }
+
+    /**
+     * Gets the pool of a bet type.
+     *
+     * @param type The bet type.
+     * @return Its pool, indexed by combination key.
+     */
+    public TotePool getPool(BetType type) {
+        return pools[type.ordinal()];
+    }
+
+    /**
+     * Gets the live win odds of a horse.
+     *
+     * @param horseNumber The horse (1-based index).
+     * @return What one unit staked to win returns, stake included, if it wins now.
+     */
+    public double getWinOdds(int horseNumber) {
+        return pools[BetType.WIN.ordinal()].getOdds(horseNumber);
+    }
+
+    /**
+     * Works out the dividends of a finished race from its finishing order.  Only the winning
+     * combinations of each type are looked at.
+     *
+     * @param finishingOrder The horses in finishing order (1-based numbers).
+     * @return The dividends, to pay bets with.
+     */
+    public Dividends settle(int[] finishingOrder) {
+        Dividends dividends = new Dividends();
+        for (BetType type : TYPES) {
+            TotePool pool = pools[type.ordinal()];
+            int winners = type.getWinningKeyCount(horseCount);
+            if (winners == 0) {
+                continue;
+            }
+            if (type.getSelections() == 1 && winners > 1) {
+                settleShared(dividends, type, pool, finishingOrder, winners);
+            } else {
+                int key = type.winningKey(finishingOrder, 0);
+                long winningPool = pool.getPool(key);
+                if (winningPool > 0) {
+                    dividends.add(type, key, Math.max(pool.getNetPool(), winningPool), winningPool);
+                }
+            }
+        }
+        return dividends;
+    }
+
+    /**
+     * Place and show: the winning stakes are paid back and the rest of the net pool is split
+     * equally between the placed horses that were backed, then pro rata within each.
+     */
+    private static void settleShared(Dividends dividends, BetType type, TotePool pool, int[] finishingOrder, int winners) {
+        long winningStakes = 0;
+        int backed = 0;
+        for (int i = 0; i < winners; i++) {
+            long stake = pool.getPool(type.winningKey(finishingOrder, i));
+            winningStakes += stake;
+            backed += stake > 0 ? 1 : 0;
+        }
+        if (backed == 0) {
+            return;
+        }
+        long profitShare = Math.max(0, pool.getNetPool() - winningStakes) / backed;
+        for (int i = 0; i < winners; i++) {
+            int key = type.winningKey(finishingOrder, i);
+            long stake = pool.getPool(key);
+            if (stake > 0) {
+                dividends.add(type, key, stake + profitShare, stake);
+            }
+        }
+    }
+
+    /**
+     * Counts the ordered picks of distinct horses, e.g. 20 * 19 * 18 trifectas in a 20-horse race.
+     */
+    private int countCombinations(int selections) {
+        int count = 1;
+        for (int i = 0; i < selections; i++) {
+            count *= horseCount - i;
+        }
+        return Math.max(0, count);
+    }
+
+    private void floatCombinations(TotePool pool, BetType type, int[] horses, int depth, long amount) {
+        if (depth == type.getSelections()) {
+            pool.placeBet(type.key(horses), amount);
+            return;
+        }
+        for (int horse = 1; horse <= horseCount; horse++) {
+            boolean picked = false;
+            for (int i = 0; i < depth; i++) {
+                picked |= horses[i] == horse;
+            }
+            if (!picked) {
+                horses[depth] = horse;
+                floatCombinations(pool, type, horses, depth + 1, amount);
+            }
+        }
+    }
+
+    private void checkHorses(HorseBet bet) {
+        for (int horse : bet.getHorses()) {
+            if (horse < 1 || horse > horseCount) {
+                throw new IllegalArgumentException("Horse " + horse + " is not running");
+            }
+        }
+    }
+
+    /**
+     * The dividends of a settled race: for each winning combination, what a stake on it is paid
+     * per unit, as the exact fraction {@code numerator / denominator}.
+     */
+    public static class Dividends {
+        private static final int MAX_WINNERS = 8; // 1 win + 2 place + 3 show + 1 exacta + 1 trifecta
+
+        private final BetType[] types = new BetType[MAX_WINNERS];
+        private final int[] keys = new int[MAX_WINNERS];
+        private final long[] numerators = new long[MAX_WINNERS];
+        private final long[] denominators = new long[MAX_WINNERS];
+        private int count;
+
+        private void add(BetType type, int key, long numerator, long denominator) {
+            types[count] = type;
+            keys[count] = key;
+            numerators[count] = numerator;
+            denominators[count] = denominator;
+            count++;
+        }
+
+        /**
+         * Gets what a bet is paid, stake included.
+         *
+         * @param bet A bet on the race.
+         * @return The payout, 0 if the bet lost.
+         */
+        public long payout(HorseBet bet) {
+            return payout(bet.getType(), bet.getCombinationKey(), bet.getBetAmount());
+        }
+
+        /**
+         * Gets what a stake on a combination is paid, stake included.
+         *
+         * @param type  The bet type.
+         * @param key   The combination key.
+         * @param stake The stake.
+         * @return The payout, 0 if the combination lost.
+         */
+        public long payout(BetType type, int key, long stake) {
+            for (int i = 0; i < count; i++) {
+                if (types[i] == type && keys[i] == key) {
+                    return TotePool.multiplyDivide(stake, numerators[i], denominators[i]);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Gets the bet type of a winning combination.
+         *
+         * @param index The combination, from 0 to {@link #getWinningCombinationCount()} - 1.
+         * @return The bet type.
+         */
+        public BetType getCombinationType(int index) {
+            return types[index];
+        }
+
+        /**
+         * Gets the key of a winning combination.
+         *
+         * @param index The combination, from 0 to {@link #getWinningCombinationCount()} - 1.
+         * @return The combination key.
+         */
+        public int getCombinationKey(int index) {
+            return keys[index];
+        }
+
+        /**
+         * Gets what a stake on a winning combination is paid, stake included, without looking
+         * the combination up.
+         *
+         * @param index The combination, from 0 to {@link #getWinningCombinationCount()} - 1.
+         * @param stake The stake.
+         * @return The payout.
+         */
+        public long payoutForCombination(int index, long stake) {
+            return TotePool.multiplyDivide(stake, numerators[index], denominators[index]);
+        }
+
+        /**
+         * Gets the number of winning combinations that were backed.
+         *
+         * @return The count, at most eight.
+         */
+        public int getWinningCombinationCount() {
+            return count;
+        }
+    }
+}
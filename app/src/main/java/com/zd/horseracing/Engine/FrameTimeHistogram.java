@@ -0,0 +1,136 @@
+package com.zd.horseracing.Engine;
+
+import java.util.Locale;
+
+/**
+ * Histogram of display frame durations in 1 ms buckets, used to verify that race rendering keeps
+ * up with the panel's refresh rate.  A frame counts as janky when it takes more than one and a
+ * half refresh periods, i.e. at least one vsync was missed.  Recording never allocates.
+ */
+public class FrameTimeHistogram {
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+    /** Number of 1 ms buckets; the last bucket collects every frame of that length or longer. */
+    private static final int BUCKET_COUNT = 100;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private final long refreshPeriodNanos;
+    private final long jankThresholdNanos;
+    private long lastFrameNanos;
+    private long frameCount;
+    private long jankCount;
+    private long maxFrameNanos;
+
+    /**
+     * Constructor for the FrameTimeHistogram.
+     *
+     * @param refreshPeriodNanos The display refresh period in nanoseconds (e.g. 8.3 ms at 120 Hz).
+     */
+    public FrameTimeHistogram(long refreshPeriodNanos) {
+        this.refreshPeriodNanos = refreshPeriodNanos;
+        this.jankThresholdNanos = refreshPeriodNanos + refreshPeriodNanos / 2;
+        reset();
+    }
+
+    /**
+     * Clears all recorded frames.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = 0;
+        }
+        lastFrameNanos = -1;
+        frameCount = 0;
+        jankCount = 0;
+        maxFrameNanos = 0;
+    }
+
+    /**
+     * Records a frame from its timestamp.  The first frame after a reset only sets the origin.
+     *
+     * @param frameTimeNanos The frame timestamp in nanoseconds.
+     */
+    public void recordFrame(long frameTimeNanos) {
+        if (lastFrameNanos >= 0) {
+            recordDuration(frameTimeNanos - lastFrameNanos);
+        }
+        lastFrameNanos = frameTimeNanos;
+    }
+
+    /**
+     * Records the duration of a single frame.
+     *
+     * @param durationNanos The frame duration in nanoseconds.
+     */
+    public void recordDuration(long durationNanos) {
+        if (durationNanos < 0) {
+            return;
+        }
+        int bucket = (int) Math.min(durationNanos / NANOS_PER_MILLI, BUCKET_COUNT - 1);
+        counts[bucket]++;
+        frameCount++;
+        if (durationNanos > jankThresholdNanos) {
+            jankCount++;
+        }
+        if (durationNanos > maxFrameNanos) {
+            maxFrameNanos = durationNanos;
+        }
+    }
+
+    /**
+     * Gets the number of frames recorded.
+     *
+     * @return The frame count.
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Gets the number of frames that missed at least one vsync.
+     *
+     * @return The janky frame count.
+     */
+    public long getJankCount() {
+        return jankCount;
+    }
+
+    /**
+     * Gets the longest frame recorded.
+     *
+     * @return The longest frame duration in milliseconds.
+     */
+    public double getMaxFrameMillis() {
+        return (double) maxFrameNanos / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Gets a percentile of the frame durations, at 1 ms resolution.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The upper bound in milliseconds of the bucket holding the percentile, or 0 when
+     *         no frame was recorded.
+     */
+    public int getPercentileMillis(double percentile) {
+        if (frameCount == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100.0 * frameCount);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0) {
+                return i + 1;
+            }
+        }
+        return BUCKET_COUNT;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%d frames @ %.1f ms refresh: p50 <%d ms, p90 <%d ms, p99 <%d ms, max %.1f ms, janky %d (%.1f%%)",
+                frameCount, (double) refreshPeriodNanos / NANOS_PER_MILLI,
+                getPercentileMillis(50), getPercentileMillis(90), getPercentileMillis(99),
+                getMaxFrameMillis(), jankCount, frameCount == 0 ? 0 : 100.0 * jankCount / frameCount);
+    }
+}
@@ -0,0 +1,71 @@
+package com.zd.horseracing.Engine;
+
+/**
+ * Fixed-timestep clock that decouples simulation time from display frames.  Each display frame
+ * reports its timestamp; the clock answers how many whole simulation ticks are due and how far
+ * the current frame is between the last two ticks, so the renderer can interpolate positions on
+ * every vsync while the {@link RaceEngine} keeps ticking at its fixed logical rate.
+ */
+public class RaceClock {
+    private final long tickNanos;
+    private final int maxTicksPerFrame;
+    private long lastFrameNanos;
+    private long accumulatorNanos;
+
+    /**
+     * Constructor for the RaceClock.
+     *
+     * @param tickNanos        The duration of one simulation tick in nanoseconds.
+     * @param maxTicksPerFrame The most ticks a single frame may catch up on; time beyond that
+     *                         (e.g. after the app was paused) is dropped instead of fast-forwarded.
+     */
+    public RaceClock(long tickNanos, int maxTicksPerFrame) {
+        if (tickNanos <= 0 || maxTicksPerFrame <= 0) {
+            throw new IllegalArgumentException("tickNanos and maxTicksPerFrame must be greater than 0");
+        }
+        this.tickNanos = tickNanos;
+        this.maxTicksPerFrame = maxTicksPerFrame;
+        reset();
+    }
+
+    /**
+     * Restarts the clock.  The next frame only sets the time origin and runs no tick.
+     */
+    public void reset() {
+        lastFrameNanos = -1;
+        accumulatorNanos = 0;
+    }
+
+    /**
+     * Accounts for a new display frame.
+     *
+     * @param frameTimeNanos The frame timestamp, e.g. from {@code Choreographer.FrameCallback}.
+     * @return The number of simulation ticks to run for this frame.
+     */
+    public int advance(long frameTimeNanos) {
+        if (lastFrameNanos < 0) {
+            lastFrameNanos = frameTimeNanos;
+            return 0;
+        }
+        long elapsed = Math.max(0, frameTimeNanos - lastFrameNanos);
+        lastFrameNanos = frameTimeNanos;
+        accumulatorNanos += elapsed;
+
+        long dueTicks = accumulatorNanos / tickNanos;
+        if (dueTicks > maxTicksPerFrame) {
+            accumulatorNanos %= tickNanos; // Drop the backlog rather than fast-forwarding
+            return maxTicksPerFrame;
+        }
+        accumulatorNanos -= dueTicks * tickNanos;
+        return (int) dueTicks;
+    }
+
+    /**
+     * Gets how far the last frame is between the previous tick and the next one.
+     *
+     * @return The interpolation factor, between 0 and 1.
+     */
+    public float getAlpha() {
+        return (float) accumulatorNanos / tickNanos;
+    }
+}
@@ -0,0 +1,235 @@
+package com.zd.horseracing.Engine;
+
+/**
+ * UI-free, deterministic race simulation.  Owns the position of every horse in a primitive array
+ * and advances all of them by a random stride on each fixed tick.  The random sequence is fully
+ * determined by the seed, so the same seed and horse count always produce the same race.
+ * The Activity only reads snapshots of the positions to render them.
+ */
+public class RaceEngine {
+    /** Position a horse must reach to finish the race (matches the SeekBar max of 100). */
+    public static final int FINISH_LINE = 100;
+    /** Exclusive upper bound of the per-tick stride (a horse moves 0, 1 or 2 per tick). */
+    public static final int STRIDE_BOUND = 3;
+    /** Duration of one simulation tick in milliseconds. */
+    public static final long TICK_INTERVAL_MS = 50;
+    /** Value returned by {@link #getWinner()} while the race is still running. */
+    public static final int NO_WINNER = 0;
+    /** Number of strides drawn from each 32-bit half of a random word (3^5 keeps the bias below 1e-7). */
+    private static final int STRIDES_PER_HALF_WORD = 5;
+
+    private final int horseCount;
+    private final int[] positions;
+    private final int[] previousPositions;
+    private long seed;
+    private long rngState;
+    private long strideBits;
+    private int stridesLeft;
+    private int tickCount;
+    private int winner;
+
+    /**
+     * Constructor for the RaceEngine.
+     *
+     * @param horseCount The number of horses in the race.
+     * @param seed       The seed of the random stride sequence.
+     */
+    public RaceEngine(int horseCount, long seed) {
+        if (horseCount <= 0) {
+            throw new IllegalArgumentException("horseCount must be greater than 0");
+        }
+        this.horseCount = horseCount;
+        this.positions = new int[horseCount];
+        this.previousPositions = new int[horseCount];
+        reset(seed);
+    }
+
+    /**
+     * Moves every horse back to the start and restarts the random sequence from the given seed.
+     *
+     * @param seed The seed of the random stride sequence.
+     */
+    public void reset(long seed) {
+        this.seed = seed;
+        this.rngState = seed;
+        this.stridesLeft = 0;
+        this.tickCount = 0;
+        this.winner = NO_WINNER;
+        for (int i = 0; i < horseCount; i++) {
+            positions[i] = 0;
+            previousPositions[i] = 0;
+        }
+    }
+
+    /**
+     * Advances the race by one tick.  Every horse moves forward by a random stride; once at least
+     * one horse reaches the {@link #FINISH_LINE} the race is decided.  The horse furthest past the
+     * line wins, ties going to the lowest lane.  Calling this after the race is finished does nothing.
+     *
+     * @return The winning horse (1-based index) if the race was decided, {@link #NO_WINNER} otherwise.
+     */
+    public int tick() {
+        if (winner != NO_WINNER) {
+            return winner;
+        }
+
+        System.arraycopy(positions, 0, previousPositions, 0, horseCount);
+
+        int leader = -1;
+        int leaderPosition = FINISH_LINE - 1;
+        for (int i = 0; i < horseCount; i++) {
+            int position = positions[i] + nextStride();
+            positions[i] = position;
+            if (position > leaderPosition) {
+                leader = i;
+                leaderPosition = position;
+            }
+        }
+        tickCount++;
+
+        if (leader >= 0) {
+            winner = leader + 1;
+        }
+        return winner;
+    }
+
+    /**
+     * Runs the race until a winner is decided.
+     *
+     * @return The winning horse (1-based index).
+     */
+    public int runToFinish() {
+        while (winner == NO_WINNER) {
+            tick();
+        }
+        return winner;
+    }
+
+    /**
+     * Checks whether the race has been decided.
+     *
+     * @return True if a horse has reached the finish line, false otherwise.
+     */
+    public boolean isFinished() {
+        return winner != NO_WINNER;
+    }
+
+    /**
+     * Gets the winning horse.
+     *
+     * @return The winning horse (1-based index), or {@link #NO_WINNER} while the race is running.
+     */
+    public int getWinner() {
+        return winner;
+    }
+
+    /**
+     * Gets the finishing order of the race: every horse ranked by how far it got on the tick that
+     * decided it, ties going to the lowest lane, so the first horse is always the
+     * {@link #getWinner() winner}.  Sorts in place into the caller's array and never allocates.
+     *
+     * @param out Receives the horse numbers (1-based) in finishing order; at least
+     *            {@link #getHorseCount()} long.
+     * @return The array passed in.
+     */
+    public int[] getFinishingOrder(int[] out) {
+        for (int i = 0; i < horseCount; i++) {
+            // Insertion sort: at most 20 horses, and stable so ties keep lane order
+            int horse = i + 1;
+            int position = positions[i];
+            int j = i - 1;
+            while (j >= 0 && positions[out[j] - 1] < position) {
+                out[j + 1] = out[j];
+                j--;
+            }
+            out[j + 1] = horse;
+        }
+        return out;
+    }
+
+    /**
+     * Gets the position of a horse, clamped to the {@link #FINISH_LINE} for rendering.
+     *
+     * @param index The 0-based lane index of the horse.
+     * @return The position of the horse, between 0 and {@link #FINISH_LINE}.
+     */
+    public int getPosition(int index) {
+        return Math.min(positions[index], FINISH_LINE);
+    }
+
+    /**
+     * Gets the position of a horse between the previous tick and the latest one, so it can be
+     * drawn smoothly on display frames that fall between two ticks.
+     *
+     * @param index The 0-based lane index of the horse.
+     * @param alpha How far the frame is between the previous tick (0) and the latest tick (1).
+     * @return The interpolated position, between 0 and {@link #FINISH_LINE}.
+     */
+    public float getInterpolatedPosition(int index, float alpha) {
+        int from = Math.min(previousPositions[index], FINISH_LINE);
+        int to = Math.min(positions[index], FINISH_LINE);
+        return from + (to - from) * alpha;
+    }
+
+    /**
+     * Gets the number of horses in the race.
+     *
+     * @return The number of horses.
+     */
+    public int getHorseCount() {
+        return horseCount;
+    }
+
+    /**
+     * Gets the number of ticks simulated since the last reset.
+     *
+     * @return The tick count.
+     */
+    public int getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * Gets the seed the current race was started with.
+     *
+     * @return The seed.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Draws the next stride.  Strides come from a SplitMix64 sequence, kept inline (rather than
+     * using {@link java.util.Random}) so a tick never allocates or synchronizes.  Each 32-bit half
+     * of a random word is read as a base-{@link #STRIDE_BOUND} fraction, so one word yields several
+     * strides instead of one.
+     *
+     * @return A stride between 0 (inclusive) and {@link #STRIDE_BOUND} (exclusive).
+     */
+    private int nextStride() {
+        if (stridesLeft == 0) {
+            strideBits = nextRandomWord();
+            stridesLeft = 2 * STRIDES_PER_HALF_WORD;
+        }
+        if (stridesLeft == STRIDES_PER_HALF_WORD) {
+            strideBits >>>= 32; // Move on to the high half
+        }
+        stridesLeft--;
+
+        long scaled = (strideBits & 0xFFFFFFFFL) * STRIDE_BOUND;
+        strideBits = (strideBits & ~0xFFFFFFFFL) | (scaled & 0xFFFFFFFFL); // Keep the fraction
+        return (int) (scaled >>> 32);
+    }
+
+    /**
+     * Advances the SplitMix64 state.
+     *
+     * @return The next 64 random bits.
+     */
+    private long nextRandomWord() {
+        long z = (rngState += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,96 @@
+package com.zd.horseracing.Engine;
+
+/**
+ * A recorded race.  The {@link RaceEngine} is deterministic, so a race is fully described by its
+ * seed, its field size and how many ticks it ran: replaying it re-simulates the exact same
+ * strides instead of storing every position.  The result is kept alongside to check the replay
+ * against and to list replays without re-simulating them.
+ */
+public final class RaceReplay {
+    private final long seed;
+    private final int horseCount;
+    private final int tickCount;
+    private final int winner;
+    private final long recordedAtMs;
+
+    /**
+     * Constructor for a RaceReplay.
+     *
+     * @param seed         The seed the race was run with.
+     * @param horseCount   The number of horses.
+     * @param tickCount    The number of ticks until the race was decided.
+     * @param winner       The winning horse (1-based index).
+     * @param recordedAtMs When the race was run, in milliseconds since the epoch.
+     */
+    public RaceReplay(long seed, int horseCount, int tickCount, int winner, long recordedAtMs) {
+        if (horseCount <= 0 || tickCount <= 0 || winner < 1 || winner > horseCount) {
+            throw new IllegalArgumentException("Not a finished race: " + horseCount + " horses, "
+                    + tickCount + " ticks, winner " + winner);
+        }
+        this.seed = seed;
+        this.horseCount = horseCount;
+        this.tickCount = tickCount;
+        this.winner = winner;
+        this.recordedAtMs = recordedAtMs;
+    }
+
+    /**
+     * Records the race an engine has just run.
+     *
+     * @param engine       An engine whose race is finished.
+     * @param recordedAtMs The current time in milliseconds since the epoch.
+     * @return The replay.
+     */
+    public static RaceReplay of(RaceEngine engine, long recordedAtMs) {
+        if (!engine.isFinished()) {
+            throw new IllegalStateException("The race is still running");
+        }
+        return new RaceReplay(engine.getSeed(), engine.getHorseCount(), engine.getTickCount(),
+                engine.getWinner(), recordedAtMs);
+    }
+
+    /**
+     * Gets the seed the race was run with.
+     *
+     * @return The seed.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Gets the number of horses.
+     *
+     * @return The horse count.
+     */
+    public int getHorseCount() {
+        return horseCount;
+    }
+
+    /**
+     * Gets the length of the race.
+     *
+     * @return The number of ticks until the race was decided.
+     */
+    public int getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * Gets the winning horse.
+     *
+     * @return The winner (1-based index).
+     */
+    public int getWinner() {
+        return winner;
+    }
+
+    /**
+     * Gets when the race was run.
+     *
+     * @return The time in milliseconds since the epoch.
+     */
+    public long getRecordedAtMs() {
+        return recordedAtMs;
+    }
+}
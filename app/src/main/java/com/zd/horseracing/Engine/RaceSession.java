@@ -0,0 +1,170 @@
+package com.zd.horseracing.Engine;
+
+/**
+ * Timetable of a session of back-to-back races: a betting window, a countdown, the race itself
+ * and a settlement pause, then the next round's betting window, for as long as the session runs.
+ * Every phase but the race has a fixed length; the race lasts until {@link #raceFinished(long)}.
+ * <p>
+ * Kept free of Android types and of any clock: the caller passes the current time to every
+ * method and schedules its own wake-up at {@link #getPhaseEndMs()}, so the timetable can be
+ * unit tested without waiting.
+ */
+public class RaceSession {
+    /** Value returned by {@link #getPhaseEndMs()} when the phase has no fixed end. */
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    /**
+     * The phases of a round, in order.
+     */
+    public enum Phase {
+        /** No session is running. */
+        IDLE,
+        /** Bets for the coming race are taken. */
+        BETTING,
+        /** Bets are closed and the start countdown plays. */
+        COUNTDOWN,
+        /** The race is running. */
+        RACING,
+        /** The result is shown while the next race is prepared. */
+        SETTLEMENT
+    }
+
+    private final long bettingMs;
+    private final long countdownMs;
+    private final long settlementMs;
+    private Phase phase = Phase.IDLE;
+    private long phaseEndMs = NO_DEADLINE;
+    private int round;
+
+    /**
+     * Constructor for the RaceSession.
+     *
+     * @param bettingMs    The length of the betting window.
+     * @param countdownMs  The length of the start countdown.
+     * @param settlementMs How long the result stays up before the next betting window.
+     */
+    public RaceSession(long bettingMs, long countdownMs, long settlementMs) {
+        if (bettingMs <= 0 || countdownMs < 0 || settlementMs <= 0) {
+            throw new IllegalArgumentException("Phase lengths must not be negative, betting and settlement greater than 0");
+        }
+        this.bettingMs = bettingMs;
+        this.countdownMs = countdownMs;
+        this.settlementMs = settlementMs;
+    }
+
+    /**
+     * Starts the session with the betting window of the first round.
+     *
+     * @param nowMs The current time in milliseconds.
+     */
+    public void start(long nowMs) {
+        round = 0;
+        enterBetting(nowMs);
+    }
+
+    /**
+     * Ends the session; the current round is abandoned.
+     */
+    public void stop() {
+        phase = Phase.IDLE;
+        phaseEndMs = NO_DEADLINE;
+    }
+
+    /**
+     * Moves on to the next phase if the current one has ended.  Moves at most one phase, so the
+     * caller sees, and can react to, every phase of every round.
+     *
+     * @param nowMs The current time in milliseconds.
+     * @return True if the phase changed.
+     */
+    public boolean update(long nowMs) {
+        if (phaseEndMs == NO_DEADLINE || nowMs < phaseEndMs) {
+            return false;
+        }
+        // Later phases are timed from the deadline, not from a late wake-up, so rounds do not drift
+        long endedAt = phaseEndMs;
+        switch (phase) {
+            case BETTING:
+                enter(Phase.COUNTDOWN, endedAt + countdownMs);
+                return true;
+            case COUNTDOWN:
+                enter(Phase.RACING, NO_DEADLINE);
+                return true;
+            case SETTLEMENT:
+                enterBetting(endedAt);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Reports the end of the race and starts the settlement pause.  Ignored outside a race.
+     *
+     * @param nowMs The current time in milliseconds.
+     * @return True if the session moved to {@link Phase#SETTLEMENT}.
+     */
+    public boolean raceFinished(long nowMs) {
+        if (phase != Phase.RACING) {
+            return false;
+        }
+        enter(Phase.SETTLEMENT, nowMs + settlementMs);
+        return true;
+    }
+
+    /**
+     * Gets the current phase.
+     *
+     * @return The phase, {@link Phase#IDLE} when no session is running.
+     */
+    public Phase getPhase() {
+        return phase;
+    }
+
+    /**
+     * Checks whether a session is running.
+     *
+     * @return True between {@link #start(long)} and {@link #stop()}.
+     */
+    public boolean isRunning() {
+        return phase != Phase.IDLE;
+    }
+
+    /**
+     * Gets the current round.
+     *
+     * @return The round number (1-based), or 0 before the session starts.
+     */
+    public int getRound() {
+        return round;
+    }
+
+    /**
+     * Gets the time the current phase ends, to schedule the next {@link #update(long)}.
+     *
+     * @return The end time in milliseconds, or {@link #NO_DEADLINE} while racing or idle.
+     */
+    public long getPhaseEndMs() {
+        return phaseEndMs;
+    }
+
+    /**
+     * Gets the time left in the current phase.
+     *
+     * @param nowMs The current time in milliseconds.
+     * @return The remaining time in milliseconds, 0 once over, or {@link #NO_DEADLINE}.
+     */
+    public long getRemainingMs(long nowMs) {
+        return phaseEndMs == NO_DEADLINE ? NO_DEADLINE : Math.max(0, phaseEndMs - nowMs);
+    }
+
+    private void enterBetting(long startMs) {
+        round++;
+        enter(Phase.BETTING, startMs + bettingMs);
+    }
+
+    private void enter(Phase next, long endMs) {
+        phase = next;
+        phaseEndMs = endMs;
+    }
+}
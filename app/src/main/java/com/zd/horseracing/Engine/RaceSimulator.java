@@ -0,0 +1,116 @@
+package com.zd.horseracing.Engine;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Headless Monte Carlo simulator used to measure the real expected value of the payout rule
+ * against the {@link RaceEngine} progress model.  Races are split across all cores with a
+ * fork/join pool; every subtask gets its own {@link SplittableRandom} split and its own
+ * {@link RaceEngine}, so workers never share mutable state.  Run it from the command line with
+ * {@code ./gradlew :benchmark:simulate}.
+ */
+public class RaceSimulator {
+    /** Number of races a single subtask simulates before it stops splitting. */
+    private static final int RACES_PER_TASK = 16_384;
+
+    private final int horseCount;
+    private final int payoutMultiplier;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor for the RaceSimulator, using the common fork/join pool.
+     *
+     * @param horseCount       The number of horses per race.
+     * @param payoutMultiplier The amount a winning bet pays per unit staked.
+     */
+    public RaceSimulator(int horseCount, int payoutMultiplier) {
+        this(horseCount, payoutMultiplier, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor for the RaceSimulator.
+     *
+     * @param horseCount       The number of horses per race.
+     * @param payoutMultiplier The amount a winning bet pays per unit staked.
+     * @param pool             The fork/join pool the races are run on.
+     */
+    public RaceSimulator(int horseCount, int payoutMultiplier, ForkJoinPool pool) {
+        this.horseCount = horseCount;
+        this.payoutMultiplier = payoutMultiplier;
+        this.pool = pool;
+    }
+
+    /**
+     * Simulates the given number of races.  The result only depends on the race count and the seed,
+     * not on the number of worker threads.
+     *
+     * @param races The number of races to simulate.
+     * @param seed  The root seed every worker RNG is split from.
+     * @return The aggregated {@link SimulationResult}.
+     */
+    public SimulationResult simulate(long races, long seed) {
+        Tally tally = pool.invoke(new SimulationTask(races, new SplittableRandom(seed)));
+        return new SimulationResult(races, tally.wins, tally.ticks, payoutMultiplier);
+    }
+
+    /**
+     * Running totals of a batch of races.
+     */
+    private static final class Tally {
+        private final long[] wins;
+        private long ticks;
+
+        private Tally(int horseCount) {
+            this.wins = new long[horseCount];
+        }
+
+        private Tally merge(Tally other) {
+            for (int i = 0; i < wins.length; i++) {
+                wins[i] += other.wins[i];
+            }
+            ticks += other.ticks;
+            return this;
+        }
+    }
+
+    /**
+     * Fork/join task that halves its race count until it is small enough to run sequentially.
+     */
+    private final class SimulationTask extends RecursiveTask<Tally> {
+        private static final long serialVersionUID = 1L;
+
+        private final long races;
+        private final SplittableRandom random;
+
+        private SimulationTask(long races, SplittableRandom random) {
+            this.races = races;
+            this.random = random;
+        }
+
+        @Override
+        protected Tally compute() {
+            if (races <= RACES_PER_TASK) {
+                return runSequentially();
+            }
+            long half = races / 2;
+            SimulationTask left = new SimulationTask(half, random.split());
+            SimulationTask right = new SimulationTask(races - half, random.split());
+            left.fork();
+            Tally rightTally = right.compute();
+            return left.join().merge(rightTally);
+        }
+
+        private Tally runSequentially() {
+            Tally tally = new Tally(horseCount);
+            RaceEngine engine = new RaceEngine(horseCount, 0L);
+            for (long i = 0; i < races; i++) {
+                engine.reset(random.nextLong());
+                tally.wins[engine.runToFinish() - 1]++;
+                tally.ticks += engine.getTickCount();
+            }
+            return tally;
+        }
+    }
+}
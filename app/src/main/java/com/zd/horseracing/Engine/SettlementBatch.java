@@ -0,0 +1,178 @@
+package com.zd.horseracing.Engine;
+
+import com.zd.horseracing.Models.BetBook;
+import com.zd.horseracing.Models.BetType;
+import com.zd.horseracing.Models.Money;
+
+/**
+ * Settles every bet of a race in one batch, then formats result lines only when they are shown.
+ * <p>
+ * The compute stage copies the {@link BetBook}'s columns into primitive arrays owned by the
+ * batch and makes one pass over them: each bet looks its type and key up in a table of the
+ * race's winning combinations (at most eight, so the table stays in cache), and the rare winner
+ * is paid its dividend.  Nothing is formatted and nothing is allocated once the arrays have
+ * grown to the field's size, so a million bets settle in a few milliseconds.
+ * <p>
+ * The presentation stage, {@link #appendLine(int, StringBuilder)}, formats a bet's result line
+ * from the arrays on demand, so a result screen showing twenty lines formats twenty, however
+ * many bets the race had.  The arrays are a snapshot; the bet book can be cleared as soon as
+ * the race is settled.  Not thread-safe; reused race after race.
+ */
+public class SettlementBatch {
+    private static final BetType[] TYPES = BetType.values();
+    private static final int INITIAL_CAPACITY = 8;
+
+    /** Winning combination index + 1 by {@link #code(int, int)}, 0 for a losing combination. */
+    private final byte[] winnerByCode = new byte[codeSpace()];
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private int[] keys = new int[INITIAL_CAPACITY];
+    private long[] amounts = new long[INITIAL_CAPACITY];
+    private long[] payouts = new long[INITIAL_CAPACITY];
+    private int size;
+    private long totalWinnings;
+    private int winningBetCount;
+
+    /**
+     * Settles every bet of a race: the compute stage.  The bets must already be in the pools.
+     *
+     * @param bets           The bets placed on the race.
+     * @param finishingOrder The horses in finishing order (1-based numbers).
+     * @param pools          The pools holding the bets, and any other stakes on the race.
+     * @return The total amount won, stakes included.
+     * @throws ArithmeticException If the winnings overflow.
+     */
+    public long settle(BetBook bets, int[] finishingOrder, BetPools pools) {
+        size = bets.size();
+        ensureCapacity(size);
+        bets.copyTo(types, keys, amounts);
+        BetPools.Dividends dividends = pools.settle(finishingOrder);
+        int winners = dividends.getWinningCombinationCount();
+        for (int w = 0; w < winners; w++) {
+            winnerByCode[code(dividends.getCombinationType(w).ordinal(), dividends.getCombinationKey(w))] = (byte) (w + 1);
+        }
+
+        long total = 0;
+        int winningBets = 0;
+        try {
+            for (int i = 0; i < size; i++) {
+                int winner = winnerByCode[code(types[i], keys[i])];
+                long payout = 0;
+                if (winner != 0) { // Rare, so the branch predicts well
+                    payout = dividends.payoutForCombination(winner - 1, amounts[i]);
+                    total = Money.add(total, payout);
+                    winningBets++;
+                }
+                payouts[i] = payout;
+            }
+        } finally {
+            for (int w = 0; w < winners; w++) {
+                winnerByCode[code(dividends.getCombinationType(w).ordinal(), dividends.getCombinationKey(w))] = 0;
+            }
+        }
+        totalWinnings = total;
+        winningBetCount = winningBets;
+        return total;
+    }
+
+    /**
+     * Gets the number of bets settled.
+     *
+     * @return The bet count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets what a bet was paid.
+     *
+     * @param index The bet, in the order of the bet book.
+     * @return The payout, stake included, 0 if the bet lost.
+     */
+    public long getPayout(int index) {
+        checkIndex(index);
+        return payouts[index];
+    }
+
+    /**
+     * Gets the total amount won by the last race settled.
+     *
+     * @return The winnings, stakes included.
+     */
+    public long getTotalWinnings() {
+        return totalWinnings;
+    }
+
+    /**
+     * Gets the number of bets that won.
+     *
+     * @return The winning bet count.
+     */
+    public int getWinningBetCount() {
+        return winningBetCount;
+    }
+
+    /**
+     * Appends the result line of one bet, e.g. {@code Exacta 2-4 won! +250đ}: the presentation
+     * stage, run only for the lines shown.
+     *
+     * @param index The bet, in the order of the bet book.
+     * @param out   The builder to append to.
+     * @return The builder.
+     */
+    public StringBuilder appendLine(int index, StringBuilder out) {
+        checkIndex(index);
+        TYPES[types[index]].appendLabel(keys[index], out);
+        if (payouts[index] > 0) {
+            return Money.appendSigned(out.append(" won! "), payouts[index]);
+        }
+        return out.append(" lost");
+    }
+
+    /**
+     * Appends the result lines of a run of bets, each ending in a newline.
+     *
+     * @param from  The first bet.
+     * @param count The number of bets.
+     * @param out   The builder to append to.
+     * @return The builder.
+     */
+    public StringBuilder appendLines(int from, int count, StringBuilder out) {
+        for (int i = from; i < from + count; i++) {
+            appendLine(i, out).append('\n');
+        }
+        return out;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= amounts.length) {
+            return;
+        }
+        int grown = Math.max(capacity, amounts.length * 2);
+        types = new byte[grown]; // Contents are overwritten by the next settlement
+        keys = new int[grown];
+        amounts = new long[grown];
+        payouts = new long[grown];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Bet " + index + " of " + size);
+        }
+    }
+
+    /**
+     * Packs a bet type and a combination key into one dense table index.
+     */
+    private static int code(int typeOrdinal, int key) {
+        return key * TYPES.length + typeOrdinal;
+    }
+
+    private static int codeSpace() {
+        int space = 0;
+        for (BetType type : TYPES) {
+            space = Math.max(space, type.getKeySpace());
+        }
+        return space * TYPES.length;
+    }
+}
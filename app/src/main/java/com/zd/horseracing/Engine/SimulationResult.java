@@ -0,0 +1,99 @@
+package com.zd.horseracing.Engine;
+
+import java.util.Locale;
+
+/**
+ * Aggregated outcome of a {@link RaceSimulator} run: how often each horse won, how long races
+ * lasted, and what a unit bet on each horse returns on average under the payout rule.
+ */
+public class SimulationResult {
+    private final long races;
+    private final long[] wins;
+    private final long totalTicks;
+    private final int payoutMultiplier;
+
+    /**
+     * Constructor for the SimulationResult.
+     *
+     * @param races            The number of races simulated.
+     * @param wins             The number of wins per horse (0-based index).
+     * @param totalTicks       The sum of the tick counts of all races.
+     * @param payoutMultiplier The amount a winning bet pays per unit staked.
+     */
+    public SimulationResult(long races, long[] wins, long totalTicks, int payoutMultiplier) {
+        this.races = races;
+        this.wins = wins.clone();
+        this.totalTicks = totalTicks;
+        this.payoutMultiplier = payoutMultiplier;
+    }
+
+    /**
+     * Gets the number of races simulated.
+     *
+     * @return The race count.
+     */
+    public long getRaces() {
+        return races;
+    }
+
+    /**
+     * Gets the number of horses per race.
+     *
+     * @return The horse count.
+     */
+    public int getHorseCount() {
+        return wins.length;
+    }
+
+    /**
+     * Gets the number of races won by a horse.
+     *
+     * @param horseNumber The horse number (1-based index).
+     * @return The number of wins.
+     */
+    public long getWins(int horseNumber) {
+        return wins[horseNumber - 1];
+    }
+
+    /**
+     * Gets the observed probability of a horse winning.
+     *
+     * @param horseNumber The horse number (1-based index).
+     * @return The win probability, between 0 and 1.
+     */
+    public double getWinProbability(int horseNumber) {
+        return races == 0 ? 0 : (double) wins[horseNumber - 1] / races;
+    }
+
+    /**
+     * Gets the mean race length.
+     *
+     * @return The mean number of ticks until a winner is decided.
+     */
+    public double getMeanRaceTicks() {
+        return races == 0 ? 0 : (double) totalTicks / races;
+    }
+
+    /**
+     * Gets the expected net return of a unit bet on a horse.  The stake is always lost and the
+     * payout is credited on a win, so a fair rule returns 0 and a negative value is the house edge.
+     *
+     * @param horseNumber The horse number (1-based index).
+     * @return The expected net return per unit staked.
+     */
+    public double getExpectedReturn(int horseNumber) {
+        return getWinProbability(horseNumber) * payoutMultiplier - 1;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%d races, %d horses, mean length %.2f ticks%n",
+                races, wins.length, getMeanRaceTicks()));
+        for (int horse = 1; horse <= wins.length; horse++) {
+            sb.append(String.format(Locale.ROOT, "Horse %d: P(win)=%.5f, E[return]=%+.5f per unit%n",
+                    horse, getWinProbability(horse), getExpectedReturn(horse)));
+        }
+        return sb.toString();
+    }
+}
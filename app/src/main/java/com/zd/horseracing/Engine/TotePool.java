@@ -0,0 +1,187 @@
+package com.zd.horseracing.Engine;
+
+import java.math.BigInteger;
+
+/**
+ * Pari-mutuel win pool.  Every stake goes into the pool of the horse it backs; when the race is
+ * decided the whole pool, less the take, is shared among the stakes on the winner in proportion
+ * to their size.  The pools live in a primitive array next to a running total, so placing a bet
+ * and reading the live odds of any horse are both O(1), however many bets the pool holds.
+ * <p>
+ * {@link BetPools} reuses it for the other bet types, with a combination key in place of the
+ * horse number.  Amounts are in the currency's smallest unit.  Not thread-safe; a shared pool
+ * must be guarded by its owner.
+ */
+public class TotePool {
+    /** Basis points in a whole: a take of 1500 is 15%. */
+    public static final int BASIS_POINTS = 10_000;
+
+    private final long[] pools;
+    private final int takeBasisPoints;
+    private long total;
+    private long betCount;
+
+    /**
+     * Constructor for the TotePool.
+     *
+     * @param horseCount      The number of horses in the race.
+     * @param takeBasisPoints The share of the pool kept by the house, in basis points (0 to 10000).
+     */
+    public TotePool(int horseCount, int takeBasisPoints) {
+        if (horseCount <= 0) {
+            throw new IllegalArgumentException("horseCount must be greater than 0");
+        }
+        if (takeBasisPoints < 0 || takeBasisPoints > BASIS_POINTS) {
+            throw new IllegalArgumentException("The take must be between 0 and " + BASIS_POINTS + " basis points");
+        }
+        this.pools = new long[horseCount];
+        this.takeBasisPoints = takeBasisPoints;
+    }
+
+    /**
+     * Adds a stake to the pool of a horse.
+     *
+     * @param horseNumber The horse backed (1-based index).
+     * @param amount      The stake, greater than 0.
+     * @throws ArithmeticException If the pool total would overflow.
+     */
+    public void placeBet(int horseNumber, long amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("A stake must be greater than 0");
+        }
+        int lane = horseNumber - 1;
+        long newTotal = Math.addExact(total, amount); // Every pool is at most the total
+        pools[lane] += amount;
+        total = newTotal;
+        betCount++;
+    }
+
+    /**
+     * Takes a stake back out of the pool of a horse, e.g. when a bet is cancelled before the race.
+     *
+     * @param horseNumber The horse backed (1-based index).
+     * @param amount      The stake placed earlier.
+     */
+    public void cancelBet(int horseNumber, long amount) {
+        int lane = horseNumber - 1;
+        if (amount <= 0 || amount > pools[lane]) {
+            throw new IllegalArgumentException("No such stake in the pool of horse " + horseNumber);
+        }
+        pools[lane] -= amount;
+        total -= amount;
+        betCount--;
+    }
+
+    /**
+     * Empties every pool for the next race.
+     */
+    public void clear() {
+        for (int i = 0; i < pools.length; i++) {
+            pools[i] = 0;
+        }
+        total = 0;
+        betCount = 0;
+    }
+
+    /**
+     * Gets the amount staked on a horse.
+     *
+     * @param horseNumber The horse (1-based index).
+     * @return The size of its pool.
+     */
+    public long getPool(int horseNumber) {
+        return pools[horseNumber - 1];
+    }
+
+    /**
+     * Gets the amount staked on every horse together.
+     *
+     * @return The total pool.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Gets the number of stakes in the pool.
+     *
+     * @return The bet count.
+     */
+    public long getBetCount() {
+        return betCount;
+    }
+
+    /**
+     * Gets the number of horses the pool is for.
+     *
+     * @return The horse count.
+     */
+    public int getHorseCount() {
+        return pools.length;
+    }
+
+    /**
+     * Gets the house's share of the pool.
+     *
+     * @return The take in basis points.
+     */
+    public int getTakeBasisPoints() {
+        return takeBasisPoints;
+    }
+
+    /**
+     * Gets the part of the pool paid back to winning stakes: the total less the take.
+     *
+     * @return The net pool.
+     */
+    public long getNetPool() {
+        return total - total / BASIS_POINTS * takeBasisPoints
+                - total % BASIS_POINTS * takeBasisPoints / BASIS_POINTS; // total * take / 10000 without overflow
+    }
+
+    /**
+     * Gets the live decimal odds of a horse: what one unit staked on it returns, stake included,
+     * if it wins now.
+     *
+     * @param horseNumber The horse (1-based index).
+     * @return The odds, or 0 if nothing is staked on the horse yet.
+     */
+    public double getOdds(int horseNumber) {
+        long pool = pools[horseNumber - 1];
+        return pool == 0 ? 0 : (double) getNetPool() / pool;
+    }
+
+    /**
+     * Gets what a winning stake is paid, stake included: its share of the net pool, rounded down.
+     * The rounding (breakage) stays with the house, so all payouts together never exceed the
+     * net pool.
+     *
+     * @param winningHorse The winning horse (1-based index).
+     * @param stake        A stake placed on that horse.
+     * @return The payout, or 0 if the winner's pool is empty.
+     */
+    public long payout(int winningHorse, long stake) {
+        long winningPool = pools[winningHorse - 1];
+        if (winningPool == 0) {
+            return 0;
+        }
+        return multiplyDivide(stake, getNetPool(), winningPool);
+    }
+
+    /**
+     * Computes {@code a * b / c}, rounded down, for non-negative values without overflowing the
+     * intermediate product.
+     *
+     * @throws ArithmeticException If the result does not fit in a long.
+     */
+    static long multiplyDivide(long a, long b, long c) {
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+        if (high == 0 && low >= 0) {
+            return low / c;
+        }
+        // Product beyond 63 bits; only reachable with enormous pools
+        return BigInteger.valueOf(a).multiply(BigInteger.valueOf(b))
+                .divide(BigInteger.valueOf(c)).longValueExact();
+    }
+}
@@ -1,22 +1,27 @@
 package com.zd.horseracing;
 
 import android.content.Intent;
-import android.media.MediaPlayer;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
 import android.os.Bundle;
+import android.util.DisplayMetrics;
+import android.view.View;
 import android.widget.Button;
 
 import androidx.activity.OnBackPressedCallback;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.zd.horseracing.Audio.AudioEngine;
+import com.zd.horseracing.Views.BitmapLoader;
+
 /**
  * Displays the instruction screen for the horse racing game. Provides a "Next" button to proceed
  * to the main game activity (`MainActivity`). Handles background music and disables the back button.
  */
 public class InstructionActivity extends AppCompatActivity {
     private Button btnNext;
-    private MediaPlayer bgMusic;
-    private boolean isActivityDestroyed = false; // Flag to track if activity is destroyed
+    private Bitmap background;
 
     /**
      * Called when the activity is first created. Initializes the UI, sets up the "Next" button's
@@ -32,27 +37,33 @@ public class InstructionActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.instruction_layout);
 
+        initializeBackground();  // Decode the background at screen size
         initializeBackgroundMusic(); // Initialize and start background music
         initializeNextButton();    // Initialize the "Next" button
         disableBackButton();     // Disable the back button
     }
 
     /**
-     * Initializes and starts the background music.  Handles potential exceptions during MediaPlayer setup.
+     * Sets the instruction screen background, decoded at the screen size instead of scaled up
+     * to the screen density at full resolution.
      */
-    private void initializeBackgroundMusic() {
-        try {
-            bgMusic = MediaPlayer.create(this, R.raw.guildlinebeat);
-            if (bgMusic != null) { // Check for null (e.g., if resource is missing)
-                bgMusic.setLooping(true); // Loop the background music
-                bgMusic.start();    // Start playing the music
-            }
-        } catch (Exception e) {
-            e.printStackTrace(); // Log the exception (best practice)
-            // Consider adding a Toast message or other UI feedback if music fails
+    private void initializeBackground() {
+        DisplayMetrics metrics = getResources().getDisplayMetrics();
+        background = BitmapLoader.getInstance(this)
+                .acquire(R.drawable.activity_main_screen, metrics.widthPixels, metrics.heightPixels);
+        View root = findViewById(R.id.instructionRoot);
+        if (root != null && background != null) {
+            root.setBackground(new BitmapDrawable(getResources(), background));
         }
     }
 
+    /**
+     * Crossfades the shared {@link AudioEngine} music channel to the instruction music.
+     */
+    private void initializeBackgroundMusic() {
+        AudioEngine.getInstance(this).playMusic(R.raw.guildlinebeat);
+    }
+
     /**
      * Initializes the "Next" button and sets its click listener to navigate to the MainActivity.
      * Includes a null check for the button to prevent potential crashes.
@@ -87,47 +98,14 @@ public class InstructionActivity extends AppCompatActivity {
     }
 
     /**
-     * Called when the activity is paused. Pauses the background music to conserve resources.
-     * We pause when the activity is no longer visible to the user.
-     */
-    @Override
-    protected void onPause() {
-        super.onPause();
-        if (bgMusic != null && bgMusic.isPlaying()) {
-            bgMusic.pause(); // Pause music playback
-        }
-    }
-
-    /**
-     * Called when the activity is resumed (becomes visible again).  Resumes background music
-     * playback *only if* the activity was not destroyed.  This ensures we don't restart
-     * music if the user navigated away and came back via a new activity instance.
-     */
-    @Override
-    protected void onResume() {
-        super.onResume();
-        if (bgMusic != null && !isActivityDestroyed) { // Check if activity was destroyed
-            bgMusic.start(); // Resume music playback
-        }
-    }
-
-    /**
-     * Called when the activity is being destroyed.  Releases the MediaPlayer resources to prevent
-     * memory leaks.  Sets the `isActivityDestroyed` flag to prevent resuming music in `onResume()`.
+     * Called when the activity is being destroyed.  Hands the background bitmap back to the
+     * {@link BitmapLoader}.
      */
     @Override
     protected void onDestroy() {
-        isActivityDestroyed = true; // Set flag to indicate destruction
-        if (bgMusic != null) {
-            try {
-                if (bgMusic.isPlaying()) {
-                    bgMusic.stop(); // Stop playback
-                }
-                bgMusic.release(); // Release resources
-                bgMusic = null; // Set to null for garbage collection
-            } catch (Exception e) {
-                e.printStackTrace(); // Log any exceptions
-            }
+        if (background != null) {
+            BitmapLoader.getInstance(this).release(background); // Let the next decode reuse it
+            background = null;
         }
         super.onDestroy();
     }
@@ -1,8 +1,6 @@
 package com.zd.horseracing;
 
 import android.content.Intent;
-import android.content.SharedPreferences;
-import android.media.MediaPlayer;
 import android.os.Bundle;
 import android.text.InputType;
 import android.text.TextUtils;
@@ -17,13 +15,16 @@ import android.widget.Toast;
 import androidx.activity.OnBackPressedCallback;
 import androidx.appcompat.app.AppCompatActivity;
 
-import java.util.HashSet;
-import java.util.Set;
+import com.zd.horseracing.Audio.AudioEngine;
+import com.zd.horseracing.Repositories.AccountRepository;
+import com.zd.horseracing.Services.AuthService;
 
 /**
  * The LoginActivity handles user authentication and navigation to the registration screen.
  * It manages user input for email and password, provides password visibility toggling,
- * and validates credentials against stored data (SharedPreferences) and default credentials.
+ * and validates credentials against the local account store and default credentials.
+ * Only the input is validated on the main thread; the account lookup and the password hash run
+ * in the {@link AuthService}, and a pending check is cancelled when the screen is destroyed.
  */
 public class LoginActivity extends AppCompatActivity {
 
@@ -34,35 +35,11 @@ public class LoginActivity extends AppCompatActivity {
     private Button btnLogin;
     private TextView btnDontHaveAccount;
 
-    // Shared preferences for storing user data
-    private SharedPreferences sharedPreferences;
-    private MediaPlayer musicBg;
+    // Checks credentials off the main thread
+    private AuthService auth;
+    private AuthService.Request pendingLogin; // The check in flight, if any
 
-    // Constants for default credentials and shared preferences keys
-    private static final String DEFAULT_EMAIL = "user@m.c";
-    private static final String DEFAULT_PASSWORD = "123456";
     private static final int MIN_PASSWORD_LENGTH = 6;
-    private static final String PREFS_NAME = "UserPrefs";
-    private static final String EMAIL_SET_KEY = "emails";
-
-    /**
-     * Called when the activity is being destroyed.  Releases resources held by the MediaPlayer.
-     * It's important to release MediaPlayer to avoid memory leaks.
-     */
-    @Override
-    protected void onDestroy() {
-        if (musicBg != null) {
-            try {
-                musicBg.stop(); // Stop playback
-                musicBg.release(); // Release resources
-            } catch (Exception e) {
-                e.printStackTrace(); // Log any exceptions
-            } finally {
-                musicBg = null; // Set to null for garbage collection
-            }
-        }
-        super.onDestroy();
-    }
 
     /**
      * Called when the activity is first created. This is where most initialization should go:
@@ -85,7 +62,7 @@ public class LoginActivity extends AppCompatActivity {
     }
 
     /**
-     * Initializes UI components and retrieves SharedPreferences.
+     * Initializes UI components and starts opening the account repository in the background.
      */
     private void initializeViews() {
         etEmail = findViewById(R.id.etEmail);
@@ -93,23 +70,17 @@ public class LoginActivity extends AppCompatActivity {
         togglePassword = findViewById(R.id.ivTogglePassword);
         btnLogin = findViewById(R.id.btnLogin);
         btnDontHaveAccount = findViewById(R.id.btnDontHaveAccount);
-        sharedPreferences = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+        auth = AccountRepository.getAuthService(this);
+        auth.warmUp(); // Ready before the user has typed their password
     }
 
     /**
-     * Initializes and starts the background music.  Uses a try-catch block to handle
-     * potential exceptions during MediaPlayer setup.
+     * Starts the background music on the shared {@link AudioEngine} channel.  The music keeps
+     * playing into the register screen, which uses the same track, and is crossfaded by the
+     * next screen that uses another one.
      */
     private void initializeMusic() {
-        try {
-            musicBg = MediaPlayer.create(this, R.raw.loginbackground);
-            if (musicBg != null) {  // Check for null (e.g., if resource is missing)
-                musicBg.setLooping(true); // Set the music to loop
-                musicBg.start(); // Start playing the music
-            }
-        } catch (Exception e) {
-            e.printStackTrace(); // Log any exceptions that occur
-        }
+        AudioEngine.getInstance(this).playMusic(R.raw.loginbackground);
     }
 
     /**
@@ -158,21 +129,16 @@ public class LoginActivity extends AppCompatActivity {
     }
 
     /**
-     * Handles the login process.  Retrieves user input, validates it,
-     * and checks credentials.  If successful, navigates to the InstructionActivity.
+     * Handles the login process.  Retrieves user input, validates it on the main thread,
+     * and checks the account and credentials in the background.  If successful, navigates to the InstructionActivity.
      */
     private void handleLogin() {
         String emailInput = etEmail.getText().toString().trim(); // Get email, remove whitespace
         String passwordInput = etPassword.getText().toString().trim(); // Get password, remove whitespace
 
         if (validateInput(emailInput, passwordInput)) { // Validate the user's input
-            if (checkAccount(emailInput, passwordInput)) { // Check credentials
-                Intent intent = new Intent(LoginActivity.this, InstructionActivity.class);
-                startActivity(intent);
-                finish(); // Prevent user from returning to login screen
-            } else {
-                showToast("Incorrect password or account!"); // Show error message
-            }
+            btnLogin.setEnabled(false); // One check at a time; hashing takes a moment
+            checkAccount(emailInput, passwordInput);
         }
     }
 
@@ -181,7 +147,7 @@ public class LoginActivity extends AppCompatActivity {
      * - Empty fields
      * - Valid email format (using Patterns.EMAIL_ADDRESS)
      * - Minimum password length
-     * - Account existence (in SharedPreferences or default credentials)
+     * Whether the account exists is checked in the background with the password.
      *
      * @param email    The user's email address.
      * @param password The user's password.
@@ -206,31 +172,50 @@ public class LoginActivity extends AppCompatActivity {
             return false;
         }
 
-        // Check if the account exists (either in SharedPreferences or as the default account)
-        Set<String> savedEmails = sharedPreferences.getStringSet(EMAIL_SET_KEY, new HashSet<>());
-        if (!savedEmails.contains(email) && !email.equals(DEFAULT_EMAIL)) {
-            showToast("Account does not exist!");
-            return false;
-        }
-
         return true; // All validations passed
     }
 
     /**
      * Checks if the provided email and password match stored credentials.
-     * Checks against both default credentials and credentials stored in SharedPreferences.
+     * Checks against both default credentials and credentials in the account store.
+     * The lookup and the password hash run off the main thread; the result comes back on it.
      *
      * @param email    The user's email address.
      * @param password The user's password.
-     * @return True if the credentials are valid, false otherwise.
      */
-    private boolean checkAccount(String email, String password) {
-        Set<String> savedEmails = sharedPreferences.getStringSet(EMAIL_SET_KEY, new HashSet<>());
+    private void checkAccount(String email, String password) {
+        pendingLogin = auth.login(email, password, result -> {
+            pendingLogin = null;
+            btnLogin.setEnabled(true);
+            switch (result) {
+                case SUCCESS:
+                    Intent intent = new Intent(LoginActivity.this, InstructionActivity.class);
+                    startActivity(intent);
+                    finish(); // Prevent user from returning to login screen
+                    break;
+                case NO_ACCOUNT:
+                    showToast("Account does not exist!");
+                    break;
+                case WRONG_PASSWORD:
+                    showToast("Incorrect password or account!"); // Show error message
+                    break;
+                default:
+                    showToast("Accounts are unavailable, please try again!");
+                    break;
+            }
+        });
+    }
 
-        // Check against default credentials OR SharedPreferences
-        return (email.equals(DEFAULT_EMAIL) && password.equals(DEFAULT_PASSWORD)) ||
-                (savedEmails.contains(email) &&
-                        password.equals(sharedPreferences.getString(email + "_password", "")));
+    /**
+     * Cancels a credential check still in flight, so its result never reaches a destroyed screen.
+     */
+    @Override
+    protected void onDestroy() {
+        if (pendingLogin != null) {
+            pendingLogin.cancel();
+            pendingLogin = null;
+        }
+        super.onDestroy();
     }
 
     /**
@@ -1,58 +1,93 @@
 package com.zd.horseracing;
 
 import android.content.Intent;
-import android.media.MediaPlayer;
 import android.view.Window;
 import android.view.WindowManager;
 import android.view.Gravity;
 import android.app.Dialog;
-import android.graphics.drawable.AnimationDrawable;
-import android.graphics.drawable.Drawable;
 import android.content.pm.ActivityInfo;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.CheckBox;
 import android.widget.EditText;
 import android.widget.ImageView;
 import android.widget.SeekBar;
+import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.OnBackPressedCallback;
 import androidx.appcompat.app.AppCompatActivity;
-import androidx.core.content.ContextCompat;
 import androidx.lifecycle.ViewModelProvider;
 
+import com.zd.horseracing.Audio.AudioEngine;
+import com.zd.horseracing.Engine.FrameTimeHistogram;
+import com.zd.horseracing.Engine.RaceClock;
+import com.zd.horseracing.Engine.RaceEngine;
+import com.zd.horseracing.Engine.RaceReplay;
+import com.zd.horseracing.Engine.RaceSession;
+import com.zd.horseracing.Engine.ReplayPlayer;
+import com.zd.horseracing.Models.BetType;
 import com.zd.horseracing.Models.HorseBet;
+import com.zd.horseracing.Models.Money;
+import com.zd.horseracing.Models.RaceCard;
+import com.zd.horseracing.Utils.BetParser;
 import com.zd.horseracing.ViewModels.RaceViewModel;
+import com.zd.horseracing.Views.BitmapLoader;
+import com.zd.horseracing.Views.RaceTrackView;
+import com.zd.horseracing.Views.SpriteAtlas;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.List;
+import java.util.Locale;
 
 /**
  * The main activity of the horse racing game.  Handles UI interactions, race logic,
  * bet management, and result display.  Uses a {@link RaceViewModel} to manage game state
- * and data across configuration changes.
+ * and data across configuration changes.  In session mode the ViewModel runs the races back to
+ * back and this screen follows its phases, preparing the next race while a result is shown.
  */
 public class MainActivity extends AppCompatActivity {
+    private static final String TAG = "MainActivity";
+    // Most simulation ticks a single display frame may catch up on
+    private static final int MAX_TICKS_PER_FRAME = 4;
+
     private TextView tvBalance;
     private TextView tvBet;
     private Button btnChooseHorse;
     private Button btnStart;
     private Button btnReset;
     private Button btnAddMoney;
-    private SeekBar seekBar1;
-    private SeekBar seekBar2;
-    private SeekBar seekBar3;
-    private SeekBar seekBar4;
+    private Button btnSession;
+    private RaceTrackView raceTrack;
+    private View replayBar;
+    private SeekBar sbReplay;
+    private Button btnReplaySpeed;
     private RaceViewModel viewModel;
-    private Handler handler;
-    private MediaPlayer bgMusic;
+    private AudioEngine audio;
+    private Dialog chooseHorseDialog; // Open bet dialog, closed when a session closes betting
+    private Dialog resultDialog;      // Open result dialog, closed when a session moves on
+
+    // Race state, allocated once so the per-frame path allocates nothing
+    private RaceEngine raceEngine;
+    private int[] finishingOrder; // Filled by the engine when a race is decided, reused every race
+    private RaceClock raceClock;
+    private FrameTimeHistogram frameTimes;
+    private final Choreographer.FrameCallback raceFrameCallback = this::onRaceFrame;
+    private ReplayPlayer replayPlayer; // Has its own engine, so a replay never disturbs the next race
+    private boolean replaying;
+    private final Choreographer.FrameCallback replayFrameCallback = this::onReplayFrame;
 
     /**
-     * Called when the activity is first created. Initializes the ViewModel, handler,
+     * Called when the activity is first created. Initializes the ViewModel,
      * background music, sets up the back button to be disabled, and calls methods to initialize views,
      * set up listeners, and observe the ViewModel.
      *
@@ -67,13 +102,10 @@ public class MainActivity extends AppCompatActivity {
 
         // Initialize ViewModel
         viewModel = new ViewModelProvider(this).get(RaceViewModel.class);
-        // Initialize Handler for UI updates
-        handler = new Handler(Looper.getMainLooper());
 
-        // Initialize and start background music
-        bgMusic = MediaPlayer.create(this, R.raw.pokemonloop);
-        bgMusic.setLooping(true);
-        bgMusic.start();
+        // Crossfade to the race music; effects are already decoded in the shared pool
+        audio = AudioEngine.getInstance(this);
+        audio.playMusic(R.raw.pokemonloop);
 
         // Disable back button
         getOnBackPressedDispatcher().addCallback(this, new OnBackPressedCallback(true) {
@@ -85,13 +117,14 @@ public class MainActivity extends AppCompatActivity {
 
 
         initViews();
+        initRace();
         setupListeners();
         observeViewModel();
+        Log.i(TAG, "Memory after startup: " + BitmapLoader.getInstance(this).describeMemory());
     }
 
     /**
      * Initializes the UI elements by finding them in the layout.
-     * Disables the SeekBars initially as user can't interact with them.
      */
     private void initViews() {
         tvBalance = findViewById(R.id.tvBalance);
@@ -100,16 +133,28 @@ public class MainActivity extends AppCompatActivity {
         btnStart = findViewById(R.id.btnStart);
         btnReset = findViewById(R.id.btnReset);
         btnAddMoney = findViewById(R.id.btnAddMoney);
-        seekBar1 = findViewById(R.id.seekBar1);
-        seekBar2 = findViewById(R.id.seekBar2);
-        seekBar3 = findViewById(R.id.seekBar3);
-        seekBar4 = findViewById(R.id.seekBar4);
-
-        // Disable SeekBars to prevent user interaction
-        seekBar1.setEnabled(false);
-        seekBar2.setEnabled(false);
-        seekBar3.setEnabled(false);
-        seekBar4.setEnabled(false);
+        btnSession = findViewById(R.id.btnSession);
+        raceTrack = findViewById(R.id.raceTrack);
+        replayBar = findViewById(R.id.replayBar);
+        sbReplay = findViewById(R.id.sbReplay);
+        btnReplaySpeed = findViewById(R.id.btnReplaySpeed);
+    }
+
+    /**
+     * Allocates everything the race loop needs up front: the {@link RaceEngine} that owns the
+     * horse positions, the {@link RaceClock} that paces it, the frame time histogram, the
+     * {@link ReplayPlayer}, the horse sprites and the looping footsteps sound.  The number of horses comes from the
+     * ViewModel's {@link RaceCard}.
+     */
+    @SuppressWarnings("deprecation") // Display.getRefreshRate via getDefaultDisplay, minSdk 24
+    private void initRace() {
+        raceEngine = new RaceEngine(viewModel.getRaceCard().getRunnerCount(), System.nanoTime());
+        finishingOrder = new int[raceEngine.getHorseCount()];
+        replayPlayer = new ReplayPlayer(raceEngine.getHorseCount(), MAX_TICKS_PER_FRAME);
+        raceClock = new RaceClock(RaceEngine.TICK_INTERVAL_MS * 1_000_000L, MAX_TICKS_PER_FRAME);
+        float refreshRate = getWindowManager().getDefaultDisplay().getRefreshRate();
+        frameTimes = new FrameTimeHistogram((long) (1_000_000_000L / (refreshRate > 0 ? refreshRate : 60f)));
+        loadHorseSprites();
     }
 
     /**
@@ -119,10 +164,50 @@ public class MainActivity extends AppCompatActivity {
         btnChooseHorse.setOnClickListener(v -> showChooseHorseDialog());
         btnStart.setOnClickListener(v -> startRace());
         btnReset.setOnClickListener(v -> {
-            resetSeekBars();
+            stopReplay();
+            raceTrack.reset();
             viewModel.resetRace();
         });
         btnAddMoney.setOnClickListener(v -> showAddMoneyDialog());
+        btnSession.setOnClickListener(v -> toggleSession());
+        btnReplaySpeed.setOnClickListener(v -> btnReplaySpeed.setText(replayPlayer.cycleSpeed() + "x"));
+        findViewById(R.id.btnReplayClose).setOnClickListener(v -> stopReplay());
+        sbReplay.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
+            @Override
+            public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
+                if (fromUser) {
+                    replayPlayer.seek(progress); // Scrub
+                    raceTrack.render(replayPlayer.getEngine(), 1f, System.nanoTime());
+                }
+            }
+
+            @Override
+            public void onStartTrackingTouch(SeekBar seekBar) {
+                Choreographer.getInstance().removeFrameCallback(replayFrameCallback); // Hold while scrubbing
+                raceTrack.stopRunning();
+            }
+
+            @Override
+            public void onStopTrackingTouch(SeekBar seekBar) {
+                playReplayFrames();
+            }
+        });
+    }
+
+    /**
+     * Starts a session of back-to-back races, or stops the running one.  The countdown phase
+     * lasts as long as the countdown sound, so the session starts once that length is read.
+     */
+    private void toggleSession() {
+        if (!viewModel.isSessionRunning()) {
+            audio.whenEffectDurationKnown(R.raw.countdownfinalcut, countdownMs -> {
+                if (!isDestroyed()) {
+                    viewModel.startSession(countdownMs); // Does nothing if a session started meanwhile
+                }
+            });
+        } else if (!viewModel.stopSession()) {
+            Toast.makeText(this, "The session will stop after this race", Toast.LENGTH_SHORT).show();
+        }
     }
 
     /**
@@ -137,21 +222,12 @@ public class MainActivity extends AppCompatActivity {
         viewModel.getTotalBet().observe(this, totalBet ->
                 tvBet.setText(String.valueOf(totalBet)));
 
-        // Observe racing state changes to enable/disable buttons
-        viewModel.getIsRacing().observe(this, isRacing -> {
-            btnChooseHorse.setEnabled(!isRacing);
-            btnStart.setEnabled(!isRacing);
-            btnReset.setEnabled(!isRacing);
-        });
+        // Observe racing and needsReset state changes to enable/disable buttons
+        viewModel.getIsRacing().observe(this, isRacing -> updateButtons());
+        viewModel.getNeedsReset().observe(this, needsReset -> updateButtons());
 
-        // Observe needsReset state changes to enable/disable buttons
-        viewModel.getNeedsReset().observe(this, needsReset -> {
-            if (needsReset) {
-                btnChooseHorse.setEnabled(false);
-                btnStart.setEnabled(false);
-                btnReset.setEnabled(true);
-            }
-        });
+        // Observe the session phases to run each round
+        viewModel.getSessionPhase().observe(this, this::onSessionPhase);
 
         // Observe race result changes to display the result dialog
         viewModel.getRaceResult().observe(this, result -> {
@@ -162,37 +238,148 @@ public class MainActivity extends AppCompatActivity {
     }
 
     /**
-     * Shows a dialog for the user to choose horses and place bets.
+     * Enables the buttons that make sense in the current state.  Outside a session: betting and
+     * starting until a race has run, then only reset.  In a session: betting during the betting
+     * window only, and no manual start or reset.
+     */
+    private void updateButtons() {
+        boolean racing = viewModel.isRaceInProgress();
+        boolean needsReset = Boolean.TRUE.equals(viewModel.getNeedsReset().getValue());
+        RaceSession.Phase phase = viewModel.getSessionPhase().getValue();
+        boolean inSession = phase != null && phase != RaceSession.Phase.IDLE;
+
+        btnChooseHorse.setEnabled(inSession ? phase == RaceSession.Phase.BETTING : !racing && !needsReset);
+        btnStart.setEnabled(!inSession && !racing && !needsReset);
+        btnReset.setEnabled(!inSession && !racing);
+        btnSession.setEnabled(inSession || !racing);
+        btnSession.setText(inSession ? "Stop Session" : "Session");
+    }
+
+    /**
+     * Follows the session into a new phase: a clean track for the betting window, the countdown
+     * sound, the race itself, and preparing the next race while the result is shown.  Also called
+     * with {@link RaceSession.Phase#IDLE} when the observer is registered and when a session ends.
+     *
+     * @param phase The phase the session has entered.
+     */
+    private void onSessionPhase(RaceSession.Phase phase) {
+        switch (phase) {
+            case BETTING:
+                dismissDialog(resultDialog);
+                stopReplay();
+                raceTrack.reset();
+                break;
+            case COUNTDOWN:
+                dismissDialog(chooseHorseDialog); // Betting is closed
+                if (raceEngine.getTickCount() > 0) {
+                    raceEngine.reset(System.nanoTime()); // First round: nothing was prestaged
+                }
+                audio.playEffect(R.raw.countdownfinalcut);
+                break;
+            case RACING:
+                beginRaceFrames();
+                break;
+            case SETTLEMENT:
+                prestageNextRace();
+                break;
+            default: // IDLE: back to races started by hand
+                if (!viewModel.isRaceInProgress()) {
+                    raceTrack.reset();
+                }
+                break;
+        }
+        updateButtons();
+    }
+
+    /**
+     * Prepares the next race during the settlement pause, so nothing is decoded between rounds:
+     * both result images are decoded at the dialog's size into the shared cache (they may have
+     * been evicted or trimmed since the last race) and the engine is seeded for the next race.
+     * The track bitmaps, horse atlas and sounds stay loaded for the whole screen.
+     */
+    private void prestageNextRace() {
+        BitmapLoader bitmapLoader = BitmapLoader.getInstance(this);
+        int width = getResources().getDimensionPixelSize(R.dimen.result_image_width);
+        int height = getResources().getDimensionPixelSize(R.dimen.result_image_height);
+        bitmapLoader.prefetch(R.drawable.win, width, height);
+        bitmapLoader.prefetch(R.drawable.lose, width, height);
+        raceEngine.reset(System.nanoTime());
+    }
+
+    /**
+     * Dismisses a dialog if it is showing.
+     */
+    private static void dismissDialog(Dialog dialog) {
+        if (dialog != null && dialog.isShowing()) {
+            dialog.dismiss();
+        }
+    }
+
+    /**
+     * Shows a dialog for the user to choose horses and place bets.  Win, place and show bets are
+     * entered one stake per horse, like the original win bets, and replace the bets of that type;
+     * an exacta or trifecta backs the horses in the order they are ticked, with one stake, and is
+     * added to the bets already placed, which are listed below it and can be taken back.
      */
     private void showChooseHorseDialog() {
         Dialog dialog = new Dialog(this);
         dialog.setContentView(R.layout.dialog_choose_horse);
+        chooseHorseDialog = dialog;
+
+        // One row per horse on the race card
+        int runners = viewModel.getRaceCard().getRunnerCount();
+        CheckBox[] checkBoxes = new CheckBox[runners];
+        EditText[] betInputs = new EditText[runners];
+        List<Integer> picks = new ArrayList<>(); // Horses ticked, in order, for exacta and trifecta
+        ViewGroup betRows = dialog.findViewById(R.id.betRows);
+        LayoutInflater inflater = LayoutInflater.from(this);
+        for (int i = 0; i < runners; i++) {
+            View row = inflater.inflate(R.layout.item_horse_bet, betRows, false);
+            checkBoxes[i] = row.findViewById(R.id.checkBox);
+            Integer horse = i + 1;
+            checkBoxes[i].setOnCheckedChangeListener((box, checked) -> {
+                if (checked) {
+                    picks.add(horse);
+                } else {
+                    picks.remove(horse);
+                }
+            });
+            betInputs[i] = row.findViewById(R.id.etBet);
+            betRows.addView(row);
+        }
 
-        // Array of CheckBoxes for horse selection
-        CheckBox[] checkBoxes = new CheckBox[]{
-                dialog.findViewById(R.id.checkBox1),
-                dialog.findViewById(R.id.checkBox2),
-                dialog.findViewById(R.id.checkBox3),
-                dialog.findViewById(R.id.checkBox4)
-        };
-
-        // Array of EditTexts for bet amounts
-        EditText[] betInputs = new EditText[]{
-                dialog.findViewById(R.id.etBet1),
-                dialog.findViewById(R.id.etBet2),
-                dialog.findViewById(R.id.etBet3),
-                dialog.findViewById(R.id.etBet4)
-        };
-
-        // Restore previous bet selections and amounts from ViewModel
-        for (HorseBet bet : viewModel.getCurrentBets()) {
-            checkBoxes[bet.getHorseNumber() - 1].setChecked(true);
-            betInputs[bet.getHorseNumber() - 1].setText(String.valueOf(bet.getBetAmount()));
+        // Bet types the field is big enough for
+        List<BetType> types = new ArrayList<>();
+        List<String> typeNames = new ArrayList<>();
+        for (BetType type : BetType.values()) {
+            if (type.getWinningKeyCount(runners) > 0) {
+                types.add(type);
+                typeNames.add(type.name().charAt(0) + type.name().substring(1).toLowerCase(Locale.ROOT));
+            }
         }
+        Spinner spBetType = dialog.findViewById(R.id.spBetType);
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, typeNames);
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spBetType.setAdapter(adapter);
+        EditText etComboStake = dialog.findViewById(R.id.etComboStake);
+        ViewGroup placedBets = dialog.findViewById(R.id.placedBets);
+        spBetType.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                showBetRows(types.get(position), checkBoxes, betInputs, etComboStake, placedBets);
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+                // A type is always selected
+            }
+        });
+        showBetRows(BetType.WIN, checkBoxes, betInputs, etComboStake, placedBets);
 
         // Set click listener for the confirm button
         dialog.findViewById(R.id.btnConfirm).setOnClickListener(v -> {
-            if (validateAndSaveBets(checkBoxes, betInputs)) { // Validate bets before closing dialog
+            BetType type = types.get(spBetType.getSelectedItemPosition());
+            if (validateAndSaveBets(type, checkBoxes, betInputs, picks, etComboStake)) { // Validate bets before closing dialog
                 dialog.dismiss();
             }
         });
@@ -201,146 +388,284 @@ public class MainActivity extends AppCompatActivity {
     }
 
     /**
-     * Validates the bets entered by the user and saves them to the ViewModel.
+     * Fills the rows of the bet dialog for a bet type: the live odds and the bets already placed
+     * for win, place and show, or empty picks, a single stake and the bets already placed for
+     * exacta and trifecta.
      *
-     * @param checkBoxes The array of CheckBoxes representing horse selections.
-     * @param betInputs  The array of EditTexts representing bet amounts.
-     * @return True if the bets are valid and saved, false otherwise.
+     * @param type         The bet type selected.
+     * @param checkBoxes   The horse selections.
+     * @param betInputs    The per-horse stakes.
+     * @param etComboStake The stake of an exacta or trifecta.
+     * @param placedBets   The list of the exactas or trifectas placed.
      */
-    private boolean validateAndSaveBets(CheckBox[] checkBoxes, EditText[] betInputs) {
-        ArrayList<HorseBet> newBets = new ArrayList<>();
-
+    private void showBetRows(BetType type, CheckBox[] checkBoxes, EditText[] betInputs, EditText etComboStake,
+                             ViewGroup placedBets) {
+        boolean perHorse = type.getSelections() == 1;
         for (int i = 0; i < checkBoxes.length; i++) {
-            if (checkBoxes[i].isChecked()) {
-                String betStr = betInputs[i].getText().toString();
-                if (betStr.isEmpty()) {
-                    Toast.makeText(this, "Please enter a bet amount for horse " + (i + 1),
-                            Toast.LENGTH_SHORT).show();
-                    return false;
+            checkBoxes[i].setChecked(false); // Also clears the picks
+            betInputs[i].setText("");
+            betInputs[i].setVisibility(perHorse ? View.VISIBLE : View.GONE);
+            checkBoxes[i].setText(type == BetType.WIN
+                    ? String.format(Locale.ROOT, "Ngựa %d  x%.2f", i + 1, viewModel.getOdds(i + 1)) // Live odds
+                    : String.format(Locale.ROOT, "Ngựa %d", i + 1));
+        }
+        etComboStake.setText("");
+        etComboStake.setVisibility(perHorse ? View.GONE : View.VISIBLE);
+        showPlacedBets(perHorse ? null : type, placedBets);
+
+        // Restore previous bet selections and amounts from ViewModel
+        if (perHorse) {
+            for (HorseBet bet : viewModel.getCurrentBets()) {
+                if (bet.getType() == type) {
+                    checkBoxes[bet.getHorseNumber() - 1].setChecked(true);
+                    betInputs[bet.getHorseNumber() - 1].setText(String.valueOf(bet.getBetAmount()));
                 }
+            }
+        }
+    }
+
+    /**
+     * Lists the exactas or trifectas already placed, each with a button that takes it back.  The
+     * per-horse bet types show their bets in the horse rows instead.
+     *
+     * @param type       The bet type to list, or null to hide the list.
+     * @param placedBets The list.
+     */
+    private void showPlacedBets(BetType type, ViewGroup placedBets) {
+        placedBets.removeAllViews();
+        if (type == null) {
+            placedBets.setVisibility(View.GONE);
+            return;
+        }
+        LayoutInflater inflater = LayoutInflater.from(this);
+        List<HorseBet> bets = viewModel.getCurrentBets(); // In bet book order, so i is the book index
+        for (int i = 0; i < bets.size(); i++) {
+            HorseBet bet = bets.get(i);
+            if (bet.getType() != type) {
+                continue;
+            }
+            View row = inflater.inflate(R.layout.item_placed_bet, placedBets, false);
+            TextView tvPlacedBet = row.findViewById(R.id.tvPlacedBet);
+            tvPlacedBet.setText(Money.append(bet.appendLabel(new StringBuilder()).append("  "), bet.getBetAmount()));
+            int index = i;
+            row.findViewById(R.id.btnRemoveBet).setOnClickListener(v -> {
+                if (viewModel.removeBet(index)) {
+                    showPlacedBets(type, placedBets); // Another bet moved into the index
+                }
+            });
+            placedBets.addView(row);
+        }
+        placedBets.setVisibility(placedBets.getChildCount() > 0 ? View.VISIBLE : View.GONE);
+    }
 
-                try {
-                    int betAmount = Integer.parseInt(betStr);
+    /**
+     * Validates the bets entered by the user and saves them to the ViewModel: the win, place or
+     * show bets replace those of their type, an exacta or trifecta is added to the bets placed.
+     *
+     * @param type         The bet type selected.
+     * @param checkBoxes   The array of CheckBoxes representing horse selections.
+     * @param betInputs    The array of EditTexts representing bet amounts.
+     * @param picks        The horses ticked, in order.
+     * @param etComboStake The stake of an exacta or trifecta.
+     * @return True if the bets are valid and saved, false otherwise.
+     */
+    private boolean validateAndSaveBets(BetType type, CheckBox[] checkBoxes, EditText[] betInputs,
+                                        List<Integer> picks, EditText etComboStake) {
+        if (type.getSelections() == 1) {
+            ArrayList<HorseBet> newBets = new ArrayList<>();
+            for (int i = 0; i < checkBoxes.length; i++) {
+                if (checkBoxes[i].isChecked()) {
+                    long betAmount = readBetAmount(betInputs[i], "Please enter a bet amount for horse " + (i + 1));
                     if (betAmount <= 0) {
-                        Toast.makeText(this, "Bet amount must be greater than 0",
-                                Toast.LENGTH_SHORT).show();
                         return false;
                     }
-                    newBets.add(new HorseBet(i + 1, betAmount));
-                } catch (NumberFormatException e) {
-                    Toast.makeText(this, "Invalid bet amount",
-                            Toast.LENGTH_SHORT).show();
-                    return false;
+                    newBets.add(new HorseBet(type, new int[]{i + 1}, betAmount));
                 }
             }
+            return viewModel.placeBets(type, newBets); // Replaces the bets of this type only
+        }
+
+        if (picks.size() != type.getSelections()) {
+            Toast.makeText(this, "Tick " + type.getSelections() + " horses in finishing order",
+                    Toast.LENGTH_SHORT).show();
+            return false;
+        }
+        long betAmount = readBetAmount(etComboStake, "Please enter a bet amount");
+        if (betAmount <= 0) {
+            return false;
+        }
+        int[] horses = new int[picks.size()];
+        for (int i = 0; i < horses.length; i++) {
+            horses[i] = picks.get(i);
         }
+        return viewModel.addBet(new HorseBet(type, horses, betAmount)); // Added to the bets already placed
+    }
 
-        viewModel.setCurrentBets(newBets); // Save the validated bets to the ViewModel
-        return true;
+    /**
+     * Reads a stake from an input, showing a Toast if it is not a valid amount.
+     *
+     * @param input        The input.
+     * @param emptyMessage The message shown when the input is empty.
+     * @return The amount, or 0 if it is not valid.
+     */
+    private long readBetAmount(EditText input, String emptyMessage) {
+        long betAmount = BetParser.parseAmount(input.getText());
+        if (betAmount == BetParser.EMPTY) {
+            Toast.makeText(this, emptyMessage, Toast.LENGTH_SHORT).show();
+            return 0;
+        }
+        if (betAmount == BetParser.NOT_POSITIVE) {
+            Toast.makeText(this, "Bet amount must be greater than 0",
+                    Toast.LENGTH_SHORT).show();
+            return 0;
+        }
+        if (betAmount == BetParser.INVALID) {
+            Toast.makeText(this, "Invalid bet amount",
+                    Toast.LENGTH_SHORT).show();
+            return 0;
+        }
+        return betAmount;
     }
 
     /**
-     * Starts the horse race animation and logic.  Plays countdown and race sounds.
-     * Sets up the horse animations using {@link AnimationDrawable}.
+     * Starts the horse race animation and logic.  Plays countdown and race sounds,
+     * then starts the horse animations on the {@link RaceTrackView}.
      */
     private void startRace() {
 
         if (!viewModel.startRace()) { // Check if the race can start (enough balance)
             return;
         }
+        stopReplay();
 
-        MediaPlayer mediaPlayer = MediaPlayer.create(this, R.raw.countdownfinalcut);
-        mediaPlayer.setOnCompletionListener(mp -> { // Set listener for countdown completion
-            mp.release();
-            // Array of drawable resources for horse animations
-            int[] horseDrawableRes = {
-                    R.drawable.horse1_animation,
-                    R.drawable.horse2_animation,
-                    R.drawable.horse3_animation,
-                    R.drawable.horse4_animation
-            };
-
-            // Array of SeekBars corresponding to each horse
-            SeekBar[] seekBars = { seekBar1, seekBar2, seekBar3, seekBar4 };
-
-            // Array to store AnimationDrawable instances
-            final AnimationDrawable[] horseAnimations = new AnimationDrawable[seekBars.length];
-
-            // Initialize each SeekBar with its corresponding animation drawable
-            for (int i = 0; i < seekBars.length; i++) {
-                Drawable drawable = ContextCompat.getDrawable(this, horseDrawableRes[i]);
-                if (drawable == null) {
-                    // Handle null drawable, e.g., log an error, skip, or use a default drawable.
-                    continue;
-                }
-                seekBars[i].setThumb(drawable);
-                AnimationDrawable animation = (AnimationDrawable) seekBars[i].getThumb();
-                horseAnimations[i] = animation;
-                // Post the start to ensure drawable is ready
-                seekBars[i].post(animation::start); // Start the animation
+        audio.playEffect(R.raw.countdownfinalcut, () -> { // Start once the countdown has played
+            if (isDestroyed()) {
+                return;
             }
+            raceEngine.reset(System.nanoTime()); // New race, new random sequence
+            beginRaceFrames();
+        });
+    }
 
-            // Create a single Random instance for performance
-            final Random random = new Random();
-            MediaPlayer mediaPlayer2 = MediaPlayer.create(this, R.raw.horsefootsteps); // Race sound
-            handler.post(new Runnable() { // Use a Handler to update the UI on the main thread
-                @Override
-                public void run() {
-                    if (!viewModel.getIsRacing().getValue()) return;
-
-                    mediaPlayer2.setLooping(true);
-                    mediaPlayer2.start();
-
-                    boolean hasWinner = false;
-
-                    for (int i = 0; i < seekBars.length; i++) {
-                        int progress = seekBars[i].getProgress() + random.nextInt(3); // Random progress
-                        seekBars[i].setProgress(progress);
-                        if (progress >= 100) { // Check for winner
-                            hasWinner = true;
-                            // Stop animations for all horses
-                            for (AnimationDrawable anim : horseAnimations) {
-                                if (anim.isRunning()) {
-                                    anim.stop();
-                                }
-                            }
-                            mediaPlayer2.stop(); // Stop race sound
-                            viewModel.handleRaceFinished(i + 1); // Notify ViewModel of the winner
-                            break;
-                        }
-                    }
+    /**
+     * Starts the race animation from the engine's current seed and renders it on every display
+     * frame, in step with vsync.
+     */
+    private void beginRaceFrames() {
+        raceTrack.startRunning(); // Start the horse animations
+        raceClock.reset();
+        frameTimes.reset();
+        audio.startLoop(R.raw.horsefootsteps); // Start the looping race sound once, not on every tick
+        Choreographer.getInstance().postFrameCallback(raceFrameCallback);
+    }
 
-                    if (!hasWinner) {
-                        handler.postDelayed(this, 50); // Continue updating UI after a delay
-                    }
-                }
-            });
-        });
+    /**
+     * Called on every display frame while racing.  Runs the simulation ticks that are due at its
+     * fixed logical rate, then draws every horse interpolated between the last two ticks, so the
+     * motion stays smooth on 60/90/120 Hz panels and does not drift when a frame is late.
+     * Allocates nothing: the racing state is a primitive flag, the positions live in the
+     * preallocated engine and the frame callback is reused.
+     *
+     * @param frameTimeNanos The time the frame started rendering, in the {@link System#nanoTime()} base.
+     */
+    private void onRaceFrame(long frameTimeNanos) {
+        if (!viewModel.isRaceInProgress()) return;
 
-        mediaPlayer.start(); // Start countdown sound
+        frameTimes.recordFrame(frameTimeNanos);
+        int winner = RaceEngine.NO_WINNER;
+        for (int ticks = raceClock.advance(frameTimeNanos); ticks > 0 && winner == RaceEngine.NO_WINNER; ticks--) {
+            winner = raceEngine.tick(); // Advance the simulation by one tick
+        }
+
+        if (winner != RaceEngine.NO_WINNER) {
+            raceTrack.stopRunning(); // Stop animations for all horses
+            raceTrack.render(raceEngine, 1f, frameTimeNanos); // Show the finishing positions exactly
+            audio.stopLoop(R.raw.horsefootsteps); // Stop race sound; it stays decoded for the next race
+            Log.i(TAG, "Race frame times: " + frameTimes);
+            viewModel.saveReplay(RaceReplay.of(raceEngine, System.currentTimeMillis())); // Seed and length replay it exactly
+            viewModel.handleRaceFinished(raceEngine.getFinishingOrder(finishingOrder)); // Notify ViewModel of the result
+        } else {
+            raceTrack.render(raceEngine, raceClock.getAlpha(), frameTimeNanos);
+            Choreographer.getInstance().postFrameCallback(raceFrameCallback); // Continue on the next frame
+        }
     }
 
     /**
-     * Resets the SeekBars to their initial positions and default horse drawables.
+     * Plays a recorded race on the track from its start, with the replay controls shown.
+     *
+     * @param replay The replay.
      */
-    private void resetSeekBars() {
-        resetSeekBar(seekBar1, R.drawable.assasin1);
-        resetSeekBar(seekBar2, R.drawable.knight_walk_1);
-        resetSeekBar(seekBar3, R.drawable.ice_horse);
-        resetSeekBar(seekBar4, R.drawable.horse_bend_01);
+    private void startReplay(RaceReplay replay) {
+        if (viewModel.isRaceInProgress()) {
+            return; // The track is busy
+        }
+        replayPlayer.load(replay);
+        replaying = true;
+        sbReplay.setMax(replayPlayer.getLength());
+        sbReplay.setProgress(0);
+        btnReplaySpeed.setText(replayPlayer.getSpeed() + "x");
+        replayBar.setVisibility(View.VISIBLE);
+        playReplayFrames();
     }
 
     /**
-     * Resets a single SeekBar to its initial position and sets the specified drawable.
+     * Plays the replay on from where it is, unless it has ended.
+     */
+    private void playReplayFrames() {
+        if (!replaying || replayPlayer.isFinished()) {
+            return;
+        }
+        replayPlayer.seek(replayPlayer.getTick()); // Restart its clock from this frame
+        raceTrack.startRunning();
+        Choreographer.getInstance().postFrameCallback(replayFrameCallback);
+    }
+
+    /**
+     * Called on every display frame while a replay plays.  Like {@link #onRaceFrame(long)}, but
+     * the ticks come from the replay at its speed and nothing is settled.
      *
-     * @param seekBar     The SeekBar to reset.
-     * @param drawableRes The resource ID of the drawable to set as the thumb.
+     * @param frameTimeNanos The time the frame started rendering.
      */
-    private void resetSeekBar(SeekBar seekBar, int drawableRes) {
-        // Reset SeekBar progress
-        seekBar.setProgress(0);
-        Drawable thumbDrawable = ContextCompat.getDrawable(this, drawableRes);
-        seekBar.setThumb(thumbDrawable); // Set the default thumb drawable
+    private void onReplayFrame(long frameTimeNanos) {
+        if (!replaying) return;
+
+        boolean more = replayPlayer.advance(frameTimeNanos);
+        raceTrack.render(replayPlayer.getEngine(), replayPlayer.getAlpha(), frameTimeNanos);
+        sbReplay.setProgress(replayPlayer.getTick());
+        if (more) {
+            Choreographer.getInstance().postFrameCallback(replayFrameCallback);
+        } else {
+            raceTrack.stopRunning(); // Stays on the finish; the bar can still scrub or replay
+        }
+    }
+
+    /**
+     * Ends the replay, hides its controls and shows the last race again.
+     */
+    private void stopReplay() {
+        if (!replaying) {
+            return;
+        }
+        replaying = false;
+        Choreographer.getInstance().removeFrameCallback(replayFrameCallback);
+        replayBar.setVisibility(View.GONE);
+        raceTrack.stopRunning();
+        raceTrack.render(raceEngine, 1f, System.nanoTime());
+    }
+
+    /**
+     * Hands the horse sprite atlas to the {@link RaceTrackView}.  The atlas is decoded once per
+     * process, instead of one bitmap per animation frame at every race start.
+     */
+    private void loadHorseSprites() {
+        SpriteAtlas atlas = null;
+        try {
+            atlas = SpriteAtlas.getHorseAtlas(this);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot load the horse sprite atlas", e);
+        }
+        RaceCard card = viewModel.getRaceCard();
+        raceTrack.setHorses(atlas, card.getAnimations(), card.getIdleFrames());
     }
 
     /**
@@ -352,6 +677,7 @@ public class MainActivity extends AppCompatActivity {
         // Inflate layout for the dialog
         Dialog dialog = new Dialog(this);
         dialog.setContentView(R.layout.dialog_result);
+        resultDialog = dialog;
 
         Window window = dialog.getWindow();
         if (window != null) {
@@ -366,47 +692,51 @@ public class MainActivity extends AppCompatActivity {
         TextView tvResultMessage = dialog.findViewById(R.id.tvResultMessage);
         TextView tvMoneyChange = dialog.findViewById(R.id.tvMoneyChange);
         Button btnCloseDialog = dialog.findViewById(R.id.btnCloseDialog);
+        Button btnReplay = dialog.findViewById(R.id.btnReplay);
+        Button btnDialogReplaySpeed = dialog.findViewById(R.id.btnReplaySpeed);
         ImageView imageView = dialog.findViewById(R.id.ivTopImage);
 
         // Display the result message
         tvResultMessage.setText(result);
 
         // Get the money change from the ViewModel
-        int moneyChange = viewModel.getMoneyChange().getValue();
+        long moneyChange = viewModel.getMoneyChange().getValue();
+
+        // Decode the top image at its view size, reusing the cached bitmap after the first race
+        BitmapLoader bitmapLoader = BitmapLoader.getInstance(this);
+        bitmapLoader.loadInto(imageView, moneyChange < 0 ? R.drawable.lose : R.drawable.win);
+        Log.i(TAG, "Memory with result dialog: " + bitmapLoader.describeMemory());
 
         if (moneyChange > 0) {
             tvMoneyChange.setText("You won " + moneyChange + "đ");
             tvMoneyChange.setTextColor(getResources().getColor(android.R.color.holo_blue_bright));
             //play sound effect
-            MediaPlayer mediaPlayer = MediaPlayer.create(this, R.raw.soundwin);
-            mediaPlayer.setOnCompletionListener(mp -> {
-                mp.release();
-            });
-            mediaPlayer.start();
+            audio.playEffect(R.raw.soundwin);
         } else if (moneyChange < 0) {
-            imageView.setImageResource(R.drawable.lose);
             tvMoneyChange.setText("You lost " + moneyChange + "đ");
             tvMoneyChange.setTextColor(getResources().getColor(android.R.color.holo_red_light));
             //play sound effect
-            MediaPlayer mediaPlayer = MediaPlayer.create(this, R.raw.soundlose);
-            mediaPlayer.setOnCompletionListener(mp -> {
-                mp.release();
-            });
-            mediaPlayer.start();
+            audio.playEffect(R.raw.soundlose);
         } else {
             tvMoneyChange.setText("No change in money");
             tvMoneyChange.setTextColor(getResources().getColor(android.R.color.holo_blue_bright));
             //play sound effect
-            MediaPlayer mediaPlayer = MediaPlayer.create(this, R.raw.soundwin);
-            mediaPlayer.setOnCompletionListener(mp -> {
-                mp.release();
-            });
-            mediaPlayer.start();
+            audio.playEffect(R.raw.soundwin);
         }
 
         // Close the dialog when the button is clicked
         btnCloseDialog.setOnClickListener(v -> dialog.dismiss());
 
+        // Replay the race on the track, at the speed picked here
+        RaceReplay replay = viewModel.getLastReplay();
+        btnReplay.setEnabled(replay != null);
+        btnDialogReplaySpeed.setText(replayPlayer.getSpeed() + "x");
+        btnDialogReplaySpeed.setOnClickListener(v -> btnDialogReplaySpeed.setText(replayPlayer.cycleSpeed() + "x"));
+        btnReplay.setOnClickListener(v -> {
+            dialog.dismiss();
+            startReplay(replay);
+        });
+
         // Show the dialog
         dialog.show();
     }
@@ -422,38 +752,51 @@ public class MainActivity extends AppCompatActivity {
         Button btnConfirmAddMoney = dialog.findViewById(R.id.btnConfirmAddMoney);
 
         btnConfirmAddMoney.setOnClickListener(v -> {
-            String moneyStr = etAddMoney.getText().toString();
-            if (moneyStr.isEmpty()) {
+            long amountToAdd = BetParser.parseAmount(etAddMoney.getText());
+            if (amountToAdd == BetParser.EMPTY) {
                 Toast.makeText(this, "Please enter an amount", Toast.LENGTH_SHORT).show();
                 return;
             }
-
-            try {
-                int amountToAdd = Integer.parseInt(moneyStr);
-                if (amountToAdd <= 0) {
-                    Toast.makeText(this, "Amount must be greater than 0", Toast.LENGTH_SHORT).show();
-                    return;
-                }
-
-                // Update the balance in the ViewModel
-                viewModel.updateBalance(amountToAdd);
-                Toast.makeText(this, "Money added successfully!", Toast.LENGTH_SHORT).show();
-                dialog.dismiss();
-            } catch (NumberFormatException e) {
+            if (amountToAdd == BetParser.NOT_POSITIVE) {
+                Toast.makeText(this, "Amount must be greater than 0", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            if (amountToAdd == BetParser.INVALID) {
                 Toast.makeText(this, "Invalid amount", Toast.LENGTH_SHORT).show();
+                return;
             }
+
+            // Update the balance in the ViewModel
+            if (!viewModel.addMoney(amountToAdd)) {
+                return;
+            }
+            Toast.makeText(this, "Money added successfully!", Toast.LENGTH_SHORT).show();
+            dialog.dismiss();
         });
 
         dialog.show();
     }
 
     /**
-     * Called when the activity is destroyed. Removes any pending callbacks from the Handler
-     * to prevent memory leaks.
+     * Called when the system is low on memory.  Lets the bitmap cache give memory back.
+     *
+     * @param level How much memory should be trimmed, one of the {@code TRIM_MEMORY_*} levels.
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        BitmapLoader.getInstance(this).trimMemory(level);
+    }
+
+    /**
+     * Called when the activity is destroyed. Removes any pending frame callback
+     * and stops the race sound.
      */
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        handler.removeCallbacksAndMessages(null); // Remove callbacks to prevent leaks
+        Choreographer.getInstance().removeFrameCallback(raceFrameCallback); // Remove callbacks to prevent leaks
+        Choreographer.getInstance().removeFrameCallback(replayFrameCallback);
+        audio.stopLoop(R.raw.horsefootsteps);
     }
 }
\ No newline at end of file
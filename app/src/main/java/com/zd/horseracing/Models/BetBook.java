@@ -0,0 +1,252 @@
+package com.zd.horseracing.Models;
+
+/**
+ * The bets of a race, held in primitive arrays rather than as a list of {@link HorseBet}
+ * objects: one slot per bet for its type, combination key and amount, plus running stakes per
+ * horse and per bet type and a running total.  Adding and removing a bet are O(1) and keep every
+ * total current, so nothing is ever recalculated by walking the bets, and no bet is boxed.
+ * <p>
+ * Bets are addressed by index, from 0 to {@link #size()} - 1.  Removing a bet moves the last bet
+ * into its slot.  Not thread-safe.
+ */
+public class BetBook {
+    private static final int INITIAL_CAPACITY = 8;
+    private static final BetType[] TYPES = BetType.values();
+
+    private byte[] types = new byte[INITIAL_CAPACITY];   // Bet type ordinal
+    private int[] keys = new int[INITIAL_CAPACITY];      // Combination key, see BetType#key
+    private long[] amounts = new long[INITIAL_CAPACITY];
+    private final long[] horseStakes = new long[RaceCard.MAX_RUNNERS + 1]; // By horse number, 0 unused
+    private final long[] typeStakes = new long[TYPES.length];
+    private int size;
+    private long total;
+
+    /**
+     * Adds a bet.
+     *
+     * @param bet The bet.
+     * @return The index of the bet.
+     */
+    public int add(HorseBet bet) {
+        return add(bet.getType(), bet.getCombinationKey(), bet.getBetAmount());
+    }
+
+    /**
+     * Adds a bet by its combination key, without a {@link HorseBet}.
+     *
+     * @param type   The bet type.
+     * @param key    The combination key of the horses picked.
+     * @param amount The amount of the bet, greater than 0.
+     * @return The index of the bet.
+     * @throws ArithmeticException If the total would overflow; the book is left unchanged.
+     */
+    public int add(BetType type, int key, long amount) {
+        Money.requirePositive(amount);
+        Money.add(total, amount); // Every other stake is at most the total
+        if (size == amounts.length) {
+            grow();
+        }
+        types[size] = (byte) type.ordinal();
+        keys[size] = key;
+        amounts[size] = amount;
+        addStakes(type, key, amount);
+        return size++;
+    }
+
+    /**
+     * Removes a bet.  The last bet moves into its index.
+     *
+     * @param index The index of the bet.
+     */
+    public void remove(int index) {
+        checkIndex(index);
+        addStakes(TYPES[types[index]], keys[index], -amounts[index]);
+        size--;
+        types[index] = types[size];
+        keys[index] = keys[size];
+        amounts[index] = amounts[size];
+    }
+
+    /**
+     * Removes every bet of a type.
+     *
+     * @param type The bet type.
+     * @return The number of bets removed.
+     */
+    public int removeAll(BetType type) {
+        int removed = 0;
+        for (int i = size - 1; i >= 0; i--) { // Backwards, so the bet moved into a slot was already seen
+            if (types[i] == type.ordinal()) {
+                remove(i);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes every bet.
+     */
+    public void clear() {
+        size = 0;
+        total = 0;
+        for (int i = 0; i < horseStakes.length; i++) {
+            horseStakes[i] = 0;
+        }
+        for (int i = 0; i < typeStakes.length; i++) {
+            typeStakes[i] = 0;
+        }
+    }
+
+    /**
+     * Gets the number of bets.
+     *
+     * @return The bet count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether there are no bets.
+     *
+     * @return True if the book is empty.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets the type of a bet.
+     *
+     * @param index The index of the bet.
+     * @return The bet type.
+     */
+    public BetType getType(int index) {
+        checkIndex(index);
+        return TYPES[types[index]];
+    }
+
+    /**
+     * Gets the combination key of a bet.
+     *
+     * @param index The index of the bet.
+     * @return The key, see {@link BetType#key(int[])}.
+     */
+    public int getCombinationKey(int index) {
+        checkIndex(index);
+        return keys[index];
+    }
+
+    /**
+     * Gets the amount of a bet.
+     *
+     * @param index The index of the bet.
+     * @return The bet amount.
+     */
+    public long getAmount(int index) {
+        checkIndex(index);
+        return amounts[index];
+    }
+
+    /**
+     * Gets a bet as a {@link HorseBet}, e.g. to show it in the bet dialog.
+     *
+     * @param index The index of the bet.
+     * @return A new HorseBet.
+     */
+    public HorseBet getBet(int index) {
+        BetType type = getType(index);
+        int[] horses = new int[type.getSelections()];
+        int key = keys[index];
+        for (int i = 0; i < horses.length; i++) {
+            horses[i] = key % BetType.KEY_BASE; // First pick is the lowest digit
+            key /= BetType.KEY_BASE;
+        }
+        return new HorseBet(type, horses, amounts[index]);
+    }
+
+    /**
+     * Appends a bet as shown in the race result, e.g. {@code Horse 2} or {@code Exacta 2-4},
+     * without creating a {@link HorseBet}.
+     *
+     * @param index The index of the bet.
+     * @param out   The builder to append to.
+     * @return The builder.
+     */
+    public StringBuilder appendLabel(int index, StringBuilder out) {
+        return getType(index).appendLabel(keys[index], out);
+    }
+
+    /**
+     * Copies every bet into caller-owned arrays in one bulk copy per column, e.g. to settle them
+     * in a batch.
+     *
+     * @param typeOrdinals Receives the {@link BetType#ordinal()} of each bet; at least
+     *                     {@link #size()} long.
+     * @param keys         Receives the combination key of each bet.
+     * @param amounts      Receives the amount of each bet.
+     */
+    public void copyTo(byte[] typeOrdinals, int[] keys, long[] amounts) {
+        System.arraycopy(this.types, 0, typeOrdinals, 0, size);
+        System.arraycopy(this.keys, 0, keys, 0, size);
+        System.arraycopy(this.amounts, 0, amounts, 0, size);
+    }
+
+    /**
+     * Gets the amount staked on bets that pick a horse, in any position.
+     *
+     * @param horseNumber The horse (1-based index).
+     * @return The stake.
+     */
+    public long getHorseStake(int horseNumber) {
+        return horseStakes[horseNumber];
+    }
+
+    /**
+     * Gets the amount staked on bets of a type.
+     *
+     * @param type The bet type.
+     * @return The stake.
+     */
+    public long getTypeStake(BetType type) {
+        return typeStakes[type.ordinal()];
+    }
+
+    /**
+     * Gets the amount staked on every bet together.
+     *
+     * @return The running total.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    private void addStakes(BetType type, int key, long amount) {
+        total += amount;
+        typeStakes[type.ordinal()] += amount;
+        for (int i = 0; i < type.getSelections(); i++) {
+            horseStakes[key % BetType.KEY_BASE] += amount;
+            key /= BetType.KEY_BASE;
+        }
+    }
+
+    private void grow() {
+        int capacity = amounts.length * 2;
+        byte[] newTypes = new byte[capacity];
+        int[] newKeys = new int[capacity];
+        long[] newAmounts = new long[capacity];
+        System.arraycopy(types, 0, newTypes, 0, size);
+        System.arraycopy(keys, 0, newKeys, 0, size);
+        System.arraycopy(amounts, 0, newAmounts, 0, size);
+        types = newTypes;
+        keys = newKeys;
+        amounts = newAmounts;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Bet " + index + " of " + size);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.zd.horseracing.Models;
+
+/**
+ * The kinds of bet on a race.  Win, place and show back one horse to finish first, in the first
+ * two, or in the first three; exacta and trifecta back the first two or three horses in exact
+ * order.
+ * <p>
+ * Every bet is identified by a combination key: its horses as digits of a number in base
+ * {@link #KEY_BASE}, first pick lowest.  Keys are dense, so pools can be plain arrays indexed
+ * by key, and the winning keys of a race follow directly from its finishing order.
+ */
+public enum BetType {
+    WIN("Horse", 1, 1),
+    PLACE("Place", 1, 2),
+    SHOW("Show", 1, 3),
+    EXACTA("Exacta", 2, 1),
+    TRIFECTA("Trifecta", 3, 1);
+
+    /** Base of the combination keys: one digit per possible horse number, and 0 unused. */
+    public static final int KEY_BASE = RaceCard.MAX_RUNNERS + 1;
+
+    private final String label;
+    private final int selections;
+    private final int winningKeys;
+
+    BetType(String label, int selections, int winningKeys) {
+        this.label = label;
+        this.selections = selections;
+        this.winningKeys = winningKeys;
+    }
+
+    /**
+     * Gets the name shown in front of the horses of a bet in the race result.
+     *
+     * @return The label.
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Gets the number of horses a bet of this type picks.
+     *
+     * @return 1 for win, place and show, 2 for exacta, 3 for trifecta.
+     */
+    public int getSelections() {
+        return selections;
+    }
+
+    /**
+     * Gets the number of combination keys that win in a race: one for the ordered bets and win,
+     * two for place and three for show, fewer if the field is too small.
+     *
+     * @param horseCount The number of horses in the race.
+     * @return The number of winning keys.
+     */
+    public int getWinningKeyCount(int horseCount) {
+        if (horseCount < selections) {
+            return 0; // Not enough horses to fill the bet
+        }
+        return Math.min(winningKeys, horseCount);
+    }
+
+    /**
+     * Gets the number of possible combination keys, the size of an array indexed by key.
+     *
+     * @return {@link #KEY_BASE} to the power of the number of selections.
+     */
+    public int getKeySpace() {
+        int space = 1;
+        for (int i = 0; i < selections; i++) {
+            space *= KEY_BASE;
+        }
+        return space;
+    }
+
+    /**
+     * Appends a bet of this type as shown in the race result, e.g. {@code Horse 2} or
+     * {@code Exacta 2-4}.
+     *
+     * @param key The combination key of the horses picked.
+     * @param out The builder to append to.
+     * @return The builder.
+     */
+    public StringBuilder appendLabel(int key, StringBuilder out) {
+        out.append(label).append(' ').append(key % KEY_BASE);
+        for (int i = 1; i < selections; i++) {
+            key /= KEY_BASE;
+            out.append('-').append(key % KEY_BASE);
+        }
+        return out;
+    }
+
+    /**
+     * Gets the combination key of a bet.
+     *
+     * @param horses The horses picked, in order (1-based numbers).
+     * @return The key.
+     */
+    public int key(int[] horses) {
+        int key = 0;
+        for (int i = selections - 1; i >= 0; i--) {
+            key = key * KEY_BASE + horses[i];
+        }
+        return key;
+    }
+
+    /**
+     * Gets one of the winning combination keys of a race.
+     *
+     * @param finishingOrder The horses in finishing order (1-based numbers).
+     * @param index          Which winning key, from 0 to {@link #getWinningKeyCount(int)} - 1:
+     *                       for place and show, the finishing position.
+     * @return The winning key.
+     */
+    public int winningKey(int[] finishingOrder, int index) {
+        if (selections == 1) {
+            return finishingOrder[index];
+        }
+        return key(finishingOrder);
+    }
+}
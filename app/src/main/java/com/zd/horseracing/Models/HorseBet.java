@@ -1,31 +1,100 @@
 package com.zd.horseracing.Models;
 
 /**
- * Represents a bet placed on a specific horse.  Contains the horse number and the bet amount.
+ * Represents a bet placed on a race.  Contains the bet type, the horses picked (one, or two or
+ * three in finishing order for exacta and trifecta) and the bet amount.
  * This is a simple data class (POJO - Plain Old Java Object).
  */
 public class HorseBet {
-    private int horseNumber;
-    private int betAmount;
+    /** Amount paid back per unit staked when the chosen horse wins. */
+    public static final int WIN_PAYOUT_MULTIPLIER = 2;
+
+    private BetType type;
+    private int[] horses;
+    private long betAmount; // In đồng, see Money
 
     /**
-     * Constructor for the HorseBet class.
+     * Constructor for a win bet.
      *
      * @param horseNumber The number of the horse the bet is placed on (1-based index).
      * @param betAmount   The amount of the bet.
      */
-    public HorseBet(int horseNumber, int betAmount) {
-        this.horseNumber = horseNumber;
-        this.betAmount = betAmount;
+    public HorseBet(int horseNumber, long betAmount) {
+        this(BetType.WIN, new int[]{horseNumber}, betAmount);
+    }
+
+    /**
+     * Constructor for the HorseBet class.
+     *
+     * @param type      The bet type.
+     * @param horses    The horses picked, in finishing order (1-based numbers), as many as the
+     *                  type's selections and all different.
+     * @param betAmount The amount of the bet, greater than 0.
+     */
+    public HorseBet(BetType type, int[] horses, long betAmount) {
+        if (horses.length != type.getSelections()) {
+            throw new IllegalArgumentException(type + " picks " + type.getSelections() + " horses");
+        }
+        for (int i = 0; i < horses.length; i++) {
+            for (int j = 0; j < i; j++) {
+                if (horses[i] == horses[j]) {
+                    throw new IllegalArgumentException("Horse " + horses[i] + " is picked twice");
+                }
+            }
+        }
+        this.type = type;
+        this.horses = horses.clone();
+        this.betAmount = Money.requirePositive(betAmount);
     }
 
     /**
-     * Gets the horse number.
+     * Gets the horse number, the first horse picked for exacta and trifecta bets.
      *
      * @return The horse number.
      */
     public int getHorseNumber() {
-        return horseNumber;
+        return horses[0];
+    }
+
+    /**
+     * Gets the bet type.
+     *
+     * @return The bet type.
+     */
+    public BetType getType() {
+        return type;
+    }
+
+    /**
+     * Gets the horses picked, in finishing order.
+     *
+     * @return A copy of the horse numbers.
+     */
+    public int[] getHorses() {
+        return horses.clone();
+    }
+
+    /**
+     * Gets the combination key identifying the bet's type-specific pool entry.
+     *
+     * @return The key, see {@link BetType#key(int[])}.
+     */
+    public int getCombinationKey() {
+        return type.key(horses);
+    }
+
+    /**
+     * Appends the bet as shown in the race result, e.g. {@code Horse 2} or {@code Exacta 2-4}.
+     *
+     * @param out The builder to append to.
+     * @return The builder.
+     */
+    public StringBuilder appendLabel(StringBuilder out) {
+        out.append(type.getLabel()).append(' ').append(horses[0]);
+        for (int i = 1; i < horses.length; i++) {
+            out.append('-').append(horses[i]);
+        }
+        return out;
     }
 
     /**
@@ -33,7 +102,7 @@ public class HorseBet {
      *
      * @return The bet amount.
      */
-    public int getBetAmount() {
+    public long getBetAmount() {
         return betAmount;
     }
 }
\ No newline at end of file
@@ -0,0 +1,95 @@
+package com.zd.horseracing.Models;
+
+/**
+ * Amounts of money: balances, stakes, payouts.  An amount is a plain {@code long} count of the
+ * currency's smallest unit (one đồng), so amounts live in primitive fields and arrays and are
+ * never boxed or allocated, and every balance fits however long a wallet is played.
+ * <p>
+ * All arithmetic on amounts goes through these helpers, which throw an
+ * {@link ArithmeticException} instead of silently wrapping around on overflow.  They compile to
+ * the same intrinsics as {@link Math#addExact(long, long)}, so they are safe on the settlement
+ * hot path.
+ */
+public final class Money {
+    /** Symbol appended to amounts shown to the user. */
+    public static final String SYMBOL = "đ";
+
+    private Money() {
+        // Static helpers only
+    }
+
+    /**
+     * Adds two amounts.
+     *
+     * @param a An amount.
+     * @param b An amount.
+     * @return The sum.
+     * @throws ArithmeticException If the sum does not fit in a long.
+     */
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    /**
+     * Subtracts one amount from another.
+     *
+     * @param a An amount.
+     * @param b The amount taken away.
+     * @return The difference, negative if {@code b} is the larger.
+     * @throws ArithmeticException If the difference does not fit in a long.
+     */
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    /**
+     * Multiplies an amount, e.g. a stake by fixed odds.
+     *
+     * @param amount The amount.
+     * @param factor The multiplier.
+     * @return The product.
+     * @throws ArithmeticException If the product does not fit in a long.
+     */
+    public static long multiply(long amount, long factor) {
+        return Math.multiplyExact(amount, factor);
+    }
+
+    /**
+     * Checks that an amount can be staked or deposited.
+     *
+     * @param amount The amount.
+     * @return The amount.
+     * @throws IllegalArgumentException If the amount is not greater than 0.
+     */
+    public static long requirePositive(long amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("An amount must be greater than 0, not " + amount);
+        }
+        return amount;
+    }
+
+    /**
+     * Appends an amount as shown to the user, e.g. {@code 250đ}.
+     *
+     * @param out    The builder to append to.
+     * @param amount The amount.
+     * @return The builder.
+     */
+    public static StringBuilder append(StringBuilder out, long amount) {
+        return out.append(amount).append(SYMBOL);
+    }
+
+    /**
+     * Appends a change of balance with its sign, e.g. {@code +250đ} or {@code -40đ}.
+     *
+     * @param out    The builder to append to.
+     * @param change The change.
+     * @return The builder.
+     */
+    public static StringBuilder appendSigned(StringBuilder out, long change) {
+        if (change >= 0) {
+            out.append('+');
+        }
+        return append(out, change);
+    }
+}
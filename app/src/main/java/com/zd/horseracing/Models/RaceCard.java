@@ -0,0 +1,110 @@
+package com.zd.horseracing.Models;
+
+/**
+ * The field of a race: how many horses run and how each one looks.  Horses are numbered from 1;
+ * lanes are the 0-based index of a horse.  Bets, settlement, the engine and the track all take
+ * their horse count from the card, so a race can have anywhere from {@link #MIN_RUNNERS} to
+ * {@link #MAX_RUNNERS} runners.
+ */
+public class RaceCard {
+    /** Fewest horses in a race. */
+    public static final int MIN_RUNNERS = 2;
+    /** Most horses in a race. */
+    public static final int MAX_RUNNERS = 20;
+
+    // Horse animations in the sprite atlas, packed from the horseN_animation drawables
+    private static final String[] SPRITE_ANIMATIONS = {
+            "horse1_animation",
+            "horse2_animation",
+            "horse3_animation",
+            "horse4_animation"
+    };
+
+    // Atlas frames shown by each horse before the race starts
+    private static final String[] SPRITE_IDLE_FRAMES = {
+            "assasin1",
+            "knight_walk_1",
+            "ice_horse",
+            "horse_bend_01"
+    };
+
+    private final String[] animations;
+    private final String[] idleFrames;
+
+    /**
+     * Constructor for a RaceCard with the sprites of each horse.
+     *
+     * @param animations The running animation of each horse, in lane order.
+     * @param idleFrames The frame each horse shows before the race starts, in lane order.
+     */
+    public RaceCard(String[] animations, String[] idleFrames) {
+        if (animations.length != idleFrames.length) {
+            throw new IllegalArgumentException("Every horse needs an animation and an idle frame");
+        }
+        checkRunnerCount(animations.length);
+        this.animations = animations.clone();
+        this.idleFrames = idleFrames.clone();
+    }
+
+    /**
+     * Creates a card with the given number of horses, dressed in the sprites of the atlas in
+     * turn (the fifth horse looks like the first, and so on).
+     *
+     * @param runners The number of horses, between {@link #MIN_RUNNERS} and {@link #MAX_RUNNERS}.
+     * @return The race card.
+     */
+    public static RaceCard standard(int runners) {
+        checkRunnerCount(runners);
+        String[] animations = new String[runners];
+        String[] idleFrames = new String[runners];
+        for (int i = 0; i < runners; i++) {
+            animations[i] = SPRITE_ANIMATIONS[i % SPRITE_ANIMATIONS.length];
+            idleFrames[i] = SPRITE_IDLE_FRAMES[i % SPRITE_IDLE_FRAMES.length];
+        }
+        return new RaceCard(animations, idleFrames);
+    }
+
+    /**
+     * Gets the number of horses in the race.
+     *
+     * @return The runner count.
+     */
+    public int getRunnerCount() {
+        return animations.length;
+    }
+
+    /**
+     * Checks whether a horse number is on this card.
+     *
+     * @param horseNumber The horse number (1-based index).
+     * @return True if the horse runs in this race.
+     */
+    public boolean isRunner(int horseNumber) {
+        return horseNumber >= 1 && horseNumber <= animations.length;
+    }
+
+    /**
+     * Gets the running animation of every horse, in lane order.
+     *
+     * @return A copy of the animation names.
+     */
+    public String[] getAnimations() {
+        return animations.clone();
+    }
+
+    /**
+     * Gets the idle frame of every horse, in lane order.
+     *
+     * @return A copy of the frame names.
+     */
+    public String[] getIdleFrames() {
+        return idleFrames.clone();
+    }
+
+    private static void checkRunnerCount(int runners) {
+        if (runners < MIN_RUNNERS || runners > MAX_RUNNERS) {
+            throw new IllegalArgumentException("A race has " + MIN_RUNNERS + " to " + MAX_RUNNERS
+                    + " horses, not " + runners);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.zd.horseracing.Models;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free balance of one account.  A debit checks the balance and takes the money in a single
+ * compare-and-set, so two debits racing for the last of the balance can never both succeed and the
+ * balance never goes negative; a credit racing with them is never lost.  No thread ever waits on
+ * a lock, so the balance can be read and changed from the main thread and any background thread
+ * at once.
+ * <p>
+ * Each account has its own wallet, so operations on different accounts never contend.
+ */
+public class Wallet {
+    private final AtomicLong balance;
+
+    /**
+     * Constructor for the Wallet.
+     *
+     * @param initialBalance The starting balance, at least 0.
+     */
+    public Wallet(long initialBalance) {
+        if (initialBalance < 0) {
+            throw new IllegalArgumentException("A balance cannot be negative");
+        }
+        this.balance = new AtomicLong(initialBalance);
+    }
+
+    /**
+     * Gets the balance.
+     *
+     * @return The balance at the moment of the call.
+     */
+    public long getBalance() {
+        return balance.get();
+    }
+
+    /**
+     * Takes an amount from the balance if the balance covers it, atomically.
+     *
+     * @param amount The amount, at least 0.
+     * @return True if it was taken, false if the balance is too low; the balance is then unchanged.
+     */
+    public boolean tryDebit(long amount) {
+        checkAmount(amount);
+        long current;
+        do {
+            current = balance.get();
+            if (current < amount) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - amount));
+        return true;
+    }
+
+    /**
+     * Adds an amount to the balance.
+     *
+     * @param amount The amount, at least 0.
+     * @return The balance after the credit.
+     * @throws ArithmeticException If the balance would overflow; it is left unchanged.
+     */
+    public long credit(long amount) {
+        checkAmount(amount);
+        long current;
+        long next;
+        do {
+            current = balance.get();
+            next = Money.add(current, amount); // Throws before anything is changed
+        } while (!balance.compareAndSet(current, next));
+        return next;
+    }
+
+    private static void checkAmount(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("An amount cannot be negative, not " + amount);
+        }
+    }
+}
@@ -1,8 +1,6 @@
 package com.zd.horseracing;
 
 import android.content.Intent;
-import android.content.SharedPreferences;
-import android.media.MediaPlayer;
 import android.os.Bundle;
 import android.text.InputType;
 import android.text.TextUtils;
@@ -16,14 +14,16 @@ import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
-import java.util.HashSet;
-import java.util.Set;
+import com.zd.horseracing.Audio.AudioEngine;
+import com.zd.horseracing.Repositories.AccountRepository;
+import com.zd.horseracing.Services.AuthService;
 
 /**
  * Handles user registration. Allows users to enter an email address, password,
  * and confirm password.  Validates the input, checks for existing accounts,
- * and saves the new account information using SharedPreferences.  Navigates
- * to the LoginActivity upon successful registration.
+ * and saves the new account information in the local account store.  Navigates
+ * to the LoginActivity upon successful registration.  Only the input is validated on the main
+ * thread; the existence check, hashing and write run in the {@link AuthService}.
  */
 public class RegisterActivity extends AppCompatActivity {
 
@@ -33,18 +33,16 @@ public class RegisterActivity extends AppCompatActivity {
     private boolean isPasswordVisible = false; // Flag to track password visibility
     private Button btnRegister;
 
-    // Shared preferences for storing user data
-    private SharedPreferences sharedPreferences;
-    private MediaPlayer musicBg;
+    // Saves accounts off the main thread
+    private AuthService auth;
+    private AuthService.Request pendingRegistration; // The registration in flight, if any
 
-    // Constants for validation and shared preferences
+    // Constants for validation
     private static final int MIN_PASSWORD_LENGTH = 6;
-    private static final String PREFS_NAME = "UserPrefs";
-    private static final String EMAIL_SET_KEY = "emails";
 
     /**
      * Called when the activity is first created. Initializes UI components,
-     * sets up click listeners, retrieves SharedPreferences, and handles
+     * sets up click listeners, opens the account repository, and handles
      * registration logic.
      *
      * @param savedInstanceState If the activity is being re-initialized after
@@ -63,7 +61,7 @@ public class RegisterActivity extends AppCompatActivity {
     }
 
     /**
-     * Initializes UI components and retrieves SharedPreferences.
+     * Initializes UI components and starts opening the account repository in the background.
      */
     private void initializeViews() {
         etEmail = findViewById(R.id.etEmail);
@@ -71,23 +69,16 @@ public class RegisterActivity extends AppCompatActivity {
         etConfirmPassword = findViewById(R.id.etConfirmPassword);
         togglePassword = findViewById(R.id.ivTogglePassword);
         btnRegister = findViewById(R.id.btnRegister);
-        sharedPreferences = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+        auth = AccountRepository.getAuthService(this);
+        auth.warmUp(); // Ready before the user has filled in the form
     }
 
     /**
-     * Initializes and starts the background music. Handles potential exceptions
-     * during MediaPlayer setup.
+     * Keeps the login music playing on the shared {@link AudioEngine} channel.  The login screen
+     * already started the same track, so it continues without restarting.
      */
     private void setupMusic() {
-        try {
-            musicBg = MediaPlayer.create(this, R.raw.loginbackground);
-            if (musicBg != null) { // Check for null (e.g., if resource is missing)
-                musicBg.setLooping(true); // Loop the background music
-                musicBg.start(); // Start playing
-            }
-        } catch (Exception e) {
-            e.printStackTrace(); // Log the exception (best practice)
-        }
+        AudioEngine.getInstance(this).playMusic(R.raw.loginbackground);
     }
 
     /**
@@ -127,8 +118,8 @@ public class RegisterActivity extends AppCompatActivity {
 
     /**
      * Handles the user registration process. Retrieves user input, validates it,
-     * checks for existing accounts, saves the new account information, and
-     * navigates to the LoginActivity.
+     * then checks for existing accounts and saves the new account information in the
+     * background, and navigates to the LoginActivity.
      */
     private void handleRegistration() {
         String email = etEmail.getText().toString().trim(); // Get email, remove whitespace
@@ -140,26 +131,9 @@ public class RegisterActivity extends AppCompatActivity {
             return; // Stop if input is invalid
         }
 
-        // Check if an account with the given email already exists
-        if (isAccountExists(email)) {
-            showToast("Account already exists!");
-            return; // Stop if account exists
-        }
-
         // Save the new account information
+        btnRegister.setEnabled(false); // One registration at a time; hashing takes a moment
         saveAccount(email, password);
-
-        // Display success message
-        showToast("Registration successful! Redirecting to login...");
-
-        // Navigate to LoginActivity after a short delay (1 second)
-        new android.os.Handler().postDelayed(() -> {
-            Intent intent = new Intent(RegisterActivity.this, LoginActivity.class);
-            intent.putExtra("email", email); // Optional: Pass email to LoginActivity
-            intent.putExtra("password", password); // Optional: Pass password
-            startActivity(intent);
-            finish(); // Finish RegisterActivity to prevent going back
-        }, 1000); // 1000ms = 1 second
     }
 
     /**
@@ -228,41 +202,47 @@ public class RegisterActivity extends AppCompatActivity {
     }
 
     /**
-     * Saves the new account information (email and password) to SharedPreferences.
-     * Stores the email in a Set to keep track of registered emails, and stores
-     * the password associated with the email using a key derived from the email.
+     * Saves the new account in the account store.  The existence check, the password hash and
+     * the write run off the main thread and only its salted hash is stored.  Navigates to the
+     * LoginActivity once it is saved.
      *
      * @param email    The user's email address.
      * @param password The user's password.
      */
     private void saveAccount(String email, String password) {
-        SharedPreferences.Editor editor = sharedPreferences.edit();
-
-        // Get the existing set of registered emails (or create a new one if it doesn't exist)
-        Set<String> savedEmails = new HashSet<>(sharedPreferences.getStringSet(EMAIL_SET_KEY, new HashSet<>()));
-
-        // Add the new email to the set
-        savedEmails.add(email);
-
-        // Save the updated set of emails
-        editor.putStringSet(EMAIL_SET_KEY, savedEmails);
-
-        // Save the password, using the email as part of the key
-        editor.putString(email + "_password", password);
-
-        editor.apply(); // Apply the changes to SharedPreferences
+        pendingRegistration = auth.register(email, password, result -> {
+            pendingRegistration = null;
+            btnRegister.setEnabled(true);
+            switch (result) {
+                case SUCCESS:
+                    // The toast outlives this screen, so navigate straight away
+                    showToast("Registration successful! Please log in.");
+                    Intent intent = new Intent(RegisterActivity.this, LoginActivity.class);
+                    intent.putExtra("email", email); // Optional: Pass email to LoginActivity
+                    startActivity(intent);
+                    finish(); // Finish RegisterActivity to prevent going back
+                    break;
+                case ALREADY_EXISTS:
+                    showToast("Account already exists!");
+                    break;
+                default:
+                    showToast("Could not save the account, please try again!");
+                    break;
+            }
+        });
     }
 
-
     /**
-     * Checks if an account with the given email already exists in SharedPreferences.
-     *
-     * @param email The email address to check.
-     * @return True if an account with the email exists, false otherwise.
+     * Cancels a registration still in flight, so its result never reaches a destroyed screen.
+     * An account already being written is still saved.
      */
-    private boolean isAccountExists(String email) {
-        Set<String> savedEmails = sharedPreferences.getStringSet(EMAIL_SET_KEY, new HashSet<>());
-        return savedEmails.contains(email); // Check if the email is in the set
+    @Override
+    protected void onDestroy() {
+        if (pendingRegistration != null) {
+            pendingRegistration.cancel();
+            pendingRegistration = null;
+        }
+        super.onDestroy();
     }
 
     /**
@@ -276,48 +256,4 @@ public class RegisterActivity extends AppCompatActivity {
             Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
         }
     }
-
-    /**
-     * Called when the activity is paused. Pauses the background music.
-     */
-    @Override
-    protected void onPause() {
-        super.onPause();
-        if (musicBg != null && musicBg.isPlaying()) {
-            musicBg.pause(); // Pause music playback
-        }
-    }
-
-    /**
-     * Called when the activity is resumed.  Resumes background music playback.
-     */
-    @Override
-    protected void onResume() {
-        super.onResume();
-        if (musicBg != null) {
-            musicBg.start(); // Resume music playback
-        }
-    }
-
-    /**
-     * Called when the activity is being destroyed. Releases the MediaPlayer resources to prevent memory leaks.
-     */
-    @Override
-    protected void onDestroy() {
-        if (musicBg != null) {
-            try {
-                if (musicBg.isPlaying()) {
-                    musicBg.stop(); // Stop playback
-                }
-                musicBg.release(); // Release resources
-
-            } catch (Exception e){
-                e.printStackTrace();
-            }
-            finally {
-                musicBg = null; // Set to null for garbage collection
-            }
-        }
-        super.onDestroy();
-    }
-}
\ No newline at end of file
+}
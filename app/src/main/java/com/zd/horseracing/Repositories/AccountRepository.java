@@ -0,0 +1,226 @@
+package com.zd.horseracing.Repositories;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.zd.horseracing.Services.AuthService;
+import com.zd.horseracing.Utils.PasswordHasher;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+/**
+ * Repository for the local user accounts, shared by the login and register screens.  Accounts
+ * live in an {@link AccountStore} in the app's private files; accounts saved by older versions
+ * in the {@code UserPrefs} SharedPreferences are moved into it the first time it is opened.
+ * <p>
+ * Passwords are stored as salted PBKDF2 hashes ({@link PasswordHasher}).  The cost is calibrated
+ * once per install so a hash takes about {@link #TARGET_HASH_NANOS} on this device.  Plain text
+ * passwords of older versions are hashed while the store is opened, and the store is then
+ * compacted so the plain text no longer exists anywhere on disk.
+ * <p>
+ * Every method blocks on disk or hashing, so the screens never call it directly: they go through
+ * the {@link AuthService} from {@link #getAuthService(Context)}, which runs it on its own thread.
+ */
+public class AccountRepository implements AuthService.Accounts {
+    private static final String TAG = "AccountRepository";
+
+    // Built-in account that always exists
+    private static final String DEFAULT_EMAIL = "user@m.c";
+    private static final String DEFAULT_PASSWORD = "123456";
+
+    // Where older versions kept the accounts
+    private static final String LEGACY_PREFS_NAME = "UserPrefs";
+    private static final String LEGACY_EMAIL_SET_KEY = "emails";
+    private static final String LEGACY_PASSWORD_SUFFIX = "_password";
+
+    private static final String ACCOUNTS_DIRECTORY = "accounts";
+
+    // Calibrated hashing cost, measured once per install
+    private static final String SECURITY_PREFS_NAME = "AccountSecurity";
+    private static final String ITERATIONS_KEY = "pbkdf2_iterations";
+    private static final long TARGET_HASH_NANOS = 100_000_000L; // 100 ms per hash
+
+    private static AccountRepository instance;
+    private static AuthService authService;
+
+    private final AccountStore store;
+    private final SharedPreferences securityPreferences;
+    private PasswordHasher hasher; // Created on the auth thread
+
+    private AccountRepository(AccountStore store, SharedPreferences securityPreferences) {
+        this.store = store;
+        this.securityPreferences = securityPreferences;
+    }
+
+    /**
+     * Gets the auth service shared by the whole process.  Its background thread opens this
+     * repository on first use and its results are delivered on the main thread.
+     *
+     * @param context Any context; only the application context is used.
+     * @return The shared auth service.
+     */
+    public static synchronized AuthService getAuthService(Context context) {
+        if (authService == null) {
+            Context appContext = context.getApplicationContext();
+            Handler mainHandler = new Handler(Looper.getMainLooper());
+            authService = new AuthService(() -> getInstance(appContext),
+                    Executors.newSingleThreadExecutor(), mainHandler::post,
+                    (message, error) -> Log.w(TAG, message, error));
+        }
+        return authService;
+    }
+
+    /**
+     * Gets the repository shared by the whole process, opening the account store, calibrating the
+     * hashing cost and hashing any plain text passwords of older versions on first use.
+     * Blocks on disk, so it is only called on the auth service's thread.
+     *
+     * @param context Any context; only the application context is used.
+     * @return The shared repository.
+     * @throws IOException If the account store cannot be opened.
+     */
+    public static synchronized AccountRepository getInstance(Context context) throws IOException {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            AccountStore store = new AccountStore(new File(appContext.getFilesDir(), ACCOUNTS_DIRECTORY));
+            AccountRepository repository = new AccountRepository(store,
+                    appContext.getSharedPreferences(SECURITY_PREFS_NAME, Context.MODE_PRIVATE));
+            repository.getHasher(); // Calibrate before the first login
+            repository.migrateLegacyAccounts(appContext);
+            instance = repository;
+        }
+        return instance;
+    }
+
+    /**
+     * Checks whether an account is registered.
+     *
+     * @param email The email address.
+     * @return True if the account exists.
+     */
+    @Override
+    public boolean accountExists(String email) {
+        return isDefaultAccount(email) || store.contains(email);
+    }
+
+    /**
+     * Checks an email and password against the registered accounts, upgrading a hash made with a
+     * cheaper cost to a fresh one when it matches.
+     *
+     * @param email    The email address.
+     * @param password The password entered.
+     * @return True if the credentials are valid.
+     */
+    @Override
+    public boolean checkPassword(String email, String password) {
+        if (isDefaultAccount(email)) {
+            return PasswordHasher.verifyPlainText(password, DEFAULT_PASSWORD);
+        }
+        String stored = store.getCredential(email);
+        if (stored == null) {
+            return false;
+        }
+        boolean valid = PasswordHasher.verify(password, stored); // Only hashes remain after migration
+        if (valid && getHasher().needsRehash(stored)) {
+            try {
+                store.put(email, getHasher().hash(password));
+                store.sync();
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot upgrade the stored password", e); // Still usable as it is
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Registers a new account, storing only the salted hash of its password.
+     *
+     * @param email    The email address.
+     * @param password The password.
+     * @return True if the account was saved, false if it already exists.
+     * @throws IOException If the account cannot be written.
+     */
+    @Override
+    public boolean register(String email, String password) throws IOException {
+        if (isDefaultAccount(email)) {
+            return false;
+        }
+        String hash = getHasher().hash(password);
+        try {
+            if (!store.add(email, hash)) {
+                return false;
+            }
+            store.sync(); // A registration must survive a crash right after the success message
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot save the account", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the hasher, calibrating the cost on first use.  Only called on the auth thread.
+     */
+    private PasswordHasher getHasher() {
+        if (hasher == null) {
+            int iterations = securityPreferences.getInt(ITERATIONS_KEY, 0);
+            if (iterations < PasswordHasher.MIN_ITERATIONS) {
+                iterations = PasswordHasher.calibrate(TARGET_HASH_NANOS);
+                securityPreferences.edit().putInt(ITERATIONS_KEY, iterations).apply();
+                Log.i(TAG, "Calibrated password hashing to " + iterations + " iterations");
+            }
+            hasher = new PasswordHasher(iterations);
+        }
+        return hasher;
+    }
+
+    private static boolean isDefaultAccount(String email) {
+        return AccountStore.normalizeEmail(email).equals(DEFAULT_EMAIL);
+    }
+
+    /**
+     * Moves the accounts of older versions out of SharedPreferences and hashes every plain text
+     * password, including ones an earlier version copied into the store as they were.  The store
+     * is then compacted so no plain text record is left in its file, and the preferences are only
+     * cleared once that is on disk.  Hashing costs one calibrated hash per account, once.
+     */
+    private void migrateLegacyAccounts(Context context) throws IOException {
+        boolean rewritten = false;
+        SharedPreferences preferences = context.getSharedPreferences(LEGACY_PREFS_NAME, Context.MODE_PRIVATE);
+        Set<String> emails = preferences.getStringSet(LEGACY_EMAIL_SET_KEY, null);
+        SharedPreferences.Editor editor = preferences.edit();
+        if (emails != null) {
+            for (String email : emails) {
+                String password = preferences.getString(email + LEGACY_PASSWORD_SUFFIX, null);
+                if (password != null && !store.contains(email)) {
+                    store.add(email, getHasher().hash(password));
+                    rewritten = true;
+                }
+                editor.remove(email + LEGACY_PASSWORD_SUFFIX);
+            }
+            editor.remove(LEGACY_EMAIL_SET_KEY);
+        }
+
+        for (String email : store.getEmails()) {
+            String stored = store.getCredential(email);
+            if (!PasswordHasher.isHash(stored)) {
+                store.put(email, getHasher().hash(stored)); // Hash of the password itself, so it still verifies
+                rewritten = true;
+            }
+        }
+
+        if (rewritten) {
+            store.compact(); // Drops the replaced plain text records and syncs the rest
+            Log.i(TAG, "Hashed the plain text passwords of older versions");
+        }
+        if (emails != null) {
+            editor.apply();
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.zd.horseracing.Repositories;
+
+import com.zd.horseracing.Utils.FileSync;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Local account store: one append-only file of {@code [length][email][credential][crc32]}
+ * records, indexed in memory by normalized email.  Lookups are a single hash probe and
+ * registering appends one record, so both stay constant-time however many accounts exist.
+ * Opening the store reads the file once to rebuild the index; a later record for the same email
+ * replaces the earlier one, and a record torn by a crash is cut off.
+ * <p>
+ * Replaced credentials stay in the file until {@link #compact()} rewrites it with only the
+ * latest record of each account, which is how credentials that must not linger on disk (such as
+ * plain text passwords from older versions) are dropped.
+ */
+public class AccountStore implements Closeable {
+    static final String FILE_NAME = "accounts.db";
+
+    private static final int HEADER_SIZE = 4; // Record length
+    private static final int CRC_SIZE = 4;
+    private static final int MAX_RECORD_SIZE = 64 * 1024;
+
+    private final File directory;
+    private FileChannel file; // Replaced by compact()
+    private final Map<String, String> credentials = new HashMap<>();
+    private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+    private final DataOutputStream recordOut = new DataOutputStream(recordBytes);
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Opens the store in a directory, creating it if needed, and indexes every account in it.
+     *
+     * @param directory The directory holding the store file.
+     * @throws IOException If the store cannot be read or opened for writing.
+     */
+    public AccountStore(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        this.directory = directory;
+        file = new RandomAccessFile(new File(directory, FILE_NAME), "rw").getChannel();
+        load();
+    }
+
+    /**
+     * Normalizes an email address so lookups ignore case and surrounding whitespace.
+     *
+     * @param email The email address as typed.
+     * @return The normalized email address.
+     */
+    public static String normalizeEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Checks whether an account is registered.
+     *
+     * @param email The email address, in any case.
+     * @return True if an account with this email exists.
+     */
+    public synchronized boolean contains(String email) {
+        return credentials.containsKey(normalizeEmail(email));
+    }
+
+    /**
+     * Gets the stored credential of an account.
+     *
+     * @param email The email address, in any case.
+     * @return The stored credential, or null if there is no such account.
+     */
+    public synchronized String getCredential(String email) {
+        return credentials.get(normalizeEmail(email));
+    }
+
+    /**
+     * Gets the number of registered accounts.
+     *
+     * @return The number of accounts.
+     */
+    public synchronized int size() {
+        return credentials.size();
+    }
+
+    /**
+     * Gets the normalized email of every registered account.
+     *
+     * @return A copy of the registered emails, in no particular order.
+     */
+    public synchronized List<String> getEmails() {
+        return new ArrayList<>(credentials.keySet());
+    }
+
+    /**
+     * Registers a new account.
+     *
+     * @param email      The email address, in any case.
+     * @param credential The credential to store.
+     * @return True if the account was added, false if the email is already registered.
+     * @throws IOException If the account cannot be written.
+     */
+    public synchronized boolean add(String email, String credential) throws IOException {
+        String key = normalizeEmail(email);
+        if (credentials.containsKey(key)) {
+            return false;
+        }
+        write(key, credential);
+        return true;
+    }
+
+    /**
+     * Replaces the credential of an account, or registers it if it does not exist.
+     *
+     * @param email      The email address, in any case.
+     * @param credential The credential to store.
+     * @throws IOException If the account cannot be written.
+     */
+    public synchronized void put(String email, String credential) throws IOException {
+        write(normalizeEmail(email), credential);
+    }
+
+    /**
+     * Forces every written account to the storage device.
+     *
+     * @throws IOException If the store cannot be synced.
+     */
+    public synchronized void sync() throws IOException {
+        file.force(false);
+    }
+
+    /**
+     * Rewrites the store with only the latest credential of each account, so replaced credentials
+     * no longer exist anywhere in the file.  The accounts are written to a temporary file, synced,
+     * and renamed over the store, so a crash leaves either the old file or the new one.
+     *
+     * @throws IOException If the store cannot be rewritten; the old file is then kept.
+     */
+    public synchronized void compact() throws IOException {
+        File target = new File(directory, FILE_NAME);
+        File temp = new File(directory, FILE_NAME + ".tmp");
+        try (FileChannel out = new RandomAccessFile(temp, "rw").getChannel()) {
+            out.truncate(0); // Left over from an interrupted compaction
+            for (Map.Entry<String, String> account : credentials.entrySet()) {
+                ByteBuffer record = encode(account.getKey(), account.getValue());
+                while (record.hasRemaining()) {
+                    out.write(record);
+                }
+            }
+            out.force(true);
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("Cannot replace " + target);
+        }
+        FileSync.syncDirectory(directory); // Make the rename itself durable where possible
+
+        file.close(); // Still the old, now unlinked, file
+        file = new RandomAccessFile(target, "rw").getChannel();
+        file.position(file.size());
+    }
+
+    /**
+     * Closes the store file.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        file.close();
+    }
+
+    /**
+     * Appends one record with a single write and indexes it.
+     */
+    private void write(String key, String credential) throws IOException {
+        ByteBuffer record = encode(key, credential);
+        while (record.hasRemaining()) {
+            file.write(record);
+        }
+        credentials.put(key, credential);
+    }
+
+    /**
+     * Encodes one record with its length and checksum filled in.
+     */
+    private ByteBuffer encode(String key, String credential) throws IOException {
+        recordBytes.reset();
+        recordOut.writeInt(0); // Length, filled in below
+        recordOut.writeUTF(key);
+        recordOut.writeUTF(credential);
+        recordOut.writeInt(0); // Checksum, filled in below
+        ByteBuffer record = ByteBuffer.wrap(recordBytes.toByteArray());
+        int length = record.capacity();
+        record.putInt(0, length);
+        crc.reset();
+        crc.update(record.array(), 0, length - CRC_SIZE);
+        record.putInt(length - CRC_SIZE, (int) crc.getValue());
+        return record;
+    }
+
+    /**
+     * Rebuilds the index from the file and cuts off a torn last record.
+     */
+    private void load() throws IOException {
+        long size = file.size();
+        ByteBuffer contents = ByteBuffer.allocate((int) Math.min(size, Integer.MAX_VALUE));
+        file.position(0);
+        while (contents.hasRemaining() && file.read(contents) > 0) {
+            // Read the whole file; accounts are small
+        }
+        byte[] bytes = contents.array();
+
+        int offset = 0;
+        while (offset + HEADER_SIZE + CRC_SIZE <= bytes.length) {
+            int length = contents.getInt(offset);
+            if (length < HEADER_SIZE + CRC_SIZE || length > MAX_RECORD_SIZE || offset + length > bytes.length) {
+                break; // Torn record
+            }
+            crc.reset();
+            crc.update(bytes, offset, length - CRC_SIZE);
+            if (contents.getInt(offset + length - CRC_SIZE) != (int) crc.getValue()) {
+                break; // Corrupt record
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                    bytes, offset + HEADER_SIZE, length - HEADER_SIZE - CRC_SIZE));
+            String key = in.readUTF();
+            credentials.put(key, in.readUTF());
+            offset += length;
+        }
+
+        if (offset < size) {
+            file.truncate(offset);
+        }
+        file.position(offset);
+    }
+}
@@ -1,91 +1,271 @@
 package com.zd.horseracing.Repositories;
 
+import com.zd.horseracing.Models.BetBook;
+import com.zd.horseracing.Models.BetType;
 import com.zd.horseracing.Models.HorseBet;
+import com.zd.horseracing.Models.Money;
+import com.zd.horseracing.Models.Wallet;
+
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Repository class for managing race-related data, including the user's balance,
  * current bets, and the total bet amount.  This class acts as a data source,
- * abstracting the data access logic from the ViewModel.
+ * abstracting the data access logic from the ViewModel.  The bets live in a {@link BetBook}, so
+ * they are added and removed one at a time and the total is always current.  When backed by a
+ * {@link WalletLedger}, every balance change is recorded in it and the balance
+ * survives process death.  Amounts are longs in đồng, changed only through {@link Money}, so
+ * they never silently overflow.
+ * <p>
+ * The balance is a lock-free {@link Wallet}: taking the stakes checks and debits the balance in
+ * one atomic step, so deposits, debits and payouts may come from any thread without losing an
+ * update or overdrawing the balance.  The bets themselves are only changed on the main thread.
+ * A change the ledger cannot record is not made in the wallet either (credits are recorded
+ * first, a debit is given back), so the balance shown is always the one on disk.
+ * <p>
+ * Recovering the balance reads the ledger files, so the wallet may be opened after the
+ * repository, on a background thread; bets can be placed in the meantime, but the balance cannot
+ * be read or changed until {@link #isWalletOpen()}.
  */
 public class RaceRepository {
     private static final int INITIAL_BALANCE = 1000;
-    private int balance;
-    private List<HorseBet> currentBets;
-    private int totalBetAmount;
+    private volatile WalletLedger ledger; // Set before the wallet is published
+    private volatile Wallet wallet;       // Null until the wallet is opened
+    private final BetBook betBook = new BetBook();
 
     /**
-     * Constructor for the RaceRepository. Initializes the balance, current bets, and total bet amount.
+     * Constructor for a RaceRepository whose wallet is opened later, with
+     * {@link #openWallet(WalletLedger)} or {@link #openWalletInMemory()}.  Bets can be placed
+     * right away.
      */
     public RaceRepository() {
-        this.balance = INITIAL_BALANCE;
-        this.currentBets = new ArrayList<>();
-        this.totalBetAmount = 0;
+    }
+
+    /**
+     * Constructor for a RaceRepository whose balance is kept in a ledger.  A new ledger is
+     * opened with a deposit of the initial balance.
+     *
+     * @param ledger The ledger recording every balance change, or null to keep the balance in memory.
+     * @throws IOException If the initial deposit cannot be recorded.
+     */
+    public RaceRepository(WalletLedger ledger) throws IOException {
+        if (ledger == null) {
+            openWalletInMemory();
+        } else {
+            openWallet(ledger);
+        }
+    }
+
+    /**
+     * Opens the wallet on a ledger, recovering the balance recorded in it.  A new ledger is
+     * opened with a deposit of the initial balance.  May be called on any thread, once.
+     *
+     * @param ledger The ledger recording every balance change.
+     * @throws IOException If the initial deposit cannot be recorded; the wallet then stays closed.
+     */
+    public void openWallet(WalletLedger ledger) throws IOException {
+        checkWalletClosed();
+        if (ledger.getSequence() == 0) {
+            ledger.append(WalletLedger.DEPOSIT, INITIAL_BALANCE); // First run
+        }
+        this.ledger = ledger;
+        wallet = new Wallet(ledger.getBalance());
+    }
+
+    /**
+     * Opens the wallet with the initial balance, kept only in memory.  May be called on any
+     * thread, once.
+     */
+    public void openWalletInMemory() {
+        checkWalletClosed();
+        wallet = new Wallet(INITIAL_BALANCE);
+    }
+
+    /**
+     * Checks whether the wallet is open, so the balance can be read and changed.
+     *
+     * @return True once the wallet is open.
+     */
+    public boolean isWalletOpen() {
+        return wallet != null;
     }
 
     /**
      * Gets the current balance.
      *
      * @return The current balance.
+     * @throws IllegalStateException If the wallet is not open yet.
+     */
+    public long getBalance() {
+        return requireWallet().getBalance();
+    }
+
+    /**
+     * Adds money to the balance.
+     *
+     * @param amount The amount deposited.
+     * @throws ArithmeticException If the balance would overflow; it is left unchanged.
+     * @throws IOException         If the ledger can no longer record balance changes; the balance
+     *                             is left unchanged.
+     */
+    public void deposit(long amount) throws IOException {
+        credit(WalletLedger.DEPOSIT, amount);
+    }
+
+    /**
+     * Takes the total bet amount from the balance when a race starts, if the balance covers it.
+     * The check and the debit are one atomic step, so a deposit or another debit at the same
+     * moment cannot make the balance go negative.
+     *
+     * @return True if the stakes were taken, false if the balance is too low; it is then unchanged.
+     * @throws IOException If the ledger can no longer record balance changes; the stakes are then
+     *                     given back.
+     */
+    public boolean debitBets() throws IOException {
+        long total = getTotalBetAmount();
+        Wallet opened = requireWallet();
+        if (!opened.tryDebit(total)) {
+            return false;
+        }
+        try {
+            record(WalletLedger.BET_DEBIT, total);
+        } catch (IOException | RuntimeException e) {
+            opened.credit(total); // Never recorded, so never taken
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * Pays winnings into the balance after a race.
+     *
+     * @param amount The amount won.
+     * @throws ArithmeticException If the balance would overflow; it is left unchanged.
+     * @throws IOException         If the ledger can no longer record balance changes; the balance
+     *                             is left unchanged.
      */
-    public int getBalance() {
-        return balance;
+    public void creditPayout(long amount) throws IOException {
+        credit(WalletLedger.PAYOUT_CREDIT, amount);
     }
 
     /**
-     * Updates the balance by adding the given amount.
+     * Writes any balance change not yet on disk and closes the ledger.
      *
-     * @param amount The amount to add to the balance (can be negative for deductions).
+     * @throws IOException If the ledger failed to store an entry.
      */
-    public void updateBalance(int amount) {
-        this.balance += amount;
+    public void close() throws IOException {
+        WalletLedger ledger = this.ledger;
+        if (ledger != null) {
+            ledger.close();
+        }
     }
 
     /**
-     * Gets the list of current bets.
+     * Gets the bet book holding the current bets.
      *
-     * @return The list of {@link HorseBet} objects representing the current bets.
+     * @return The bet book; read it, change it through this repository.
+     */
+    public BetBook getBetBook() {
+        return betBook;
+    }
+
+    /**
+     * Gets a snapshot of the current bets, e.g. to show them in the bet dialog.
+     *
+     * @return A new list of {@link HorseBet} objects representing the current bets.
      */
     public List<HorseBet> getCurrentBets() {
-        return currentBets;
+        List<HorseBet> bets = new ArrayList<>(betBook.size());
+        for (int i = 0; i < betBook.size(); i++) {
+            bets.add(betBook.getBet(i));
+        }
+        return bets;
+    }
+
+    /**
+     * Adds a bet.  The total bet amount is updated in O(1).
+     *
+     * @param bet The bet.
+     * @return The index of the bet in the {@link #getBetBook() bet book}.
+     * @throws ArithmeticException If the total bet amount would overflow; no bet is added.
+     */
+    public int placeBet(HorseBet bet) {
+        return betBook.add(bet);
     }
 
     /**
-     * Sets the current bets and recalculates the total bet amount.
+     * Removes a bet.  The last bet moves into its index.
      *
-     * @param bets The list of {@link HorseBet} objects to set as the current bets.
+     * @param index The index of the bet in the {@link #getBetBook() bet book}.
      */
-    public void setCurrentBets(List<HorseBet> bets) {
-        this.currentBets = bets;
-        calculateTotalBetAmount();
+    public void removeBet(int index) {
+        betBook.remove(index);
+    }
+
+    /**
+     * Removes every bet of a type.
+     *
+     * @param type The bet type.
+     */
+    public void removeBets(BetType type) {
+        betBook.removeAll(type);
     }
 
     /**
      * Clears the current bets and resets the total bet amount to 0.
      */
     public void clearBets() {
-        currentBets.clear();
-        totalBetAmount = 0;
+        betBook.clear();
     }
 
     /**
-     * Gets the total bet amount.
+     * Gets the total bet amount, kept current as bets are added and removed.
      *
      * @return The total bet amount.
      */
-    public int getTotalBetAmount() {
-        return totalBetAmount;
+    public long getTotalBetAmount() {
+        return betBook.getTotal();
+    }
+
+    /**
+     * Adds money to the balance, recording it in the ledger first: a credit the ledger rejects
+     * then never reaches the wallet.  The ledger holds the same balance as the wallet, so its
+     * overflow check is the wallet's too.
+     */
+    private void credit(byte type, long amount) throws IOException {
+        Wallet opened = requireWallet();
+        record(type, amount);
+        opened.credit(amount);
     }
 
     /**
-     * Calculates the total bet amount based on the current bets.  Iterates through the
-     * `currentBets` list and sums the bet amounts.
+     * Records a balance change in the ledger, if there is one.  Changes from
+     * different threads may be recorded in another order than the wallet made them; they add up
+     * to the same balance.  The ledger only buffers the entry, so this never waits on the disk.
      */
-    private void calculateTotalBetAmount() {
-        totalBetAmount = 0;
-        for (HorseBet bet : currentBets) {
-            totalBetAmount += bet.getBetAmount();
+    private void record(byte type, long amount) throws IOException {
+        WalletLedger ledger = this.ledger;
+        if (ledger != null) {
+            ledger.append(type, amount);
+        }
+    }
+
+    /**
+     * Gets the wallet, which must be open.
+     */
+    private Wallet requireWallet() {
+        Wallet opened = wallet;
+        if (opened == null) {
+            throw new IllegalStateException("The wallet is not open yet");
+        }
+        return opened;
+    }
+
+    private void checkWalletClosed() {
+        if (wallet != null) {
+            throw new IllegalStateException("The wallet is already open");
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,178 @@
+package com.zd.horseracing.Repositories;
+
+import com.zd.horseracing.Engine.RaceReplay;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * On-device store of the last {@link #getCapacity()} race replays.  Each replay is one fixed-size
+ * record {@code [version][sequence][seed][recordedAt][ticks][horses][winner][crc32]} of
+ * {@link #RECORD_SIZE} bytes in a ring file: record {@code n} goes to slot {@code n % capacity},
+ * so the file never grows past {@code capacity * RECORD_SIZE} bytes (about 140 KB for 4096 races)
+ * and saving a replay is one positioned write.
+ * <p>
+ * Opening the store scans the slots once for the newest sequence.  A slot torn by a crash fails
+ * its checksum and reads as empty.  Blocking; use it off the main thread.
+ */
+public class ReplayStore implements Closeable {
+    static final String FILE_NAME = "replays.bin";
+    static final int RECORD_SIZE = 1 + 8 + 8 + 8 + 4 + 1 + 1 + 4;
+
+    private static final byte FORMAT_VERSION = 1; // Bumped if the engine's stride sequence changes
+    private static final int CRC_OFFSET = RECORD_SIZE - 4;
+
+    private final FileChannel file;
+    private final int capacity;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    private final CRC32 crc = new CRC32();
+    private long nextSequence; // Sequence of the next replay saved, 0 for an empty store
+
+    /**
+     * Opens the store in a directory, creating it if needed.
+     *
+     * @param directory The directory holding the store file.
+     * @param capacity  The number of replays kept; older ones are overwritten.
+     * @throws IOException If the store cannot be read or opened for writing.
+     */
+    public ReplayStore(File directory, int capacity) throws IOException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be greater than 0");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        this.capacity = capacity;
+        file = new RandomAccessFile(new File(directory, FILE_NAME), "rw").getChannel();
+        load();
+    }
+
+    /**
+     * Saves a replay, overwriting the oldest one once the store is full.
+     *
+     * @param replay The replay.
+     * @throws IOException If the replay cannot be written.
+     */
+    public synchronized void save(RaceReplay replay) throws IOException {
+        long sequence = nextSequence + 1;
+        record.clear();
+        record.put(FORMAT_VERSION)
+                .putLong(sequence)
+                .putLong(replay.getSeed())
+                .putLong(replay.getRecordedAtMs())
+                .putInt(replay.getTickCount())
+                .put((byte) replay.getHorseCount())
+                .put((byte) replay.getWinner());
+        crc.reset();
+        crc.update(record.array(), 0, CRC_OFFSET);
+        record.putInt((int) crc.getValue());
+        record.flip();
+        long position = slotOf(sequence) * (long) RECORD_SIZE;
+        while (record.hasRemaining()) {
+            position += file.write(record, position);
+        }
+        nextSequence = sequence;
+    }
+
+    /**
+     * Gets the number of replays held.
+     *
+     * @return The count, at most the capacity.
+     */
+    public synchronized int size() {
+        return (int) Math.min(nextSequence, capacity);
+    }
+
+    /**
+     * Gets the number of replays kept before the oldest is overwritten.
+     *
+     * @return The capacity.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Reads a replay.
+     *
+     * @param age 0 for the newest replay, 1 for the one before, up to {@link #size()} - 1.
+     * @return The replay, or null if it is torn or was overwritten.
+     * @throws IOException If the store cannot be read.
+     */
+    public synchronized RaceReplay get(int age) throws IOException {
+        if (age < 0 || age >= size()) {
+            throw new IndexOutOfBoundsException("Replay " + age + " of " + size());
+        }
+        long sequence = nextSequence - age;
+        return readSlot(slotOf(sequence)) == sequence ? decode() : null;
+    }
+
+    /**
+     * Writes every saved replay to the storage device and closes the store.
+     *
+     * @throws IOException If the store cannot be synced.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            file.force(false);
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Finds the newest sequence in the file.
+     */
+    private void load() throws IOException {
+        int slots = (int) Math.min(capacity, file.size() / RECORD_SIZE);
+        for (int slot = 0; slot < slots; slot++) {
+            nextSequence = Math.max(nextSequence, readSlot(slot));
+        }
+    }
+
+    /**
+     * Reads a slot into the record buffer.
+     *
+     * @return The sequence of the replay in it, or 0 if the slot is empty or torn.
+     */
+    private long readSlot(long slot) throws IOException {
+        record.clear();
+        long position = slot * RECORD_SIZE;
+        while (record.hasRemaining()) {
+            int read = file.read(record, position);
+            if (read < 0) {
+                return 0; // Past the end of the file
+            }
+            position += read;
+        }
+        crc.reset();
+        crc.update(record.array(), 0, CRC_OFFSET);
+        if (record.getInt(CRC_OFFSET) != (int) crc.getValue() || record.get(0) != FORMAT_VERSION) {
+            return 0;
+        }
+        return record.getLong(1);
+    }
+
+    /**
+     * Decodes the replay in the record buffer.
+     */
+    private RaceReplay decode() {
+        record.position(1 + 8); // After the version and the sequence
+        long seed = record.getLong();
+        long recordedAtMs = record.getLong();
+        int tickCount = record.getInt();
+        int horseCount = record.get() & 0xFF;
+        int winner = record.get() & 0xFF;
+        return new RaceReplay(seed, horseCount, tickCount, winner, recordedAtMs);
+    }
+
+    private long slotOf(long sequence) {
+        return (sequence - 1) % capacity;
+    }
+}
@@ -0,0 +1,404 @@
+package com.zd.horseracing.Repositories;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, crash-safe ledger of every change to the wallet balance.
+ * <p>
+ * Entries are fixed-size records {@code [type][sequence][amount][crc32]} appended to
+ * {@code wallet.log}.  {@link #append(byte, long)} only updates the in-memory balance and copies
+ * the record into a buffer, so it never blocks on disk; a background writer thread writes all
+ * buffered records with one {@code write} and one {@code fsync} per batch.  Every
+ * {@link #SNAPSHOT_INTERVAL} entries the writer stores the balance in {@code wallet.snapshot}
+ * and empties the log, so opening the ledger only reads one snapshot and a short tail.
+ * <p>
+ * The snapshot file is created once with two fixed slots {@code [magic][sequence][balance][crc32]}
+ * and written in place: each snapshot overwrites the older slot and is synced before the log is
+ * emptied, and recovery takes the newest slot whose checksum holds.  A snapshot torn by a crash
+ * leaves the other slot and the whole log intact.  Nothing is renamed, so compaction never needs
+ * a directory sync and works the same on every file system.
+ * <p>
+ * A record torn by a crash fails its checksum; recovery stops there and cuts it off.  Entries
+ * that were appended but not yet synced when the process died are lost, the balance recovered
+ * is always one the wallet actually had.
+ * <p>
+ * If the writer fails to store a batch it stops, and every later {@link #append(byte, long)}
+ * throws the error instead of buffering entries that would never reach the disk.
+ */
+public class WalletLedger implements Closeable {
+    /** Money added by the user. */
+    public static final byte DEPOSIT = 1;
+    /** Money taken from the balance when a race starts. */
+    public static final byte BET_DEBIT = 2;
+    /** Winnings paid back after a race. */
+    public static final byte PAYOUT_CREDIT = 3;
+
+    static final int RECORD_SIZE = 1 + 8 + 8 + 4;
+    static final int SNAPSHOT_INTERVAL = 4096; // Entries between compactions
+    static final String LOG_FILE = "wallet.log";
+    static final String SNAPSHOT_FILE = "wallet.snapshot";
+
+    private static final int SNAPSHOT_MAGIC = 0x57414C31; // "WAL1"
+    static final int SNAPSHOT_SIZE = 4 + 8 + 8 + 4; // One slot
+    private static final int SNAPSHOT_SLOTS = 2;
+    private static final int INITIAL_BUFFER_RECORDS = 64;
+
+    private final FileChannel snapshots;
+    private final FileChannel log;
+    private final Thread writer;
+    private final Object lock = new Object();
+    private final CRC32 crc = new CRC32(); // Guarded by lock
+
+    // Guarded by lock
+    private long balance;
+    private long sequence;
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_RECORDS * RECORD_SIZE);
+    private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER_RECORDS * RECORD_SIZE);
+    private long durableSequence;
+    private long snapshotSequence;
+    private int snapshotSlot;      // Slot of the newest snapshot; writer thread only
+    private boolean snapshotTorn;  // No slot is valid but one was written to
+    private IOException failure;
+    private boolean closed;
+
+    /**
+     * Opens the ledger in a directory, creating it if needed, and recovers the balance from the
+     * latest snapshot plus the entries logged after it.
+     *
+     * @param directory The directory holding the ledger files.
+     * @throws IOException If the ledger files cannot be read or opened for writing.
+     */
+    public WalletLedger(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        snapshots = new RandomAccessFile(new File(directory, SNAPSHOT_FILE), "rw").getChannel();
+        try {
+            recoverSnapshot();
+            log = new RandomAccessFile(new File(directory, LOG_FILE), "rw").getChannel();
+        } catch (IOException e) {
+            snapshots.close();
+            throw e;
+        }
+        try {
+            recoverLog();
+        } catch (IOException e) {
+            log.close();
+            snapshots.close();
+            throw e;
+        }
+        durableSequence = sequence;
+
+        writer = new Thread(this::runWriter, "wallet-ledger");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Records a change to the balance.  Returns as soon as the entry is buffered; it reaches the
+     * disk with the writer's next batch.
+     *
+     * @param type   {@link #DEPOSIT}, {@link #BET_DEBIT} or {@link #PAYOUT_CREDIT}.
+     * @param amount The amount of the change, never negative; debits are subtracted.
+     * @return The balance after the change.
+     * @throws IOException If the writer has failed to store an earlier entry; this entry is not
+     *                     recorded and the balance is unchanged.
+     */
+    public long append(byte type, long amount) throws IOException {
+        if (amount < 0 || type < DEPOSIT || type > PAYOUT_CREDIT) {
+            throw new IllegalArgumentException("Invalid ledger entry " + type + " " + amount);
+        }
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Ledger is closed");
+            }
+            if (failure != null) {
+                throw new IOException("The wallet ledger can no longer be written", failure);
+            }
+            balance = type == BET_DEBIT ? Math.subtractExact(balance, amount) : Math.addExact(balance, amount);
+            sequence++;
+            if (pending.remaining() < RECORD_SIZE) {
+                pending = grow(pending);
+            }
+            writeRecord(pending, type, sequence, amount);
+            lock.notifyAll(); // Wake the writer
+            return balance;
+        }
+    }
+
+    /**
+     * Gets the current balance, including entries not yet on disk.
+     *
+     * @return The balance.
+     */
+    public long getBalance() {
+        synchronized (lock) {
+            return balance;
+        }
+    }
+
+    /**
+     * Gets the number of entries ever appended to this ledger.
+     *
+     * @return The sequence number of the last entry, or 0 for an empty ledger.
+     */
+    public long getSequence() {
+        synchronized (lock) {
+            return sequence;
+        }
+    }
+
+    /**
+     * Waits until every entry appended so far is on disk.
+     *
+     * @throws IOException If the writer failed to store an entry.
+     */
+    public void flush() throws IOException {
+        synchronized (lock) {
+            long target = sequence;
+            while (durableSequence < target && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while flushing the ledger", e);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Writes every buffered entry to disk and stops the writer.  Further appends are rejected.
+     *
+     * @throws IOException If the writer failed to store an entry.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.close();
+        snapshots.close();
+        synchronized (lock) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Writer loop: takes every buffered record at once, writes and syncs them, and compacts the
+     * log into a snapshot once enough entries have piled up.
+     */
+    private void runWriter() {
+        while (true) {
+            ByteBuffer batch;
+            long batchSequence;
+            long batchBalance;
+            synchronized (lock) {
+                while (pending.position() == 0 && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        closed = true; // Nobody can stop us cleanly any more; drain and exit
+                    }
+                }
+                if (pending.position() == 0) {
+                    return; // Closed and drained
+                }
+                // Swap buffers so appends continue while this batch is written
+                batch = pending;
+                pending = spare;
+                spare = batch;
+                batchSequence = sequence;
+                batchBalance = balance;
+            }
+
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    log.write(batch);
+                }
+                log.force(false); // One fsync for the whole batch
+                if (batchSequence - snapshotSequence >= SNAPSHOT_INTERVAL) {
+                    writeSnapshot(batchSequence, batchBalance); // Synced, so the entries may go
+                    log.truncate(0);
+                    log.force(false);
+                }
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            } finally {
+                batch.clear();
+            }
+
+            synchronized (lock) {
+                durableSequence = batchSequence;
+                lock.notifyAll(); // Wake flush()
+            }
+        }
+    }
+
+    /**
+     * Stores the balance at a sequence number so every earlier log entry can be dropped.  Writes
+     * the slot not holding the newest snapshot, so a torn write never loses both.  Package-private
+     * so tests can fail a compaction.
+     */
+    void writeSnapshot(long atSequence, long atBalance) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SNAPSHOT_SIZE);
+        buffer.putInt(SNAPSHOT_MAGIC).putLong(atSequence).putLong(atBalance);
+        CRC32 snapshotCrc = new CRC32();
+        snapshotCrc.update(buffer.array(), 0, SNAPSHOT_SIZE - 4);
+        buffer.putInt((int) snapshotCrc.getValue());
+        buffer.flip();
+
+        int slot = 1 - snapshotSlot;
+        long position = (long) slot * SNAPSHOT_SIZE;
+        while (buffer.hasRemaining()) {
+            position += snapshots.write(buffer, position);
+        }
+        snapshots.force(false); // The file keeps its size, so only the data needs syncing
+        snapshotSlot = slot;
+        snapshotSequence = atSequence;
+    }
+
+    /**
+     * Loads the balance from the newest valid snapshot slot, if there is one.  A new file, or a
+     * single-slot snapshot of an older version (which is slot 0), is first extended to both slots.
+     */
+    private void recoverSnapshot() throws IOException {
+        long size = snapshots.size();
+        if (size < SNAPSHOT_SLOTS * SNAPSHOT_SIZE) {
+            ByteBuffer empty = ByteBuffer.allocate(SNAPSHOT_SLOTS * SNAPSHOT_SIZE - (int) size);
+            while (empty.hasRemaining()) {
+                size += snapshots.write(empty, size);
+            }
+            snapshots.force(true);
+        }
+
+        snapshotSlot = 1; // So the first snapshot goes to slot 0
+        boolean found = false;
+        boolean written = false;
+        ByteBuffer buffer = ByteBuffer.allocate(SNAPSHOT_SIZE);
+        CRC32 snapshotCrc = new CRC32();
+        for (int slot = 0; slot < SNAPSHOT_SLOTS; slot++) {
+            buffer.clear();
+            long position = (long) slot * SNAPSHOT_SIZE;
+            while (buffer.hasRemaining() && snapshots.read(buffer, position + buffer.position()) > 0) {
+                // Keep reading until the slot is complete
+            }
+            snapshotCrc.reset();
+            snapshotCrc.update(buffer.array(), 0, SNAPSHOT_SIZE - 4);
+            if (buffer.getInt(0) != SNAPSHOT_MAGIC || buffer.getInt(SNAPSHOT_SIZE - 4) != (int) snapshotCrc.getValue()) {
+                written |= !isZero(buffer.array()); // Torn, or never written
+                continue;
+            }
+            long slotSequence = buffer.getLong(4);
+            if (!found || slotSequence > snapshotSequence) {
+                found = true;
+                snapshotSlot = slot;
+                snapshotSequence = slotSequence;
+                balance = buffer.getLong(12);
+            }
+        }
+        sequence = snapshotSequence;
+        snapshotTorn = !found && written;
+    }
+
+    private static boolean isZero(byte[] bytes) {
+        for (byte b : bytes) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replays the log entries newer than the snapshot and cuts off a torn tail.
+     *
+     * @throws IOException If the log does not carry on from the snapshot, i.e. the snapshot its
+     *                     entries were dropped for is lost.
+     */
+    private void recoverLog() throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        long validLength = 0;
+        log.position(0);
+        while (true) {
+            record.clear();
+            while (record.hasRemaining() && log.read(record) > 0) {
+                // Keep reading until the record is complete or the file ends
+            }
+            if (record.hasRemaining() || !isValidRecord(record)) {
+                break; // End of the log, or a record torn by a crash
+            }
+            byte type = record.get(0);
+            long entrySequence = record.getLong(1);
+            long amount = record.getLong(9);
+            if (entrySequence > sequence + 1) {
+                throw new IOException("Corrupt wallet snapshot"); // Entries before this one are gone
+            }
+            if (entrySequence > sequence) {
+                // Entries up to the snapshot may survive a crash between snapshot and truncate
+                balance = type == BET_DEBIT ? balance - amount : balance + amount;
+                sequence = entrySequence;
+            }
+            validLength += RECORD_SIZE;
+        }
+        if (snapshotTorn && validLength == 0) {
+            // Only the first snapshot can be torn with no older slot, and then the log is whole
+            throw new IOException("Corrupt wallet snapshot");
+        }
+        if (log.size() > validLength) {
+            log.truncate(validLength);
+            log.force(false);
+        }
+        log.position(validLength);
+    }
+
+    private boolean isValidRecord(ByteBuffer record) {
+        byte type = record.get(0);
+        if (type < DEPOSIT || type > PAYOUT_CREDIT) {
+            return false;
+        }
+        crc.reset();
+        crc.update(record.array(), 0, RECORD_SIZE - 4);
+        return record.getInt(RECORD_SIZE - 4) == (int) crc.getValue();
+    }
+
+    private void writeRecord(ByteBuffer buffer, byte type, long entrySequence, long amount) {
+        int start = buffer.position();
+        buffer.put(type).putLong(entrySequence).putLong(amount);
+        crc.reset();
+        crc.update(buffer.array(), start, RECORD_SIZE - 4);
+        buffer.putInt((int) crc.getValue());
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer) {
+        ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+}
@@ -0,0 +1,246 @@
+package com.zd.horseracing.Services;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Asynchronous login and registration.  Every storage read, password hash and write runs on a
+ * background executor; the caller's thread only submits the request, and the result is delivered
+ * through a callback executor (the main thread in the app).  A request can be cancelled, e.g. when
+ * its screen is destroyed, and a cancelled request never calls back.  Every request that is not
+ * cancelled calls back exactly once: a storage error of any kind is reported as unavailable, and
+ * handed to an {@link ErrorLog} so it can still be diagnosed.
+ * <p>
+ * Kept free of Android types: the account storage is reached through {@link Accounts}, opened
+ * lazily on the background executor, and errors are logged through {@link ErrorLog}, so the
+ * whole pipeline can be tested on the JVM.
+ */
+public class AuthService {
+    /**
+     * Blocking account storage.  Only ever called on the background executor.
+     */
+    public interface Accounts {
+        /**
+         * Checks whether an account is registered.
+         *
+         * @param email The email address.
+         * @return True if the account exists.
+         */
+        boolean accountExists(String email);
+
+        /**
+         * Checks a password, hashing it at the stored cost.
+         *
+         * @param email    The email address.
+         * @param password The password entered.
+         * @return True if the credentials are valid.
+         */
+        boolean checkPassword(String email, String password);
+
+        /**
+         * Registers a new account.
+         *
+         * @param email    The email address.
+         * @param password The password.
+         * @return True if the account was saved, false if it already exists.
+         * @throws Exception If the account cannot be written.
+         */
+        boolean register(String email, String password) throws Exception;
+    }
+
+    /**
+     * Records a storage error that was reported to the caller as unavailable, e.g. through
+     * {@code Log.w}.  Called on the background executor.
+     */
+    public interface ErrorLog {
+        /**
+         * Records an error.
+         *
+         * @param message What failed.
+         * @param error   The error.
+         */
+        void log(String message, Throwable error);
+    }
+
+    /** Outcome of a login. */
+    public enum LoginResult { SUCCESS, NO_ACCOUNT, WRONG_PASSWORD, UNAVAILABLE }
+
+    /** Outcome of a registration. */
+    public enum RegisterResult { SUCCESS, ALREADY_EXISTS, UNAVAILABLE }
+
+    /**
+     * Receives the result of a request on the callback executor.
+     *
+     * @param <T> The result type.
+     */
+    public interface Callback<T> {
+        /**
+         * Called with the result, unless the request was cancelled.
+         *
+         * @param result The result.
+         */
+        void onResult(T result);
+    }
+
+    /**
+     * A submitted request.
+     */
+    public static class Request {
+        private volatile boolean cancelled;
+        private volatile Future<?> future;
+
+        /**
+         * Cancels the request.  Work that has not started yet is dropped; work already running
+         * (e.g. an account being written) finishes, but its result is not delivered.
+         */
+        public void cancel() {
+            cancelled = true;
+            Future<?> running = future;
+            if (running != null) {
+                running.cancel(false); // Never interrupt a write half-way
+            }
+        }
+
+        /**
+         * Checks whether the request was cancelled.
+         *
+         * @return True if {@link #cancel()} was called.
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private final Callable<Accounts> opener;
+    private final ExecutorService background;
+    private final Executor callbackExecutor;
+    private final ErrorLog errorLog;
+    private Accounts accounts; // Only touched on the background executor
+
+    /**
+     * Creates the service, discarding storage errors.
+     *
+     * @param opener           Opens the account storage; called once, on the background executor.
+     * @param background       Runs every storage access and hash; a single thread keeps them ordered.
+     * @param callbackExecutor Delivers results, e.g. by posting to the main thread.
+     */
+    public AuthService(Callable<Accounts> opener, ExecutorService background, Executor callbackExecutor) {
+        this(opener, background, callbackExecutor, (message, error) -> {
+            // Not logged
+        });
+    }
+
+    /**
+     * Creates the service.
+     *
+     * @param opener           Opens the account storage; called once, on the background executor.
+     * @param background       Runs every storage access and hash; a single thread keeps them ordered.
+     * @param callbackExecutor Delivers results, e.g. by posting to the main thread.
+     * @param errorLog         Records every error reported as unavailable.
+     */
+    public AuthService(Callable<Accounts> opener, ExecutorService background, Executor callbackExecutor,
+                       ErrorLog errorLog) {
+        this.opener = opener;
+        this.background = background;
+        this.callbackExecutor = callbackExecutor;
+        this.errorLog = errorLog;
+    }
+
+    /**
+     * Opens the account storage in the background ahead of the first request, so the first
+     * login does not wait for it.
+     */
+    public void warmUp() {
+        background.execute(this::openAccounts);
+    }
+
+    /**
+     * Logs in.  Only the request is submitted on the calling thread.
+     *
+     * @param email    The email address, already validated.
+     * @param password The password, already validated.
+     * @param callback Receives the result.
+     * @return The request, to cancel it.
+     */
+    public Request login(String email, String password, Callback<LoginResult> callback) {
+        return submit(callback, LoginResult.UNAVAILABLE, () -> {
+            Accounts opened = openAccounts();
+            if (opened == null) {
+                return LoginResult.UNAVAILABLE;
+            }
+            if (!opened.accountExists(email)) {
+                return LoginResult.NO_ACCOUNT;
+            }
+            return opened.checkPassword(email, password) ? LoginResult.SUCCESS : LoginResult.WRONG_PASSWORD;
+        });
+    }
+
+    /**
+     * Registers a new account.  Only the request is submitted on the calling thread.
+     *
+     * @param email    The email address, already validated.
+     * @param password The password, already validated.
+     * @param callback Receives the result.
+     * @return The request, to cancel it.
+     */
+    public Request register(String email, String password, Callback<RegisterResult> callback) {
+        return submit(callback, RegisterResult.UNAVAILABLE, () -> {
+            Accounts opened = openAccounts();
+            if (opened == null) {
+                return RegisterResult.UNAVAILABLE;
+            }
+            if (opened.accountExists(email)) {
+                return RegisterResult.ALREADY_EXISTS;
+            }
+            return opened.register(email, password) ? RegisterResult.SUCCESS : RegisterResult.ALREADY_EXISTS;
+        });
+    }
+
+    /**
+     * Runs a task in the background and delivers its result unless the request is cancelled.  A
+     * task that throws delivers the unavailable result instead, so the screen waiting for it is
+     * never left stuck.
+     */
+    private <T> Request submit(Callback<T> callback, T unavailable, Callable<T> task) {
+        Request request = new Request();
+        request.future = background.submit(() -> {
+            if (request.cancelled) {
+                return null;
+            }
+            T outcome;
+            try {
+                outcome = task.call();
+            } catch (Exception e) {
+                errorLog.log("Account request failed", e); // E.g. a write error or a bug in the storage
+                outcome = unavailable;
+            }
+            T result = outcome;
+            callbackExecutor.execute(() -> {
+                if (!request.cancelled) { // Checked again on the callback thread
+                    callback.onResult(result);
+                }
+            });
+            return null;
+        });
+        return request;
+    }
+
+    /**
+     * Opens the account storage on first use.
+     *
+     * @return The storage, or null if it cannot be opened.
+     */
+    private Accounts openAccounts() {
+        if (accounts == null) {
+            try {
+                accounts = opener.call();
+            } catch (Exception e) {
+                errorLog.log("Cannot open the account storage", e);
+                return null; // Retried by the next request
+            }
+        }
+        return accounts;
+    }
+}
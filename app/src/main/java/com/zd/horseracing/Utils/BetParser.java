@@ -0,0 +1,68 @@
+package com.zd.horseracing.Utils;
+
+/**
+ * Parses amounts typed into the bet and add-money dialogs.  Parsing never throws, so rejecting an
+ * invalid entry does not cost an exception, and results are reported as plain int codes.
+ */
+public final class BetParser {
+    /** Returned when the input is empty. */
+    public static final int EMPTY = -1;
+    /** Returned when the input is a number that is zero or negative. */
+    public static final int NOT_POSITIVE = -2;
+    /** Returned when the input is not a number or does not fit in a long. */
+    public static final int INVALID = -3;
+
+    private BetParser() {
+        // Static helpers only
+    }
+
+    /**
+     * Parses a positive amount.
+     *
+     * @param input The text entered by the user.
+     * @return The parsed amount (greater than 0), or one of {@link #EMPTY}, {@link #NOT_POSITIVE}
+     *         and {@link #INVALID}.
+     */
+    public static long parseAmount(CharSequence input) {
+        int length = input.length();
+        if (length == 0) {
+            return EMPTY;
+        }
+
+        int i = 0;
+        boolean negative = false;
+        char first = input.charAt(0);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+            if (length == 1) {
+                return INVALID;
+            }
+        }
+
+        // Accumulate negatively so Long.MIN_VALUE can be represented while checking overflow
+        long result = 0;
+        for (; i < length; i++) {
+            int digit = input.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID;
+            }
+            if (result < Long.MIN_VALUE / 10) {
+                return INVALID;
+            }
+            result *= 10;
+            if (result < Long.MIN_VALUE + digit) {
+                return INVALID;
+            }
+            result -= digit;
+        }
+
+        if (negative || result == 0) {
+            return NOT_POSITIVE;
+        }
+        if (result == Long.MIN_VALUE) {
+            return INVALID; // One past Long.MAX_VALUE
+        }
+        return -result;
+    }
+}
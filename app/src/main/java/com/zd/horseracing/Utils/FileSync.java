@@ -0,0 +1,82 @@
+package com.zd.horseracing.Utils;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Durability helpers for files replaced by renaming a synced temporary file over them.  A rename
+ * only survives a power loss once the directory entry itself is on disk, which takes an
+ * {@code fsync} of the directory.  Kept free of Android types so it can be unit tested on the JVM.
+ */
+public final class FileSync {
+    private FileSync() {
+        // Static helpers only
+    }
+
+    /**
+     * Syncs a directory so every rename or create in it so far is on disk.
+     * <p>
+     * Opening a directory needs {@code java.nio.file}, which Android only has from API 26; older
+     * devices sync it through {@code android.system.Os} instead, looked up by reflection so this
+     * class still runs on the plain JVM.  On file systems that cannot open a directory nothing is
+     * synced and the caller must not rely on the rename being durable.
+     *
+     * @param directory The directory to sync.
+     * @return True if the directory was synced, false if this platform cannot sync it.
+     * @throws IOException If the directory was opened but could not be synced.
+     */
+    public static boolean syncDirectory(File directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+        } catch (LinkageError e) {
+            return syncWithAndroidOs(directory); // No java.nio.file before API 26
+        } catch (IOException | UnsupportedOperationException e) {
+            return false; // Directories cannot be opened here
+        }
+        try {
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+        return true;
+    }
+
+    /**
+     * Syncs a directory through {@code android.system.Os} (API 21), for devices without
+     * {@code java.nio.file}.
+     */
+    private static boolean syncWithAndroidOs(File directory) throws IOException {
+        Method open;
+        Method fsync;
+        Method close;
+        int readOnly;
+        try {
+            Class<?> os = Class.forName("android.system.Os");
+            open = os.getMethod("open", String.class, int.class, int.class);
+            fsync = os.getMethod("fsync", FileDescriptor.class);
+            close = os.getMethod("close", FileDescriptor.class);
+            readOnly = Class.forName("android.system.OsConstants").getField("O_RDONLY").getInt(null);
+        } catch (ReflectiveOperationException e) {
+            return false; // Neither java.nio.file nor Android
+        }
+        try {
+            Object descriptor = open.invoke(null, directory.getPath(), readOnly, 0);
+            try {
+                fsync.invoke(null, descriptor);
+            } finally {
+                close.invoke(null, descriptor);
+            }
+        } catch (InvocationTargetException e) {
+            throw new IOException("Cannot sync " + directory, e.getCause()); // ErrnoException
+        } catch (IllegalAccessException e) {
+            return false;
+        }
+        return true;
+    }
+}
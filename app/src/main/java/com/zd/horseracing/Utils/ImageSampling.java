@@ -0,0 +1,54 @@
+package com.zd.horseracing.Utils;
+
+/**
+ * Size arithmetic for decoding images no larger than the views showing them.  Kept free of
+ * Android types so it can be unit tested on the JVM.
+ */
+public final class ImageSampling {
+    private static final int BYTES_PER_PIXEL = 4; // ARGB_8888
+
+    private ImageSampling() {
+        // Static helpers only
+    }
+
+    /**
+     * Calculates the largest power-of-two sample size that still decodes an image at least as
+     * large as requested, so scaling it to the view never upscales.  A requested dimension of 0 or
+     * less leaves that axis unconstrained.
+     *
+     * @param srcWidth  The width of the encoded image in pixels.
+     * @param srcHeight The height of the encoded image in pixels.
+     * @param reqWidth  The width the image will be shown at in pixels.
+     * @param reqHeight The height the image will be shown at in pixels.
+     * @return The sample size to decode with (1 for full resolution).
+     */
+    public static int calculateInSampleSize(int srcWidth, int srcHeight, int reqWidth, int reqHeight) {
+        if (reqWidth <= 0 && reqHeight <= 0) {
+            return 1; // Nothing to fit, keep full resolution
+        }
+        int sampleSize = 1;
+        while (fits(srcWidth / (sampleSize * 2), reqWidth) && fits(srcHeight / (sampleSize * 2), reqHeight)) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * Calculates how many bytes an ARGB_8888 bitmap decoded with a sample size occupies.
+     *
+     * @param srcWidth   The width of the encoded image in pixels.
+     * @param srcHeight  The height of the encoded image in pixels.
+     * @param sampleSize The sample size the image is decoded with.
+     * @return The size of the decoded pixels in bytes.
+     */
+    public static long decodedByteCount(int srcWidth, int srcHeight, int sampleSize) {
+        // The decoder rounds each sampled dimension up
+        long width = (srcWidth + sampleSize - 1) / sampleSize;
+        long height = (srcHeight + sampleSize - 1) / sampleSize;
+        return width * height * BYTES_PER_PIXEL;
+    }
+
+    private static boolean fits(int sampled, int required) {
+        return required <= 0 ? sampled > 0 : sampled >= required;
+    }
+}
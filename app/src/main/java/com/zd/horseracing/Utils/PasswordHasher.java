@@ -0,0 +1,209 @@
+package com.zd.horseracing.Utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Salted PBKDF2 password hashing with a tunable cost.  Hashes are stored as
+ * {@code pbkdf2$<iterations>$<salt hex>$<hash hex>}, so every stored hash carries the cost it was
+ * made with and the cost can be raised later without invalidating existing passwords.
+ * <p>
+ * Uses HMAC-SHA1 because it is the PBKDF2 variant available on every supported Android version
+ * (HMAC-SHA256 needs API 26); with a random salt and a high iteration count it is still a
+ * sound key-derivation function.  Hashing is deliberately slow, so call it off the main thread.
+ */
+public final class PasswordHasher {
+    /** Lowest cost ever used, whatever calibration says. */
+    public static final int MIN_ITERATIONS = 10_000;
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA1";
+    private static final String PREFIX = "pbkdf2";
+    private static final char SEPARATOR = '$';
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 160; // One SHA-1 block; longer keys only slow the defender
+    private static final int CALIBRATION_ITERATIONS = 10_000;
+    private static final int CALIBRATION_ROUNDS = 3;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Creates a hasher for new passwords.
+     *
+     * @param iterations The PBKDF2 iteration count; at least {@link #MIN_ITERATIONS}.
+     */
+    public PasswordHasher(int iterations) {
+        if (iterations < MIN_ITERATIONS) {
+            throw new IllegalArgumentException("Too few iterations: " + iterations);
+        }
+        this.iterations = iterations;
+    }
+
+    /**
+     * Gets the iteration count used for new hashes.
+     *
+     * @return The iteration count.
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Hashes a password with a new random salt.
+     *
+     * @param password The password.
+     * @return The encoded hash, including the salt and the cost.
+     */
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = derive(password, salt, iterations);
+        return PREFIX + SEPARATOR + iterations + SEPARATOR + toHex(salt) + SEPARATOR + toHex(hash);
+    }
+
+    /**
+     * Checks a password against a stored hash in constant time.
+     *
+     * @param password The password entered.
+     * @param stored   The encoded hash made by {@link #hash(String)}.
+     * @return True if the password matches, false if it does not or the hash is malformed.
+     */
+    public static boolean verify(String password, String stored) {
+        String[] parts = split(stored);
+        if (parts == null) {
+            return false;
+        }
+        int storedIterations;
+        byte[] salt;
+        byte[] expected;
+        try {
+            storedIterations = Integer.parseInt(parts[1]);
+            salt = fromHex(parts[2]);
+            expected = fromHex(parts[3]);
+        } catch (IllegalArgumentException e) {
+            return false; // Not a number or not hex
+        }
+        if (storedIterations < 1 || expected.length * 8 != HASH_BITS) {
+            return false;
+        }
+        return MessageDigest.isEqual(derive(password, salt, storedIterations), expected);
+    }
+
+    /**
+     * Checks whether a stored credential is a hash made by this class, as opposed to a plain
+     * text password saved by an older version of the app.
+     *
+     * @param stored The stored credential.
+     * @return True if it is an encoded hash.
+     */
+    public static boolean isHash(String stored) {
+        return split(stored) != null;
+    }
+
+    /**
+     * Checks whether a stored credential should be replaced by a fresh hash: it is plain text or
+     * was hashed at a lower cost than this hasher uses.
+     *
+     * @param stored The stored credential.
+     * @return True if the credential should be rehashed after the next successful login.
+     */
+    public boolean needsRehash(String stored) {
+        String[] parts = split(stored);
+        if (parts == null) {
+            return true;
+        }
+        try {
+            return Integer.parseInt(parts[1]) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Compares a plain text credential saved by an older version of the app in constant time.
+     *
+     * @param password The password entered.
+     * @param stored   The plain text credential.
+     * @return True if they are equal.
+     */
+    public static boolean verifyPlainText(String password, String stored) {
+        return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Measures this device and picks the iteration count whose hash takes about the target time.
+     *
+     * @param targetNanos The time one hash should take, e.g. 100 ms.
+     * @return The iteration count, at least {@link #MIN_ITERATIONS}.
+     */
+    public static int calibrate(long targetNanos) {
+        byte[] salt = new byte[SALT_BYTES];
+        derive("calibration", salt, CALIBRATION_ITERATIONS); // Warm up the provider
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < CALIBRATION_ROUNDS; round++) {
+            long start = System.nanoTime();
+            derive("calibration", salt, CALIBRATION_ITERATIONS);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        long iterations = CALIBRATION_ITERATIONS * targetNanos / Math.max(1, best);
+        return (int) Math.max(MIN_ITERATIONS, Math.min(Integer.MAX_VALUE, iterations));
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        char[] chars = password.toCharArray();
+        PBEKeySpec spec = new PBEKeySpec(chars, salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+            Arrays.fill(chars, '\0');
+        }
+    }
+
+    /**
+     * Splits an encoded hash into its four fields.
+     *
+     * @return The fields, or null if the credential is not an encoded hash.
+     */
+    private static String[] split(String stored) {
+        String[] parts = stored.split("\\$", -1);
+        if (parts.length != 4 || !parts[0].equals(PREFIX)) {
+            return null;
+        }
+        return parts;
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            out[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            out[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(out);
+    }
+
+    private static byte[] fromHex(String hex) {
+        if (hex.length() % 2 != 0) {
+            throw new IllegalArgumentException("Odd hex length");
+        }
+        byte[] out = new byte[hex.length() / 2];
+        for (int i = 0; i < out.length; i++) {
+            int high = Character.digit(hex.charAt(i * 2), 16);
+            int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Not hex: " + hex);
+            }
+            out[i] = (byte) ((high << 4) | low);
+        }
+        return out;
+    }
+}
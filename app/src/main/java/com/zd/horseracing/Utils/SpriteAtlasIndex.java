@@ -0,0 +1,103 @@
+package com.zd.horseracing.Utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Frame index of a sprite atlas generated at build time by the {@code packHorseAtlas} task.
+ * Tells where every frame sits in the atlas bitmap and which frames make up each animation.
+ * Frame bounds are stored as {@code {left, top, right, bottom}} arrays so this class stays free
+ * of Android types.
+ */
+public class SpriteAtlasIndex {
+    private final Map<String, int[]> frames = new HashMap<>();
+    private final Map<String, String[]> animations = new HashMap<>();
+    private final Map<String, Integer> frameDurations = new HashMap<>();
+
+    /**
+     * Parses an index.  Each line is either
+     * {@code frame <name> <x> <y> <width> <height>} or
+     * {@code animation <name> <frame duration ms> <frame name>...}; blank lines and lines
+     * starting with {@code #} are ignored.
+     *
+     * @param reader The index contents.
+     * @return The parsed index.
+     * @throws IOException If the index cannot be read or is malformed.
+     */
+    public static SpriteAtlasIndex parse(Reader reader) throws IOException {
+        SpriteAtlasIndex index = new SpriteAtlasIndex();
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split("\\s+");
+            try {
+                if (parts[0].equals("frame") && parts.length == 6) {
+                    int x = Integer.parseInt(parts[2]);
+                    int y = Integer.parseInt(parts[3]);
+                    int width = Integer.parseInt(parts[4]);
+                    int height = Integer.parseInt(parts[5]);
+                    index.frames.put(parts[1], new int[]{ x, y, x + width, y + height });
+                } else if (parts[0].equals("animation") && parts.length >= 4) {
+                    String[] frameNames = new String[parts.length - 3];
+                    System.arraycopy(parts, 3, frameNames, 0, frameNames.length);
+                    index.animations.put(parts[1], frameNames);
+                    index.frameDurations.put(parts[1], Integer.parseInt(parts[2]));
+                } else {
+                    throw new IOException("Malformed atlas index line " + lineNumber + ": " + line);
+                }
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed atlas index line " + lineNumber + ": " + line, e);
+            }
+        }
+
+        // Every animation frame must exist in the atlas
+        for (Map.Entry<String, String[]> animation : index.animations.entrySet()) {
+            for (String frame : animation.getValue()) {
+                if (!index.frames.containsKey(frame)) {
+                    throw new IOException("Animation " + animation.getKey() + " uses unknown frame " + frame);
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Gets the bounds of a frame in the atlas.
+     *
+     * @param name The frame name (the original drawable name).
+     * @return {@code {left, top, right, bottom}}, or null if the frame is not in the atlas.
+     */
+    public int[] getFrame(String name) {
+        return frames.get(name);
+    }
+
+    /**
+     * Gets the frames of an animation in playback order.
+     *
+     * @param name The animation name (the original animation-list drawable name).
+     * @return The frame names, or null if the animation is not in the atlas.
+     */
+    public String[] getAnimation(String name) {
+        return animations.get(name);
+    }
+
+    /**
+     * Gets the duration of one frame of an animation.
+     *
+     * @param name The animation name.
+     * @return The frame duration in milliseconds, or 0 if the animation is not in the atlas.
+     */
+    public int getFrameDuration(String name) {
+        Integer duration = frameDurations.get(name);
+        return duration == null ? 0 : duration;
+    }
+}
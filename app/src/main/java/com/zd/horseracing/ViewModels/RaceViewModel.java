@@ -2,6 +2,10 @@ package com.zd.horseracing.ViewModels;
 
 import android.app.Application;
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
@@ -9,23 +13,66 @@ import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
+import com.zd.horseracing.Engine.BetPools;
+import com.zd.horseracing.Engine.RaceReplay;
+import com.zd.horseracing.Engine.RaceSession;
+import com.zd.horseracing.Engine.SettlementBatch;
+import com.zd.horseracing.Models.BetBook;
+import com.zd.horseracing.Models.BetType;
 import com.zd.horseracing.Models.HorseBet;
+import com.zd.horseracing.Models.Money;
+import com.zd.horseracing.Models.RaceCard;
 import com.zd.horseracing.Repositories.RaceRepository;
+import com.zd.horseracing.R;
+import com.zd.horseracing.Repositories.ReplayStore;
+import com.zd.horseracing.Repositories.WalletLedger;
+
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * ViewModel for managing the race data and logic.  Interacts with the {@link RaceRepository}
  * to persist data and provides LiveData to observe changes in the UI.
+ * <p>
+ * Races are either started by hand (bet, start, reset) or run back to back in a session, where a
+ * {@link RaceSession} timetable opens and closes betting, starts and settles every race on a timer.
+ * Amounts are longs in đồng, see {@link Money}.
  */
 public class RaceViewModel extends AndroidViewModel {
+    private static final String TAG = "RaceViewModel";
+    private static final String WALLET_DIRECTORY = "wallet";
+    private static final String REPLAY_DIRECTORY = "replays";
+    private static final int REPLAY_CAPACITY = 4096;           // Races kept on the device, 35 bytes each
+    private static final long SESSION_BETTING_MS = 20_000;    // Betting window of a session round
+    private static final long SESSION_SETTLEMENT_MS = 8_000;  // Result shown before the next round
+    private static final int TOTE_TAKE_BASIS_POINTS = 1_500;  // 15% of the pool is kept by the house
+    private static final long HOUSE_FLOAT_PER_HORSE = 1_000;   // Per horse and bet type, stands in for the other bettors' money
+    private static final int MAX_RESULT_LINES = 20;            // Bets listed in the race result; the rest are only counted
+
     private final RaceRepository repository;
-    private final MutableLiveData<Integer> balance = new MutableLiveData<>();
-    private final MutableLiveData<Integer> totalBet = new MutableLiveData<>();
+    private final RaceCard raceCard;
+    private final BetPools betPools;
+    private final SettlementBatch settlement = new SettlementBatch(); // Reused race after race
+    private final MutableLiveData<Long> balance = new MutableLiveData<>();
+    private final MutableLiveData<Long> totalBet = new MutableLiveData<>();
     private final MutableLiveData<Boolean> isRacing = new MutableLiveData<>(false);
     private final MutableLiveData<Boolean> needsReset = new MutableLiveData<>(false);
     private final MutableLiveData<String> raceResult = new MutableLiveData<>();
-    private final MutableLiveData<Integer> moneyChange = new MutableLiveData<>(0);
+    private final MutableLiveData<Long> moneyChange = new MutableLiveData<>(0L);
+    private final MutableLiveData<RaceSession.Phase> sessionPhase = new MutableLiveData<>(RaceSession.Phase.IDLE);
     private final Context context;
+    private final Handler sessionHandler = new Handler(Looper.getMainLooper());
+    private final Runnable sessionTick = this::advanceSession;
+    private RaceSession session;
+    private boolean stopSessionAfterRound;
+    private boolean raceInProgress; // Mirrors isRacing without boxing, read on every race tick
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor(); // Ledger and replay file I/O
+    private ReplayStore replayStore; // Opened and used on ioExecutor only
+    private RaceReplay lastReplay;
 
     /**
      * Constructor for the RaceViewModel.
@@ -35,16 +82,108 @@ public class RaceViewModel extends AndroidViewModel {
     public RaceViewModel(@NonNull Application application) {
         super(application);
         this.context = application.getApplicationContext();
-        repository = new RaceRepository();
+        repository = new RaceRepository(); // Bets can be placed while the wallet opens
+        ioExecutor.execute(this::openWallet); // Recovers the balance from the last session
+        raceCard = RaceCard.standard(application.getResources().getInteger(R.integer.race_runner_count));
+        betPools = new BetPools(raceCard.getRunnerCount(), TOTE_TAKE_BASIS_POINTS);
+        refreshPool();
         updateBalanceAndBet(); // Initialize balance and bet from repository
     }
 
+    /**
+     * Opens the wallet on the ledger in the app's private files and publishes the recovered
+     * balance.  Runs on the I/O thread, since recovery reads the ledger files.  Falls back to an
+     * in-memory balance if the ledger cannot be opened, so a storage problem does not stop the game.
+     */
+    private void openWallet() {
+        try {
+            repository.openWallet(new WalletLedger(new File(context.getFilesDir(), WALLET_DIRECTORY)));
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot open the wallet ledger, the balance will not be saved", e);
+            repository.openWalletInMemory();
+        }
+        mainHandler.post(this::updateBalanceAndBet);
+    }
+
+    /**
+     * Called when the ViewModel is no longer used.  Writes the remaining ledger entries and
+     * replays to disk on the I/O thread, after the wallet has finished opening.
+     */
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        sessionHandler.removeCallbacks(sessionTick);
+        ioExecutor.execute(() -> {
+            try {
+                repository.close();
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot save the wallet ledger", e);
+            }
+            try {
+                if (replayStore != null) {
+                    replayStore.close();
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot save the replays", e);
+            }
+        });
+        ioExecutor.shutdown();
+    }
+
+    /**
+     * Keeps the replay of the race just run, to play it back from the result dialog, and saves
+     * it to the device in the background.
+     *
+     * @param replay The replay.
+     */
+    public void saveReplay(RaceReplay replay) {
+        lastReplay = replay;
+        ioExecutor.execute(() -> {
+            try {
+                if (replayStore == null) {
+                    replayStore = new ReplayStore(new File(context.getFilesDir(), REPLAY_DIRECTORY), REPLAY_CAPACITY);
+                }
+                replayStore.save(replay);
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot save the replay", e); // It can still be played until the next race
+            }
+        });
+    }
+
+    /**
+     * Gets the replay of the last race run.
+     *
+     * @return The replay, or null before the first race.
+     */
+    public RaceReplay getLastReplay() {
+        return lastReplay;
+    }
+
+    /**
+     * Gets the field of every race: the number of horses and their sprites.
+     *
+     * @return The race card.
+     */
+    public RaceCard getRaceCard() {
+        return raceCard;
+    }
+
+    /**
+     * Gets the live pari-mutuel win odds of a horse with the current bets in the pool.
+     *
+     * @param horseNumber The horse (1-based index).
+     * @return The decimal odds: what one unit staked returns, stake included, if it wins.
+     */
+    public double getOdds(int horseNumber) {
+        return betPools.getWinOdds(horseNumber);
+    }
+
     /**
      * Gets the LiveData for the user's balance.
      *
      * @return LiveData containing the user's balance.
      */
-    public LiveData<Integer> getBalance() {
+    public LiveData<Long> getBalance() {
         return balance;
     }
 
@@ -53,7 +192,7 @@ public class RaceViewModel extends AndroidViewModel {
      *
      * @return LiveData containing the total bet amount.
      */
-    public LiveData<Integer> getTotalBet() {
+    public LiveData<Long> getTotalBet() {
         return totalBet;
     }
 
@@ -66,6 +205,16 @@ public class RaceViewModel extends AndroidViewModel {
         return isRacing;
     }
 
+    /**
+     * Checks whether a race is currently in progress.  Unlike {@link #getIsRacing()} this reads a
+     * primitive flag, so it can be called on every race tick without unboxing.
+     *
+     * @return True if a race is running, false otherwise.
+     */
+    public boolean isRaceInProgress() {
+        return raceInProgress;
+    }
+
     /**
      * Gets the LiveData indicating whether the race needs to be reset.
      *
@@ -85,20 +234,141 @@ public class RaceViewModel extends AndroidViewModel {
     }
 
     /**
-     * Sets the current bets.  Updates the total bet amount in the UI.
+     * Gets the LiveData for the phase of the running session.
+     *
+     * @return LiveData containing the session phase, {@link RaceSession.Phase#IDLE} outside a session.
+     */
+    public LiveData<RaceSession.Phase> getSessionPhase() {
+        return sessionPhase;
+    }
+
+    /**
+     * Checks whether a session of back-to-back races is running.
+     *
+     * @return True if a session is running.
+     */
+    public boolean isSessionRunning() {
+        return session != null && session.isRunning();
+    }
+
+    /**
+     * Places the bets of one type, replacing the bets of that type placed earlier; bets of the
+     * other types are kept.  Only the bets that change are taken out of and added to the book
+     * and the pools.  Updates the total bet amount in the UI.  During a session, bets are only
+     * taken in the betting window.
      *
-     * @param bets The list of {@link HorseBet} objects representing the user's bets.
+     * @param type The bet type.
+     * @param bets The new bets of that type.
+     * @return True if the bets were taken, false if betting is closed or the total is too large.
+     * @throws IllegalArgumentException If a bet is of another type or picks a horse that is not
+     *                                  on the race card.
      */
-    public void setCurrentBets(List<HorseBet> bets) {
-        repository.setCurrentBets(bets);
+    public boolean placeBets(BetType type, List<HorseBet> bets) {
+        BetBook book = repository.getBetBook();
+        long newTotal = book.getTotal() - book.getTypeStake(type);
+        try {
+            for (HorseBet bet : bets) {
+                if (bet.getType() != type) {
+                    throw new IllegalArgumentException(bet.getType() + " bet among the " + type + " bets");
+                }
+                checkRunners(bet);
+                newTotal = Money.add(newTotal, bet.getBetAmount());
+            }
+        } catch (ArithmeticException e) {
+            showToast("The total bet is too large!");
+            return false; // Checked up front, so no bet is half replaced
+        }
+        if (!isBettingOpen()) {
+            return false;
+        }
+        for (int i = 0; i < book.size(); i++) {
+            if (book.getType(i) == type) {
+                betPools.cancelBet(type, book.getCombinationKey(i), book.getAmount(i));
+            }
+        }
+        repository.removeBets(type);
+        for (HorseBet bet : bets) {
+            repository.placeBet(bet);
+            betPools.placeBet(bet);
+        }
         updateBalanceAndBet();
+        return true;
+    }
+
+    /**
+     * Adds one bet to those already placed, e.g. an exacta or trifecta.
+     *
+     * @param bet The bet.
+     * @return True if the bet was taken, false if betting is closed or the total is too large.
+     * @throws IllegalArgumentException If the bet picks a horse that is not on the race card.
+     */
+    public boolean addBet(HorseBet bet) {
+        checkRunners(bet);
+        if (!isBettingOpen()) {
+            return false;
+        }
+        try {
+            repository.placeBet(bet); // Leaves the book unchanged if the total would overflow
+        } catch (ArithmeticException e) {
+            showToast("The total bet is too large!");
+            return false;
+        }
+        betPools.placeBet(bet);
+        updateBalanceAndBet();
+        return true;
+    }
+
+    /**
+     * Takes back one placed bet, e.g. an exacta or trifecta the user no longer wants, and
+     * updates the total bet amount in the UI.
+     *
+     * @param index The index of the bet in {@link #getCurrentBets()}.  The last bet moves into
+     *              it, so read the bets again before removing another.
+     * @return True if the bet was removed, false if betting is closed.
+     */
+    public boolean removeBet(int index) {
+        if (!isBettingOpen()) {
+            return false;
+        }
+        BetBook book = repository.getBetBook();
+        betPools.cancelBet(book.getType(index), book.getCombinationKey(index), book.getAmount(index));
+        repository.removeBet(index);
+        updateBalanceAndBet();
+        return true;
+    }
+
+    /**
+     * Checks that every horse a bet picks is on the race card.
+     */
+    private void checkRunners(HorseBet bet) {
+        for (int horse : bet.getHorses()) {
+            if (!raceCard.isRunner(horse)) {
+                throw new IllegalArgumentException("Horse " + horse + " is not running");
+            }
+        }
+    }
+
+    /**
+     * Checks whether bets are taken now, showing a Toast if not.  Once a race has started its
+     * stakes are debited, so the book must stay as it is until the race is settled and reset.
+     *
+     * @return False while a race runs or awaits its reset, and during a session outside its
+     *         betting window.
+     */
+    private boolean isBettingOpen() {
+        if (raceInProgress || Boolean.TRUE.equals(needsReset.getValue())
+                || isSessionRunning() && session.getPhase() != RaceSession.Phase.BETTING) {
+            showToast("Betting is closed for this race!");
+            return false;
+        }
+        return true;
     }
 
     /**
      * Gets the LiveData representing the change in the user's money after a race.
      * @return LiveData containing the money change.
      */
-    public LiveData<Integer> getMoneyChange() {
+    public LiveData<Long> getMoneyChange() {
         return moneyChange;
     }
 
@@ -106,13 +376,13 @@ public class RaceViewModel extends AndroidViewModel {
      * Sets value for money change.
      * @param change The money change.
      */
-    private void setMoneyChange(int change) {
+    private void setMoneyChange(long change) {
         moneyChange.setValue(change);
     }
     /**
-     * Gets the current bets placed by the user.
+     * Gets a snapshot of the current bets placed by the user.
      *
-     * @return The list of {@link HorseBet} objects.
+     * @return A new list of {@link HorseBet} objects.
      */
     public List<HorseBet> getCurrentBets() {
         return repository.getCurrentBets();
@@ -130,24 +400,82 @@ public class RaceViewModel extends AndroidViewModel {
             return false; // Race cannot start
         }
 
-        isRacing.setValue(true); // Set racing state to true
+        try {
+            if (!repository.debitBets()) { // Check and deduct the bet amount in one step
+                showToast("Insufficient balance!");
+                return false;
+            }
+        } catch (IOException e) {
+            showLedgerError(e);
+            return false;
+        }
+        setRacing(true); // Set racing state to true
         needsReset.setValue(false); // Reset the needsReset flag
-        repository.updateBalance(-repository.getTotalBetAmount()); // Deduct bet amount
         updateBalanceAndBet(); // Update UI
         return true;
     }
 
 
     /**
-     * Handles the race finish event.  Updates the racing state, sets the needsReset flag,
-     * and calculates the results.
+     * Handles the race finish event.  Updates the racing state and calculates the results.
+     * A race started by hand then needs a reset; a session race moves the session on to its
+     * settlement phase, which starts the next round on its own.
      *
-     * @param winningHorse The number of the winning horse (1-based index).
+     * @param finishingOrder The horses in finishing order (1-based numbers), winner first.
      */
-    public void handleRaceFinished(int winningHorse) {
-        isRacing.setValue(false); // Set racing state to false
+    public void handleRaceFinished(int[] finishingOrder) {
+        setRacing(false); // Set racing state to false
+        if (isSessionRunning()) {
+            session.raceFinished(SystemClock.uptimeMillis());
+            onSessionPhaseChanged();
+            if (!repository.getBetBook().isEmpty()) { // Nothing to settle for a race nobody bet on
+                calculateAndUpdateResults(finishingOrder);
+            }
+            return;
+        }
         needsReset.setValue(true); // Set needsReset flag to true
-        calculateAndUpdateResults(winningHorse); // Calculate and update results
+        calculateAndUpdateResults(finishingOrder); // Calculate and update results
+    }
+
+    /**
+     * Starts a session: rounds of betting window, countdown, race and settlement follow each other
+     * on a timer until {@link #stopSession()}.  Bets already placed go into the first round.
+     *
+     * @param countdownMs The length of the start countdown, e.g. of the countdown sound.
+     */
+    public void startSession(long countdownMs) {
+        if (isSessionRunning()) {
+            return;
+        }
+        if (raceInProgress) {
+            showToast("The race is already in progress!");
+            return;
+        }
+        session = new RaceSession(SESSION_BETTING_MS, countdownMs, SESSION_SETTLEMENT_MS);
+        stopSessionAfterRound = false;
+        if (Boolean.TRUE.equals(needsReset.getValue())) {
+            resetRace(); // Clear the last manual race before the first round
+        }
+        session.start(SystemClock.uptimeMillis());
+        onSessionPhaseChanged();
+    }
+
+    /**
+     * Stops the session.  During the betting window it stops at once and the bets stay placed;
+     * once bets are closed the current round is played and settled first.
+     *
+     * @return True if the session stopped at once, false if it stops after the current round.
+     */
+    public boolean stopSession() {
+        if (!isSessionRunning()) {
+            return true;
+        }
+        if (session.getPhase() == RaceSession.Phase.BETTING) {
+            endSession();
+            return true;
+        }
+        stopSessionAfterRound = true;
+        return false;
     }
 
     /**
@@ -156,31 +484,135 @@ public class RaceViewModel extends AndroidViewModel {
      */
     public void resetRace() {
         repository.clearBets(); // Clear all bets
-        isRacing.setValue(false); // Reset racing state
+        refreshPool();
+        setRacing(false); // Reset racing state
         needsReset.setValue(false); // Reset needsReset flag
         raceResult.setValue(null); // Clear race result
         updateBalanceAndBet(); // Update UI
     }
 
     /**
-     * Checks if the race can start based on several conditions: bets placed, sufficient balance,
-     * race not already running, and no reset needed.  Displays appropriate Toast messages
-     * if conditions are not met.
+     * Moves the session on when its current phase has ended.  Runs on the session timer.
+     */
+    private void advanceSession() {
+        if (session.update(SystemClock.uptimeMillis())) {
+            onSessionPhaseChanged();
+        } else {
+            scheduleSessionTick(); // Woken up early
+        }
+    }
+
+    /**
+     * Applies the phase the session has just entered and schedules the end of it.
+     */
+    private void onSessionPhaseChanged() {
+        RaceSession.Phase phase = session.getPhase();
+        if (phase == RaceSession.Phase.BETTING) {
+            if (stopSessionAfterRound) {
+                endSession();
+                resetRace();
+                return;
+            }
+            if (session.getRound() > 1) {
+                resetRace(); // New round, new bets
+            }
+        } else if (phase == RaceSession.Phase.COUNTDOWN) {
+            closeBetting();
+        }
+        sessionPhase.setValue(phase);
+        scheduleSessionTick();
+    }
+
+    /**
+     * Closes the betting window and takes the stakes.  The race runs even if nobody bet on it;
+     * bets the balance cannot cover are cancelled rather than holding up the session.
+     */
+    private void closeBetting() {
+        if (!repository.getBetBook().isEmpty() && !takeSessionStakes()) {
+            repository.clearBets();
+            refreshPool();
+        }
+        setRacing(true);
+        updateBalanceAndBet();
+    }
+
+    /**
+     * Takes the stakes of a session round, showing a Toast if they cannot be taken.
+     *
+     * @return True if the stakes were taken, false if the bets must be cancelled.
+     */
+    private boolean takeSessionStakes() {
+        if (!repository.isWalletOpen()) {
+            showToast("Your balance is still loading, bets cancelled!");
+            return false;
+        }
+        try {
+            if (!repository.debitBets()) {
+                showToast("Insufficient balance, bets cancelled!");
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            showLedgerError(e);
+            return false;
+        }
+    }
+
+    /**
+     * Rebuilds the pools from the house float and the current bets.  The float spreads the same
+     * amount over every combination of every bet type, standing in for the other bettors, so a
+     * single player's stakes move the odds without deciding them.
+     */
+    private void refreshPool() {
+        betPools.clear();
+        betPools.addHouseFloat(HOUSE_FLOAT_PER_HORSE * raceCard.getRunnerCount());
+        BetBook book = repository.getBetBook();
+        for (int i = 0; i < book.size(); i++) {
+            betPools.placeBet(book.getType(i), book.getCombinationKey(i), book.getAmount(i));
+        }
+    }
+
+    /**
+     * Wakes up the session when its current phase ends.  The race has no fixed end; the session
+     * waits for {@link #handleRaceFinished(int[])} instead.
+     */
+    private void scheduleSessionTick() {
+        sessionHandler.removeCallbacks(sessionTick);
+        long endMs = session.getPhaseEndMs();
+        if (endMs != RaceSession.NO_DEADLINE) {
+            sessionHandler.postAtTime(sessionTick, endMs); // Same time base as SystemClock.uptimeMillis
+        }
+    }
+
+    /**
+     * Ends the session and goes back to races started by hand.
+     */
+    private void endSession() {
+        sessionHandler.removeCallbacks(sessionTick);
+        session.stop();
+        stopSessionAfterRound = false;
+        sessionPhase.setValue(RaceSession.Phase.IDLE);
+    }
+
+    /**
+     * Checks if the race can start based on several conditions: bets placed, race not already
+     * running, no reset needed, and the balance loaded.  Displays appropriate Toast messages if conditions are not
+     * met.  The balance is checked when the stakes are taken, in the same atomic step.
      *
      * @return True if the race can start, false otherwise.
      */
     private boolean canStartRace() {
-        if (repository.getCurrentBets().isEmpty()) {
-            showToast("You haven't placed any bets!");
+        if (!repository.isWalletOpen()) {
+            showToast("Your balance is still loading!");
             return false;
         }
 
-        if (repository.getTotalBetAmount() > repository.getBalance()) {
-            showToast("Insufficient balance!");
+        if (repository.getBetBook().isEmpty()) {
+            showToast("You haven't placed any bets!");
             return false;
         }
 
-        if (Boolean.TRUE.equals(isRacing.getValue())) {
+        if (raceInProgress) {
             showToast("The race is already in progress!");
             return false;
         }
@@ -194,6 +626,16 @@ public class RaceViewModel extends AndroidViewModel {
     }
 
 
+    /**
+     * Updates the racing state, keeping the primitive flag and the LiveData in sync.
+     *
+     * @param racing True if a race is running, false otherwise.
+     */
+    private void setRacing(boolean racing) {
+        raceInProgress = racing;
+        isRacing.setValue(racing);
+    }
+
     /**
      * Displays a Toast message.
      *
@@ -203,50 +645,61 @@ public class RaceViewModel extends AndroidViewModel {
         Toast.makeText(context, message, Toast.LENGTH_SHORT).show();
     }
 
+    /**
+     * Reports that the wallet ledger can no longer save balance changes.  The change that failed
+     * was not made, so the balance shown is still the one on disk.
+     *
+     * @param e The error from the ledger.
+     */
+    private void showLedgerError(IOException e) {
+        Log.e(TAG, "Cannot save the wallet ledger", e);
+        showToast("Cannot save your balance, storage error!");
+    }
+
 
     /**
-     * Calculates the winnings based on the winning horse and updates the user's balance
-     * *only if* the user has net winnings. Constructs a detailed result message string.
+     * Calculates the winnings based on the finishing order and updates the user's balance
+     * *only if* the user has net winnings. Constructs a result message string listing at most
+     * {@link #MAX_RESULT_LINES} bets, formatting only those.
+     * A winning bet is paid its share of the tote pool of its bet type, less the take.
      * The user's balance was already decremented by the total bet amount at the start
      * of the race. This method adds winnings back to the balance *only if* the total
      * winnings exceed the initial total bet amount. It calculates and displays the net
      * change in the user's balance (winnings - initial bet).
      *
-     * @param winningHorse The number of the winning horse (1-based index).
+     * @param finishingOrder The horses in finishing order (1-based numbers), winner first.
      */
-    private void calculateAndUpdateResults(int winningHorse) {
-        int totalBetAmount = repository.getTotalBetAmount();
-        int totalWinnings = 0;
-        StringBuilder resultMessage = new StringBuilder();
+    private void calculateAndUpdateResults(int[] finishingOrder) {
+        long totalBetAmount = repository.getTotalBetAmount();
 
-        // Calculate winnings (if any)
-        for (HorseBet bet : repository.getCurrentBets()) {
-            if (bet.getHorseNumber() == winningHorse) {
-                int winAmount = bet.getBetAmount() * 2; // Double the bet amount for a win
-                totalWinnings += winAmount;
-                resultMessage.append("Horse ").append(bet.getHorseNumber())
-                        .append(" won! +").append(winAmount).append("đ\n");
-            } else {
-                resultMessage.append("Horse ").append(bet.getHorseNumber())
-                        .append(" lost\n");
-            }
+        // Calculate winnings (if any) from the pools, less the take
+        long totalWinnings = settlement.settle(repository.getBetBook(), finishingOrder, betPools);
+
+        // Format only the lines the result shows
+        StringBuilder resultMessage = new StringBuilder();
+        int shown = Math.min(settlement.size(), MAX_RESULT_LINES);
+        settlement.appendLines(0, shown, resultMessage);
+        if (settlement.size() > shown) {
+            resultMessage.append("... and ").append(settlement.size() - shown).append(" more bets\n");
         }
 
         // Calculate the actual money change (including losses)
-        int actualMoneyChange = totalWinnings - totalBetAmount;
+        long actualMoneyChange = Money.subtract(totalWinnings, totalBetAmount);
 
         // Only update the balance if there are net winnings
         if (totalWinnings > 0) {
-            repository.updateBalance(totalWinnings);
+            try {
+                repository.creditPayout(totalWinnings);
+            } catch (IOException e) {
+                showLedgerError(e);
+            }
         }
 
         // Update moneyChange with the actual change
         setMoneyChange(actualMoneyChange);
 
         // Update the result message
-        resultMessage.append("\nTotal: ")
-                .append(actualMoneyChange >= 0 ? "+" : "")
-                .append(actualMoneyChange).append("đ");
+        Money.appendSigned(resultMessage.append("\nTotal: "), actualMoneyChange);
 
         raceResult.setValue(resultMessage.toString());
         updateBalanceAndBet();
@@ -256,17 +709,33 @@ public class RaceViewModel extends AndroidViewModel {
      * Updates the balance and total bet LiveData objects with the current values from the repository.
      */
     private void updateBalanceAndBet() {
-        balance.setValue(repository.getBalance());
+        if (repository.isWalletOpen()) { // Published once the wallet has opened
+            balance.setValue(repository.getBalance());
+        }
         totalBet.setValue(repository.getTotalBetAmount());
     }
 
     /**
-     * Updates the user's balance by the given amount.  Delegates to the repository and
+     * Adds money to the user's balance.  Delegates to the repository and
      * then updates the LiveData.
-     * @param amount The amount to add to the balance (can be negative for deductions).
+     * @param amount The amount to add to the balance.
+     * @return True if the money was added, false if the balance cannot hold it.
      */
-    public void updateBalance(int amount) {
-        repository.updateBalance(amount);
+    public boolean addMoney(long amount) {
+        if (!repository.isWalletOpen()) {
+            showToast("Your balance is still loading!");
+            return false;
+        }
+        try {
+            repository.deposit(amount);
+        } catch (ArithmeticException e) {
+            showToast("The balance cannot hold that much!");
+            return false;
+        } catch (IOException e) {
+            showLedgerError(e);
+            return false;
+        }
         updateBalanceAndBet();
+        return true;
     }
 }
\ No newline at end of file
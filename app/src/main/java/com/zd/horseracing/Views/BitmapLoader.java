@@ -0,0 +1,254 @@
+package com.zd.horseracing.Views;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Debug;
+import android.util.LruCache;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import com.zd.horseracing.Utils.ImageSampling;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes drawable resources at the size they are shown rather than at full resolution.  Many of
+ * the drawables are large PNGs in the default (mdpi) folder, which the framework would otherwise
+ * decode at full size and then scale up again for the screen density.
+ * <p>
+ * Decoded bitmaps are kept in an LRU cache bounded by byte count and keyed by resource and
+ * requested size.  Bitmaps are handed out with {@link #acquire(int, int, int)} and handed back
+ * with {@link #release(Bitmap)}; once a bitmap is neither cached nor acquired, its memory is
+ * reused (through {@link BitmapFactory.Options#inBitmap}) by the next decode that fits in it.
+ */
+public class BitmapLoader {
+    private static final int CACHE_FRACTION = 8; // Share of the Java heap the cache may fill
+    private static final long BYTES_PER_MB = 1024L * 1024L;
+
+    private static BitmapLoader instance;
+
+    private final Resources resources;
+    private final LruCache<String, Bitmap> cache;
+    private final Map<Bitmap, Integer> useCounts = new HashMap<>();
+    private final List<SoftReference<Bitmap>> reusable = new ArrayList<>();
+
+    private BitmapLoader(Resources resources, int maxCacheBytes) {
+        this.resources = resources;
+        this.cache = new LruCache<String, Bitmap>(maxCacheBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+                if (!useCounts.containsKey(oldValue)) {
+                    recycleLater(oldValue); // Nobody is drawing it any more
+                }
+            }
+        };
+    }
+
+    /**
+     * Gets the loader shared by the whole process.
+     *
+     * @param context Any context; only its application resources are used.
+     * @return The shared loader.
+     */
+    public static synchronized BitmapLoader getInstance(Context context) {
+        if (instance == null) {
+            int maxCacheBytes = (int) (Runtime.getRuntime().maxMemory() / CACHE_FRACTION);
+            instance = new BitmapLoader(context.getApplicationContext().getResources(), maxCacheBytes);
+        }
+        return instance;
+    }
+
+    /**
+     * Gets a drawable resource decoded no larger than needed to be shown at the requested size,
+     * from the cache when possible.  The caller must hand the bitmap back with
+     * {@link #release(Bitmap)} once it stops drawing it.
+     *
+     * @param resId     The drawable resource ID.
+     * @param reqWidth  The width the bitmap will be shown at in pixels, or 0 if unconstrained.
+     * @param reqHeight The height the bitmap will be shown at in pixels, or 0 if unconstrained.
+     * @return The decoded bitmap, or null if the resource cannot be decoded.
+     */
+    public synchronized Bitmap acquire(int resId, int reqWidth, int reqHeight) {
+        String key = resId + ":" + reqWidth + "x" + reqHeight;
+        Bitmap bitmap = cache.get(key);
+        if (bitmap == null) {
+            bitmap = decode(resId, reqWidth, reqHeight);
+            if (bitmap == null) {
+                return null;
+            }
+            cache.put(key, bitmap);
+        }
+        Integer count = useCounts.get(bitmap);
+        useCounts.put(bitmap, count == null ? 1 : count + 1);
+        return bitmap;
+    }
+
+    /**
+     * Decodes a drawable into the cache ahead of time, so a later {@link #acquire(int, int, int)}
+     * at the same size costs no decode.  Does nothing if it is already cached.
+     *
+     * @param resId     The drawable resource ID.
+     * @param reqWidth  The width the bitmap will be shown at in pixels, or 0 if unconstrained.
+     * @param reqHeight The height the bitmap will be shown at in pixels, or 0 if unconstrained.
+     */
+    public synchronized void prefetch(int resId, int reqWidth, int reqHeight) {
+        Bitmap bitmap = acquire(resId, reqWidth, reqHeight);
+        if (bitmap != null) {
+            release(bitmap); // Stays in the cache until evicted
+        }
+    }
+
+    /**
+     * Hands back a bitmap obtained from {@link #acquire(int, int, int)}.
+     *
+     * @param bitmap The bitmap the caller no longer draws.
+     */
+    public synchronized void release(Bitmap bitmap) {
+        Integer count = useCounts.get(bitmap);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            useCounts.put(bitmap, count - 1);
+            return;
+        }
+        useCounts.remove(bitmap);
+        if (!cache.snapshot().containsValue(bitmap)) {
+            recycleLater(bitmap); // Evicted while it was still being drawn
+        }
+    }
+
+    /**
+     * Shows a drawable resource in an image view, decoded at the view's layout size.  The bitmap
+     * is released when the view is detached from its window, e.g. when its dialog is dismissed.
+     *
+     * @param imageView The view to show the image in; its layout size must be fixed.
+     * @param resId     The drawable resource ID.
+     */
+    public void loadInto(ImageView imageView, int resId) {
+        ViewGroup.LayoutParams params = imageView.getLayoutParams();
+        int width = params == null ? 0 : Math.max(0, params.width);
+        int height = params == null ? 0 : Math.max(0, params.height);
+        Bitmap bitmap = acquire(resId, width, height);
+        if (bitmap == null) {
+            return;
+        }
+        imageView.setImageBitmap(bitmap);
+        imageView.addOnAttachStateChangeListener(new View.OnAttachStateChangeListener() {
+            @Override
+            public void onViewAttachedToWindow(View view) {
+                // Nothing to do; the bitmap was acquired when it was set
+            }
+
+            @Override
+            public void onViewDetachedFromWindow(View view) {
+                view.removeOnAttachStateChangeListener(this);
+                imageView.setImageDrawable(null);
+                release(bitmap);
+            }
+        });
+    }
+
+    /**
+     * Shrinks the cache when the system runs low on memory.
+     *
+     * @param level The level passed to {@code onTrimMemory}.
+     */
+    public synchronized void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            cache.evictAll();
+            reusable.clear();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            cache.trimToSize(cache.maxSize() / 2);
+        }
+    }
+
+    /**
+     * Describes the current memory use, for logging before and after decoding large images.
+     * Bitmap pixels live on the Java heap up to Android 7.1 and on the native heap from Android 8.
+     *
+     * @return The Java heap, native heap and cache usage.
+     */
+    public synchronized String describeMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        long javaUsed = runtime.totalMemory() - runtime.freeMemory();
+        return "java heap " + javaUsed / BYTES_PER_MB + "/" + runtime.maxMemory() / BYTES_PER_MB + " MB"
+                + ", native heap " + Debug.getNativeHeapAllocatedSize() / BYTES_PER_MB + " MB"
+                + ", bitmap cache " + cache.size() / 1024 + "/" + cache.maxSize() / 1024 + " KB"
+                + " (" + reusable.size() + " reusable)";
+    }
+
+    /**
+     * Decodes a resource with the largest sample size that still covers the requested size,
+     * into the memory of a reusable bitmap when one is large enough.
+     */
+    private Bitmap decode(int resId, int reqWidth, int reqHeight) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inScaled = false; // Sized for the view below, not for the screen density
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(resources, resId, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inSampleSize = ImageSampling.calculateInSampleSize(
+                options.outWidth, options.outHeight, reqWidth, reqHeight);
+        long byteCount = ImageSampling.decodedByteCount(options.outWidth, options.outHeight, options.inSampleSize);
+        options.inJustDecodeBounds = false;
+        options.inMutable = true; // Mutable bitmaps can be reused by later decodes
+        options.inBitmap = takeReusable(byteCount);
+        try {
+            return BitmapFactory.decodeResource(resources, resId, options);
+        } catch (IllegalArgumentException e) {
+            // The candidate could not hold this image after all; decode into new memory
+            options.inBitmap = null;
+            return BitmapFactory.decodeResource(resources, resId, options);
+        }
+    }
+
+    /**
+     * Removes and returns the smallest reusable bitmap that can hold a decoded image.
+     */
+    private Bitmap takeReusable(long byteCount) {
+        Bitmap best = null;
+        Iterator<SoftReference<Bitmap>> iterator = reusable.iterator();
+        while (iterator.hasNext()) {
+            Bitmap candidate = iterator.next().get();
+            if (candidate == null || candidate.isRecycled()) {
+                iterator.remove(); // Already collected
+            } else if (candidate.getAllocationByteCount() >= byteCount
+                    && (best == null || candidate.getAllocationByteCount() < best.getAllocationByteCount())) {
+                best = candidate;
+            }
+        }
+        if (best != null) {
+            for (int i = 0; i < reusable.size(); i++) {
+                if (reusable.get(i).get() == best) {
+                    reusable.remove(i);
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    private void recycleLater(Bitmap bitmap) {
+        if (bitmap.isMutable()) {
+            reusable.add(new SoftReference<>(bitmap));
+        }
+    }
+}
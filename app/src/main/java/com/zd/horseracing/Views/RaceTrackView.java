@@ -0,0 +1,334 @@
+package com.zd.horseracing.Views;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+import com.zd.horseracing.Engine.RaceEngine;
+import com.zd.horseracing.R;
+
+/**
+ * Draws the whole race track in a single {@link #onDraw(Canvas)} pass: the grass, the alternating
+ * {@code lane}/{@code lane2} backgrounds, the {@code fence2} rows with the finish flag, the finish
+ * line and every horse.  Replaces one {@code SeekBar} per horse, so adding lanes costs a few more
+ * draw calls instead of more views to measure and lay out.  Horses are blitted from the
+ * sub-rectangles of a single {@link SpriteAtlas} bitmap.  The track bitmaps come from
+ * {@link BitmapLoader}, sized for the track while the view is attached to a window.
+ * <p>
+ * A frame in which no horse moved or changed sprite is not invalidated at all; otherwise the
+ * whole view is invalidated once.  Invalidating only the rectangles the horses moved through
+ * would not save anything: with hardware rendering (the default since API 14) the view's whole
+ * display list is re-recorded whatever the dirty rectangle, which is why
+ * {@code invalidate(Rect)} is deprecated since API 28.  Instead {@link #onDraw(Canvas)} skips
+ * every lane and horse outside the canvas clip, which saves the draw calls whenever the view is
+ * only partly redrawn, e.g. in software rendering or while it is partly off screen.
+ */
+public class RaceTrackView extends View {
+    private static final int GRASS_COLOR = 0xFF43D817;
+    private static final int FENCE_TILE_COUNT = 23; // Same tiling as the old fence rows
+    private static final float FENCE_HEIGHT_DP = 18f;
+    private static final float LABEL_WIDTH_DP = 36f;
+    private static final float FINISH_LINE_WIDTH_DP = 5f;
+    private static final float FINISH_LINE_MARGIN_DP = 5f;
+    private static final float LABEL_TEXT_SIZE_SP = 24f;
+    private static final float LABEL_LANE_RATIO = 0.7f;   // Largest label height relative to its lane
+    private static final float HORSE_HEIGHT_RATIO = 0.8f; // Horse height relative to its lane
+
+    private final BitmapLoader bitmapLoader;
+    private final Drawable flagDrawable;
+    private final Paint labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint spritePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Paint trackPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Rect tileBounds = new Rect();
+    private final Rect newBounds = new Rect();
+    private final Rect clipBounds = new Rect();
+    private final float fenceHeight;
+    private final float labelWidth;
+    private final float finishLineWidth;
+    private final float finishLineMargin;
+    private final float maxLabelTextSize;
+
+    private Bitmap laneBitmap;
+    private Bitmap laneAltBitmap;
+    private Bitmap fenceBitmap;
+    private Bitmap finishLineBitmap;
+    private int laneCount;
+    private Bitmap atlasBitmap;
+    private Rect[][] horseFrames;     // [lane][frame], bounds in the atlas
+    private int[] frameDurationsMs;   // [lane]
+    private Rect[] idleSprites;       // [lane]
+    private Rect[] shownSprites;      // [lane], sprite drawn on the last frame
+    private float[] positions;        // [lane], 0 to RaceEngine.FINISH_LINE
+    private Rect[] horseBounds;       // [lane]
+    private String[] laneLabels;      // [lane]
+    private boolean running;
+    private long runStartNanos;
+
+    public RaceTrackView(Context context) {
+        this(context, null);
+    }
+
+    public RaceTrackView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        bitmapLoader = BitmapLoader.getInstance(context);
+        flagDrawable = ContextCompat.getDrawable(context, R.drawable.flag_finish);
+
+        float density = getResources().getDisplayMetrics().density;
+        fenceHeight = FENCE_HEIGHT_DP * density;
+        labelWidth = LABEL_WIDTH_DP * density;
+        finishLineWidth = FINISH_LINE_WIDTH_DP * density;
+        finishLineMargin = FINISH_LINE_MARGIN_DP * density;
+
+        labelPaint.setColor(Color.WHITE);
+        labelPaint.setTypeface(Typeface.DEFAULT_BOLD);
+        labelPaint.setTextAlign(Paint.Align.CENTER);
+        maxLabelTextSize = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, LABEL_TEXT_SIZE_SP,
+                getResources().getDisplayMetrics()); // Follows the font scale, unlike scaledDensity on API 34+
+        labelPaint.setTextSize(maxLabelTextSize);
+
+        setHorses(null, new String[0], new String[0]);
+    }
+
+    /**
+     * Sets the sprites of the horses from an atlas; one lane is drawn per horse, so the lanes get
+     * narrower as the field grows.
+     *
+     * @param atlas      The atlas holding every horse frame, or null to draw no horses.
+     * @param animations The running animation of each horse.
+     * @param idleFrames The frame each horse shows before the race starts.
+     */
+    public void setHorses(@Nullable SpriteAtlas atlas, String[] animations, String[] idleFrames) {
+        laneCount = animations.length;
+        atlasBitmap = atlas == null ? null : atlas.getBitmap();
+        horseFrames = new Rect[laneCount][];
+        frameDurationsMs = new int[laneCount];
+        idleSprites = new Rect[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            horseFrames[i] = atlas == null ? new Rect[0] : atlas.getAnimationFrames(animations[i]);
+            frameDurationsMs[i] = atlas == null ? 0 : atlas.getFrameDuration(animations[i]);
+            idleSprites[i] = atlas == null ? null : atlas.getFrame(idleFrames[i]);
+        }
+        shownSprites = idleSprites.clone();
+        positions = new float[laneCount];
+        horseBounds = new Rect[laneCount];
+        laneLabels = new String[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            horseBounds[i] = new Rect();
+            laneLabels[i] = String.valueOf(i + 1);
+            computeHorseBounds(i, horseBounds[i]);
+        }
+        running = false;
+        updateLabelSize();
+        invalidate();
+    }
+
+    /**
+     * Starts the running animation of every horse.
+     */
+    public void startRunning() {
+        running = true;
+        runStartNanos = -1; // Taken from the first rendered frame
+    }
+
+    /**
+     * Freezes every horse on the sprite it currently shows.
+     */
+    public void stopRunning() {
+        running = false;
+    }
+
+    /**
+     * Moves every horse back to the start and shows the idle sprites.
+     */
+    public void reset() {
+        running = false;
+        for (int i = 0; i < laneCount; i++) {
+            positions[i] = 0;
+            shownSprites[i] = idleSprites[i];
+            computeHorseBounds(i, horseBounds[i]);
+        }
+        invalidate();
+    }
+
+    /**
+     * Updates every horse from the engine and invalidates the view once if any horse moved or
+     * changed sprite.  Allocates nothing, so it can be called on every display frame.
+     *
+     * @param engine         The engine owning the horse positions.
+     * @param alpha          How far the frame is between the previous tick (0) and the latest tick (1).
+     * @param frameTimeNanos The frame time, used to pick the animation frame of each horse.
+     */
+    public void render(RaceEngine engine, float alpha, long frameTimeNanos) {
+        if (running && runStartNanos < 0) {
+            runStartNanos = frameTimeNanos;
+        }
+        long elapsedMs = running ? (frameTimeNanos - runStartNanos) / 1_000_000L : 0;
+
+        boolean changed = false;
+        int lanes = Math.min(laneCount, engine.getHorseCount());
+        for (int i = 0; i < lanes; i++) {
+            positions[i] = engine.getInterpolatedPosition(i, alpha);
+            Rect previousSprite = shownSprites[i];
+            if (running && horseFrames[i].length > 0) {
+                int frame = (int) ((elapsedMs / Math.max(1, frameDurationsMs[i])) % horseFrames[i].length);
+                shownSprites[i] = horseFrames[i][frame];
+            }
+
+            computeHorseBounds(i, newBounds);
+            if (shownSprites[i] != previousSprite || !newBounds.equals(horseBounds[i])) {
+                horseBounds[i].set(newBounds);
+                changed = true;
+            }
+        }
+        if (changed) {
+            invalidate(); // Once per frame; see the class comment for why not per horse
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        // Lanes and the finish line stretch across the screen; fence tiles are only a strip high
+        int screenWidth = getResources().getDisplayMetrics().widthPixels;
+        laneBitmap = bitmapLoader.acquire(R.drawable.lane, screenWidth, 0);
+        laneAltBitmap = bitmapLoader.acquire(R.drawable.lane2, screenWidth, 0);
+        fenceBitmap = bitmapLoader.acquire(R.drawable.fence2, 0, (int) fenceHeight);
+        finishLineBitmap = bitmapLoader.acquire(R.drawable.finish_race, (int) finishLineWidth, 0);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        releaseTrackBitmap(laneBitmap);
+        releaseTrackBitmap(laneAltBitmap);
+        releaseTrackBitmap(fenceBitmap);
+        releaseTrackBitmap(finishLineBitmap);
+        laneBitmap = laneAltBitmap = fenceBitmap = finishLineBitmap = null;
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        updateLabelSize();
+        for (int i = 0; i < laneCount; i++) {
+            computeHorseBounds(i, horseBounds[i]);
+        }
+    }
+
+    @Override
+    protected void onDraw(@NonNull Canvas canvas) {
+        super.onDraw(canvas);
+        int width = getWidth();
+        int height = getHeight();
+        canvas.getClipBounds(clipBounds); // Only what is being redrawn
+        canvas.drawColor(GRASS_COLOR);
+
+        // Fences on top and bottom, the last tile being the finish flag
+        drawFence(canvas, 0, width);
+        drawFence(canvas, (int) (height - fenceHeight), width);
+
+        // Lanes and lane numbers
+        float laneHeight = getLaneHeight();
+        for (int i = 0; i < laneCount; i++) {
+            int top = (int) (fenceHeight + i * laneHeight);
+            int bottom = (int) (fenceHeight + (i + 1) * laneHeight);
+            tileBounds.set(0, top, width, bottom);
+            if (!Rect.intersects(clipBounds, tileBounds)) {
+                continue; // Lane not redrawn
+            }
+            Bitmap lane = i % 2 == 0 ? laneBitmap : laneAltBitmap;
+            if (lane != null) {
+                canvas.drawBitmap(lane, null, tileBounds, trackPaint);
+            }
+            float textY = (top + bottom) / 2f - (labelPaint.descent() + labelPaint.ascent()) / 2f;
+            canvas.drawText(laneLabels[i], labelWidth / 2f, textY, labelPaint);
+        }
+
+        // Finish line
+        if (finishLineBitmap != null) {
+            int right = (int) (width - finishLineMargin);
+            tileBounds.set((int) (right - finishLineWidth), (int) fenceHeight,
+                    right, (int) (height - fenceHeight));
+            canvas.drawBitmap(finishLineBitmap, null, tileBounds, trackPaint);
+        }
+
+        // Horses, blitted from the atlas
+        if (atlasBitmap != null) {
+            for (int i = 0; i < laneCount; i++) {
+                Rect sprite = shownSprites[i];
+                if (sprite != null && Rect.intersects(clipBounds, horseBounds[i])) {
+                    canvas.drawBitmap(atlasBitmap, sprite, horseBounds[i], spritePaint);
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws one row of fence tiles ending with the finish flag.
+     */
+    private void drawFence(Canvas canvas, int top, int width) {
+        float tileWidth = (float) width / FENCE_TILE_COUNT;
+        for (int t = 0; t < FENCE_TILE_COUNT; t++) {
+            tileBounds.set((int) (t * tileWidth), top, (int) ((t + 1) * tileWidth), (int) (top + fenceHeight));
+            if (t < FENCE_TILE_COUNT - 1) {
+                if (fenceBitmap != null) {
+                    canvas.drawBitmap(fenceBitmap, null, tileBounds, trackPaint);
+                }
+            } else if (flagDrawable != null) {
+                flagDrawable.setBounds(tileBounds);
+                flagDrawable.draw(canvas);
+            }
+        }
+    }
+
+    private void releaseTrackBitmap(@Nullable Bitmap bitmap) {
+        if (bitmap != null) {
+            bitmapLoader.release(bitmap);
+        }
+    }
+
+    /**
+     * Computes where a horse is drawn: scaled to its lane, keeping the sprite's aspect ratio,
+     * and moved from the lane number to the finish line as its position grows.
+     */
+    private void computeHorseBounds(int lane, Rect out) {
+        Rect sprite = shownSprites[lane];
+        float laneHeight = getLaneHeight();
+        if (sprite == null || laneHeight <= 0) {
+            out.setEmpty();
+            return;
+        }
+        int spriteHeight = (int) (laneHeight * HORSE_HEIGHT_RATIO);
+        int spriteWidth = spriteHeight * Math.max(1, sprite.width()) / Math.max(1, sprite.height());
+
+        float startX = labelWidth;
+        float endX = getWidth() - finishLineMargin - finishLineWidth - spriteWidth;
+        int left = (int) (startX + (endX - startX) * positions[lane] / RaceEngine.FINISH_LINE);
+        int top = (int) (fenceHeight + lane * laneHeight + (laneHeight - spriteHeight) / 2f);
+        out.set(left, top, left + spriteWidth, top + spriteHeight);
+    }
+
+    /**
+     * Shrinks the lane numbers to fit narrow lanes when many horses run.
+     */
+    private void updateLabelSize() {
+        float laneHeight = getLaneHeight();
+        labelPaint.setTextSize(laneHeight > 0 ? Math.min(maxLabelTextSize, laneHeight * LABEL_LANE_RATIO) : maxLabelTextSize);
+    }
+
+    private float getLaneHeight() {
+        return laneCount == 0 ? 0 : (getHeight() - 2 * fenceHeight) / laneCount;
+    }
+}
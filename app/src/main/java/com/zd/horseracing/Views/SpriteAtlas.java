@@ -0,0 +1,119 @@
+package com.zd.horseracing.Views;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Rect;
+
+import com.zd.horseracing.R;
+import com.zd.horseracing.Utils.SpriteAtlasIndex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A sprite atlas decoded once: a single bitmap holding many frames, plus the
+ * {@link SpriteAtlasIndex} locating each frame in it.  Views draw frames by blitting
+ * sub-rectangles of {@link #getBitmap()} instead of decoding one bitmap per frame.
+ */
+public class SpriteAtlas {
+    private static SpriteAtlas horseAtlas;
+
+    private final Bitmap bitmap;
+    private final SpriteAtlasIndex index;
+
+    private SpriteAtlas(Bitmap bitmap, SpriteAtlasIndex index) {
+        this.bitmap = bitmap;
+        this.index = index;
+    }
+
+    /**
+     * Gets the horse atlas generated by the {@code packHorseAtlas} build task, decoding it on
+     * first use and sharing it for the lifetime of the process.
+     *
+     * @param context Any context; only its application resources are used.
+     * @return The horse atlas.
+     * @throws IOException If the atlas cannot be decoded or its index is malformed.
+     */
+    public static synchronized SpriteAtlas getHorseAtlas(Context context) throws IOException {
+        if (horseAtlas == null) {
+            horseAtlas = load(context.getApplicationContext().getResources(),
+                    R.drawable.horse_atlas, R.raw.horse_atlas_index);
+        }
+        return horseAtlas;
+    }
+
+    /**
+     * Decodes an atlas bitmap and parses its index.
+     *
+     * @param resources   The resources to load from.
+     * @param bitmapRes   The resource ID of the atlas bitmap.
+     * @param indexRes    The raw resource ID of the atlas index.
+     * @return The loaded atlas.
+     * @throws IOException If the atlas cannot be decoded or its index is malformed.
+     */
+    public static SpriteAtlas load(Resources resources, int bitmapRes, int indexRes) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inScaled = false; // Frame bounds in the index are in atlas pixels
+        Bitmap bitmap = BitmapFactory.decodeResource(resources, bitmapRes, options);
+        if (bitmap == null) {
+            throw new IOException("Cannot decode sprite atlas");
+        }
+        try (InputStream in = resources.openRawResource(indexRes);
+             Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return new SpriteAtlas(bitmap, SpriteAtlasIndex.parse(reader));
+        }
+    }
+
+    /**
+     * Gets the atlas bitmap all frames are drawn from.
+     *
+     * @return The atlas bitmap.
+     */
+    public Bitmap getBitmap() {
+        return bitmap;
+    }
+
+    /**
+     * Gets the bounds of a frame in the atlas bitmap.
+     *
+     * @param name The frame name (the original drawable name).
+     * @return The frame bounds, or null if the frame is not in the atlas.
+     */
+    public Rect getFrame(String name) {
+        int[] bounds = index.getFrame(name);
+        return bounds == null ? null : new Rect(bounds[0], bounds[1], bounds[2], bounds[3]);
+    }
+
+    /**
+     * Gets the bounds of every frame of an animation, in playback order.
+     *
+     * @param name The animation name (the original animation-list drawable name).
+     * @return The frame bounds, or an empty array if the animation is not in the atlas.
+     */
+    public Rect[] getAnimationFrames(String name) {
+        String[] frameNames = index.getAnimation(name);
+        if (frameNames == null) {
+            return new Rect[0];
+        }
+        Rect[] frames = new Rect[frameNames.length];
+        for (int i = 0; i < frameNames.length; i++) {
+            frames[i] = getFrame(frameNames[i]);
+        }
+        return frames;
+    }
+
+    /**
+     * Gets the duration of one frame of an animation.
+     *
+     * @param name The animation name.
+     * @return The frame duration in milliseconds, or 0 if the animation is not in the atlas.
+     */
+    public int getFrameDuration(String name) {
+        return index.getFrameDuration(name);
+    }
+}
@@ -0,0 +1,140 @@
+package com.zd.horseracing.Engine;
+
+import com.zd.horseracing.Models.BetType;
+import com.zd.horseracing.Models.HorseBet;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link BetPools} and the settlement of every bet type.
+ */
+public class BetPoolsTest {
+    private static final int[] ORDER = {3, 1, 4, 2}; // Horse 3 wins, then 1, 4 and 2
+
+    @Test
+    public void combinationKeys_areDistinctPerOrderedPick() {
+        assertEquals(2 + 4 * BetType.KEY_BASE, BetType.EXACTA.key(new int[]{2, 4}));
+        assertNotEquals(BetType.EXACTA.key(new int[]{2, 4}), BetType.EXACTA.key(new int[]{4, 2}));
+        assertEquals(BetType.TRIFECTA.key(ORDER), BetType.TRIFECTA.winningKey(ORDER, 0));
+        assertEquals(1, BetType.SHOW.winningKey(ORDER, 1)); // Second past the post
+        assertEquals(0, BetType.TRIFECTA.getWinningKeyCount(2)); // Not enough horses
+        assertEquals(2, BetType.SHOW.getWinningKeyCount(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void exacta_rejectsTheSameHorseTwice() {
+        new HorseBet(BetType.EXACTA, new int[]{2, 2}, 10);
+    }
+
+    @Test
+    public void win_matchesTheWinPool() {
+        BetPools pools = new BetPools(4, 1_000);
+        TotePool reference = new TotePool(4, 1_000);
+        int[][] stakes = {{1, 60}, {3, 30}, {3, 10}};
+        List<HorseBet> bets = new ArrayList<>();
+        for (int[] stake : stakes) {
+            HorseBet bet = new HorseBet(stake[0], stake[1]);
+            pools.placeBet(bet);
+            reference.placeBet(stake[0], stake[1]);
+            bets.add(bet);
+        }
+        BetPools.Dividends dividends = pools.settle(ORDER);
+        assertEquals(reference.payout(3, 30), dividends.payout(bets.get(1)));
+        assertEquals(67, dividends.payout(bets.get(1))); // 90 net * 30 / 40
+        assertEquals(0, dividends.payout(bets.get(0)));
+        assertEquals(reference.getOdds(1), pools.getWinOdds(1), 1e-9);
+    }
+
+    @Test
+    public void place_splitsTheProfitBetweenThePlacedHorses() {
+        BetPools pools = new BetPools(4, 0);
+        HorseBet onWinner = new HorseBet(BetType.PLACE, new int[]{3}, 100);
+        HorseBet onSecond = new HorseBet(BetType.PLACE, new int[]{1}, 300);
+        HorseBet onThird = new HorseBet(BetType.PLACE, new int[]{4}, 600);
+        pools.placeBet(onWinner);
+        pools.placeBet(onSecond);
+        pools.placeBet(onThird);
+
+        BetPools.Dividends dividends = pools.settle(ORDER);
+        // Profit 600 split in two: each placed horse's backers share 300 on top of their stakes
+        assertEquals(400, dividends.payout(onWinner));
+        assertEquals(600, dividends.payout(onSecond));
+        assertEquals(0, dividends.payout(onThird)); // Third does not place
+    }
+
+    @Test
+    public void exoticBets_payOnlyTheExactOrder() {
+        BetPools pools = new BetPools(4, 0);
+        HorseBet exacta = new HorseBet(BetType.EXACTA, new int[]{3, 1}, 10);
+        HorseBet reversed = new HorseBet(BetType.EXACTA, new int[]{1, 3}, 30);
+        HorseBet trifecta = new HorseBet(BetType.TRIFECTA, new int[]{3, 1, 4}, 5);
+        pools.placeBet(exacta);
+        pools.placeBet(reversed);
+        pools.placeBet(trifecta);
+
+        BetPools.Dividends dividends = pools.settle(ORDER);
+        assertEquals(40, dividends.payout(exacta)); // The whole exacta pool
+        assertEquals(0, dividends.payout(reversed));
+        assertEquals(5, dividends.payout(trifecta)); // Alone in its pool: the stake back
+        assertEquals(2, dividends.getWinningCombinationCount());
+    }
+
+    @Test
+    public void winningBet_neverReturnsLessThanItsStake() {
+        BetPools pools = new BetPools(4, 2_000);
+        HorseBet favourite = new HorseBet(BetType.SHOW, new int[]{3}, 1_000);
+        pools.placeBet(favourite);
+        pools.placeBet(new HorseBet(BetType.SHOW, new int[]{2}, 10));
+        assertEquals(1_000, pools.settle(ORDER).payout(favourite));
+    }
+
+    @Test
+    public void busyRace_neverPaysMoreThanTheNetPool() {
+        SplittableRandom random = new SplittableRandom(17);
+        BetPools pools = new BetPools(20, 1_500);
+        pools.addHouseFloat(20_000);
+        List<HorseBet> bets = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            BetType type = BetType.values()[random.nextInt(BetType.values().length)];
+            int[] horses = new int[type.getSelections()];
+            for (int j = 0; j < horses.length; j++) {
+                horses[j] = pickNew(random, horses, j);
+            }
+            HorseBet bet = new HorseBet(type, horses, 1 + random.nextInt(500));
+            pools.placeBet(bet);
+            bets.add(bet);
+        }
+        int[] order = new int[20];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = 20 - i;
+        }
+
+        BetPools.Dividends dividends = pools.settle(order);
+        long[] paid = new long[BetType.values().length];
+        for (HorseBet bet : bets) {
+            paid[bet.getType().ordinal()] += dividends.payout(bet);
+        }
+        for (BetType type : BetType.values()) {
+            assertTrue(type + " overpaid", paid[type.ordinal()] <= pools.getPool(type).getNetPool());
+        }
+    }
+
+    private static int pickNew(SplittableRandom random, int[] horses, int count) {
+        while (true) {
+            int horse = 1 + random.nextInt(20);
+            boolean taken = false;
+            for (int i = 0; i < count; i++) {
+                taken |= horses[i] == horse;
+            }
+            if (!taken) {
+                return horse;
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.zd.horseracing.Engine;
+
+import com.zd.horseracing.Models.BetBook;
+import com.zd.horseracing.Models.HorseBet;
+import com.zd.horseracing.Models.RaceCard;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Stress test for large fields: full 20-horse races with a bet on every horse, and the cost of
+ * a tick per horse compared with the usual four-horse race.
+ */
+public class FieldSizeStressTest {
+    private static final int RACES = 20_000;
+    private static final int TIMING_RACES = 5_000;
+    private static final int TIMING_ROUNDS = 5;
+
+    @Test
+    public void twentyHorseRaces_settleEveryHorse() {
+        int runners = RaceCard.MAX_RUNNERS;
+        RaceCard card = RaceCard.standard(runners);
+        BetBook bets = new BetBook();
+        BetPools pools = new BetPools(runners, 0); // No take: the one winning bet gets the whole pool
+        for (int horse = 1; horse <= card.getRunnerCount(); horse++) {
+            HorseBet bet = new HorseBet(horse, 10);
+            bets.add(bet);
+            pools.placeBet(bet);
+        }
+
+        RaceEngine engine = new RaceEngine(card.getRunnerCount(), 0L);
+        SettlementBatch settlement = new SettlementBatch();
+        long[] wins = new long[runners];
+        int[] finishingOrder = new int[runners];
+        for (long seed = 0; seed < RACES; seed++) {
+            engine.reset(seed);
+            int winner = engine.runToFinish();
+            assertTrue(card.isRunner(winner));
+            wins[winner - 1]++;
+
+            assertEquals(10L * runners, settlement.settle(bets, engine.getFinishingOrder(finishingOrder), pools));
+            assertEquals(1, settlement.getWinningBetCount());
+            assertEquals(10L * runners, settlement.getPayout(winner - 1)); // Bets are booked by horse
+        }
+
+        for (int lane = 0; lane < runners; lane++) {
+            // Lower lanes win ties, but every horse must still win a fair share
+            assertTrue("Horse " + (lane + 1) + " won " + wins[lane] + " races",
+                    wins[lane] > RACES / runners / 4);
+        }
+    }
+
+    @Test
+    public void tickCostPerHorse_staysFlatFromFourToTwentyHorses() {
+        double perHorseFour = bestNanosPerHorseTick(4);
+        double perHorseTwenty = bestNanosPerHorseTick(RaceCard.MAX_RUNNERS);
+
+        // Linear scaling keeps the per-horse cost flat; the fixed cost of a tick only helps the larger field
+        assertTrue(String.format("%.2f ns per horse-tick at 20 horses, %.2f at 4", perHorseTwenty, perHorseFour),
+                perHorseTwenty <= perHorseFour * 2);
+    }
+
+    /**
+     * Times whole races and reports the best of several rounds, in nanoseconds per horse per tick.
+     */
+    private static double bestNanosPerHorseTick(int horses) {
+        RaceEngine engine = new RaceEngine(horses, 0L);
+        double best = Double.MAX_VALUE;
+        long seed = 0;
+        for (int round = 0; round < TIMING_ROUNDS; round++) {
+            long ticks = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < TIMING_RACES; i++) {
+                engine.reset(seed++);
+                engine.runToFinish();
+                ticks += engine.getTickCount();
+            }
+            long elapsed = System.nanoTime() - start;
+            best = Math.min(best, (double) elapsed / ticks / horses);
+        }
+        return best;
+    }
+}
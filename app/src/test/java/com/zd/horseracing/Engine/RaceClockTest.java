@@ -0,0 +1,56 @@
+package com.zd.horseracing.Engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link RaceClock} and {@link FrameTimeHistogram}.
+ */
+public class RaceClockTest {
+    private static final long TICK = 50_000_000L; // 50 ms
+    private static final long FRAME_120HZ = 8_333_333L;
+
+    @Test
+    public void advance_runsTicksAtTheLogicalRateOnAFastPanel() {
+        RaceClock clock = new RaceClock(TICK, 5);
+        long time = 0;
+        int ticks = clock.advance(time);
+        for (int frame = 0; frame < 120; frame++) { // One second at 120 Hz
+            time += FRAME_120HZ;
+            ticks += clock.advance(time);
+            assertTrue(clock.getAlpha() >= 0f && clock.getAlpha() <= 1f);
+        }
+        assertEquals(19, ticks); // 999.99 ms of frames => 19 whole ticks of 50 ms
+    }
+
+    @Test
+    public void advance_dropsBacklogBeyondTheCap() {
+        RaceClock clock = new RaceClock(TICK, 3);
+        clock.advance(0);
+        assertEquals(3, clock.advance(10 * TICK + TICK / 2));
+        assertEquals(0.5f, clock.getAlpha(), 1e-6f);
+        assertEquals(1, clock.advance(11 * TICK + TICK / 2));
+    }
+
+    @Test
+    public void histogram_countsJankyFrames() {
+        FrameTimeHistogram histogram = new FrameTimeHistogram(FRAME_120HZ);
+        long time = 0;
+        histogram.recordFrame(time);
+        for (int frame = 0; frame < 98; frame++) {
+            time += FRAME_120HZ;
+            histogram.recordFrame(time);
+        }
+        time += 2 * FRAME_120HZ; // One missed vsync
+        histogram.recordFrame(time);
+        time += 200_000_000L; // One long stall
+        histogram.recordFrame(time);
+
+        assertEquals(100, histogram.getFrameCount());
+        assertEquals(2, histogram.getJankCount());
+        assertEquals(9, histogram.getPercentileMillis(50));
+        assertEquals(100, histogram.getPercentileMillis(100));
+        assertEquals(200.0, histogram.getMaxFrameMillis(), 1e-9);
+    }
+}
@@ -0,0 +1,64 @@
+package com.zd.horseracing.Engine;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Allocation-counting test for the race tick path.  Uses the HotSpot per-thread allocation
+ * counter, so it is skipped on JVMs that do not provide it.
+ */
+public class RaceEngineAllocationTest {
+    private com.sun.management.ThreadMXBean threadBean;
+    private long threadId;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        threadId = Thread.currentThread().getId();
+    }
+
+    @Test
+    public void tick_allocatesNothingOverAFullRace() {
+        RaceEngine engine = new RaceEngine(4, 0L);
+        // Warm up so class loading and the allocation counter itself are out of the way
+        for (long seed = 0; seed < 1000; seed++) {
+            engine.reset(seed);
+            runRace(engine);
+        }
+        long first = allocatedBytes();
+        long counterOverhead = allocatedBytes() - first;
+
+        for (long seed = 1000; seed < 1100; seed++) {
+            engine.reset(seed);
+            long before = allocatedBytes();
+            int ticks = runRace(engine);
+            long allocated = allocatedBytes() - before - counterOverhead;
+
+            assertTrue(ticks > 0);
+            assertEquals("Bytes allocated over " + ticks + " ticks", 0, allocated);
+        }
+    }
+
+    private int runRace(RaceEngine engine) {
+        int ticks = 0;
+        while (engine.tick() == RaceEngine.NO_WINNER) {
+            for (int i = 0; i < engine.getHorseCount(); i++) {
+                engine.getPosition(i); // Same reads as the renderer
+            }
+            ticks++;
+        }
+        return ticks + 1;
+    }
+
+    private long allocatedBytes() {
+        return threadBean.getThreadAllocatedBytes(threadId);
+    }
+}
@@ -0,0 +1,114 @@
+package com.zd.horseracing.Engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link RaceEngine}, run headless on the JVM.
+ */
+public class RaceEngineTest {
+    @Test
+    public void sameSeed_producesSameRace() {
+        RaceEngine first = new RaceEngine(4, 42L);
+        RaceEngine second = new RaceEngine(4, 42L);
+
+        while (!first.isFinished()) {
+            assertEquals(first.tick(), second.tick());
+            for (int i = 0; i < 4; i++) {
+                assertEquals(first.getPosition(i), second.getPosition(i));
+            }
+        }
+        assertEquals(first.getTickCount(), second.getTickCount());
+    }
+
+    @Test
+    public void reset_replaysTheSameRace() {
+        RaceEngine engine = new RaceEngine(4, 7L);
+        int winner = engine.runToFinish();
+        int ticks = engine.getTickCount();
+
+        engine.reset(7L);
+        assertFalse(engine.isFinished());
+        assertEquals(0, engine.getPosition(0));
+        assertEquals(winner, engine.runToFinish());
+        assertEquals(ticks, engine.getTickCount());
+    }
+
+    @Test
+    public void winner_isAtTheFinishLine() {
+        for (long seed = 0; seed < 1000; seed++) {
+            RaceEngine engine = new RaceEngine(4, seed);
+            int winner = engine.runToFinish();
+
+            assertTrue(winner >= 1 && winner <= 4);
+            assertEquals(RaceEngine.FINISH_LINE, engine.getPosition(winner - 1));
+            // A stride is at most 2, so nobody can finish in fewer than 50 ticks
+            assertTrue(engine.getTickCount() >= RaceEngine.FINISH_LINE / (RaceEngine.STRIDE_BOUND - 1));
+        }
+    }
+
+    @Test
+    public void tick_afterFinish_doesNotMoveHorses() {
+        RaceEngine engine = new RaceEngine(4, 3L);
+        int winner = engine.runToFinish();
+        int ticks = engine.getTickCount();
+
+        assertEquals(winner, engine.tick());
+        assertEquals(ticks, engine.getTickCount());
+    }
+
+    @Test
+    public void thousandsOfRaces_everyHorseWins() {
+        int[] wins = new int[4];
+        RaceEngine engine = new RaceEngine(4, 0L);
+        for (long seed = 0; seed < 10_000; seed++) {
+            engine.reset(seed);
+            wins[engine.runToFinish() - 1]++;
+        }
+        for (int count : wins) {
+            assertTrue(count > 0);
+        }
+    }
+
+    @Test
+    public void interpolatedPosition_movesFromPreviousToLatestTick() {
+        RaceEngine engine = new RaceEngine(4, 11L);
+        for (int t = 0; t < 20; t++) {
+            engine.tick();
+        }
+        int[] before = new int[4];
+        for (int i = 0; i < 4; i++) {
+            before[i] = engine.getPosition(i);
+        }
+        engine.tick();
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(before[i], engine.getInterpolatedPosition(i, 0f), 0f);
+            assertEquals(engine.getPosition(i), engine.getInterpolatedPosition(i, 1f), 0f);
+            float halfway = engine.getInterpolatedPosition(i, 0.5f);
+            assertTrue(halfway >= before[i] && halfway <= engine.getPosition(i));
+        }
+    }
+
+    @Test
+    public void finishingOrder_startsWithTheWinnerAndRanksEveryHorse() {
+        RaceEngine engine = new RaceEngine(20, 0L);
+        int[] order = new int[20];
+        for (long seed = 0; seed < 1_000; seed++) {
+            engine.reset(seed);
+            int winner = engine.runToFinish();
+            engine.getFinishingOrder(order);
+
+            assertEquals(winner, order[0]);
+            boolean[] seen = new boolean[20];
+            for (int i = 0; i < order.length; i++) {
+                assertFalse(seen[order[i] - 1]);
+                seen[order[i] - 1] = true;
+                if (i > 0) {
+                    assertTrue(engine.getPosition(order[i - 1] - 1) >= engine.getPosition(order[i] - 1));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.zd.horseracing.Engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link RaceSession}.
+ */
+public class RaceSessionTest {
+    private static final long BETTING = 20_000;
+    private static final long COUNTDOWN = 3_000;
+    private static final long SETTLEMENT = 8_000;
+
+    @Test
+    public void rounds_followEachOtherOnTheTimetable() {
+        RaceSession session = new RaceSession(BETTING, COUNTDOWN, SETTLEMENT);
+        assertFalse(session.isRunning());
+
+        session.start(1_000);
+        assertEquals(RaceSession.Phase.BETTING, session.getPhase());
+        assertEquals(1, session.getRound());
+        assertFalse(session.update(20_999)); // Betting window still open
+        assertEquals(1_000, session.getRemainingMs(20_000));
+
+        assertTrue(session.update(21_000));
+        assertEquals(RaceSession.Phase.COUNTDOWN, session.getPhase());
+        assertTrue(session.update(24_000));
+        assertEquals(RaceSession.Phase.RACING, session.getPhase());
+        assertEquals(RaceSession.NO_DEADLINE, session.getPhaseEndMs());
+        assertFalse(session.update(1_000_000)); // A race only ends when it is finished
+
+        assertTrue(session.raceFinished(40_000));
+        assertEquals(RaceSession.Phase.SETTLEMENT, session.getPhase());
+        assertTrue(session.update(48_000));
+        assertEquals(RaceSession.Phase.BETTING, session.getPhase());
+        assertEquals(2, session.getRound());
+        assertEquals(68_000, session.getPhaseEndMs());
+    }
+
+    @Test
+    public void lateWakeUps_doNotDelayLaterPhases() {
+        RaceSession session = new RaceSession(BETTING, COUNTDOWN, SETTLEMENT);
+        session.start(0);
+        assertTrue(session.update(20_500)); // Timer fired 500 ms late
+        assertEquals(23_000, session.getPhaseEndMs()); // Countdown still ends on schedule
+    }
+
+    @Test
+    public void update_movesOnePhaseAtATime() {
+        RaceSession session = new RaceSession(BETTING, COUNTDOWN, SETTLEMENT);
+        session.start(0);
+        assertTrue(session.update(100_000)); // Long stall
+        assertEquals(RaceSession.Phase.COUNTDOWN, session.getPhase());
+        assertTrue(session.update(100_000));
+        assertEquals(RaceSession.Phase.RACING, session.getPhase());
+    }
+
+    @Test
+    public void raceFinished_isIgnoredOutsideARace() {
+        RaceSession session = new RaceSession(BETTING, COUNTDOWN, SETTLEMENT);
+        assertFalse(session.raceFinished(0));
+        session.start(0);
+        assertFalse(session.raceFinished(10));
+        assertEquals(RaceSession.Phase.BETTING, session.getPhase());
+    }
+
+    @Test
+    public void stop_returnsToIdle() {
+        RaceSession session = new RaceSession(BETTING, COUNTDOWN, SETTLEMENT);
+        session.start(0);
+        session.stop();
+        assertFalse(session.isRunning());
+        assertEquals(RaceSession.Phase.IDLE, session.getPhase());
+        assertFalse(session.update(Long.MAX_VALUE - 1));
+    }
+
+    @Test
+    public void zeroCountdown_isAllowed() {
+        RaceSession session = new RaceSession(BETTING, 0, SETTLEMENT);
+        session.start(0);
+        session.update(BETTING);
+        assertTrue(session.update(BETTING));
+        assertEquals(RaceSession.Phase.RACING, session.getPhase());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyBettingWindow_isRejected() {
+        new RaceSession(0, COUNTDOWN, SETTLEMENT);
+    }
+}
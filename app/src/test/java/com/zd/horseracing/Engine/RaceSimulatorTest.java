@@ -0,0 +1,52 @@
+package com.zd.horseracing.Engine;
+
+import com.zd.horseracing.Models.HorseBet;
+
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link RaceSimulator}.
+ */
+public class RaceSimulatorTest {
+    @Test
+    public void simulate_countsEveryRace() {
+        SimulationResult result = new RaceSimulator(4, HorseBet.WIN_PAYOUT_MULTIPLIER)
+                .simulate(100_000, 1L);
+
+        long totalWins = 0;
+        double totalProbability = 0;
+        for (int horse = 1; horse <= 4; horse++) {
+            totalWins += result.getWins(horse);
+            totalProbability += result.getWinProbability(horse);
+        }
+        assertEquals(100_000, totalWins);
+        assertEquals(1.0, totalProbability, 1e-9);
+        assertTrue(result.getMeanRaceTicks() >= 50);
+    }
+
+    @Test
+    public void simulate_isIndependentOfThreadCount() {
+        SimulationResult single = new RaceSimulator(4, 2, new ForkJoinPool(1)).simulate(200_000, 9L);
+        SimulationResult parallel = new RaceSimulator(4, 2, new ForkJoinPool(4)).simulate(200_000, 9L);
+
+        for (int horse = 1; horse <= 4; horse++) {
+            assertEquals(single.getWins(horse), parallel.getWins(horse));
+        }
+        assertEquals(single.getMeanRaceTicks(), parallel.getMeanRaceTicks(), 0);
+    }
+
+    @Test
+    public void expectedReturn_matchesPayoutRule() {
+        SimulationResult result = new RaceSimulator(4, 2).simulate(200_000, 5L);
+
+        for (int horse = 1; horse <= 4; horse++) {
+            assertEquals(result.getWinProbability(horse) * 2 - 1, result.getExpectedReturn(horse), 1e-12);
+            // Four evenly matched horses paying 2x: every bet loses about half its stake
+            assertEquals(-0.5, result.getExpectedReturn(horse), 0.05);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.zd.horseracing.Engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ReplayPlayer} and {@link RaceReplay}, run headless on the JVM.
+ */
+public class ReplayPlayerTest {
+    private static final long TICK_NANOS = RaceEngine.TICK_INTERVAL_MS * 1_000_000L;
+
+    @Test
+    public void replay_reproducesTheRace() {
+        RaceEngine race = new RaceEngine(6, 1234L);
+        race.runToFinish();
+        RaceReplay replay = RaceReplay.of(race, 0L);
+
+        ReplayPlayer player = new ReplayPlayer(6, 10);
+        player.load(replay);
+        long frame = 0;
+        while (player.advance(frame)) {
+            frame += TICK_NANOS;
+        }
+
+        assertTrue(player.isFinished());
+        assertEquals(race.getTickCount(), player.getTick());
+        assertEquals(replay.getWinner(), player.getEngine().getWinner());
+        for (int i = 0; i < 6; i++) {
+            assertEquals(race.getPosition(i), player.getEngine().getPosition(i));
+        }
+    }
+
+    @Test
+    public void seek_matchesPlayingStraightThrough() {
+        RaceEngine race = new RaceEngine(4, 99L);
+        race.runToFinish();
+        ReplayPlayer player = new ReplayPlayer(4, 10);
+        player.load(RaceReplay.of(race, 0L));
+
+        int middle = race.getTickCount() / 2;
+        RaceEngine straight = new RaceEngine(4, 99L);
+        for (int i = 0; i < middle; i++) {
+            straight.tick();
+        }
+
+        player.seek(race.getTickCount()); // Forward to the end, then back
+        player.seek(middle);
+        assertEquals(middle, player.getTick());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(straight.getPosition(i), player.getEngine().getPosition(i));
+        }
+
+        player.seek(Integer.MAX_VALUE);
+        assertEquals(race.getTickCount(), player.getTick());
+        assertEquals(1f, player.getAlpha(), 0f);
+        player.seek(-5);
+        assertEquals(0, player.getTick());
+    }
+
+    @Test
+    public void fastForward_playsMoreTicksPerFrame() {
+        RaceEngine race = new RaceEngine(4, 5L);
+        race.runToFinish();
+        ReplayPlayer player = new ReplayPlayer(4, 10);
+        assertEquals(2, player.cycleSpeed());
+        assertEquals(4, player.cycleSpeed());
+        player.load(RaceReplay.of(race, 0L));
+
+        player.advance(0L); // First frame only starts the clock
+        player.advance(TICK_NANOS);
+        assertEquals(4, player.getTick());
+
+        assertEquals(8, player.cycleSpeed());
+        assertEquals(ReplayPlayer.MAX_SPEED, player.cycleSpeed());
+        assertEquals(1, player.cycleSpeed());
+    }
+
+    @Test
+    public void unfinishedRace_cannotBeRecorded() {
+        RaceEngine race = new RaceEngine(4, 5L);
+        race.tick();
+        assertThrows(IllegalStateException.class, () -> RaceReplay.of(race, 0L));
+    }
+
+    @Test
+    public void otherFieldSize_isRejected() {
+        RaceEngine race = new RaceEngine(8, 5L);
+        race.runToFinish();
+        ReplayPlayer player = new ReplayPlayer(4, 10);
+        assertThrows(IllegalArgumentException.class, () -> player.load(RaceReplay.of(race, 0L)));
+    }
+}
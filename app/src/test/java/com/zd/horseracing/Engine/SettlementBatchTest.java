@@ -0,0 +1,126 @@
+package com.zd.horseracing.Engine;
+
+import com.zd.horseracing.Models.BetBook;
+import com.zd.horseracing.Models.BetType;
+import com.zd.horseracing.Models.HorseBet;
+import com.zd.horseracing.Models.Money;
+
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link SettlementBatch}, checked against a per-bet settlement through
+ * {@link BetPools.Dividends}.
+ */
+public class SettlementBatchTest {
+    private static final int HORSES = 6;
+    private static final int[] ORDER = {5, 2, 6, 1, 3, 4};
+
+    /**
+     * Fills a book and its pools with random bets of every type.
+     */
+    private static BetPools randomBets(BetBook book, int count, long seed) {
+        BetPools pools = new BetPools(HORSES, 1500);
+        pools.addHouseFloat(10_000);
+        SplittableRandom random = new SplittableRandom(seed);
+        BetType[] types = BetType.values();
+        for (int i = 0; i < count; i++) {
+            BetType type = types[random.nextInt(types.length)];
+            int[] horses = new int[type.getSelections()];
+            for (int s = 0; s < horses.length; s++) {
+                int horse;
+                boolean picked;
+                do {
+                    horse = random.nextInt(HORSES) + 1;
+                    picked = false;
+                    for (int p = 0; p < s; p++) {
+                        picked |= horses[p] == horse;
+                    }
+                } while (picked);
+                horses[s] = horse;
+            }
+            HorseBet bet = new HorseBet(type, horses, random.nextInt(1, 500));
+            pools.placeBet(bet);
+            book.add(bet);
+        }
+        return pools;
+    }
+
+    @Test
+    public void batch_matchesPerBetSettlement() {
+        for (long seed = 0; seed < 20; seed++) {
+            BetBook book = new BetBook();
+            BetPools pools = randomBets(book, 500, seed);
+            // One dividend lookup per bet, the result lines built bet by bet
+            BetPools.Dividends dividends = pools.settle(ORDER);
+            long expected = 0;
+            int winners = 0;
+            long[] payouts = new long[book.size()];
+            StringBuilder expectedText = new StringBuilder();
+            for (int i = 0; i < book.size(); i++) {
+                payouts[i] = dividends.payout(book.getType(i), book.getCombinationKey(i), book.getAmount(i));
+                book.appendLabel(i, expectedText);
+                if (payouts[i] > 0) {
+                    expected += payouts[i];
+                    winners++;
+                    Money.appendSigned(expectedText.append(" won! "), payouts[i]).append('\n');
+                } else {
+                    expectedText.append(" lost\n");
+                }
+            }
+
+            SettlementBatch batch = new SettlementBatch();
+            assertEquals(expected, batch.settle(book, ORDER, pools));
+            assertEquals(expected, batch.getTotalWinnings());
+            assertEquals(book.size(), batch.size());
+            assertEquals(expectedText.toString(), batch.appendLines(0, batch.size(), new StringBuilder()).toString());
+            for (int i = 0; i < book.size(); i++) {
+                assertEquals(payouts[i], batch.getPayout(i));
+            }
+            assertEquals(winners, batch.getWinningBetCount());
+        }
+    }
+
+    @Test
+    public void lines_areAFormattedSnapshot() {
+        BetBook book = new BetBook();
+        BetPools pools = new BetPools(HORSES, 0);
+        HorseBet winner = new HorseBet(BetType.EXACTA, new int[]{5, 2}, 100);
+        HorseBet loser = new HorseBet(4, 50);
+        pools.placeBet(winner);
+        pools.placeBet(loser);
+        book.add(loser);
+        book.add(winner);
+
+        SettlementBatch batch = new SettlementBatch();
+        batch.settle(book, ORDER, pools);
+        book.clear(); // The batch keeps its own copy
+
+        assertEquals("Horse 4 lost", batch.appendLine(0, new StringBuilder()).toString());
+        assertEquals("Exacta 5-2 won! +100đ", batch.appendLine(1, new StringBuilder()).toString());
+        assertThrows(IndexOutOfBoundsException.class, () -> batch.appendLine(2, new StringBuilder()));
+    }
+
+    @Test
+    public void reuse_forgetsThePreviousRace() {
+        SettlementBatch batch = new SettlementBatch();
+        BetBook big = new BetBook();
+        batch.settle(big, ORDER, randomBets(big, 1000, 1));
+
+        BetBook small = new BetBook();
+        BetPools pools = new BetPools(HORSES, 0);
+        HorseBet loser = new HorseBet(1, 10);
+        pools.placeBet(loser);
+        small.add(loser);
+        assertEquals(0, batch.settle(small, ORDER, pools));
+        assertEquals(1, batch.size());
+        assertEquals(0, batch.getWinningBetCount());
+
+        BetBook none = new BetBook();
+        assertEquals(0, batch.settle(none, ORDER, new BetPools(HORSES, 0)));
+        assertEquals(0, batch.size());
+    }
+}
@@ -0,0 +1,132 @@
+package com.zd.horseracing.Engine;
+
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link TotePool}, including a busy shared pool of a million bets.
+ */
+public class TotePoolTest {
+    private static final int MILLION = 1_000_000;
+
+    @Test
+    public void odds_followThePoolsAndTheTake() {
+        TotePool pool = new TotePool(4, 1_500); // 15% take
+        pool.placeBet(1, 600);
+        pool.placeBet(2, 300);
+        pool.placeBet(3, 100);
+        assertEquals(1_000, pool.getTotal());
+        assertEquals(850, pool.getNetPool());
+        assertEquals(850.0 / 600, pool.getOdds(1), 1e-9);
+        assertEquals(8.5, pool.getOdds(3), 1e-9);
+        assertEquals(0, pool.getOdds(4), 0); // Nothing staked yet
+
+        pool.placeBet(3, 100); // The odds move with every bet
+        assertEquals(935.0 / 200, pool.getOdds(3), 1e-9);
+    }
+
+    @Test
+    public void payouts_shareTheNetPool_breakageStaysWithTheHouse() {
+        TotePool pool = new TotePool(3, 1_000);
+        pool.placeBet(1, 7);
+        pool.placeBet(1, 13);
+        pool.placeBet(2, 50);
+        pool.placeBet(3, 33);
+        long net = pool.getNetPool(); // 103 - 10 = 93
+
+        long paid = pool.payout(1, 7) + pool.payout(1, 13);
+        assertEquals(93, net);
+        assertEquals(7 * 93 / 20, pool.payout(1, 7));
+        assertTrue(paid <= net);
+        assertTrue(net - paid < 2); // At most one unit lost per winning stake
+    }
+
+    @Test
+    public void payout_fromAnEmptyWinningPool_isZero() {
+        TotePool pool = new TotePool(2, 0);
+        pool.placeBet(1, 100);
+        assertEquals(0, pool.payout(2, 100));
+    }
+
+    @Test
+    public void payout_survivesProductsBeyond64Bits() {
+        TotePool pool = new TotePool(2, 0);
+        long huge = Long.MAX_VALUE / 4;
+        pool.placeBet(1, huge);
+        pool.placeBet(2, huge);
+        assertEquals(2 * huge, pool.payout(1, huge)); // huge * 2huge / huge
+    }
+
+    @Test
+    public void cancelBet_andClear_restoreThePools() {
+        TotePool pool = new TotePool(2, 500);
+        pool.placeBet(1, 100);
+        pool.placeBet(2, 50);
+        pool.cancelBet(2, 50);
+        assertEquals(0, pool.getPool(2));
+        assertEquals(100, pool.getTotal());
+        assertEquals(1, pool.getBetCount());
+        pool.clear();
+        assertEquals(0, pool.getTotal());
+        assertEquals(0, pool.getPool(1));
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void overflowingTotal_isRejected() {
+        TotePool pool = new TotePool(2, 0);
+        pool.placeBet(1, Long.MAX_VALUE);
+        pool.placeBet(2, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void takeAboveTheWholePool_isRejected() {
+        new TotePool(4, TotePool.BASIS_POINTS + 1);
+    }
+
+    @Test
+    public void millionBets_withLiveOdds_inUnderASecond() {
+        int horses = 20;
+        int[] horseOf = new int[MILLION];
+        long[] stakes = new long[MILLION];
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < MILLION; i++) {
+            horseOf[i] = 1 + random.nextInt(horses);
+            stakes[i] = 1 + random.nextInt(10_000);
+        }
+        TotePool pool = new TotePool(horses, 1_500);
+        runMillion(pool, horseOf, stakes); // Warm up
+        pool.clear();
+
+        long start = System.nanoTime();
+        double oddsSum = runMillion(pool, horseOf, stakes);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue("1M bets took " + elapsedMillis + " ms", elapsedMillis < 1_000);
+        assertTrue(oddsSum > 0);
+        assertEquals(MILLION, pool.getBetCount());
+        long expectedTotal = 0;
+        for (long stake : stakes) {
+            expectedTotal += stake;
+        }
+        assertEquals(expectedTotal, pool.getTotal());
+
+        // Every winner's share together never exceeds the net pool
+        long winningPool = pool.getPool(7);
+        assertTrue(pool.payout(7, winningPool) <= pool.getNetPool());
+    }
+
+    /**
+     * Places every bet and reads the live odds of the backed horse after each one.
+     */
+    private static double runMillion(TotePool pool, int[] horseOf, long[] stakes) {
+        double oddsSum = 0;
+        for (int i = 0; i < horseOf.length; i++) {
+            pool.placeBet(horseOf[i], stakes[i]);
+            oddsSum += pool.getOdds(horseOf[i]);
+        }
+        return oddsSum;
+    }
+}
@@ -0,0 +1,90 @@
+package com.zd.horseracing.Models;
+
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link BetBook}: running totals under adds and removes, checked against
+ * a recount of the bets.
+ */
+public class BetBookTest {
+    @Test
+    public void totals_followEveryAddAndRemove() {
+        BetBook book = new BetBook();
+        book.add(new HorseBet(2, 100));
+        int exacta = book.add(new HorseBet(BetType.EXACTA, new int[]{2, 4}, 30));
+        book.add(new HorseBet(BetType.SHOW, new int[]{1}, 5));
+
+        assertEquals(135, book.getTotal());
+        assertEquals(130, book.getHorseStake(2));
+        assertEquals(30, book.getHorseStake(4));
+        assertEquals(30, book.getTypeStake(BetType.EXACTA));
+
+        book.remove(exacta);
+        assertEquals(2, book.size());
+        assertEquals(105, book.getTotal());
+        assertEquals(0, book.getHorseStake(4));
+        assertEquals(BetType.SHOW, book.getType(exacta)); // The last bet took its slot
+    }
+
+    @Test
+    public void bets_roundTripThroughTheirCombinationKey() {
+        BetBook book = new BetBook();
+        book.add(new HorseBet(BetType.TRIFECTA, new int[]{20, 1, 7}, 9));
+        HorseBet bet = book.getBet(0);
+        assertArrayEquals(new int[]{20, 1, 7}, bet.getHorses());
+        assertEquals(9, bet.getBetAmount());
+        assertEquals("Trifecta 20-1-7", book.appendLabel(0, new StringBuilder()).toString());
+        assertEquals(bet.appendLabel(new StringBuilder()).toString(), book.appendLabel(0, new StringBuilder()).toString());
+    }
+
+    @Test
+    public void removeAll_removesOnlyThatType() {
+        BetBook book = new BetBook();
+        for (int i = 0; i < 50; i++) {
+            book.add(new HorseBet(i % 2 == 0 ? BetType.WIN : BetType.PLACE, new int[]{i % 4 + 1}, 1 + i));
+        }
+        assertEquals(25, book.removeAll(BetType.WIN));
+        assertEquals(25, book.size());
+        for (int i = 0; i < book.size(); i++) {
+            assertEquals(BetType.PLACE, book.getType(i));
+        }
+        assertEquals(0, book.getTypeStake(BetType.WIN));
+    }
+
+    @Test
+    public void randomAddsAndRemoves_keepTheTotalsOfARecount() {
+        SplittableRandom random = new SplittableRandom(18);
+        BetBook book = new BetBook();
+        for (int step = 0; step < 100_000; step++) {
+            if (book.isEmpty() || random.nextInt(3) > 0) {
+                book.add(BetType.WIN, 1 + random.nextInt(RaceCard.MAX_RUNNERS), 1 + random.nextInt(1_000));
+            } else {
+                book.remove(random.nextInt(book.size()));
+            }
+        }
+
+        long total = 0;
+        long[] horseStakes = new long[RaceCard.MAX_RUNNERS + 1];
+        for (int i = 0; i < book.size(); i++) {
+            total += book.getAmount(i);
+            horseStakes[book.getCombinationKey(i)] += book.getAmount(i);
+        }
+        assertEquals(total, book.getTotal());
+        assertEquals(total, book.getTypeStake(BetType.WIN));
+        for (int horse = 1; horse <= RaceCard.MAX_RUNNERS; horse++) {
+            assertEquals(horseStakes[horse], book.getHorseStake(horse));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void removedSlot_isNoLongerReadable() {
+        BetBook book = new BetBook();
+        book.add(new HorseBet(1, 10));
+        book.remove(0);
+        book.getAmount(0);
+    }
+}
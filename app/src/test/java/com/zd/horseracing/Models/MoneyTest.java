@@ -0,0 +1,127 @@
+package com.zd.horseracing.Models;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+/**
+ * Property-based tests for {@link Money} and the amounts it guards: random operands, biased
+ * towards the long boundaries, are checked against exact {@link BigInteger} arithmetic.
+ */
+public class MoneyTest {
+    private static final int SAMPLES = 200_000;
+    private static final BigInteger MIN = BigInteger.valueOf(Long.MIN_VALUE);
+    private static final BigInteger MAX = BigInteger.valueOf(Long.MAX_VALUE);
+
+    @Test
+    public void add_isExactOrThrows() {
+        SplittableRandom random = new SplittableRandom(19);
+        for (int i = 0; i < SAMPLES; i++) {
+            long a = boundaryBiased(random);
+            long b = boundaryBiased(random);
+            BigInteger exact = BigInteger.valueOf(a).add(BigInteger.valueOf(b));
+            assertExactOrOverflow(exact, () -> Money.add(a, b));
+        }
+    }
+
+    @Test
+    public void subtract_isExactOrThrows() {
+        SplittableRandom random = new SplittableRandom(20);
+        for (int i = 0; i < SAMPLES; i++) {
+            long a = boundaryBiased(random);
+            long b = boundaryBiased(random);
+            BigInteger exact = BigInteger.valueOf(a).subtract(BigInteger.valueOf(b));
+            assertExactOrOverflow(exact, () -> Money.subtract(a, b));
+        }
+    }
+
+    @Test
+    public void multiply_isExactOrThrows() {
+        SplittableRandom random = new SplittableRandom(21);
+        for (int i = 0; i < SAMPLES; i++) {
+            long amount = boundaryBiased(random);
+            long factor = random.nextInt(4) == 0 ? boundaryBiased(random) : random.nextInt(-10, 11);
+            BigInteger exact = BigInteger.valueOf(amount).multiply(BigInteger.valueOf(factor));
+            assertExactOrOverflow(exact, () -> Money.multiply(amount, factor));
+        }
+    }
+
+    @Test
+    public void boundaries() {
+        assertEquals(Long.MAX_VALUE, Money.add(Long.MAX_VALUE - 1, 1));
+        assertEquals(Long.MIN_VALUE, Money.subtract(Long.MIN_VALUE + 1, 1));
+        assertEquals(Long.MAX_VALUE - 1, Money.multiply(Long.MAX_VALUE / 2, 2));
+        assertThrows(ArithmeticException.class, () -> Money.add(Long.MAX_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> Money.subtract(Long.MIN_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> Money.multiply(Long.MAX_VALUE / 2 + 1, 2));
+        assertThrows(IllegalArgumentException.class, () -> Money.requirePositive(0));
+        assertEquals("+250đ", Money.appendSigned(new StringBuilder(), 250).toString());
+        assertEquals("-40đ", Money.appendSigned(new StringBuilder(), -40).toString());
+    }
+
+    @Test
+    public void betBook_totalNeverWrapsAndAFailedAddChangesNothing() {
+        SplittableRandom random = new SplittableRandom(22);
+        for (int round = 0; round < 1_000; round++) {
+            BetBook book = new BetBook();
+            BigInteger exact = BigInteger.ZERO;
+            for (int i = 0; i < 8; i++) {
+                long amount = 1 + (random.nextBoolean() ? random.nextLong(Long.MAX_VALUE / 4) : random.nextLong(1_000));
+                BigInteger next = exact.add(BigInteger.valueOf(amount));
+                if (next.compareTo(MAX) > 0) {
+                    int size = book.size();
+                    assertThrows(ArithmeticException.class, () -> book.add(BetType.WIN, 1, amount));
+                    assertEquals(size, book.size());
+                } else {
+                    book.add(BetType.WIN, 1 + i % 4, amount);
+                    exact = next;
+                }
+                assertEquals(exact.longValueExact(), book.getTotal());
+            }
+        }
+    }
+
+    @Test
+    public void horseBet_holdsAmountsPastAnInt() {
+        HorseBet bet = new HorseBet(1, 3_000_000_000L);
+        assertEquals(3_000_000_000L, bet.getBetAmount());
+        assertThrows(IllegalArgumentException.class, () -> new HorseBet(1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new HorseBet(1, -5));
+    }
+
+    private interface Operation {
+        long apply();
+    }
+
+    private static void assertExactOrOverflow(BigInteger exact, Operation operation) {
+        if (exact.compareTo(MIN) < 0 || exact.compareTo(MAX) > 0) {
+            try {
+                long wrapped = operation.apply();
+                fail("Expected an overflow, got " + wrapped + " for " + exact);
+            } catch (ArithmeticException expected) {
+                // Overflow reported
+            }
+        } else {
+            assertEquals(exact.longValueExact(), operation.apply());
+        }
+    }
+
+    /**
+     * Draws a long, half the time within a small distance of 0, Long.MIN_VALUE or Long.MAX_VALUE.
+     */
+    private static long boundaryBiased(SplittableRandom random) {
+        switch (random.nextInt(6)) {
+            case 0:
+                return Long.MAX_VALUE - random.nextInt(1_000);
+            case 1:
+                return Long.MIN_VALUE + random.nextInt(1_000);
+            case 2:
+                return random.nextInt(-1_000, 1_000);
+            default:
+                return random.nextLong();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.zd.horseracing.Models;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link RaceCard}.
+ */
+public class RaceCardTest {
+
+    @Test
+    public void standard_cyclesThroughTheSprites() {
+        RaceCard card = RaceCard.standard(RaceCard.MAX_RUNNERS);
+        assertEquals(20, card.getRunnerCount());
+        assertEquals("horse1_animation", card.getAnimations()[0]);
+        assertEquals("horse1_animation", card.getAnimations()[4]);
+        assertEquals("horse4_animation", card.getAnimations()[19]);
+        assertEquals("horse_bend_01", card.getIdleFrames()[19]);
+    }
+
+    @Test
+    public void isRunner_coversHorsesOneToN() {
+        RaceCard card = RaceCard.standard(6);
+        assertFalse(card.isRunner(0));
+        assertTrue(card.isRunner(1));
+        assertTrue(card.isRunner(6));
+        assertFalse(card.isRunner(7));
+    }
+
+    @Test
+    public void getters_returnCopies() {
+        RaceCard card = RaceCard.standard(4);
+        card.getAnimations()[0] = "changed";
+        assertEquals("horse1_animation", card.getAnimations()[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void oneHorse_isRejected() {
+        RaceCard.standard(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooManyHorses_areRejected() {
+        RaceCard.standard(RaceCard.MAX_RUNNERS + 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mismatchedSprites_areRejected() {
+        new RaceCard(new String[]{"a", "b"}, new String[]{"a"});
+    }
+}
@@ -0,0 +1,140 @@
+package com.zd.horseracing.Models;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link Wallet}, including multi-threaded stress tests of its atomicity.
+ */
+public class WalletTest {
+    private static final int THREADS = 8;
+
+    @Test
+    public void debit_onlyWhenCovered() {
+        Wallet wallet = new Wallet(100);
+        assertTrue(wallet.tryDebit(60));
+        assertFalse(wallet.tryDebit(41));
+        assertEquals(40, wallet.getBalance());
+        assertTrue(wallet.tryDebit(40));
+        assertTrue(wallet.tryDebit(0));
+        assertEquals(0, wallet.getBalance());
+        assertEquals(25, wallet.credit(25));
+        assertThrows(IllegalArgumentException.class, () -> wallet.tryDebit(-1));
+        assertThrows(IllegalArgumentException.class, () -> wallet.credit(-1));
+        assertThrows(IllegalArgumentException.class, () -> new Wallet(-1));
+    }
+
+    @Test
+    public void overflowingCredit_leavesTheBalance() {
+        Wallet wallet = new Wallet(Long.MAX_VALUE - 1);
+        assertThrows(ArithmeticException.class, () -> wallet.credit(2));
+        assertEquals(Long.MAX_VALUE - 1, wallet.getBalance());
+    }
+
+    @Test
+    public void racingDebits_neverOverdraw() throws Exception {
+        for (int trial = 0; trial < 20; trial++) {
+            Wallet wallet = new Wallet(10_000);
+            long[] taken = runOnThreads(THREADS, thread -> {
+                long count = 0;
+                for (int i = 0; i < 10_000; i++) {
+                    if (wallet.tryDebit(3)) {
+                        count++;
+                    }
+                }
+                return count;
+            });
+            long debits = 0;
+            for (long count : taken) {
+                debits += count;
+            }
+            assertEquals(10_000 / 3, debits); // Exactly as many as the balance covers
+            assertEquals(10_000 % 3, wallet.getBalance());
+        }
+    }
+
+    @Test
+    public void mixedDebitsAndCredits_loseNoUpdate() throws Exception {
+        long initial = 1_000;
+        Wallet wallet = new Wallet(initial);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicBoolean wentNegative = new AtomicBoolean();
+        Thread observer = new Thread(() -> {
+            while (running.get()) {
+                if (wallet.getBalance() < 0) {
+                    wentNegative.set(true);
+                }
+            }
+        });
+        observer.start();
+
+        int operations = 1_000_000;
+        long[] net;
+        try {
+            net = runOnThreads(THREADS, thread -> {
+                SplittableRandom random = new SplittableRandom(thread);
+                long change = 0;
+                for (int i = 0; i < operations / THREADS; i++) {
+                    long amount = random.nextInt(1, 50);
+                    if (random.nextBoolean()) {
+                        wallet.credit(amount);
+                        change += amount;
+                    } else if (wallet.tryDebit(amount)) {
+                        change -= amount;
+                    }
+                }
+                return change;
+            });
+        } finally {
+            running.set(false);
+            observer.join();
+        }
+        long expected = initial;
+        for (long change : net) {
+            expected += change;
+        }
+        assertEquals(expected, wallet.getBalance());
+        assertFalse(wentNegative.get());
+    }
+
+    private interface ThreadTask {
+        long run(int thread) throws Exception;
+    }
+
+    /**
+     * Runs a task on every thread, all released together.
+     */
+    private static long[] runOnThreads(int threads, ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit((Callable<Long>) () -> {
+                    start.await();
+                    return task.run(thread);
+                }));
+            }
+            start.countDown();
+            long[] results = new long[threads];
+            for (int t = 0; t < threads; t++) {
+                results[t] = futures.get(t).get();
+            }
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
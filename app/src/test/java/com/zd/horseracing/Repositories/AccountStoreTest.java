@@ -0,0 +1,136 @@
+package com.zd.horseracing.Repositories;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link AccountStore}, using real files in a temporary folder.
+ */
+public class AccountStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void lookups_ignoreCaseAndWhitespace() throws IOException {
+        try (AccountStore store = new AccountStore(folder.newFolder("accounts"))) {
+            assertTrue(store.add(" Alice@Example.com ", "secret"));
+            assertTrue(store.contains("alice@example.com"));
+            assertEquals("secret", store.getCredential("ALICE@EXAMPLE.COM"));
+            assertFalse(store.add("alice@example.com", "other")); // Already registered
+            assertEquals("secret", store.getCredential("alice@example.com"));
+            assertNull(store.getCredential("bob@example.com"));
+        }
+    }
+
+    @Test
+    public void reopen_restoresEveryAccount_latestCredentialWins() throws IOException {
+        File directory = folder.newFolder("accounts");
+        try (AccountStore store = new AccountStore(directory)) {
+            store.add("alice@example.com", "one");
+            store.add("bob@example.com", "two");
+            store.put("alice@example.com", "three");
+        }
+
+        try (AccountStore store = new AccountStore(directory)) {
+            assertEquals(2, store.size());
+            assertEquals("three", store.getCredential("alice@example.com"));
+            assertEquals("two", store.getCredential("bob@example.com"));
+        }
+    }
+
+    @Test
+    public void tornRecord_isCutOff() throws IOException {
+        File directory = folder.newFolder("accounts");
+        try (AccountStore store = new AccountStore(directory)) {
+            store.add("alice@example.com", "one");
+            store.add("bob@example.com", "two");
+        }
+        File file = new File(directory, AccountStore.FILE_NAME);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 3); // Crash in the middle of the second record
+        }
+
+        try (AccountStore store = new AccountStore(directory)) {
+            assertTrue(store.contains("alice@example.com"));
+            assertFalse(store.contains("bob@example.com"));
+            store.add("carol@example.com", "three"); // Written after the last good record
+        }
+        try (AccountStore store = new AccountStore(directory)) {
+            assertEquals(2, store.size());
+            assertEquals("three", store.getCredential("carol@example.com"));
+        }
+    }
+
+    @Test
+    public void hundredThousandAccounts_registerAndReopen() throws IOException {
+        File directory = folder.newFolder("accounts");
+        int count = 100_000;
+        try (AccountStore store = new AccountStore(directory)) {
+            for (int i = 0; i < count; i++) {
+                assertTrue(store.add("player" + i + "@example.com", "secret" + i));
+            }
+        }
+
+        try (AccountStore store = new AccountStore(directory)) {
+            assertEquals(count, store.size());
+            assertEquals("secret0", store.getCredential("player0@example.com"));
+            assertEquals("secret99999", store.getCredential("Player99999@example.com"));
+        }
+    }
+
+    @Test
+    public void compact_removesReplacedCredentialsFromTheFile() throws IOException {
+        File directory = folder.newFolder("accounts");
+        String plainText = "hunter2-plain-text";
+        try (AccountStore store = new AccountStore(directory)) {
+            store.add("alice@example.com", plainText); // As copied in by an older version
+            store.add("bob@example.com", "two");
+            store.put("alice@example.com", "pbkdf2$hashed");
+            assertTrue(contains(readStoreFile(directory), plainText)); // Still on disk until compacted
+
+            store.compact();
+            assertFalse(contains(readStoreFile(directory), plainText));
+            assertFalse(new File(directory, AccountStore.FILE_NAME + ".tmp").exists());
+
+            store.add("carol@example.com", "three"); // Appends to the compacted file
+        }
+
+        assertFalse(contains(readStoreFile(directory), plainText));
+        try (AccountStore store = new AccountStore(directory)) {
+            assertEquals(3, store.size());
+            assertEquals("pbkdf2$hashed", store.getCredential("alice@example.com"));
+            assertEquals("two", store.getCredential("bob@example.com"));
+            assertEquals("three", store.getCredential("carol@example.com"));
+        }
+    }
+
+    private static byte[] readStoreFile(File directory) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(new File(directory, AccountStore.FILE_NAME), "r")) {
+            byte[] bytes = new byte[(int) raf.length()];
+            raf.readFully(bytes);
+            return bytes;
+        }
+    }
+
+    private static boolean contains(byte[] haystack, String needle) {
+        byte[] pattern = needle.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i + pattern.length <= haystack.length; i++) {
+            int j = 0;
+            while (j < pattern.length && haystack[i + j] == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
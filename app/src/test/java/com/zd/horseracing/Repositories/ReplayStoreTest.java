@@ -0,0 +1,99 @@
+package com.zd.horseracing.Repositories;
+
+import com.zd.horseracing.Engine.RaceReplay;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ReplayStore}, using real files in a temporary folder.
+ */
+public class ReplayStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static RaceReplay replay(int n) {
+        return new RaceReplay(1000L + n, 4, 100 + n, 1 + n % 4, 5000L * n);
+    }
+
+    private static void assertReplay(int n, RaceReplay actual) {
+        RaceReplay expected = replay(n);
+        assertEquals(expected.getSeed(), actual.getSeed());
+        assertEquals(expected.getHorseCount(), actual.getHorseCount());
+        assertEquals(expected.getTickCount(), actual.getTickCount());
+        assertEquals(expected.getWinner(), actual.getWinner());
+        assertEquals(expected.getRecordedAtMs(), actual.getRecordedAtMs());
+    }
+
+    @Test
+    public void save_thenGet_newestFirst() throws IOException {
+        try (ReplayStore store = new ReplayStore(folder.newFolder("replays"), 8)) {
+            store.save(replay(1));
+            store.save(replay(2));
+
+            assertEquals(2, store.size());
+            assertReplay(2, store.get(0));
+            assertReplay(1, store.get(1));
+            assertThrows(IndexOutOfBoundsException.class, () -> store.get(2));
+        }
+    }
+
+    @Test
+    public void full_overwritesTheOldest() throws IOException {
+        File directory = folder.newFolder("replays");
+        try (ReplayStore store = new ReplayStore(directory, 3)) {
+            for (int n = 1; n <= 5; n++) {
+                store.save(replay(n));
+            }
+            assertEquals(3, store.size());
+            assertReplay(5, store.get(0));
+            assertReplay(3, store.get(2));
+        }
+        assertEquals(3L * ReplayStore.RECORD_SIZE, new File(directory, ReplayStore.FILE_NAME).length());
+    }
+
+    @Test
+    public void reopen_findsTheNewest() throws IOException {
+        File directory = folder.newFolder("replays");
+        try (ReplayStore store = new ReplayStore(directory, 3)) {
+            for (int n = 1; n <= 4; n++) {
+                store.save(replay(n));
+            }
+        }
+
+        try (ReplayStore store = new ReplayStore(directory, 3)) {
+            assertEquals(3, store.size());
+            assertReplay(4, store.get(0));
+            store.save(replay(5)); // Goes over replay 2, the oldest
+            assertReplay(5, store.get(0));
+            assertReplay(3, store.get(2));
+        }
+    }
+
+    @Test
+    public void tornRecord_readsAsMissing() throws IOException {
+        File directory = folder.newFolder("replays");
+        try (ReplayStore store = new ReplayStore(directory, 8)) {
+            store.save(replay(1));
+            store.save(replay(2));
+        }
+
+        // Simulate a crash in the middle of writing the second record
+        try (RandomAccessFile file = new RandomAccessFile(new File(directory, ReplayStore.FILE_NAME), "rw")) {
+            file.seek(ReplayStore.RECORD_SIZE + 20);
+            file.write(0x5A);
+        }
+
+        try (ReplayStore store = new ReplayStore(directory, 8)) {
+            assertEquals(1, store.size());
+            assertReplay(1, store.get(0));
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package com.zd.horseracing.Repositories;
+
+import com.zd.horseracing.Models.HorseBet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link WalletLedger}, using real files in a temporary folder.
+ */
+public class WalletLedgerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void reopen_recoversTheBalance() throws IOException {
+        File directory = folder.newFolder("wallet");
+        try (WalletLedger ledger = new WalletLedger(directory)) {
+            ledger.append(WalletLedger.DEPOSIT, 1000);
+            ledger.append(WalletLedger.BET_DEBIT, 300);
+            assertEquals(900, ledger.append(WalletLedger.PAYOUT_CREDIT, 200));
+        }
+
+        try (WalletLedger ledger = new WalletLedger(directory)) {
+            assertEquals(900, ledger.getBalance());
+            assertEquals(3, ledger.getSequence());
+        }
+    }
+
+    @Test
+    public void tornTail_isCutOff() throws IOException {
+        File directory = folder.newFolder("wallet");
+        try (WalletLedger ledger = new WalletLedger(directory)) {
+            ledger.append(WalletLedger.DEPOSIT, 1000);
+            ledger.append(WalletLedger.BET_DEBIT, 100);
+        }
+
+        // Simulate a crash in the middle of writing a third record
+        File log = new File(directory, WalletLedger.LOG_FILE);
+        try (RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+            file.seek(file.length());
+            file.write(new byte[]{ WalletLedger.DEPOSIT, 0, 0, 0, 7 });
+        }
+
+        try (WalletLedger ledger = new WalletLedger(directory)) {
+            assertEquals(900, ledger.getBalance());
+            assertEquals(2L * WalletLedger.RECORD_SIZE, log.length());
+            ledger.append(WalletLedger.DEPOSIT, 50); // Appends after the last good record
+        }
+        try (WalletLedger ledger = new WalletLedger(directory)) {
+            assertEquals(950, ledger.getBalance());
+        }
+    }
+
+    @Test
+    public void corruptRecord_endsRecovery() throws IOException {
+        File directory = folder.newFolder("wallet");
+        try (WalletLedger ledger = new WalletLedger(directory)) {
+            ledger.append(WalletLedger.DEPOSIT, 1000);
+            ledger.append(WalletLedger.DEPOSIT, 500);
+        }
+
+        // Flip a bit in the amount of the second record
+        try (RandomAccessFile file = new RandomAccessFile(new File(directory, WalletLedger.LOG_FILE), "rw")) {
+            file.seek(WalletLedger.RECORD_SIZE + 16);
+            file.write(file.read() ^ 1);
+        }
+
+        try (WalletLedger ledger = new WalletLedger(directory)) {
+            assertEquals(1000, ledger.getBalance());
+        }
+    }
+
+    @Test
+    public void snapshot_compactsTheLog() throws IOException {
+        File directory = folder.newFolder("wallet");
+        int entries = WalletLedger.SNAPSHOT_INTERVAL * 3 + 10;
+        try (WalletLedger ledger = new WalletLedger(directory)) {
+            for (int i = 0; i < entries; i++) {
+                ledger.append(WalletLedger.DEPOSIT, 2);
+            }
+        }
+
+        assertTrue(new File(directory, WalletLedger.SNAPSHOT_FILE).isFile());
+        assertTrue(new File(directory, WalletLedger.LOG_FILE).length()
+                < (long) WalletLedger.SNAPSHOT_INTERVAL * WalletLedger.RECORD_SIZE);
+        try (WalletLedger ledger = new WalletLedger(directory)) {
+            assertEquals(2L * entries, ledger.getBalance());
+            assertEquals(entries, ledger.getSequence());
+        }
+    }
+
+    @Test
+    public void crashBetweenSnapshotAndTruncate_doesNotCountEntriesTwice() throws IOException {
+        File directory = folder.newFolder("wallet");
+        File log = new File(directory, WalletLedger.LOG_FILE);
+        try (WalletLedger ledger = new WalletLedger(directory)) {
+            for (int i = 1; i < WalletLedger.SNAPSHOT_INTERVAL; i++) {
+                ledger.append(WalletLedger.DEPOSIT, 3);
+            }
+        }
+        byte[] entriesBeforeSnapshot = readFile(log);
+        long balance;
+        try (WalletLedger ledger = new WalletLedger(directory)) {
+            balance = ledger.append(WalletLedger.DEPOSIT, 3); // Compacts everything into the snapshot
+        }
+        assertTrue(new File(directory, WalletLedger.SNAPSHOT_FILE).isFile());
+        assertEquals(0, log.length());
+
+        writeFile(log, entriesBeforeSnapshot); // As if the truncate never happened
+        try (WalletLedger ledger = new WalletLedger(directory)) {
+            assertEquals(balance, ledger.getBalance());
+            assertEquals(WalletLedger.SNAPSHOT_INTERVAL, ledger.getSequence());
+        }
+    }
+
+    @Test
+    public void compaction_writesTheSnapshotInPlaceWithoutADirectorySync() throws IOException {
+        File directory = folder.newFolder("wallet");
+        File snapshot = new File(directory, WalletLedger.SNAPSHOT_FILE);
+        File log = new File(directory, WalletLedger.LOG_FILE);
+        try (WalletLedger ledger = new WalletLedger(directory)) {
+            for (int round = 1; round <= 3; round++) {
+                for (int i = 0; i < WalletLedger.SNAPSHOT_INTERVAL; i++) {
+                    ledger.append(WalletLedger.DEPOSIT, 1);
+                }
+                ledger.flush();
+                // Emptied at every compaction, whether or not the directory could be synced
+                assertEquals(0, log.length());
+                assertEquals(2L * WalletLedger.SNAPSHOT_SIZE, snapshot.length());
+            }
+        }
+        String[] files = directory.list();
+        assertNotNull(files);
+        assertEquals(2, files.length); // No temporary file to rename
+        try (WalletLedger ledger = new WalletLedger(directory)) {
+            assertEquals(3L * WalletLedger.SNAPSHOT_INTERVAL, ledger.getBalance());
+        }
+    }
+
+    @Test
+    public void tornSnapshot_recoversTheOtherSlotAndTheLog() throws IOException {
+        File directory = folder.newFolder("wallet");
+        File log = new File(directory, WalletLedger.LOG_FILE);
+        long balance;
+        try (WalletLedger ledger = new WalletLedger(directory)) {
+            for (int i = 0; i < 2 * WalletLedger.SNAPSHOT_INTERVAL - 1; i++) {
+                ledger.append(WalletLedger.DEPOSIT, 1); // Slot 0, then the log up to the next one
+            }
+            balance = ledger.getBalance();
+        }
+        byte[] entriesAfterFirstSnapshot = readFile(log);
+        try (WalletLedger ledger = new WalletLedger(directory)) {
+            ledger.append(WalletLedger.DEPOSIT, 1); // Compacts into slot 1
+        }
+
+        // A crash in the middle of writing slot 1, before the log was emptied
+        try (RandomAccessFile file = new RandomAccessFile(new File(directory, WalletLedger.SNAPSHOT_FILE), "rw")) {
+            file.seek(WalletLedger.SNAPSHOT_SIZE + 12);
+            file.write(file.read() ^ 1);
+        }
+        writeFile(log, entriesAfterFirstSnapshot);
+        try (WalletLedger ledger = new WalletLedger(directory)) {
+            assertEquals(balance, ledger.getBalance());
+            assertEquals(2 * WalletLedger.SNAPSHOT_INTERVAL - 1, ledger.getSequence());
+            ledger.append(WalletLedger.DEPOSIT, 5); // Compacts into slot 1 again
+        }
+        try (WalletLedger ledger = new WalletLedger(directory)) {
+            assertEquals(balance + 5, ledger.getBalance());
+            assertEquals(2 * WalletLedger.SNAPSHOT_INTERVAL, ledger.getSequence());
+        }
+    }
+
+    @Test
+    public void lostSnapshot_isReportedAsCorrupt() throws IOException {
+        File directory = folder.newFolder("wallet");
+        try (WalletLedger ledger = new WalletLedger(directory)) {
+            for (int i = 0; i < WalletLedger.SNAPSHOT_INTERVAL; i++) {
+                ledger.append(WalletLedger.DEPOSIT, 1); // Compacted into slot 0
+            }
+        }
+        try (WalletLedger ledger = new WalletLedger(directory)) {
+            for (int i = 0; i < 10; i++) {
+                ledger.append(WalletLedger.DEPOSIT, 1); // Logged after the snapshot
+            }
+        }
+        // Both slots wiped: the log alone no longer starts at the first entry
+        writeFile(new File(directory, WalletLedger.SNAPSHOT_FILE), new byte[2 * WalletLedger.SNAPSHOT_SIZE]);
+        try {
+            new WalletLedger(directory).close();
+            fail("The balance before the log is lost");
+        } catch (IOException expected) {
+            // Not silently restarted from 0
+        }
+    }
+
+    @Test
+    public void singleSlotSnapshot_isReadAsTheFirstSlot() throws IOException {
+        File directory = folder.newFolder("wallet");
+        File snapshot = new File(directory, WalletLedger.SNAPSHOT_FILE);
+        long balance;
+        try (WalletLedger ledger = new WalletLedger(directory)) {
+            for (int i = 0; i < WalletLedger.SNAPSHOT_INTERVAL; i++) {
+                ledger.append(WalletLedger.DEPOSIT, 2);
+            }
+            balance = ledger.getBalance();
+        }
+        // The snapshot file of an older version held one slot
+        byte[] slot = new byte[WalletLedger.SNAPSHOT_SIZE];
+        System.arraycopy(readFile(snapshot), 0, slot, 0, slot.length);
+        writeFile(snapshot, slot);
+
+        try (WalletLedger ledger = new WalletLedger(directory)) {
+            assertEquals(balance, ledger.getBalance());
+            ledger.append(WalletLedger.DEPOSIT, 1);
+        }
+        assertEquals(2L * WalletLedger.SNAPSHOT_SIZE, snapshot.length());
+        try (WalletLedger ledger = new WalletLedger(directory)) {
+            assertEquals(balance + 1, ledger.getBalance());
+        }
+    }
+
+    @Test
+    public void thousandsOfEntriesPerSecond_withoutBlockingTheCaller() throws IOException {
+        File directory = folder.newFolder("wallet");
+        int entries = 100_000;
+        try (WalletLedger ledger = new WalletLedger(directory)) {
+            long start = System.nanoTime();
+            for (int i = 0; i < entries; i++) {
+                ledger.append(i % 2 == 0 ? WalletLedger.DEPOSIT : WalletLedger.BET_DEBIT, 10);
+            }
+            long appendNanos = System.nanoTime() - start;
+            ledger.flush();
+            long durableNanos = System.nanoTime() - start;
+
+            // Appending only buffers; the writer syncs whole batches in the background
+            assertTrue("append took " + appendNanos / 1_000_000 + " ms", appendNanos < 2_000_000_000L);
+            assertTrue("flush took " + durableNanos / 1_000_000 + " ms", durableNanos < 20_000_000_000L);
+            assertEquals(0, ledger.getBalance());
+        }
+        try (WalletLedger ledger = new WalletLedger(directory)) {
+            assertEquals(entries, ledger.getSequence());
+        }
+    }
+
+    @Test
+    public void writerFailure_failsEveryLaterAppend() throws IOException {
+        WalletLedger ledger = failingCompaction(folder.newFolder("wallet"));
+        for (int i = 0; i < WalletLedger.SNAPSHOT_INTERVAL; i++) {
+            ledger.append(WalletLedger.DEPOSIT, 1);
+        }
+        try {
+            ledger.flush();
+            fail("The snapshot cannot be written");
+        } catch (IOException expected) {
+            // The writer has stopped
+        }
+
+        try {
+            ledger.append(WalletLedger.DEPOSIT, 1);
+            fail("An append after the writer failed must not be buffered");
+        } catch (IOException expected) {
+            assertEquals(WalletLedger.SNAPSHOT_INTERVAL, ledger.getBalance()); // Not applied
+        }
+        try {
+            ledger.close();
+            fail("Closing reports the failure too");
+        } catch (IOException expected) {
+            // Already reported
+        }
+    }
+
+    @Test
+    public void repository_startsWithTheInitialDepositAndRecordsEveryChange() throws IOException {
+        File directory = folder.newFolder("wallet");
+        RaceRepository repository = new RaceRepository(new WalletLedger(directory));
+        assertEquals(1000, repository.getBalance());
+        repository.placeBet(new HorseBet(1, 100));
+        assertTrue(repository.debitBets());
+        repository.placeBet(new HorseBet(2, 900));
+        assertFalse(repository.debitBets()); // 1000 staked, 900 left; nothing recorded
+        repository.clearBets();
+        repository.creditPayout(200);
+        repository.deposit(50);
+        assertEquals(1150, repository.getBalance());
+        repository.close();
+
+        RaceRepository restored = new RaceRepository(new WalletLedger(directory));
+        assertEquals(1150, restored.getBalance());
+        restored.close();
+    }
+
+    @Test
+    public void repository_opensTheWalletInTheBackgroundWhileBetsArePlaced() throws Exception {
+        File directory = folder.newFolder("wallet");
+        try (WalletLedger ledger = new WalletLedger(directory)) {
+            ledger.append(WalletLedger.DEPOSIT, 700);
+        }
+
+        RaceRepository repository = new RaceRepository();
+        repository.placeBet(new HorseBet(1, 100)); // Before the balance is known
+        assertFalse(repository.isWalletOpen());
+        try {
+            repository.getBalance();
+            fail("The balance is not known yet");
+        } catch (IllegalStateException expected) {
+            // Not open yet
+        }
+
+        Thread opener = new Thread(() -> {
+            try {
+                repository.openWallet(new WalletLedger(directory));
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+        opener.start();
+        opener.join();
+
+        assertTrue(repository.isWalletOpen());
+        assertEquals(700, repository.getBalance()); // Recovered, not the initial deposit
+        assertTrue(repository.debitBets());
+        assertEquals(600, repository.getBalance());
+        repository.close();
+    }
+
+    @Test
+    public void repository_leavesTheBalanceUnchangedWhenTheLedgerFails() throws IOException {
+        WalletLedger ledger = failingCompaction(folder.newFolder("wallet"));
+        RaceRepository repository = new RaceRepository(ledger);
+        for (int i = 1; i < WalletLedger.SNAPSHOT_INTERVAL; i++) {
+            repository.deposit(1);
+        }
+        try {
+            ledger.flush();
+            fail("The snapshot cannot be written");
+        } catch (IOException expected) {
+            // The writer has stopped
+        }
+        long balance = repository.getBalance();
+        assertEquals(ledger.getBalance(), balance);
+
+        try {
+            repository.deposit(50);
+            fail("The deposit cannot be recorded");
+        } catch (IOException expected) {
+            assertEquals(balance, repository.getBalance());
+        }
+        try {
+            repository.creditPayout(50);
+            fail("The payout cannot be recorded");
+        } catch (IOException expected) {
+            assertEquals(balance, repository.getBalance());
+        }
+        repository.placeBet(new HorseBet(1, 100));
+        try {
+            repository.debitBets();
+            fail("The debit cannot be recorded");
+        } catch (IOException expected) {
+            assertEquals(balance, repository.getBalance()); // Stakes given back
+        }
+        assertEquals(ledger.getBalance(), repository.getBalance());
+    }
+
+    /**
+     * Opens a ledger whose first compaction fails, as on a full disk.
+     */
+    private static WalletLedger failingCompaction(File directory) throws IOException {
+        return new WalletLedger(directory) {
+            @Override
+            void writeSnapshot(long atSequence, long atBalance) throws IOException {
+                throw new IOException("No space left on device");
+            }
+        };
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            byte[] bytes = new byte[(int) raf.length()];
+            raf.readFully(bytes);
+            return bytes;
+        }
+    }
+
+    private static void writeFile(File file, byte[] bytes) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(0);
+            raf.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.zd.horseracing.Services;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link AuthService}.  The test thread plays the main thread: results are
+ * posted to a queue it drains, like a looper.  In the spirit of StrictMode, the fake storage
+ * records a violation whenever it is touched on the main thread.
+ */
+public class AuthServiceTest {
+    private static final long HASH_MILLIS = 50; // A slow hash, as on a real device
+
+    private Thread mainThread;
+    private final LinkedBlockingQueue<Runnable> mainQueue = new LinkedBlockingQueue<>();
+    private final List<String> violations = new ArrayList<>();
+    private ExecutorService background;
+    private FakeAccounts accounts;
+    private AuthService auth;
+
+    @Before
+    public void setUp() {
+        mainThread = Thread.currentThread();
+        background = Executors.newSingleThreadExecutor();
+        accounts = new FakeAccounts();
+        auth = new AuthService(() -> {
+            checkNotMainThread("open");
+            return accounts;
+        }, background, mainQueue::add);
+    }
+
+    @After
+    public void tearDown() {
+        background.shutdownNow();
+    }
+
+    @Test
+    public void login_mainThreadOnlySubmits() throws Exception {
+        accounts.credentials.put("alice@example.com", "secret");
+
+        long start = System.nanoTime();
+        List<AuthService.LoginResult> results = new ArrayList<>();
+        auth.login("alice@example.com", "secret", results::add);
+        long mainMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue("Main thread blocked for " + mainMillis + " ms", mainMillis < HASH_MILLIS);
+        assertTrue(results.isEmpty()); // Not delivered synchronously
+        runNextOnMain();
+        assertEquals(1, results.size());
+        assertEquals(AuthService.LoginResult.SUCCESS, results.get(0));
+        assertTrue(violations.toString(), violations.isEmpty());
+    }
+
+    @Test
+    public void login_reportsEveryOutcome() throws Exception {
+        accounts.credentials.put("alice@example.com", "secret");
+        List<AuthService.LoginResult> results = new ArrayList<>();
+
+        auth.login("bob@example.com", "secret", results::add);
+        runNextOnMain();
+        auth.login("alice@example.com", "wrong", results::add);
+        runNextOnMain();
+
+        assertEquals(AuthService.LoginResult.NO_ACCOUNT, results.get(0));
+        assertEquals(AuthService.LoginResult.WRONG_PASSWORD, results.get(1));
+        assertTrue(violations.toString(), violations.isEmpty());
+    }
+
+    @Test
+    public void register_savesOnceInTheBackground() throws Exception {
+        List<AuthService.RegisterResult> results = new ArrayList<>();
+
+        auth.register("carol@example.com", "secret", results::add);
+        runNextOnMain();
+        auth.register("carol@example.com", "other", results::add);
+        runNextOnMain();
+
+        assertEquals(AuthService.RegisterResult.SUCCESS, results.get(0));
+        assertEquals(AuthService.RegisterResult.ALREADY_EXISTS, results.get(1));
+        assertEquals("secret", accounts.credentials.get("carol@example.com"));
+        assertTrue(violations.toString(), violations.isEmpty());
+    }
+
+    @Test
+    public void storageThatCannotOpen_isUnavailable() throws Exception {
+        List<Throwable> logged = new ArrayList<>();
+        AuthService broken = new AuthService(() -> {
+            throw new IOException("Disk full");
+        }, background, mainQueue::add, (message, error) -> logged.add(error));
+        List<AuthService.LoginResult> results = new ArrayList<>();
+
+        broken.login("alice@example.com", "secret", results::add);
+        runNextOnMain();
+
+        assertEquals(AuthService.LoginResult.UNAVAILABLE, results.get(0));
+        assertEquals(1, logged.size());
+        assertEquals("Disk full", logged.get(0).getMessage());
+    }
+
+    @Test
+    public void storageThatThrows_isUnavailable() throws Exception {
+        AuthService.Accounts throwing = new AuthService.Accounts() {
+            @Override
+            public boolean accountExists(String email) {
+                throw new IllegalStateException("Corrupt index");
+            }
+
+            @Override
+            public boolean checkPassword(String email, String password) {
+                throw new IllegalStateException("Corrupt index");
+            }
+
+            @Override
+            public boolean register(String email, String password) {
+                throw new IllegalStateException("Corrupt index");
+            }
+        };
+        List<Throwable> logged = new ArrayList<>();
+        AuthService broken = new AuthService(() -> throwing, background, mainQueue::add,
+                (message, error) -> logged.add(error));
+        List<AuthService.LoginResult> logins = new ArrayList<>();
+        List<AuthService.RegisterResult> registrations = new ArrayList<>();
+
+        broken.login("alice@example.com", "secret", logins::add);
+        runNextOnMain();
+        broken.register("alice@example.com", "secret", registrations::add);
+        runNextOnMain();
+
+        assertEquals(AuthService.LoginResult.UNAVAILABLE, logins.get(0));
+        assertEquals(AuthService.RegisterResult.UNAVAILABLE, registrations.get(0));
+        assertEquals(2, logged.size()); // Diagnosable, not just unavailable
+        assertTrue(logged.get(0) instanceof IllegalStateException);
+    }
+
+    @Test
+    public void cancel_beforeStart_skipsTheWorkAndTheCallback() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        background.execute(() -> awaitQuietly(release)); // Keep the worker busy
+        List<AuthService.RegisterResult> results = new ArrayList<>();
+
+        AuthService.Request request = auth.register("dave@example.com", "secret", results::add);
+        request.cancel(); // E.g. the screen was destroyed
+        release.countDown();
+        drainBackground();
+
+        assertTrue(request.isCancelled());
+        assertFalse(accounts.credentials.containsKey("dave@example.com"));
+        assertTrue(mainQueue.isEmpty());
+        assertTrue(results.isEmpty());
+    }
+
+    @Test
+    public void cancel_whileRunning_dropsTheResult() throws Exception {
+        accounts.credentials.put("alice@example.com", "secret");
+        List<AuthService.LoginResult> results = new ArrayList<>();
+
+        AuthService.Request request = auth.login("alice@example.com", "secret", results::add);
+        assertTrue(accounts.hashStarted.await(5, TimeUnit.SECONDS));
+        request.cancel(); // The hash is already running
+        drainBackground();
+        while (!mainQueue.isEmpty()) {
+            mainQueue.take().run();
+        }
+
+        assertTrue(results.isEmpty());
+    }
+
+    /**
+     * Runs the next result posted to the "main thread", waiting for the background work.
+     */
+    private void runNextOnMain() throws InterruptedException {
+        Runnable next = mainQueue.poll(5, TimeUnit.SECONDS);
+        assertNotNull("No result was posted", next);
+        next.run();
+    }
+
+    /**
+     * Waits until everything queued on the background executor so far has run.
+     */
+    private void drainBackground() throws Exception {
+        background.submit(() -> { }).get(5, TimeUnit.SECONDS);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void checkNotMainThread(String operation) {
+        if (Thread.currentThread() == mainThread) {
+            synchronized (violations) {
+                violations.add(operation + " on the main thread");
+            }
+        }
+    }
+
+    /**
+     * In-memory storage with a slow password check, flagging main-thread use.
+     */
+    private class FakeAccounts implements AuthService.Accounts {
+        final Map<String, String> credentials = new HashMap<>();
+        final CountDownLatch hashStarted = new CountDownLatch(1);
+
+        @Override
+        public boolean accountExists(String email) {
+            checkNotMainThread("accountExists");
+            return credentials.containsKey(email);
+        }
+
+        @Override
+        public boolean checkPassword(String email, String password) {
+            checkNotMainThread("checkPassword");
+            hashStarted.countDown();
+            sleep();
+            return password.equals(credentials.get(email));
+        }
+
+        @Override
+        public boolean register(String email, String password) {
+            checkNotMainThread("register");
+            sleep();
+            return credentials.putIfAbsent(email, password) == null;
+        }
+
+        private void sleep() {
+            try {
+                Thread.sleep(HASH_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.zd.horseracing.Utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link BetParser}, checked against {@link Long#parseLong}.
+ */
+public class BetParserTest {
+    @Test
+    public void parseAmount_acceptsPositiveAmounts() {
+        assertEquals(1, BetParser.parseAmount("1"));
+        assertEquals(250, BetParser.parseAmount("250"));
+        assertEquals(250, BetParser.parseAmount("+250"));
+        assertEquals(7, BetParser.parseAmount("007"));
+        assertEquals(Integer.MAX_VALUE, BetParser.parseAmount(String.valueOf(Integer.MAX_VALUE)));
+        assertEquals(2_147_483_648L, BetParser.parseAmount("2147483648")); // Past an int: money is 64-bit
+        assertEquals(99_999_999_999L, BetParser.parseAmount("99999999999"));
+        assertEquals(Long.MAX_VALUE, BetParser.parseAmount(String.valueOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void parseAmount_rejectsInvalidInput() {
+        assertEquals(BetParser.EMPTY, BetParser.parseAmount(""));
+        assertEquals(BetParser.NOT_POSITIVE, BetParser.parseAmount("0"));
+        assertEquals(BetParser.NOT_POSITIVE, BetParser.parseAmount("-5"));
+        assertEquals(BetParser.NOT_POSITIVE, BetParser.parseAmount(String.valueOf(Long.MIN_VALUE)));
+        assertEquals(BetParser.INVALID, BetParser.parseAmount("-"));
+        assertEquals(BetParser.INVALID, BetParser.parseAmount("12abc"));
+        assertEquals(BetParser.INVALID, BetParser.parseAmount(" 12"));
+        assertEquals(BetParser.INVALID, BetParser.parseAmount("9223372036854775808"));
+        assertEquals(BetParser.INVALID, BetParser.parseAmount("99999999999999999999"));
+    }
+
+    @Test
+    public void parseAmount_matchesParseLong() {
+        for (long value = Long.MAX_VALUE - 1000L; value != Long.MIN_VALUE + 1000L; value++) { // Wraps past the top
+            String input = value < 0 ? Long.toUnsignedString(value) : String.valueOf(value);
+            long expected = value < 0 ? BetParser.INVALID : Long.parseLong(input);
+            assertEquals(input, expected, BetParser.parseAmount(input));
+        }
+    }
+}
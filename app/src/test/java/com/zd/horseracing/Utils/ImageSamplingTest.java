@@ -0,0 +1,39 @@
+package com.zd.horseracing.Utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ImageSampling}.
+ */
+public class ImageSamplingTest {
+    @Test
+    public void smallerOrEqualImage_isDecodedAtFullResolution() {
+        assertEquals(1, ImageSampling.calculateInSampleSize(640, 640, 2400, 0));
+        assertEquals(1, ImageSampling.calculateInSampleSize(300, 200, 300, 200));
+        assertEquals(1, ImageSampling.calculateInSampleSize(300, 200, 0, 0));
+    }
+
+    @Test
+    public void largeImage_isHalvedWhileStillCoveringTheView() {
+        // win.png in the 109dp x 77dp result image on a 3x screen
+        int sample = ImageSampling.calculateInSampleSize(1152, 768, 327, 231);
+        assertEquals(2, sample);
+        assertTrue(1152 / sample >= 327 && 768 / sample >= 231);
+        assertTrue(768 / (sample * 2) < 231);
+    }
+
+    @Test
+    public void unconstrainedAxis_followsTheConstrainedOne() {
+        // fence2.png in a 54 px high fence strip
+        assertEquals(16, ImageSampling.calculateInSampleSize(2080, 1164, 0, 54));
+        assertEquals(4, ImageSampling.calculateInSampleSize(2080, 1164, 500, 0));
+    }
+
+    @Test
+    public void decodedByteCount_roundsSampledDimensionsUp() {
+        assertEquals(2080L * 1164L * 4L, ImageSampling.decodedByteCount(2080, 1164, 1));
+        assertEquals(130L * 73L * 4L, ImageSampling.decodedByteCount(2080, 1164, 16));
+    }
+}
@@ -0,0 +1,65 @@
+package com.zd.horseracing.Utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link PasswordHasher}, at the lowest cost to keep them fast.
+ */
+public class PasswordHasherTest {
+    private final PasswordHasher hasher = new PasswordHasher(PasswordHasher.MIN_ITERATIONS);
+
+    @Test
+    public void hash_verifiesOnlyTheSamePassword() {
+        String stored = hasher.hash("correct horse");
+
+        assertTrue(PasswordHasher.isHash(stored));
+        assertTrue(PasswordHasher.verify("correct horse", stored));
+        assertFalse(PasswordHasher.verify("correct horsE", stored));
+        assertFalse(PasswordHasher.verify("", stored));
+    }
+
+    @Test
+    public void hash_isSaltedAndCarriesItsCost() {
+        String first = hasher.hash("secret");
+        String second = hasher.hash("secret");
+
+        assertNotEquals(first, second); // Different salts
+        assertTrue(first.startsWith("pbkdf2$" + PasswordHasher.MIN_ITERATIONS + "$"));
+        assertFalse(first.contains("secret"));
+    }
+
+    @Test
+    public void malformedOrPlainTextCredential_neverVerifies() {
+        assertFalse(PasswordHasher.isHash("123456"));
+        assertFalse(PasswordHasher.verify("123456", "123456"));
+        assertFalse(PasswordHasher.verify("x", "pbkdf2$abc$00$00"));
+        assertFalse(PasswordHasher.verify("x", "pbkdf2$10000$zz$00"));
+        assertFalse(PasswordHasher.verify("x", "pbkdf2$10000$00$0"));
+        assertTrue(PasswordHasher.verifyPlainText("123456", "123456"));
+        assertFalse(PasswordHasher.verifyPlainText("123457", "123456"));
+    }
+
+    @Test
+    public void needsRehash_forPlainTextAndLowerCost() {
+        PasswordHasher stronger = new PasswordHasher(PasswordHasher.MIN_ITERATIONS * 2);
+        String weak = hasher.hash("secret");
+
+        assertTrue(hasher.needsRehash("secret"));
+        assertFalse(hasher.needsRehash(weak));
+        assertTrue(stronger.needsRehash(weak));
+        assertTrue(PasswordHasher.verify("secret", weak)); // Old hashes keep working
+    }
+
+    @Test
+    public void calibrate_neverGoesBelowTheMinimum() {
+        assertEquals(PasswordHasher.MIN_ITERATIONS, PasswordHasher.calibrate(1));
+        assertTrue(PasswordHasher.calibrate(50_000_000L) >= PasswordHasher.MIN_ITERATIONS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooFewIterations_areRejected() {
+        new PasswordHasher(PasswordHasher.MIN_ITERATIONS - 1);
+    }
+}
@@ -0,0 +1,41 @@
+package com.zd.horseracing.Utils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link SpriteAtlasIndex}.
+ */
+public class SpriteAtlasIndexTest {
+    private static final String INDEX = "# Generated by SpriteAtlasPacker, do not edit\n"
+            + "frame knight_walk_1 1 1 49 48\n"
+            + "frame knight_walk_2 51 1 49 48\n"
+            + "\n"
+            + "animation horse2_animation 50 knight_walk_1 knight_walk_2\n";
+
+    @Test
+    public void parse_readsFramesAndAnimations() throws IOException {
+        SpriteAtlasIndex index = SpriteAtlasIndex.parse(new StringReader(INDEX));
+
+        assertArrayEquals(new int[]{ 51, 1, 100, 49 }, index.getFrame("knight_walk_2"));
+        assertArrayEquals(new String[]{ "knight_walk_1", "knight_walk_2" }, index.getAnimation("horse2_animation"));
+        assertEquals(50, index.getFrameDuration("horse2_animation"));
+        assertNull(index.getFrame("assasin1"));
+        assertNull(index.getAnimation("horse1_animation"));
+        assertEquals(0, index.getFrameDuration("horse1_animation"));
+    }
+
+    @Test(expected = IOException.class)
+    public void parse_rejectsUnknownAnimationFrame() throws IOException {
+        SpriteAtlasIndex.parse(new StringReader(INDEX + "animation horse1_animation 50 assasin1\n"));
+    }
+
+    @Test(expected = IOException.class)
+    public void parse_rejectsMalformedLine() throws IOException {
+        SpriteAtlasIndex.parse(new StringReader("frame assasin1 0 0 69\n"));
+    }
+}
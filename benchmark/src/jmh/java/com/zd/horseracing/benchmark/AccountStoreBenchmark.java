@@ -0,0 +1,125 @@
+package com.zd.horseracing.benchmark;
+
+import com.zd.horseracing.Repositories.AccountStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link AccountStore} with 100k accounts: registering them all into an empty store,
+ * reopening the store, and looking accounts up once it is full.
+ */
+@State(Scope.Thread)
+@Fork(1)
+public class AccountStoreBenchmark {
+    @Param({"100000"})
+    public int accountCount;
+
+    private File directory;
+    private String[] emails;
+    private AccountStore store;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void createEmails() {
+        emails = new String[accountCount];
+        for (int i = 0; i < accountCount; i++) {
+            emails[i] = "Player" + i + "@Example.com";
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void openStore() throws IOException {
+        directory = Files.createTempDirectory("accounts").toFile();
+        store = new AccountStore(directory);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteStore() throws IOException {
+        store.close();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Files.delete(file.toPath());
+            }
+        }
+        Files.delete(directory.toPath());
+    }
+
+    /**
+     * Registers every account into an empty store, then reopens it to rebuild the index.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int registerAllThenReopen() throws IOException {
+        for (String email : emails) {
+            store.add(email, "secret");
+        }
+        store.close();
+        store = new AccountStore(directory);
+        return store.size();
+    }
+
+    /**
+     * Looks up one account in a full store; the cost must not grow with the number of accounts.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public String lookup(FullStore full) {
+        String email = emails[next];
+        next = next + 1 == accountCount ? 0 : next + 1;
+        return full.store.getCredential(email);
+    }
+
+    /**
+     * A store already holding every account, shared by the lookup benchmark.
+     */
+    @State(Scope.Benchmark)
+    public static class FullStore {
+        AccountStore store;
+        File directory;
+
+        @Setup(Level.Trial)
+        public void fill(AccountStoreBenchmark benchmark) throws IOException {
+            directory = Files.createTempDirectory("accounts-full").toFile();
+            store = new AccountStore(directory);
+            for (int i = 0; i < benchmark.accountCount; i++) {
+                store.add("Player" + i + "@Example.com", "secret");
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() throws IOException {
+            store.close();
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    Files.delete(file.toPath());
+                }
+            }
+            Files.delete(directory.toPath());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.zd.horseracing.benchmark;
+
+import com.zd.horseracing.Engine.BetPools;
+import com.zd.horseracing.Engine.SettlementBatch;
+import com.zd.horseracing.Models.BetBook;
+import com.zd.horseracing.Models.BetType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks settling a race with a very large bet book: the {@link SettlementBatch} compute
+ * stage plus formatting the twenty lines a result screen shows, against formatting a line for
+ * every bet.  Bets of every type on an 8-horse race.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchSettlementBenchmark {
+    private static final int HORSES = 8;
+    private static final int SHOWN_LINES = 20;
+    private static final int[] ORDER = {4, 7, 1, 8, 2, 6, 3, 5};
+
+    @Param({"1000000"})
+    public int betCount;
+
+    private BetBook book;
+    private BetPools pools;
+    private SettlementBatch batch;
+
+    @Setup
+    public void setUp() {
+        book = new BetBook();
+        pools = new BetPools(HORSES, 1500);
+        pools.addHouseFloat(100_000);
+        SplittableRandom random = new SplittableRandom(42);
+        BetType[] types = BetType.values();
+        int[] horses = new int[3];
+        for (int i = 0; i < betCount; i++) {
+            BetType type = types[random.nextInt(types.length)];
+            int first = random.nextInt(HORSES);
+            int step = 1 + 2 * random.nextInt(HORSES / 2); // Odd, so coprime with 8: distinct horses
+            for (int s = 0; s < type.getSelections(); s++) {
+                horses[s] = (first + s * step) % HORSES + 1;
+            }
+            int key = type.key(horses);
+            long amount = 10 + random.nextInt(1000);
+            pools.placeBet(type, key, amount);
+            book.add(type, key, amount);
+        }
+        batch = new SettlementBatch();
+    }
+
+    /**
+     * The compute stage over every bet, then the lines shown.
+     */
+    @Benchmark
+    public int batchSettle() {
+        long winnings = batch.settle(book, ORDER, pools);
+        StringBuilder shown = batch.appendLines(0, Math.min(SHOWN_LINES, batch.size()), new StringBuilder());
+        return shown.length() + (int) winnings;
+    }
+
+    /**
+     * The compute stage, then a line for every bet, as a full result text would need.
+     */
+    @Benchmark
+    public int settleWithFullText() {
+        long winnings = batch.settle(book, ORDER, pools);
+        StringBuilder resultMessage = batch.appendLines(0, batch.size(), new StringBuilder());
+        return resultMessage.length() + (int) winnings;
+    }
+}
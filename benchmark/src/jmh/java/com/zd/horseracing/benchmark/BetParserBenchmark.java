@@ -0,0 +1,32 @@
+package com.zd.horseracing.benchmark;
+
+import com.zd.horseracing.Utils.BetParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the bet amount parsing done by {@code MainActivity.validateAndSaveBets}, for a valid
+ * amount as well as the rejected inputs that used to go through a {@link NumberFormatException}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BetParserBenchmark {
+    @Param({"250", "0", "12abc", "99999999999"})
+    public String input;
+
+    @Benchmark
+    public long parseAmount() {
+        return BetParser.parseAmount(input);
+    }
+}
@@ -0,0 +1,48 @@
+package com.zd.horseracing.benchmark;
+
+import com.zd.horseracing.Models.HorseBet;
+import com.zd.horseracing.Repositories.RaceRepository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks changing one bet in a {@link RaceRepository} that already holds many: the bet book
+ * keeps the total bet amount current, so the cost does not grow with the number of bets.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RaceRepositoryBenchmark {
+    @Param({"4", "1000"})
+    public int betCount;
+
+    private RaceRepository repository;
+    private HorseBet bet;
+
+    @Setup
+    public void setUp() {
+        repository = new RaceRepository();
+        for (int i = 0; i < betCount; i++) {
+            repository.placeBet(new HorseBet(i % 4 + 1, 10 + i));
+        }
+        bet = new HorseBet(2, 50);
+    }
+
+    @Benchmark
+    public long replaceBet() {
+        repository.removeBet(0);
+        repository.placeBet(bet);
+        return repository.getTotalBetAmount();
+    }
+}
@@ -0,0 +1,56 @@
+package com.zd.horseracing.benchmark;
+
+import com.zd.horseracing.Engine.RaceEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the race tick loop that drives every frame of a race in {@code MainActivity}, for the
+ * usual four horses and the largest field a race card allows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RaceTickBenchmark {
+    @Param({"4", "20"})
+    public int horseCount;
+
+    private RaceEngine engine;
+    private long seed;
+
+    @Setup
+    public void setUp() {
+        engine = new RaceEngine(horseCount, seed);
+    }
+
+    /**
+     * A single tick, restarting the race with a new seed whenever it finishes.
+     */
+    @Benchmark
+    public int tick() {
+        if (engine.isFinished()) {
+            engine.reset(++seed);
+        }
+        return engine.tick();
+    }
+
+    /**
+     * A whole race from the starting gate to the winner.
+     */
+    @Benchmark
+    public int fullRace() {
+        engine.reset(++seed);
+        return engine.runToFinish();
+    }
+}
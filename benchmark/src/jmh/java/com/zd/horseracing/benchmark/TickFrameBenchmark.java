@@ -0,0 +1,135 @@
+package com.zd.horseracing.benchmark;
+
+import com.zd.horseracing.Engine.RaceEngine;
+import com.zd.horseracing.server.TickFrameCodec;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks broadcasting race ticks as {@link TickFrameCodec} frames: encoding one tick, and a
+ * loopback fan-out where one encoded frame is decoded by {@link #VIEWERS} viewers in place.  The
+ * {@code bytes} and {@code ticks} counters give the bytes per tick against the {@code 4 *
+ * horseCount} bytes of sending every position as an int.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TickFrameBenchmark {
+    private static final int VIEWERS = 100;
+    private static final int RACES = 16;
+
+    @Param({"4", "16", "64"})
+    public int horseCount;
+
+    private int[][] ticks; // Positions of every tick of RACES recorded races
+    private int[] rounds;
+    private int[] tickNumbers;
+    private int next;
+    private TickFrameCodec.Encoder encoder;
+    private TickFrameCodec.Decoder[] viewers;
+    private ByteBuffer frame;
+
+    /**
+     * Bytes and ticks encoded in an iteration; their ratio is the bytes per tick.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Traffic {
+        public long bytes;
+        public long ticks;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            bytes = 0;
+            ticks = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        RaceEngine engine = new RaceEngine(horseCount, 0L);
+        int total = 0;
+        for (int race = 0; race < RACES; race++) {
+            engine.reset(race);
+            total += engine.runToFinish() > 0 ? engine.getTickCount() : 0;
+        }
+        ticks = new int[total][horseCount];
+        rounds = new int[total];
+        tickNumbers = new int[total];
+        int t = 0;
+        for (int race = 0; race < RACES; race++) {
+            engine.reset(race);
+            while (!engine.isFinished()) {
+                engine.tick();
+                for (int i = 0; i < horseCount; i++) {
+                    ticks[t][i] = engine.getPosition(i);
+                }
+                rounds[t] = race + 1;
+                tickNumbers[t] = engine.getTickCount();
+                t++;
+            }
+        }
+
+        encoder = new TickFrameCodec.Encoder(horseCount, TickFrameCodec.DEFAULT_KEYFRAME_INTERVAL);
+        viewers = new TickFrameCodec.Decoder[VIEWERS];
+        for (int i = 0; i < VIEWERS; i++) {
+            viewers[i] = new TickFrameCodec.Decoder(horseCount);
+        }
+        frame = ByteBuffer.allocateDirect(TickFrameCodec.maxFrameSize(horseCount));
+    }
+
+    /**
+     * Encodes the next tick, as the server does once per tick per race.
+     */
+    @Benchmark
+    public int encode(Traffic traffic) {
+        int length = encodeNext();
+        traffic.bytes += length;
+        traffic.ticks++;
+        return length;
+    }
+
+    /**
+     * Encodes the next tick once and decodes the same frame for every viewer.
+     */
+    @Benchmark
+    public int fanOut(Traffic traffic) {
+        int length = encodeNext();
+        traffic.bytes += length;
+        traffic.ticks++;
+        int sum = 0;
+        for (TickFrameCodec.Decoder viewer : viewers) {
+            viewer.decode(frame, 0);
+            sum += viewer.getPositions()[0];
+        }
+        return sum;
+    }
+
+    private int encodeNext() {
+        if (next == ticks.length) {
+            next = 0;
+        }
+        frame.clear();
+        int length = encoder.encode(rounds[next], tickNumbers[next], ticks[next], frame);
+        next++;
+        return length;
+    }
+}
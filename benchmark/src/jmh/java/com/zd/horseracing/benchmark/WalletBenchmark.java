@@ -0,0 +1,56 @@
+package com.zd.horseracing.benchmark;
+
+import com.zd.horseracing.Models.Wallet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the lock-free {@link Wallet} with four threads debiting and crediting one shared
+ * account (the worst case, every compare-and-set contended) and each thread its own account
+ * (accounts striped, no contention).
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class WalletBenchmark {
+    @State(Scope.Benchmark)
+    public static class SharedAccount {
+        public Wallet wallet;
+
+        @Setup
+        public void setUp() {
+            wallet = new Wallet(1_000_000);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OwnAccount {
+        public Wallet wallet;
+
+        @Setup
+        public void setUp() {
+            wallet = new Wallet(1_000_000);
+        }
+    }
+
+    @Benchmark
+    public long sharedAccount(SharedAccount account) {
+        return account.wallet.tryDebit(10) ? account.wallet.credit(10) : account.wallet.getBalance();
+    }
+
+    @Benchmark
+    public long ownAccount(OwnAccount account) {
+        return account.wallet.tryDebit(10) ? account.wallet.credit(10) : account.wallet.getBalance();
+    }
+}
@@ -0,0 +1,27 @@
+package com.zd.horseracing.benchmark;
+
+import com.zd.horseracing.Engine.RaceSimulator;
+import com.zd.horseracing.Engine.SimulationResult;
+import com.zd.horseracing.Models.HorseBet;
+
+/**
+ * Runs the {@link RaceSimulator} from the command line and prints the result.
+ * <p>
+ * Usage: {@code RaceSimulatorMain [races] [horses] [seed]}, by default 10,000,000 races of
+ * 4 horses with a seed from the clock.
+ */
+public class RaceSimulatorMain {
+    public static void main(String[] args) {
+        long races = args.length > 0 ? Long.parseLong(args[0]) : 10_000_000L;
+        int horses = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+
+        long start = System.nanoTime();
+        SimulationResult result = new RaceSimulator(horses, HorseBet.WIN_PAYOUT_MULTIPLIER)
+                .simulate(races, seed);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.println(result);
+        System.out.println("Simulated " + races + " races in " + elapsedMillis + " ms");
+    }
+}
@@ -0,0 +1,73 @@
+package com.zd.horseracing.build;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Packs horse animation frames into a sprite atlas at build time.  The output directory is a
+ * generated Android resource directory holding {@code drawable-nodpi/<atlasName>.png} and
+ * {@code raw/<atlasName>_index.txt}.
+ */
+public abstract class PackSpriteAtlasTask extends DefaultTask {
+
+    /** The {@code <animation-list>} drawables whose frames are packed. */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract ConfigurableFileCollection getAnimationFiles();
+
+    /** Additional single frames to pack, by drawable name. */
+    @Input
+    public abstract ListProperty<String> getExtraFrames();
+
+    /** The directory the frame PNGs are read from. */
+    @InputDirectory
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract DirectoryProperty getDrawableDirectory();
+
+    /** The resource name of the atlas. */
+    @Input
+    public abstract Property<String> getAtlasName();
+
+    /** The maximum atlas width in pixels. */
+    @Input
+    public abstract Property<Integer> getMaxWidth();
+
+    /** Transparent pixels kept around every frame. */
+    @Input
+    public abstract Property<Integer> getPadding();
+
+    /** The generated resource directory. */
+    @OutputDirectory
+    public abstract DirectoryProperty getOutputDirectory();
+
+    public PackSpriteAtlasTask() {
+        getMaxWidth().convention(512);
+        getPadding().convention(1);
+    }
+
+    @TaskAction
+    public void pack() throws IOException {
+        File outputDir = getOutputDirectory().get().getAsFile();
+        String atlasName = getAtlasName().get();
+        new SpriteAtlasPacker(getMaxWidth().get(), getPadding().get()).pack(
+                new ArrayList<>(getAnimationFiles().getFiles()),
+                getExtraFrames().get(),
+                getDrawableDirectory().get().getAsFile(),
+                new File(outputDir, "drawable-nodpi/" + atlasName + ".png"),
+                new File(outputDir, "raw/" + atlasName + "_index.txt"));
+    }
+}
@@ -0,0 +1,187 @@
+package com.zd.horseracing.build;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+/**
+ * Packs the frames referenced by {@code <animation-list>} drawables into a single atlas image
+ * and writes a text index describing where each frame is and which frames make up each
+ * animation.  Frames are placed on shelves, tallest first, so the atlas stays compact.
+ *
+ * <p>Index format, one entry per line:
+ * <pre>
+ * frame &lt;name&gt; &lt;x&gt; &lt;y&gt; &lt;width&gt; &lt;height&gt;
+ * animation &lt;name&gt; &lt;frame duration ms&gt; &lt;frame name&gt;...
+ * </pre>
+ */
+public final class SpriteAtlasPacker {
+    private static final String ANDROID_NS = "http://schemas.android.com/apk/res/android";
+    private static final String DRAWABLE_PREFIX = "@drawable/";
+
+    private final int maxWidth;
+    private final int padding;
+
+    /**
+     * @param maxWidth The maximum atlas width in pixels.
+     * @param padding  Transparent pixels kept around every frame so filtering never bleeds.
+     */
+    public SpriteAtlasPacker(int maxWidth, int padding) {
+        this.maxWidth = maxWidth;
+        this.padding = padding;
+    }
+
+    /**
+     * Packs the frames of the given animations plus any extra single frames.
+     *
+     * @param animationFiles The {@code <animation-list>} XML files.
+     * @param extraFrames    Names of additional drawables to pack (e.g. idle sprites).
+     * @param drawableDir    The directory the frame PNGs are read from.
+     * @param atlasOut       The atlas PNG to write.
+     * @param indexOut       The index file to write.
+     */
+    public void pack(List<File> animationFiles, List<String> extraFrames, File drawableDir,
+                     File atlasOut, File indexOut) throws IOException {
+        Map<String, List<String>> animations = new LinkedHashMap<>();
+        Map<String, Integer> durations = new LinkedHashMap<>();
+        Map<String, BufferedImage> frames = new LinkedHashMap<>();
+
+        for (File file : animationFiles) {
+            String name = file.getName().replaceFirst("\\.xml$", "");
+            List<String> frameNames = new ArrayList<>();
+            durations.put(name, readAnimation(file, frameNames));
+            animations.put(name, frameNames);
+            for (String frame : frameNames) {
+                frames.computeIfAbsent(frame, f -> readFrame(drawableDir, f));
+            }
+        }
+        for (String frame : extraFrames) {
+            frames.computeIfAbsent(frame, f -> readFrame(drawableDir, f));
+        }
+
+        Map<String, int[]> placements = place(frames);
+        int width = 0;
+        int height = 0;
+        for (int[] p : placements.values()) {
+            width = Math.max(width, p[0] + p[2] + padding);
+            height = Math.max(height, p[1] + p[3] + padding);
+        }
+
+        BufferedImage atlas = new BufferedImage(Math.max(1, width), Math.max(1, height), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = atlas.createGraphics();
+        for (Map.Entry<String, int[]> entry : placements.entrySet()) {
+            int[] p = entry.getValue();
+            graphics.drawImage(frames.get(entry.getKey()), p[0], p[1], null);
+        }
+        graphics.dispose();
+
+        atlasOut.getParentFile().mkdirs();
+        indexOut.getParentFile().mkdirs();
+        ImageIO.write(atlas, "png", atlasOut);
+        try (PrintWriter out = new PrintWriter(indexOut, StandardCharsets.UTF_8.name())) {
+            out.println("# Generated by SpriteAtlasPacker, do not edit");
+            for (Map.Entry<String, int[]> entry : placements.entrySet()) {
+                int[] p = entry.getValue();
+                out.println("frame " + entry.getKey() + " " + p[0] + " " + p[1] + " " + p[2] + " " + p[3]);
+            }
+            for (Map.Entry<String, List<String>> entry : animations.entrySet()) {
+                out.println("animation " + entry.getKey() + " " + durations.get(entry.getKey())
+                        + " " + String.join(" ", entry.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Places frames on shelves: tallest frames first, left to right, starting a new shelf when
+     * the current one is full.
+     *
+     * @return x, y, width and height of every frame, in insertion order.
+     */
+    private Map<String, int[]> place(Map<String, BufferedImage> frames) {
+        List<String> order = new ArrayList<>(frames.keySet());
+        order.sort((a, b) -> frames.get(b).getHeight() - frames.get(a).getHeight());
+
+        Map<String, int[]> placed = new LinkedHashMap<>();
+        int x = padding;
+        int y = padding;
+        int shelfHeight = 0;
+        for (String name : order) {
+            BufferedImage image = frames.get(name);
+            if (image.getWidth() + 2 * padding > maxWidth) {
+                throw new IllegalArgumentException("Frame " + name + " is wider than the atlas");
+            }
+            if (x + image.getWidth() + padding > maxWidth) {
+                x = padding;
+                y += shelfHeight + padding;
+                shelfHeight = 0;
+            }
+            placed.put(name, new int[]{ x, y, image.getWidth(), image.getHeight() });
+            x += image.getWidth() + padding;
+            shelfHeight = Math.max(shelfHeight, image.getHeight());
+        }
+
+        Map<String, int[]> inFrameOrder = new LinkedHashMap<>();
+        for (String name : frames.keySet()) {
+            inFrameOrder.put(name, placed.get(name));
+        }
+        return inFrameOrder;
+    }
+
+    /**
+     * Reads the frame names of an {@code <animation-list>} in order.
+     *
+     * @return The duration of the first frame, used as the frame duration of the animation.
+     */
+    private static int readAnimation(File file, List<String> frameNames) throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            Document document = factory.newDocumentBuilder().parse(file);
+            NodeList items = document.getElementsByTagName("item");
+            int duration = 0;
+            for (int i = 0; i < items.getLength(); i++) {
+                Element item = (Element) items.item(i);
+                String drawable = item.getAttributeNS(ANDROID_NS, "drawable");
+                if (!drawable.startsWith(DRAWABLE_PREFIX)) {
+                    throw new IOException(file + ": unsupported frame " + drawable);
+                }
+                frameNames.add(drawable.substring(DRAWABLE_PREFIX.length()));
+                if (i == 0) {
+                    duration = Integer.parseInt(item.getAttributeNS(ANDROID_NS, "duration"));
+                }
+            }
+            return duration;
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Cannot read " + file, e);
+        }
+    }
+
+    private static BufferedImage readFrame(File drawableDir, String name) {
+        File file = new File(drawableDir, name + ".png");
+        try {
+            BufferedImage image = ImageIO.read(file);
+            if (image == null) {
+                throw new IllegalArgumentException("Not an image: " + file);
+            }
+            return image;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot read " + file, e);
+        }
+    }
+}
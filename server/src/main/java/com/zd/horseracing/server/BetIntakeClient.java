@@ -0,0 +1,129 @@
+package com.zd.horseracing.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+/**
+ * Blocking client of a {@link BetIntakeServer}: one socket, one bet at a time, for one account.
+ * Not thread-safe; one per session.
+ */
+public class BetIntakeClient implements RaceConnection {
+    private static final BetStatus[] STATUSES = BetStatus.values();
+
+    private final Socket socket;
+    private final InputStream in;
+    private final OutputStream out;
+    private final ByteBuffer request = ByteBuffer.allocate(BetIntakeServer.REQUEST_SIZE);
+    private final byte[] response = new byte[BetIntakeServer.RESPONSE_SIZE];
+    private final ByteBuffer responseBuffer = ByteBuffer.wrap(response);
+    private final long accountId;
+    private long balance; // As of the last reply
+
+    /**
+     * Connects to a server on the loopback interface and signs in to an account.  An account
+     * seen for the first time starts with the server's starting balance; connecting to one again
+     * carries on with its balance and stakes.
+     *
+     * @param port         The server's port.
+     * @param accountId    The account to bet for, at least 0.
+     * @param localAddress The loopback address to connect from, or null for any.  Spreading
+     *                     many sessions over several addresses (127.0.0.x on Linux) lifts the
+     *                     limit of one address's ephemeral ports.
+     * @throws IOException If the connection fails or the server rejects the account.
+     */
+    public BetIntakeClient(int port, long accountId, InetAddress localAddress) throws IOException {
+        this.accountId = accountId;
+        socket = new Socket();
+        try {
+            if (localAddress != null) {
+                socket.bind(new InetSocketAddress(localAddress, 0));
+            }
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            in = socket.getInputStream();
+            out = socket.getOutputStream();
+
+            request.clear();
+            request.putLong(accountId);
+            out.write(request.array(), 0, BetIntakeServer.HELLO_SIZE);
+            if (!BetIntakeServer.readFully(in, response)) {
+                throw new IOException("Server closed the connection");
+            }
+            if (response[0] != BetStatus.ACCEPTED.ordinal()) {
+                throw new IOException("Account " + accountId + " rejected: " + STATUSES[response[0]]);
+            }
+            balance = responseBuffer.getLong(1);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the account this client bets for.
+     *
+     * @return The account id.
+     */
+    public long getAccountId() {
+        return accountId;
+    }
+
+    /**
+     * Not known to the client; the server keeps session ids to itself.
+     *
+     * @return -1.
+     */
+    @Override
+    public int getClientId() {
+        return -1;
+    }
+
+    /**
+     * Sends a bet and waits for the reply.
+     *
+     * @return The server's answer.
+     * @throws IllegalStateException If the connection fails; the session is over.
+     */
+    @Override
+    public BetStatus placeBet(int horseNumber, long amount) {
+        if (horseNumber < 0 || horseNumber > Byte.MAX_VALUE) {
+            return BetStatus.INVALID_BET;
+        }
+        request.clear();
+        request.put((byte) horseNumber).putLong(amount);
+        try {
+            out.write(request.array(), 0, BetIntakeServer.REQUEST_SIZE);
+            if (!BetIntakeServer.readFully(in, response)) {
+                throw new IOException("Server closed the connection");
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Bet intake connection failed", e);
+        }
+        balance = responseBuffer.getLong(1);
+        return STATUSES[response[0]];
+    }
+
+    /**
+     * Gets the balance the server reported with the last bet, or when the client signed in.
+     *
+     * @return The balance.
+     */
+    @Override
+    public long getBalance() {
+        return balance;
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // Already gone
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.zd.horseracing.server;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test of a {@link BetIntakeServer} over loopback sockets, comparing sessions on virtual
+ * threads against a fixed pool of platform threads.  Every session signs in to its own account,
+ * places a few bets with a pause before each (the client thinking), and hangs up; all sessions
+ * start at once.
+ * Reports bets/s and the median and p99 time from sending a bet to its reply, which for the
+ * platform pool includes waiting for a free thread.
+ * <p>
+ * Usage: {@code BetIntakeLoadHarness [sessions,...] [betsPerSession] [thinkMs] [platformThreads]},
+ * by default {@code 1000,10000,50000 5 10 200}.  Needs Java 21 for the virtual thread runs and
+ * for the client side beyond a few thousand sessions.  Each session holds two sockets, so raise
+ * the open file limit ({@code ulimit -n}) to more than twice the session count.  Beyond
+ * {@link #SESSIONS_PER_ADDRESS} sessions the clients connect from several loopback addresses
+ * (127.0.0.x, Linux only) to get enough ephemeral ports.
+ */
+public class BetIntakeLoadHarness {
+    private static final int SESSIONS_PER_ADDRESS = 20_000;
+    private static final int PLATFORM_CLIENT_THREADS = 2_000; // Client side without virtual threads
+    private static final long STARTING_BALANCE = 1_000_000;
+    private static final int HORSES = 4;
+    private static final int WARMUP_SESSIONS = 1000;
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = Arrays.stream((args.length > 0 ? args[0] : "1000,10000,50000").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+        int bets = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        long thinkMs = args.length > 2 ? Long.parseLong(args[2]) : 10;
+        int platformThreads = args.length > 3 ? Integer.parseInt(args[3]) : 200;
+
+        System.out.println("Virtual threads: " + (SessionExecutors.hasVirtualThreads() ? "yes" : "no (Java 21+ needed)"));
+        // Warm up the JIT and the socket paths of both modes; not reported
+        if (SessionExecutors.hasVirtualThreads()) {
+            run(SessionExecutors.newVirtualThreadPerTask(), WARMUP_SESSIONS, bets, thinkMs);
+        }
+        run(SessionExecutors.newPlatformPool(platformThreads), WARMUP_SESSIONS, bets, thinkMs);
+        for (int sessions : sizes) {
+            if (SessionExecutors.hasVirtualThreads()) {
+                report("virtual", sessions, bets,
+                        run(SessionExecutors.newVirtualThreadPerTask(), sessions, bets, thinkMs));
+            }
+            report("platform-" + platformThreads, sessions, bets,
+                    run(SessionExecutors.newPlatformPool(platformThreads), sessions, bets, thinkMs));
+        }
+    }
+
+    /**
+     * Runs every session against a new server.
+     *
+     * @return The sorted bet latencies, the elapsed time and the failed session count.
+     */
+    private static Result run(ExecutorService sessionExecutor, int sessions, int bets, long thinkMs)
+            throws Exception {
+        RaceServer races = new RaceServer(HORSES, 1500, 1L);
+        races.openBetting();
+        InetAddress[] localAddresses = localAddresses(sessions);
+        long[] latencies = new long[sessions * bets];
+        AtomicInteger latencyCount = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(sessions);
+
+        ExecutorService clients = SessionExecutors.hasVirtualThreads()
+                ? SessionExecutors.newVirtualThreadPerTask()
+                : Executors.newFixedThreadPool(Math.min(sessions, PLATFORM_CLIENT_THREADS));
+        long start;
+        long elapsed;
+        try (BetIntakeServer intake = new BetIntakeServer(races, sessionExecutor, STARTING_BALANCE)) {
+            int port = intake.start();
+            start = System.nanoTime();
+            for (int s = 0; s < sessions; s++) {
+                InetAddress localAddress = localAddresses[s % localAddresses.length];
+                long accountId = s;
+                clients.execute(() -> {
+                    try (BetIntakeClient client = new BetIntakeClient(port, accountId, localAddress)) {
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        for (int b = 0; b < bets; b++) {
+                            Thread.sleep(thinkMs);
+                            long sent = System.nanoTime();
+                            BetStatus status = client.placeBet(random.nextInt(HORSES) + 1, 10);
+                            latencies[latencyCount.getAndIncrement()] = System.nanoTime() - sent;
+                            if (status != BetStatus.ACCEPTED) {
+                                throw new IllegalStateException("Bet " + status);
+                            }
+                        }
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            done.await();
+            elapsed = System.nanoTime() - start;
+        } finally {
+            clients.shutdown();
+            clients.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        long[] measured = Arrays.copyOf(latencies, latencyCount.get());
+        Arrays.sort(measured);
+        return new Result(measured, elapsed, failures.get());
+    }
+
+    private static void report(String mode, int sessions, int bets, Result result) {
+        long[] latencies = result.latencies;
+        double seconds = result.elapsedNanos / 1e9;
+        System.out.printf("%-14s %6d sessions: %8.0f bets/s, p50 %8.2f ms, p99 %8.2f ms, %.2f s total, %d failed%n",
+                mode, sessions, latencies.length / seconds,
+                percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6,
+                seconds, result.failures);
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))];
+    }
+
+    private static InetAddress[] localAddresses(int sessions) throws UnknownHostException {
+        int count = (sessions + SESSIONS_PER_ADDRESS - 1) / SESSIONS_PER_ADDRESS;
+        if (count <= 1) {
+            return new InetAddress[]{null}; // Any
+        }
+        InetAddress[] addresses = new InetAddress[count];
+        for (int i = 0; i < count; i++) {
+            addresses[i] = InetAddress.getByAddress(new byte[]{127, 0, 0, (byte) (1 + i)});
+        }
+        return addresses;
+    }
+
+    /**
+     * Outcome of one run.
+     */
+    private static final class Result {
+        final long[] latencies;
+        final long elapsedNanos;
+        final int failures;
+
+        Result(long[] latencies, long elapsedNanos, int failures) {
+            this.latencies = latencies;
+            this.elapsedNanos = elapsedNanos;
+            this.failures = failures;
+        }
+    }
+}
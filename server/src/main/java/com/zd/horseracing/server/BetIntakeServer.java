@@ -0,0 +1,229 @@
+package com.zd.horseracing.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Takes bets over TCP for a {@link RaceServer}.  Every connection is one client session, served
+ * start to end by one task on the session executor with plain blocking reads and writes: read a
+ * bet, check the balance, debit it and record the bet, write the result.  Run on
+ * {@link SessionExecutors#newVirtualThreadPerTask()}, each session gets a virtual thread, so tens
+ * of thousands of mostly idle sessions need no more than a few carrier threads.
+ * <p>
+ * A connection opens with a {@link #HELLO_SIZE}-byte handshake, {@code [account]}, naming the
+ * account it bets for.  The first connection of an account registers it with the race server at
+ * the starting balance; later connections, including reconnects after a dropped socket, bet from
+ * the same balance, and stakes placed before a hang-up stay in the account until the round is
+ * settled.  Connecting again therefore never mints money.  The handshake is answered like a bet,
+ * with the account's balance.
+ * <p>
+ * A request is {@link #REQUEST_SIZE} bytes, {@code [horse][amount]}; the reply is
+ * {@link #RESPONSE_SIZE} bytes, {@code [status][balance]}, with the {@link BetStatus} ordinal
+ * and the balance after the bet.  Race events are not sent on this connection.
+ */
+public class BetIntakeServer implements Closeable {
+    /** Size of the handshake: the account id as a long, at least 0. */
+    public static final int HELLO_SIZE = 8;
+    /** Size of a bet request: the horse byte and the amount as a long. */
+    public static final int REQUEST_SIZE = 1 + 8;
+    /** Size of a reply: the status byte and the balance as a long. */
+    public static final int RESPONSE_SIZE = 1 + 8;
+
+    private static final int BACKLOG = 65_535; // Capped by the OS, e.g. net.core.somaxconn
+    private static final RaceListener NO_EVENTS = new RaceListener() {
+        @Override
+        public void onBettingOpened(int round, int horseCount) {
+        }
+
+        @Override
+        public void onBettingClosed(int round) {
+        }
+
+        @Override
+        public void onTick(ByteBuffer frame) {
+        }
+
+        @Override
+        public void onRaceFinished(int round, int[] finishingOrder, long payout, long balance) {
+        }
+    };
+
+    private final RaceServer races;
+    private final ExecutorService sessions;
+    private final long startingBalance;
+    private final Map<Long, Integer> accounts = new ConcurrentHashMap<>(); // Account id -> client id
+    private final Map<Socket, Boolean> open = new ConcurrentHashMap<>();
+    private ServerSocket serverSocket;
+    private Thread acceptor;
+
+    /**
+     * Constructor for the BetIntakeServer.
+     *
+     * @param races           The race server the bets go to.
+     * @param sessions        Runs one task per connection; shut down on {@link #close()}.
+     * @param startingBalance The balance of every new account.
+     */
+    public BetIntakeServer(RaceServer races, ExecutorService sessions, long startingBalance) {
+        this.races = races;
+        this.sessions = sessions;
+        this.startingBalance = startingBalance;
+    }
+
+    /**
+     * Listens on a free loopback port and starts accepting connections.
+     *
+     * @return The port.
+     * @throws IOException If the port cannot be bound.
+     */
+    public synchronized int start() throws IOException {
+        if (serverSocket != null) {
+            throw new IllegalStateException("Already started");
+        }
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), BACKLOG);
+        acceptor = new Thread(this::acceptLoop, "bet-intake-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Gets the number of accounts that have connected so far.
+     *
+     * @return The account count.
+     */
+    public int getAccountCount() {
+        return accounts.size();
+    }
+
+    /**
+     * Gets the number of connections being served.
+     *
+     * @return The open session count.
+     */
+    public int getOpenSessionCount() {
+        return open.size();
+    }
+
+    /**
+     * Stops accepting, drops every open session and shuts the session executor down.
+     *
+     * @throws IOException If the listening socket cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (serverSocket != null) {
+            serverSocket.close();
+        }
+        for (Socket socket : open.keySet()) {
+            closeQuietly(socket); // Unblocks its handler's read
+        }
+        sessions.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                return; // Closed
+            }
+            open.put(socket, Boolean.TRUE);
+            try {
+                sessions.execute(() -> serve(socket));
+            } catch (RejectedExecutionException e) {
+                open.remove(socket);
+                closeQuietly(socket); // Shutting down
+            }
+        }
+    }
+
+    /**
+     * Serves one client until it hangs up.  The account stays registered with the race server
+     * afterwards, with its balance and stakes, for the next connection.
+     */
+    private void serve(Socket socket) {
+        byte[] request = new byte[REQUEST_SIZE];
+        ByteBuffer requestBuffer = ByteBuffer.wrap(request);
+        ByteBuffer response = ByteBuffer.allocate(RESPONSE_SIZE);
+        try {
+            socket.setTcpNoDelay(true);
+            InputStream in = socket.getInputStream();
+            OutputStream out = socket.getOutputStream();
+
+            byte[] hello = new byte[HELLO_SIZE];
+            if (!readFully(in, hello)) {
+                return;
+            }
+            long accountId = ByteBuffer.wrap(hello).getLong(0);
+            if (accountId < 0) {
+                response.put((byte) BetStatus.UNKNOWN_CLIENT.ordinal()).putLong(0);
+                out.write(response.array(), 0, RESPONSE_SIZE);
+                return;
+            }
+            int clientId = accounts.computeIfAbsent(accountId, id -> races.connect(NO_EVENTS, startingBalance));
+            response.put((byte) BetStatus.ACCEPTED.ordinal()).putLong(races.getBalance(clientId));
+            out.write(response.array(), 0, RESPONSE_SIZE);
+
+            while (readFully(in, request)) {
+                int horse = request[0];
+                long amount = requestBuffer.getLong(1);
+                BetStatus status;
+                try {
+                    status = races.placeBet(clientId, horse, amount);
+                } catch (RuntimeException e) {
+                    status = BetStatus.INVALID_BET; // Answer the bet rather than drop the session
+                }
+                response.clear();
+                response.put((byte) status.ordinal()).putLong(races.getBalance(clientId));
+                out.write(response.array(), 0, RESPONSE_SIZE);
+            }
+        } catch (IOException e) {
+            // The client dropped the connection or the server is closing
+        } finally {
+            open.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    /**
+     * Reads a whole message.
+     *
+     * @return False if the stream ended cleanly before the message.
+     * @throws IOException If the stream ended inside the message.
+     */
+    static boolean readFully(InputStream in, byte[] message) throws IOException {
+        int read = 0;
+        while (read < message.length) {
+            int n = in.read(message, read, message.length - read);
+            if (n < 0) {
+                if (read == 0) {
+                    return false;
+                }
+                throw new IOException("Connection closed inside a message");
+            }
+            read += n;
+        }
+        return true;
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // Already gone
+        }
+    }
+}
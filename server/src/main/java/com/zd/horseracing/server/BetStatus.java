@@ -0,0 +1,17 @@
+package com.zd.horseracing.server;
+
+/**
+ * Outcome of a bet sent to the {@link RaceServer}.
+ */
+public enum BetStatus {
+    /** The stake was debited and added to the pool. */
+    ACCEPTED,
+    /** No betting window is open; nothing was debited. */
+    BETTING_CLOSED,
+    /** The horse is not in the race or the amount is not greater than 0. */
+    INVALID_BET,
+    /** The client's balance does not cover the stake. */
+    INSUFFICIENT_FUNDS,
+    /** The client is not connected. */
+    UNKNOWN_CLIENT
+}
@@ -0,0 +1,63 @@
+package com.zd.horseracing.server;
+
+import com.zd.horseracing.Engine.TotePool;
+import com.zd.horseracing.Models.BetBook;
+import com.zd.horseracing.Models.BetType;
+import com.zd.horseracing.Models.Wallet;
+
+/**
+ * Server-side state of one client: its balance and its bets in the current round.  The balance
+ * is the client's own lock-free {@link Wallet}, so accounts never contend with each other and
+ * reading a balance takes no lock.  The bets are guarded by the session's monitor, which
+ * {@link StripedWinPool} takes inside a horse's stripe lock, never the other way round.
+ */
+final class ClientSession {
+    final int id;
+    final RaceListener listener;
+    private final BetBook book = new BetBook(); // Win bets only, so horse stakes are win stakes
+    private final Wallet wallet;
+
+    ClientSession(int id, RaceListener listener, long balance) {
+        this.id = id;
+        this.listener = listener;
+        this.wallet = new Wallet(balance);
+    }
+
+    /**
+     * Debits a stake and records the bet, if the balance covers it.
+     *
+     * @param horseNumber The horse backed (1-based index).
+     * @param amount      The stake, greater than 0.
+     * @return {@link BetStatus#ACCEPTED} or {@link BetStatus#INSUFFICIENT_FUNDS}.
+     */
+    synchronized BetStatus debit(int horseNumber, long amount) {
+        if (!wallet.tryDebit(amount)) {
+            return BetStatus.INSUFFICIENT_FUNDS;
+        }
+        book.add(BetType.WIN, horseNumber, amount); // A one-horse key is the horse number
+        return BetStatus.ACCEPTED;
+    }
+
+    /**
+     * Credits what the round's bets returned and clears them.
+     *
+     * @param pool   The closed round's pool.
+     * @param winner The winning horse (1-based index).
+     * @return The payout, stakes included.
+     */
+    synchronized long settle(TotePool pool, int winner) {
+        long stake = book.getHorseStake(winner);
+        long payout = stake == 0 ? 0 : pool.payout(winner, stake);
+        wallet.credit(payout);
+        book.clear();
+        return payout;
+    }
+
+    long getBalance() {
+        return wallet.getBalance();
+    }
+
+    synchronized long getStaked() {
+        return book.getTotal();
+    }
+}
@@ -0,0 +1,50 @@
+package com.zd.horseracing.server;
+
+/**
+ * In-process transport: the client calls the {@link RaceServer} directly and the server calls
+ * the client's {@link RaceListener} directly, with no sockets.  Ticks still arrive as the
+ * server's shared {@link TickFrameCodec} frame, the same bytes a network transport would send,
+ * so a listener decodes them as a remote client would.  Used by tests and by
+ * {@link RaceServerMain} to simulate many clients on one machine.
+ */
+public class LoopbackConnection implements RaceConnection {
+    private final RaceServer server;
+    private final int clientId;
+
+    private LoopbackConnection(RaceServer server, int clientId) {
+        this.server = server;
+        this.clientId = clientId;
+    }
+
+    /**
+     * Connects a client to a server in the same process.
+     *
+     * @param server   The server.
+     * @param listener Receives the server's events.
+     * @param balance  The client's starting balance.
+     * @return The connection.
+     */
+    public static LoopbackConnection open(RaceServer server, RaceListener listener, long balance) {
+        return new LoopbackConnection(server, server.connect(listener, balance));
+    }
+
+    @Override
+    public int getClientId() {
+        return clientId;
+    }
+
+    @Override
+    public BetStatus placeBet(int horseNumber, long amount) {
+        return server.placeBet(clientId, horseNumber, amount);
+    }
+
+    @Override
+    public long getBalance() {
+        return server.getBalance(clientId);
+    }
+
+    @Override
+    public void close() {
+        server.disconnect(clientId);
+    }
+}
@@ -0,0 +1,39 @@
+package com.zd.horseracing.server;
+
+import java.io.Closeable;
+
+/**
+ * A client's side of its connection to a {@link RaceServer}; events arrive on the
+ * {@link RaceListener} it was opened with.  Implemented per transport; safe to call from any
+ * thread.
+ */
+public interface RaceConnection extends Closeable {
+    /**
+     * Gets the id the server gave the client.
+     *
+     * @return The client id.
+     */
+    int getClientId();
+
+    /**
+     * Bets on a horse to win the current round.
+     *
+     * @param horseNumber The horse backed (1-based index).
+     * @param amount      The stake.
+     * @return Whether the bet was accepted, and why not.
+     */
+    BetStatus placeBet(int horseNumber, long amount);
+
+    /**
+     * Gets the client's balance, less the stakes of the current round.
+     *
+     * @return The balance.
+     */
+    long getBalance();
+
+    /**
+     * Disconnects the client.  Stakes already placed stay in the pool.
+     */
+    @Override
+    void close();
+}
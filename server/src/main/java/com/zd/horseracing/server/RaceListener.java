@@ -0,0 +1,47 @@
+package com.zd.horseracing.server;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receives the events a {@link RaceServer} broadcasts to one client.  Called on the thread that
+ * runs the rounds, once per client in turn, so implementations must return quickly and hand any
+ * slow work to their own thread.  A listener that throws is disconnected.
+ */
+public interface RaceListener {
+    /**
+     * A round's betting window has opened.
+     *
+     * @param round      The round number, from 1.
+     * @param horseCount The number of horses in the race.
+     */
+    void onBettingOpened(int round, int horseCount);
+
+    /**
+     * The betting window has closed; bets are rejected until the next round.
+     *
+     * @param round The round number.
+     */
+    void onBettingClosed(int round);
+
+    /**
+     * The race has moved on by one tick.
+     *
+     * @param frame The tick as one {@link TickFrameCodec} frame, from position 0 to the limit:
+     *              the bytes a network transport sends as they are.  Encoded once per tick and
+     *              shared, read-only, by every client; read it with a
+     *              {@link TickFrameCodec.Decoder} (which leaves position and limit alone) or copy
+     *              it before returning, since it is overwritten by the next tick.
+     */
+    void onTick(ByteBuffer frame);
+
+    /**
+     * The race is decided and the client's bets are settled.
+     *
+     * @param round          The round number.
+     * @param finishingOrder The horse numbers (1-based) in finishing order.  Reused for the
+     *                       next round, so it must be copied to be kept.
+     * @param payout         What the client's bets returned, stakes included.
+     * @param balance        The client's balance after the payout.
+     */
+    void onRaceFinished(int round, int[] finishingOrder, long payout, long balance);
+}
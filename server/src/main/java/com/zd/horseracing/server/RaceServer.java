@@ -0,0 +1,294 @@
+package com.zd.horseracing.server;
+
+import com.zd.horseracing.Engine.RaceEngine;
+import com.zd.horseracing.Engine.TotePool;
+import com.zd.horseracing.Models.Money;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Authoritative race server for many clients sharing one betting pool.  Each round opens a
+ * betting window, closes it, runs one {@link RaceEngine} race whose ticks are broadcast to every
+ * client, and settles every client's win bets from the shared pool.  Each tick is encoded once
+ * as a {@link TickFrameCodec} frame and the same buffer goes to every client, so broadcasting
+ * costs one encode per tick however many clients watch.  A client connecting mid-race gets a
+ * keyframe on the next tick.
+ * <p>
+ * Clients connect through a transport such as {@link LoopbackConnection}.  Connecting, betting
+ * and reading balances are safe from any number of threads at once; bets go through a
+ * {@link StripedWinPool}, so they contend only with bets on the same horse.  The round methods
+ * ({@link #openBetting()}, {@link #closeBetting()}, {@link #race(long)}, {@link #settle()}) must be
+ * called in that order from one thread, which also delivers every broadcast.
+ */
+public class RaceServer {
+    private final RaceEngine engine;
+    private final StripedWinPool pool;
+    private final SplittableRandom seeds;
+    private final Map<Integer, ClientSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger nextClientId = new AtomicInteger();
+    private final int[] positions;
+    private final int[] finishingOrder;
+    private final TickFrameCodec.Encoder tickEncoder; // Round thread only
+    private final ByteBuffer tickFrame;
+    private final ByteBuffer sharedTickFrame;         // Read-only view handed to the listeners
+    private volatile boolean keyframeRequested;
+    private TotePool closedPool; // The frozen pool of the round being raced
+    private volatile int round;
+    private long houseTakings; // Round thread only
+
+    /**
+     * Constructor for the RaceServer.
+     *
+     * @param horseCount      The number of horses in every race.
+     * @param takeBasisPoints The share of each pool kept by the house, in basis points.
+     * @param seed            Seeds the races; the same seed gives the same sequence of races.
+     */
+    public RaceServer(int horseCount, int takeBasisPoints, long seed) {
+        this.engine = new RaceEngine(horseCount, seed);
+        this.pool = new StripedWinPool(horseCount, takeBasisPoints);
+        this.seeds = new SplittableRandom(seed);
+        this.positions = new int[horseCount];
+        this.finishingOrder = new int[horseCount];
+        this.tickEncoder = new TickFrameCodec.Encoder(horseCount, TickFrameCodec.DEFAULT_KEYFRAME_INTERVAL);
+        this.tickFrame = ByteBuffer.allocate(TickFrameCodec.maxFrameSize(horseCount));
+        this.sharedTickFrame = tickFrame.asReadOnlyBuffer();
+    }
+
+    /**
+     * Registers a client.  Called by transports.
+     *
+     * @param listener Receives the server's events.
+     * @param balance  The client's starting balance, at least 0.
+     * @return The client id.
+     */
+    public int connect(RaceListener listener, long balance) {
+        if (balance < 0) {
+            throw new IllegalArgumentException("A balance cannot be negative");
+        }
+        int clientId = nextClientId.incrementAndGet();
+        sessions.put(clientId, new ClientSession(clientId, listener, balance));
+        keyframeRequested = true; // So a client joining mid-race need not wait for one
+        return clientId;
+    }
+
+    /**
+     * Removes a client.  Its stakes stay in the pool; whatever they win goes to the house.
+     *
+     * @param clientId The client id.
+     */
+    public void disconnect(int clientId) {
+        sessions.remove(clientId);
+    }
+
+    /**
+     * Bets on a horse to win the current round for a client.
+     *
+     * @param clientId    The client id.
+     * @param horseNumber The horse backed (1-based index).
+     * @param amount      The stake.
+     * @return Whether the bet was accepted, and why not.
+     */
+    public BetStatus placeBet(int clientId, int horseNumber, long amount) {
+        ClientSession session = sessions.get(clientId);
+        if (session == null) {
+            return BetStatus.UNKNOWN_CLIENT;
+        }
+        return pool.placeBet(session, horseNumber, amount);
+    }
+
+    /**
+     * Gets a client's balance, less the stakes of the current round.
+     *
+     * @param clientId The client id.
+     * @return The balance.
+     * @throws IllegalArgumentException If the client is not connected.
+     */
+    public long getBalance(int clientId) {
+        return requireSession(clientId).getBalance();
+    }
+
+    /**
+     * Gets what a client has staked in the current round.
+     *
+     * @param clientId The client id.
+     * @return The stakes not yet settled.
+     * @throws IllegalArgumentException If the client is not connected.
+     */
+    public long getStaked(int clientId) {
+        return requireSession(clientId).getStaked();
+    }
+
+    /**
+     * Starts a round and opens its betting window.
+     *
+     * @return The round number.
+     */
+    public int openBetting() {
+        int current = ++round;
+        pool.open();
+        for (Iterator<ClientSession> it = sessions.values().iterator(); it.hasNext(); ) {
+            ClientSession session = it.next();
+            try {
+                session.listener.onBettingOpened(current, positions.length);
+            } catch (RuntimeException e) {
+                it.remove(); // A broken client must not stall the round
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Closes the betting window.  Bets still arriving are rejected without a debit.
+     */
+    public void closeBetting() {
+        closedPool = pool.close();
+        for (Iterator<ClientSession> it = sessions.values().iterator(); it.hasNext(); ) {
+            try {
+                it.next().listener.onBettingClosed(round);
+            } catch (RuntimeException e) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Runs the round's race to the finish, broadcasting every tick.
+     *
+     * @param tickIntervalMs The time between ticks, e.g. {@link RaceEngine#TICK_INTERVAL_MS} for
+     *                       real time, or 0 to run as fast as the clients keep up.
+     * @return The winning horse (1-based index).
+     * @throws InterruptedException If the thread is interrupted while pacing the ticks.
+     */
+    public int race(long tickIntervalMs) throws InterruptedException {
+        if (closedPool == null) {
+            throw new IllegalStateException("Close betting before the race");
+        }
+        engine.reset(seeds.nextLong());
+        while (!engine.isFinished()) {
+            engine.tick();
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = engine.getPosition(i);
+            }
+            broadcastTick(engine.getTickCount());
+            if (tickIntervalMs > 0) {
+                Thread.sleep(tickIntervalMs);
+            }
+        }
+        return engine.getWinner();
+    }
+
+    /**
+     * Settles every client's bets from the closed pool and tells each client its result.
+     *
+     * @return The finishing order, reused for the next round.
+     */
+    public int[] settle() {
+        if (closedPool == null || !engine.isFinished()) {
+            throw new IllegalStateException("Run the race before settling");
+        }
+        engine.getFinishingOrder(finishingOrder);
+        int winner = finishingOrder[0];
+        long paid = 0;
+        for (Iterator<ClientSession> it = sessions.values().iterator(); it.hasNext(); ) {
+            ClientSession session = it.next();
+            long payout = session.settle(closedPool, winner);
+            paid = Money.add(paid, payout);
+            try {
+                session.listener.onRaceFinished(round, finishingOrder, payout, session.getBalance());
+            } catch (RuntimeException e) {
+                it.remove();
+            }
+        }
+        // The take, the breakage, and the whole pool when nobody backed the winner
+        houseTakings = Money.add(houseTakings, closedPool.getTotal() - paid);
+        closedPool = null;
+        return finishingOrder;
+    }
+
+    /**
+     * Runs one whole round.
+     *
+     * @param bettingWindowMs How long betting stays open.
+     * @param tickIntervalMs  The time between ticks, see {@link #race(long)}.
+     * @return The finishing order, reused for the next round.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public int[] runRound(long bettingWindowMs, long tickIntervalMs) throws InterruptedException {
+        openBetting();
+        Thread.sleep(bettingWindowMs);
+        closeBetting();
+        race(tickIntervalMs);
+        return settle();
+    }
+
+    /**
+     * Gets the current round.
+     *
+     * @return The round number, 0 before the first round.
+     */
+    public int getRound() {
+        return round;
+    }
+
+    /**
+     * Gets the number of connected clients.
+     *
+     * @return The client count.
+     */
+    public int getClientCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Gets the shared pool of the current round.
+     *
+     * @return The pool.
+     */
+    public StripedWinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Gets everything the house has kept over all settled rounds.  Read it from the round
+     * thread.
+     *
+     * @return The house's takings.
+     */
+    public long getHouseTakings() {
+        return houseTakings;
+    }
+
+    /**
+     * Encodes a tick once and hands the same frame to every client.
+     */
+    private void broadcastTick(int tick) {
+        if (keyframeRequested) {
+            keyframeRequested = false;
+            tickEncoder.forceKeyframe();
+        }
+        tickFrame.clear();
+        int length = tickEncoder.encode(round, tick, positions, tickFrame);
+        for (Iterator<ClientSession> it = sessions.values().iterator(); it.hasNext(); ) {
+            sharedTickFrame.limit(length);
+            sharedTickFrame.position(0); // Whatever the previous listener did to it
+            try {
+                it.next().listener.onTick(sharedTickFrame);
+            } catch (RuntimeException e) {
+                it.remove();
+            }
+        }
+    }
+
+    private ClientSession requireSession(int clientId) {
+        ClientSession session = sessions.get(clientId);
+        if (session == null) {
+            throw new IllegalArgumentException("No client " + clientId);
+        }
+        return session;
+    }
+}
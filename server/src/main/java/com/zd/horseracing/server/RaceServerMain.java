@@ -0,0 +1,127 @@
+package com.zd.horseracing.server;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs a {@link RaceServer} against simulated clients on loopback connections and reports how
+ * fast the betting windows fill.
+ * <p>
+ * Usage: {@code RaceServerMain [clients] [rounds] [threads] [horses]}, by default 10000 clients,
+ * 3 rounds, one betting thread per core and 4 horses.  Every client bets once per round from one
+ * of the betting threads; the races run unpaced.
+ */
+public class RaceServerMain {
+    private static final long STARTING_BALANCE = 10_000;
+    private static final int TAKE_BASIS_POINTS = 1500;
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int horses = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+
+        RaceServer server = new RaceServer(horses, TAKE_BASIS_POINTS, System.nanoTime());
+        AtomicLong ticksSeen = new AtomicLong();
+        AtomicLong frameBytes = new AtomicLong();
+        RaceListener listener = new CountingListener(ticksSeen, frameBytes);
+        RaceConnection[] connections = new RaceConnection[clients];
+        for (int i = 0; i < clients; i++) {
+            connections[i] = LoopbackConnection.open(server, listener, STARTING_BALANCE);
+        }
+
+        ExecutorService bettors = Executors.newFixedThreadPool(threads);
+        try {
+            for (int r = 0; r < rounds; r++) {
+                int round = server.openBetting();
+                long start = System.nanoTime();
+                long accepted = 0;
+                for (Future<Long> share : bettors.invokeAll(shares(connections, threads, horses))) {
+                    accepted += share.get();
+                }
+                long bettingNanos = System.nanoTime() - start;
+                server.closeBetting();
+                int winner = server.race(0);
+                start = System.nanoTime();
+                server.settle();
+                long settleNanos = System.nanoTime() - start;
+
+                System.out.printf("Round %d: %d of %d bets accepted in %.1f ms (%.0f bets/s), "
+                                + "horse %d won, settled in %.1f ms%n",
+                        round, accepted, clients, bettingNanos / 1e6, accepted * 1e9 / bettingNanos,
+                        winner, settleNanos / 1e6);
+            }
+        } finally {
+            bettors.shutdown();
+        }
+
+        long total = server.getHouseTakings();
+        for (RaceConnection connection : connections) {
+            total += connection.getBalance();
+        }
+        System.out.printf("%d ticks delivered, %.1f bytes per tick frame; money %s (house kept %d)%n",
+                ticksSeen.get(), frameBytes.get() / (double) Math.max(1, ticksSeen.get()),
+                total == STARTING_BALANCE * clients ? "conserved" : "NOT conserved",
+                server.getHouseTakings());
+    }
+
+    /**
+     * Splits the clients among the betting threads; each task returns its accepted bet count.
+     */
+    private static List<Callable<Long>> shares(RaceConnection[] connections, int threads, int horses) {
+        List<Callable<Long>> shares = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            shares.add(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long accepted = 0;
+                for (int i = first; i < connections.length; i += threads) {
+                    BetStatus status = connections[i].placeBet(random.nextInt(horses) + 1, random.nextInt(1, 101));
+                    if (status == BetStatus.ACCEPTED) {
+                        accepted++;
+                    }
+                }
+                return accepted;
+            });
+        }
+        return shares;
+    }
+
+    /**
+     * Shared by every simulated client; counts the tick frames delivered and their bytes.
+     */
+    private static final class CountingListener implements RaceListener {
+        private final AtomicLong ticks;
+        private final AtomicLong bytes;
+
+        CountingListener(AtomicLong ticks, AtomicLong bytes) {
+            this.ticks = ticks;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void onBettingOpened(int round, int horseCount) {
+        }
+
+        @Override
+        public void onBettingClosed(int round) {
+        }
+
+        @Override
+        public void onTick(ByteBuffer frame) {
+            ticks.incrementAndGet();
+            bytes.addAndGet(frame.remaining());
+        }
+
+        @Override
+        public void onRaceFinished(int round, int[] finishingOrder, long payout, long balance) {
+        }
+    }
+}
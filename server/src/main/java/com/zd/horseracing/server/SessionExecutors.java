@@ -0,0 +1,76 @@
+package com.zd.horseracing.server;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executors for client sessions.  A session handler blocks on its socket for as long as the
+ * client stays connected, so it should run on a virtual thread, which costs a few hundred bytes
+ * while blocked, rather than on a platform thread.  The server is compiled for Java 11, so virtual
+ * threads (Java 21) are looked up reflectively; on older runtimes each session gets a platform
+ * thread from a cached pool instead.
+ */
+public final class SessionExecutors {
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findVirtualThreadFactory();
+
+    private SessionExecutors() {
+        // Static factories only
+    }
+
+    /**
+     * Checks whether the runtime has virtual threads.
+     *
+     * @return True on Java 21 and later.
+     */
+    public static boolean hasVirtualThreads() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for every task.
+     *
+     * @return The executor.
+     * @throws UnsupportedOperationException If the runtime has no virtual threads.
+     */
+    public static ExecutorService newVirtualThreadPerTask() {
+        if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR == null) {
+            throw new UnsupportedOperationException("Virtual threads need Java 21 or later");
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Cannot create a virtual thread executor", e);
+        }
+    }
+
+    /**
+     * Creates an executor that runs every session on its own thread: a virtual thread when the
+     * runtime has them, otherwise a platform thread.
+     *
+     * @return The executor.
+     */
+    public static ExecutorService newThreadPerSession() {
+        return hasVirtualThreads() ? newVirtualThreadPerTask() : Executors.newCachedThreadPool();
+    }
+
+    /**
+     * Creates a fixed pool of platform threads.  Sessions beyond the pool size wait for a thread
+     * until an earlier session disconnects.
+     *
+     * @param threads The number of threads.
+     * @return The executor.
+     */
+    public static ExecutorService newPlatformPool(int threads) {
+        return Executors.newFixedThreadPool(threads);
+    }
+
+    private static Method findVirtualThreadFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null; // Before Java 21
+        }
+    }
+}
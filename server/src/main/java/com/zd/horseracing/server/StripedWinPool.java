@@ -0,0 +1,151 @@
+package com.zd.horseracing.server;
+
+import com.zd.horseracing.Engine.TotePool;
+import com.zd.horseracing.Models.Money;
+
+/**
+ * Win pool that many clients bet into at once.  Each horse's pool is a stripe with its own lock,
+ * so bets on different horses never wait for each other and a bet holds a lock only to check the
+ * window, debit the client and add its stake.  Closing the window locks each stripe in turn, so a
+ * bet either lands before its horse's stripe closes or is rejected without a debit; no bet is
+ * half taken.
+ * <p>
+ * Once closed, the stripes are frozen into a {@link TotePool}, which settles the round exactly
+ * like the app's single-player pool.
+ */
+public class StripedWinPool {
+    private final Stripe[] stripes;
+    private final int takeBasisPoints;
+
+    /**
+     * Constructor for the StripedWinPool.  The pool starts closed.
+     *
+     * @param horseCount      The number of horses in the race.
+     * @param takeBasisPoints The share of the pool kept by the house, in basis points.
+     */
+    public StripedWinPool(int horseCount, int takeBasisPoints) {
+        if (horseCount <= 0) {
+            throw new IllegalArgumentException("horseCount must be greater than 0");
+        }
+        if (takeBasisPoints < 0 || takeBasisPoints > TotePool.BASIS_POINTS) {
+            throw new IllegalArgumentException("The take must be between 0 and " + TotePool.BASIS_POINTS + " basis points");
+        }
+        this.stripes = new Stripe[horseCount];
+        for (int i = 0; i < horseCount; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.takeBasisPoints = takeBasisPoints;
+    }
+
+    /**
+     * Empties every stripe and opens the betting window.
+     */
+    public void open() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.amount = 0;
+                stripe.betCount = 0;
+                stripe.open = true;
+            }
+        }
+    }
+
+    /**
+     * Places a client's stake on a horse, debiting the client under the horse's stripe lock.
+     *
+     * @param session     The client.
+     * @param horseNumber The horse backed (1-based index).
+     * @param amount      The stake, greater than 0.
+     * @return Whether the bet was accepted, and why not; a stake the horse's pool total cannot
+     *         hold is an {@link BetStatus#INVALID_BET}.
+     */
+    BetStatus placeBet(ClientSession session, int horseNumber, long amount) {
+        if (horseNumber < 1 || horseNumber > stripes.length || amount <= 0) {
+            return BetStatus.INVALID_BET;
+        }
+        Stripe stripe = stripes[horseNumber - 1];
+        synchronized (stripe) {
+            if (!stripe.open) {
+                return BetStatus.BETTING_CLOSED;
+            }
+            if (amount > session.getBalance()) {
+                return BetStatus.INSUFFICIENT_FUNDS; // Rechecked by the debit; keeps huge stakes off the stripe sum
+            }
+            long newAmount;
+            try {
+                newAmount = Money.add(stripe.amount, amount); // Before the debit, so an overflow debits nothing
+            } catch (ArithmeticException e) {
+                return BetStatus.INVALID_BET; // The horse's pool cannot hold the stake
+            }
+            BetStatus status = session.debit(horseNumber, amount);
+            if (status == BetStatus.ACCEPTED) {
+                stripe.amount = newAmount;
+                stripe.betCount++;
+            }
+            return status;
+        }
+    }
+
+    /**
+     * Closes the betting window and freezes the stripes for settlement.
+     *
+     * @return A pool holding each horse's stakes, for {@link TotePool#payout(int, long)}.
+     */
+    public TotePool close() {
+        TotePool pool = new TotePool(stripes.length, takeBasisPoints);
+        for (int i = 0; i < stripes.length; i++) {
+            Stripe stripe = stripes[i];
+            synchronized (stripe) {
+                stripe.open = false;
+                if (stripe.amount > 0) {
+                    pool.placeBet(i + 1, stripe.amount); // One aggregate stake per horse
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Gets the amount staked on a horse so far.
+     *
+     * @param horseNumber The horse (1-based index).
+     * @return The stripe's total.
+     */
+    public long getPool(int horseNumber) {
+        Stripe stripe = stripes[horseNumber - 1];
+        synchronized (stripe) {
+            return stripe.amount;
+        }
+    }
+
+    /**
+     * Gets the number of bets placed on a horse so far.
+     *
+     * @param horseNumber The horse (1-based index).
+     * @return The stripe's bet count.
+     */
+    public long getBetCount(int horseNumber) {
+        Stripe stripe = stripes[horseNumber - 1];
+        synchronized (stripe) {
+            return stripe.betCount;
+        }
+    }
+
+    /**
+     * Gets the number of horses.
+     *
+     * @return The stripe count.
+     */
+    public int getHorseCount() {
+        return stripes.length;
+    }
+
+    /**
+     * One horse's pool, and the lock for it.
+     */
+    private static final class Stripe {
+        boolean open;
+        long amount;
+        long betCount;
+    }
+}
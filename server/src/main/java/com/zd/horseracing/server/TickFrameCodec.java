@@ -0,0 +1,249 @@
+package com.zd.horseracing.server;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compact binary frames for broadcasting race ticks.  Instead of every horse's full position
+ * each tick, a frame carries how far each horse moved since the previous tick as a zigzag varint,
+ * one byte per horse for the engine's strides, with a keyframe of full positions every
+ * {@link #DEFAULT_KEYFRAME_INTERVAL} ticks and at the start of a round so a viewer joining late
+ * catches up within a second.
+ * <p>
+ * Keyframe: {@code [KEYFRAME][round][tick][horseCount][position...]}.
+ * Delta: {@code [DELTA][tick][positionChange...]}.  Every field after the type byte is a
+ * varint; position changes are zigzag encoded.  A frame is one whole transport message.
+ * <p>
+ * The {@link Encoder} writes straight into the caller's buffer and the {@link Decoder} reads
+ * with absolute gets, so one encoded frame can be decoded by any number of viewers, on any
+ * threads, without copying it.  Neither allocates per frame.
+ */
+public final class TickFrameCodec {
+    /** Type byte of a frame of full positions. */
+    public static final byte KEYFRAME = 1;
+    /** Type byte of a frame of position changes. */
+    public static final byte DELTA = 2;
+    /** Ticks between keyframes: one second at the engine's tick rate. */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 20;
+
+    private static final int MAX_VARINT_BYTES = 5;
+
+    private TickFrameCodec() {
+        // Encoder and Decoder only
+    }
+
+    /**
+     * Gets the largest frame a race of a given size can produce, to size buffers.
+     *
+     * @param horseCount The number of horses.
+     * @return The size in bytes.
+     */
+    public static int maxFrameSize(int horseCount) {
+        return 1 + MAX_VARINT_BYTES * (3 + horseCount);
+    }
+
+    /**
+     * Encodes the ticks of one server's races, remembering the last positions sent.  Not
+     * thread-safe; one per broadcasting thread.
+     */
+    public static final class Encoder {
+        private final int[] previous;
+        private final int keyframeInterval;
+        private int round = -1;
+        private int tick;
+        private int sinceKeyframe;
+
+        /**
+         * Constructor for the Encoder.
+         *
+         * @param horseCount       The number of horses.
+         * @param keyframeInterval Ticks between keyframes, at least 1.
+         */
+        public Encoder(int horseCount, int keyframeInterval) {
+            if (horseCount <= 0 || keyframeInterval <= 0) {
+                throw new IllegalArgumentException("horseCount and keyframeInterval must be greater than 0");
+            }
+            this.previous = new int[horseCount];
+            this.keyframeInterval = keyframeInterval;
+        }
+
+        /**
+         * Appends the frame of a tick to a buffer.  The first tick of a round, a tick that does
+         * not follow the last one, and every {@code keyframeInterval}-th tick are keyframes.
+         *
+         * @param round     The round number.
+         * @param tick      The tick.
+         * @param positions The position of every horse by 0-based lane, each at least 0.
+         * @param out       Receives the frame; needs {@link #maxFrameSize(int)} bytes free.
+         * @return The number of bytes written.
+         */
+        public int encode(int round, int tick, int[] positions, ByteBuffer out) {
+            int start = out.position();
+            if (round != this.round || tick != this.tick + 1 || sinceKeyframe >= keyframeInterval - 1) {
+                out.put(KEYFRAME);
+                putVarint(out, round);
+                putVarint(out, tick);
+                putVarint(out, previous.length);
+                for (int i = 0; i < previous.length; i++) {
+                    putVarint(out, positions[i]);
+                    previous[i] = positions[i];
+                }
+                sinceKeyframe = 0;
+            } else {
+                out.put(DELTA);
+                putVarint(out, tick);
+                for (int i = 0; i < previous.length; i++) {
+                    int change = positions[i] - previous[i];
+                    putVarint(out, (change << 1) ^ (change >> 31)); // Zigzag: small of either sign stays small
+                    previous[i] = positions[i];
+                }
+                sinceKeyframe++;
+            }
+            this.round = round;
+            this.tick = tick;
+            return out.position() - start;
+        }
+
+        /**
+         * Makes the next frame a keyframe, e.g. when a viewer joins.
+         */
+        public void forceKeyframe() {
+            round = -1;
+        }
+    }
+
+    /**
+     * Decodes the frames of one broadcast into the current positions.  Not thread-safe; one per
+     * viewer.
+     */
+    public static final class Decoder {
+        private final int[] positions;
+        private int round;
+        private int tick;
+        private boolean synced;
+
+        /**
+         * Constructor for the Decoder.
+         *
+         * @param horseCount The number of horses.
+         */
+        public Decoder(int horseCount) {
+            this.positions = new int[horseCount];
+        }
+
+        /**
+         * Applies a frame.  The buffer's position and limit are not changed.
+         *
+         * @param frame  The buffer holding the frame.
+         * @param offset The index of the frame's type byte.
+         * @return True if the positions now show the frame's tick; false if the frame was a delta
+         *         that does not follow the last tick decoded, and a keyframe is needed first.
+         * @throws IllegalArgumentException If the frame is malformed or for another field size.
+         */
+        public boolean decode(ByteBuffer frame, int offset) {
+            byte type = frame.get(offset);
+            int index = offset + 1;
+            if (type == KEYFRAME) {
+                long value = getVarint(frame, index);
+                int frameRound = (int) value;
+                index += (int) (value >>> 32);
+                value = getVarint(frame, index);
+                int frameTick = (int) value;
+                index += (int) (value >>> 32);
+                value = getVarint(frame, index);
+                if ((int) value != positions.length) {
+                    throw new IllegalArgumentException("A frame of " + (int) value + " horses for "
+                            + positions.length);
+                }
+                index += (int) (value >>> 32);
+                for (int i = 0; i < positions.length; i++) {
+                    value = getVarint(frame, index);
+                    positions[i] = (int) value;
+                    index += (int) (value >>> 32);
+                }
+                round = frameRound;
+                tick = frameTick;
+                synced = true;
+                return true;
+            }
+            if (type != DELTA) {
+                throw new IllegalArgumentException("Unknown frame type " + type);
+            }
+            long value = getVarint(frame, index);
+            if (!synced || (int) value != tick + 1) {
+                synced = false; // A frame was missed; wait for the next keyframe
+                return false;
+            }
+            index += (int) (value >>> 32);
+            for (int i = 0; i < positions.length; i++) {
+                value = getVarint(frame, index);
+                int zigzag = (int) value;
+                positions[i] += (zigzag >>> 1) ^ -(zigzag & 1);
+                index += (int) (value >>> 32);
+            }
+            tick++;
+            return true;
+        }
+
+        /**
+         * Gets the decoded positions.
+         *
+         * @return The position of every horse by 0-based lane; updated in place by each frame.
+         */
+        public int[] getPositions() {
+            return positions;
+        }
+
+        /**
+         * Gets the round of the last keyframe.
+         *
+         * @return The round number.
+         */
+        public int getRound() {
+            return round;
+        }
+
+        /**
+         * Gets the tick of the last frame decoded.
+         *
+         * @return The tick.
+         */
+        public int getTick() {
+            return tick;
+        }
+
+        /**
+         * Checks whether the positions are current.
+         *
+         * @return False before the first keyframe and after a missed frame.
+         */
+        public boolean isSynced() {
+            return synced;
+        }
+    }
+
+    private static void putVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /**
+     * Reads a varint with an absolute get.
+     *
+     * @return The value in the low 32 bits and its length in bytes in the high 32 bits, so
+     *         decoding returns both without allocating.
+     */
+    private static long getVarint(ByteBuffer in, int index) {
+        int value = 0;
+        for (int i = 0; i < MAX_VARINT_BYTES; i++) {
+            byte b = in.get(index + i);
+            value |= (b & 0x7F) << (7 * i);
+            if (b >= 0) {
+                return (value & 0xFFFFFFFFL) | ((long) (i + 1) << 32);
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint at " + index);
+    }
+}
@@ -0,0 +1,181 @@
+package com.zd.horseracing.server;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link BetIntakeServer} and {@link BetIntakeClient} over loopback sockets.
+ */
+public class BetIntakeServerTest {
+    private RaceServer races;
+    private BetIntakeServer intake;
+    private int port;
+
+    @Before
+    public void setUp() throws Exception {
+        races = new RaceServer(4, 1500, 1L);
+        intake = new BetIntakeServer(races, SessionExecutors.newThreadPerSession(), 100);
+        port = intake.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        intake.close();
+    }
+
+    @Test
+    public void bets_checkAndDebitTheSessionBalance() throws Exception {
+        races.openBetting();
+        try (BetIntakeClient client = new BetIntakeClient(port, 1, null)) {
+            assertEquals(100, client.getBalance()); // Reported by the handshake
+            assertEquals(BetStatus.ACCEPTED, client.placeBet(2, 60));
+            assertEquals(40, client.getBalance());
+            assertEquals(BetStatus.INSUFFICIENT_FUNDS, client.placeBet(3, 41));
+            assertEquals(40, client.getBalance());
+            assertEquals(BetStatus.INVALID_BET, client.placeBet(9, 1));
+            assertEquals(BetStatus.ACCEPTED, client.placeBet(3, 40));
+            assertEquals(0, client.getBalance());
+        }
+        assertEquals(100, races.getPool().getPool(2) + races.getPool().getPool(3));
+    }
+
+    @Test
+    public void overflowingStake_isAnswered() throws Exception {
+        races.openBetting();
+        try (BetIntakeClient client = new BetIntakeClient(port, 1, null)) {
+            assertEquals(BetStatus.INSUFFICIENT_FUNDS, client.placeBet(1, Long.MAX_VALUE));
+            assertEquals(BetStatus.ACCEPTED, client.placeBet(1, 10)); // The session is still served
+            assertEquals(90, client.getBalance());
+        }
+    }
+
+    @Test
+    public void betThatThrows_isAnsweredAsInvalid() throws Exception {
+        RaceServer throwing = new RaceServer(4, 1500, 1L) {
+            @Override
+            public BetStatus placeBet(int clientId, int horseNumber, long amount) {
+                if (amount == Long.MAX_VALUE) {
+                    throw new ArithmeticException("long overflow");
+                }
+                return super.placeBet(clientId, horseNumber, amount);
+            }
+        };
+        try (BetIntakeServer other = new BetIntakeServer(throwing, SessionExecutors.newThreadPerSession(), 100)) {
+            int otherPort = other.start();
+            throwing.openBetting();
+            try (BetIntakeClient client = new BetIntakeClient(otherPort, 1, null)) {
+                assertEquals(BetStatus.INVALID_BET, client.placeBet(1, Long.MAX_VALUE));
+                assertEquals(100, client.getBalance());
+                assertEquals(BetStatus.ACCEPTED, client.placeBet(1, 10));
+            }
+        }
+    }
+
+    @Test
+    public void closedWindow_rejectsOverTheWire() throws Exception {
+        try (BetIntakeClient client = new BetIntakeClient(port, 1, null)) {
+            assertEquals(BetStatus.BETTING_CLOSED, client.placeBet(1, 10));
+            assertEquals(100, client.getBalance());
+        }
+    }
+
+    @Test
+    public void concurrentSessions_eachGetTheirOwnBalance() throws Exception {
+        races.openBetting();
+        int sessions = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Callable<Long>> tasks = new ArrayList<>();
+            for (int s = 0; s < sessions; s++) {
+                int horse = s % 4 + 1;
+                long accountId = s;
+                tasks.add(() -> {
+                    try (BetIntakeClient client = new BetIntakeClient(port, accountId, null)) {
+                        for (int b = 0; b < 10; b++) {
+                            assertEquals(BetStatus.ACCEPTED, client.placeBet(horse, 10));
+                        }
+                        assertEquals(BetStatus.INSUFFICIENT_FUNDS, client.placeBet(horse, 10));
+                        return client.getBalance();
+                    }
+                });
+            }
+            for (Future<Long> balance : executor.invokeAll(tasks)) {
+                assertEquals(0, (long) balance.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        for (int horse = 1; horse <= 4; horse++) {
+            assertEquals(sessions / 4 * 100, races.getPool().getPool(horse));
+        }
+    }
+
+    @Test
+    public void reconnecting_keepsTheBalanceAndStakes() throws Exception {
+        races.openBetting();
+        try (BetIntakeClient client = new BetIntakeClient(port, 7, null)) {
+            assertEquals(BetStatus.ACCEPTED, client.placeBet(1, 60));
+        }
+        awaitNoOpenSessions();
+
+        // Signing in again is the same account, not a new funded one
+        try (BetIntakeClient client = new BetIntakeClient(port, 7, null)) {
+            assertEquals(40, client.getBalance());
+            assertEquals(BetStatus.INSUFFICIENT_FUNDS, client.placeBet(2, 41));
+        }
+        try (BetIntakeClient other = new BetIntakeClient(port, 8, null)) {
+            assertEquals(100, other.getBalance()); // Another account starts fresh
+        }
+        awaitNoOpenSessions();
+        assertEquals(2, intake.getAccountCount());
+        assertEquals(2, races.getClientCount());
+        assertEquals(60, races.getPool().getPool(1)); // Still staked after the hang-up
+
+        races.closeBetting();
+        int winner = races.race(0);
+        races.settle();
+        try (BetIntakeClient client = new BetIntakeClient(port, 7, null)) {
+            assertEquals(winner == 1, client.getBalance() > 40); // Settled into the same account
+        }
+    }
+
+    @Test
+    public void negativeAccount_isRejected() throws Exception {
+        try {
+            new BetIntakeClient(port, -1, null).close();
+            fail("A negative account id is not an account");
+        } catch (IOException expected) {
+            // Rejected by the handshake
+        }
+        assertEquals(0, intake.getAccountCount());
+    }
+
+    @Test
+    public void hangingUp_closesTheConnectionButKeepsTheAccount() throws Exception {
+        try (BetIntakeClient client = new BetIntakeClient(port, 1, null)) {
+            client.placeBet(1, 1); // Round trip, so the session is being served
+            assertEquals(1, intake.getOpenSessionCount());
+        }
+        awaitNoOpenSessions();
+        assertEquals(0, intake.getOpenSessionCount());
+        assertEquals(1, races.getClientCount());
+    }
+
+    private void awaitNoOpenSessions() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (intake.getOpenSessionCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
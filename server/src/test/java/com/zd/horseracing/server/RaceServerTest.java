@@ -0,0 +1,244 @@
+package com.zd.horseracing.server;
+
+import com.zd.horseracing.Engine.TotePool;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link RaceServer} over {@link LoopbackConnection}s.
+ */
+public class RaceServerTest {
+    private static final int HORSES = 4;
+
+    @Test
+    public void tenThousandClients_betConcurrently_andMoneyIsConserved() throws Exception {
+        RaceServer server = new RaceServer(HORSES, 1500, 42L);
+        int clients = 10_000;
+        RecordingListener[] listeners = new RecordingListener[clients];
+        RaceConnection[] connections = new RaceConnection[clients];
+        for (int i = 0; i < clients; i++) {
+            listeners[i] = new RecordingListener();
+            connections[i] = LoopbackConnection.open(server, listeners[i], 1000);
+        }
+
+        server.openBetting();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int first = t;
+                tasks.add(() -> {
+                    for (int i = first; i < clients; i += 8) {
+                        // Every client bets twice, on two horses
+                        assertEquals(BetStatus.ACCEPTED, connections[i].placeBet(i % HORSES + 1, 10));
+                        assertEquals(BetStatus.ACCEPTED, connections[i].placeBet((i + 1) % HORSES + 1, 5));
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> task : executor.invokeAll(tasks)) {
+                task.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        StripedWinPool pool = server.getPool();
+        long staked = 0;
+        for (int horse = 1; horse <= HORSES; horse++) {
+            assertEquals(clients / HORSES * 15, pool.getPool(horse));
+            assertEquals(clients / HORSES * 2, pool.getBetCount(horse));
+            staked += pool.getPool(horse);
+        }
+        assertEquals(clients * 15L, staked);
+
+        server.closeBetting();
+        server.race(0);
+        server.settle();
+
+        long total = server.getHouseTakings();
+        for (int i = 0; i < clients; i++) {
+            total += connections[i].getBalance();
+            assertEquals(1, listeners[i].finished);
+        }
+        assertEquals(clients * 1000L, total); // Nothing lost or created
+        assertTrue(server.getHouseTakings() >= staked * 1500 / TotePool.BASIS_POINTS);
+    }
+
+    @Test
+    public void betAfterClose_isRejectedWithoutADebit() throws Exception {
+        RaceServer server = new RaceServer(HORSES, 0, 1L);
+        RaceConnection client = LoopbackConnection.open(server, new RecordingListener(), 100);
+
+        assertEquals(BetStatus.BETTING_CLOSED, client.placeBet(1, 10)); // Before the first round
+        server.openBetting();
+        server.closeBetting();
+        assertEquals(BetStatus.BETTING_CLOSED, client.placeBet(1, 10));
+        assertEquals(100, client.getBalance());
+        assertEquals(0, server.getPool().getPool(1));
+    }
+
+    @Test
+    public void invalidBets_areRejected() {
+        RaceServer server = new RaceServer(HORSES, 0, 1L);
+        RaceConnection client = LoopbackConnection.open(server, new RecordingListener(), 100);
+        server.openBetting();
+
+        assertEquals(BetStatus.INVALID_BET, client.placeBet(0, 10));
+        assertEquals(BetStatus.INVALID_BET, client.placeBet(HORSES + 1, 10));
+        assertEquals(BetStatus.INVALID_BET, client.placeBet(1, 0));
+        assertEquals(BetStatus.INSUFFICIENT_FUNDS, client.placeBet(1, 101));
+        assertEquals(BetStatus.ACCEPTED, client.placeBet(1, 100));
+        assertEquals(BetStatus.INSUFFICIENT_FUNDS, client.placeBet(2, 1));
+        assertEquals(0, client.getBalance());
+
+        client.close();
+        assertEquals(BetStatus.UNKNOWN_CLIENT, client.placeBet(1, 1));
+    }
+
+    @Test
+    public void maxValueStake_isRejectedWithoutADebit() {
+        RaceServer server = new RaceServer(HORSES, 0, 1L);
+        RaceConnection client = LoopbackConnection.open(server, new RecordingListener(), 100);
+        RaceConnection rich = LoopbackConnection.open(server, new RecordingListener(), Long.MAX_VALUE);
+        server.openBetting();
+
+        assertEquals(BetStatus.INSUFFICIENT_FUNDS, client.placeBet(1, Long.MAX_VALUE));
+        assertEquals(BetStatus.ACCEPTED, client.placeBet(1, 10));
+        // Covered by the balance, but the horse's pool cannot hold it
+        assertEquals(BetStatus.INVALID_BET, rich.placeBet(1, Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, rich.getBalance());
+        assertEquals(10, server.getPool().getPool(1));
+    }
+
+    @Test
+    public void winnerBackers_shareTheNetPool() throws Exception {
+        RaceServer server = new RaceServer(HORSES, 1000, 7L);
+        RaceConnection[] clients = new RaceConnection[HORSES];
+        for (int i = 0; i < HORSES; i++) {
+            clients[i] = LoopbackConnection.open(server, new RecordingListener(), 1000);
+        }
+        server.openBetting();
+        for (int i = 0; i < HORSES; i++) {
+            clients[i].placeBet(i + 1, 100); // One client on each horse
+        }
+        server.closeBetting();
+        int winner = server.race(0);
+        server.settle();
+
+        for (int i = 0; i < HORSES; i++) {
+            assertEquals(i + 1 == winner ? 900 + 360 : 900, clients[i].getBalance()); // 400 less 10%
+        }
+        assertEquals(40, server.getHouseTakings());
+    }
+
+    @Test
+    public void everyTick_isBroadcastInOrder() throws Exception {
+        RaceServer server = new RaceServer(HORSES, 0, 3L);
+        RecordingListener listener = new RecordingListener();
+        LoopbackConnection.open(server, listener, 0);
+
+        server.openBetting();
+        server.closeBetting();
+        int winner = server.race(0);
+        int[] order = server.settle();
+
+        assertEquals(1, listener.opened);
+        assertEquals(1, listener.closed);
+        assertTrue(listener.ticks > 0);
+        assertEquals(listener.ticks, listener.lastTick);
+        assertEquals(winner, order[0]);
+        assertEquals(winner, listener.lastWinner);
+    }
+
+    @Test
+    public void clientJoiningMidRace_isSentAKeyframe() throws Exception {
+        RaceServer server = new RaceServer(HORSES, 0, 3L);
+        RecordingListener late = new RecordingListener();
+        RecordingListener early = new RecordingListener() {
+            @Override
+            public void onTick(ByteBuffer frame) {
+                super.onTick(frame);
+                if (lastTick == 5) {
+                    LoopbackConnection.open(server, late, 0);
+                }
+            }
+        };
+        LoopbackConnection.open(server, early, 0);
+
+        server.openBetting();
+        server.closeBetting();
+        server.race(0);
+
+        assertTrue(early.lastTick > 6);
+        assertEquals(early.lastTick, late.lastTick);
+        assertArrayEquals(early.decoder.getPositions(), late.decoder.getPositions());
+    }
+
+    @Test
+    public void brokenListener_isDisconnected() {
+        RaceServer server = new RaceServer(HORSES, 0, 3L);
+        LoopbackConnection.open(server, new RecordingListener() {
+            @Override
+            public void onBettingOpened(int round, int horseCount) {
+                throw new IllegalStateException("Broken client");
+            }
+        }, 0);
+
+        server.openBetting();
+        assertEquals(0, server.getClientCount());
+    }
+
+    /**
+     * Counts events and decodes the tick frames; only written by the round thread.  A listener
+     * that joined mid-race skips the frames before its first keyframe.
+     */
+    private static class RecordingListener implements RaceListener {
+        int opened;
+        int closed;
+        int ticks;
+        int lastTick;
+        int finished;
+        int lastWinner;
+        final TickFrameCodec.Decoder decoder = new TickFrameCodec.Decoder(HORSES);
+
+        @Override
+        public void onBettingOpened(int round, int horseCount) {
+            opened++;
+        }
+
+        @Override
+        public void onBettingClosed(int round) {
+            closed++;
+        }
+
+        @Override
+        public void onTick(ByteBuffer frame) {
+            if (!decoder.decode(frame, 0)) {
+                assertEquals(0, ticks); // Only before the first keyframe
+                return;
+            }
+            if (ticks > 0) {
+                assertEquals(lastTick + 1, decoder.getTick());
+            }
+            ticks++;
+            lastTick = decoder.getTick();
+        }
+
+        @Override
+        public void onRaceFinished(int round, int[] finishingOrder, long payout, long balance) {
+            finished++;
+            lastWinner = finishingOrder[0];
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.zd.horseracing.server;
+
+import com.zd.horseracing.Engine.RaceEngine;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link TickFrameCodec}.
+ */
+public class TickFrameCodecTest {
+    @Test
+    public void wholeRaces_roundTrip() {
+        for (int horses : new int[]{4, 16, 64}) {
+            RaceEngine engine = new RaceEngine(horses, horses);
+            TickFrameCodec.Encoder encoder = new TickFrameCodec.Encoder(horses, TickFrameCodec.DEFAULT_KEYFRAME_INTERVAL);
+            TickFrameCodec.Decoder decoder = new TickFrameCodec.Decoder(horses);
+            ByteBuffer frame = ByteBuffer.allocateDirect(TickFrameCodec.maxFrameSize(horses));
+            int[] positions = new int[horses];
+
+            for (int round = 1; round <= 3; round++) {
+                engine.reset(round);
+                while (!engine.isFinished()) {
+                    engine.tick();
+                    for (int i = 0; i < horses; i++) {
+                        positions[i] = engine.getPosition(i);
+                    }
+                    frame.clear();
+                    int length = encoder.encode(round, engine.getTickCount(), positions, frame);
+                    assertEquals(frame.position(), length);
+
+                    assertTrue(decoder.decode(frame, 0));
+                    assertArrayEquals(positions, decoder.getPositions());
+                    assertEquals(round, decoder.getRound());
+                    assertEquals(engine.getTickCount(), decoder.getTick());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void deltaFrames_takeAByteAHorse() {
+        TickFrameCodec.Encoder encoder = new TickFrameCodec.Encoder(16, 20);
+        ByteBuffer frame = ByteBuffer.allocate(TickFrameCodec.maxFrameSize(16));
+        int[] positions = new int[16];
+
+        encoder.encode(1, 1, positions, frame);
+        assertEquals(TickFrameCodec.KEYFRAME, frame.get(0));
+        for (int i = 0; i < 16; i++) {
+            positions[i] += i % RaceEngine.STRIDE_BOUND;
+        }
+        frame.clear();
+        assertEquals(1 + 1 + 16, encoder.encode(1, 2, positions, frame));
+        assertEquals(TickFrameCodec.DELTA, frame.get(0));
+    }
+
+    @Test
+    public void keyframes_comeAtTheInterval() {
+        TickFrameCodec.Encoder encoder = new TickFrameCodec.Encoder(4, 5);
+        ByteBuffer frame = ByteBuffer.allocate(TickFrameCodec.maxFrameSize(4));
+        int[] positions = new int[4];
+        for (int tick = 1; tick <= 11; tick++) {
+            frame.clear();
+            encoder.encode(1, tick, positions, frame);
+            boolean keyframe = tick == 1 || tick == 6 || tick == 11;
+            assertEquals("tick " + tick, keyframe ? TickFrameCodec.KEYFRAME : TickFrameCodec.DELTA, frame.get(0));
+        }
+
+        encoder.forceKeyframe();
+        frame.clear();
+        encoder.encode(1, 12, positions, frame);
+        assertEquals(TickFrameCodec.KEYFRAME, frame.get(0));
+    }
+
+    @Test
+    public void missedFrame_waitsForTheNextKeyframe() {
+        TickFrameCodec.Encoder encoder = new TickFrameCodec.Encoder(4, 4);
+        TickFrameCodec.Decoder decoder = new TickFrameCodec.Decoder(4);
+        ByteBuffer frame = ByteBuffer.allocate(TickFrameCodec.maxFrameSize(4));
+        int[] positions = new int[4];
+
+        for (int tick = 1; tick <= 9; tick++) {
+            positions[tick % 4] += 2;
+            frame.clear();
+            encoder.encode(1, tick, positions, frame);
+            if (tick == 2) {
+                continue; // Lost
+            }
+            boolean decoded = decoder.decode(frame, 0);
+            assertEquals("tick " + tick, tick == 1 || tick >= 5, decoded); // Keyframe at 5
+            assertEquals(decoded, decoder.isSynced());
+            if (decoded) {
+                assertArrayEquals(positions, decoder.getPositions());
+            }
+        }
+    }
+
+    @Test
+    public void sharedFrame_decodesAtAnOffsetWithoutMovingTheBuffer() {
+        TickFrameCodec.Encoder encoder = new TickFrameCodec.Encoder(4, 20);
+        ByteBuffer frames = ByteBuffer.allocate(64);
+        frames.put((byte) 99); // Transport header
+        encoder.encode(7, 300, new int[]{1, 200, 3, 100_000}, frames);
+        frames.flip();
+
+        for (int viewer = 0; viewer < 3; viewer++) {
+            TickFrameCodec.Decoder decoder = new TickFrameCodec.Decoder(4);
+            assertTrue(decoder.decode(frames, 1));
+            assertArrayEquals(new int[]{1, 200, 3, 100_000}, decoder.getPositions());
+            assertEquals(300, decoder.getTick());
+            assertEquals(0, frames.position());
+        }
+    }
+
+    @Test
+    public void badFrames_areRejected() {
+        TickFrameCodec.Decoder decoder = new TickFrameCodec.Decoder(4);
+        assertThrows(IllegalArgumentException.class,
+                () -> decoder.decode(ByteBuffer.wrap(new byte[]{9, 0}), 0));
+        assertThrows(IllegalArgumentException.class, // Keyframe for 5 horses
+                () -> decoder.decode(ByteBuffer.wrap(new byte[]{TickFrameCodec.KEYFRAME, 1, 1, 5, 0, 0, 0, 0, 0}), 0));
+        byte[] overlong = {TickFrameCodec.KEYFRAME, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0};
+        assertThrows(IllegalArgumentException.class, () -> decoder.decode(ByteBuffer.wrap(overlong), 0));
+    }
+}